@@ -0,0 +1,103 @@
+package com.automation.autoheal.benchmarks;
+
+import com.automation.autoheal.utils.CompactDom;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Memory cost of the healing DOM: CompactDom against the Jsoup tree it replaced.
+ *
+ * Run with {@code -prof gc} to compare allocation rate (gc.alloc.rate.norm is
+ * bytes allocated per parse). {@link #main} reports retained bytes per node,
+ * measured as the heap growth from keeping a batch of parsed pages alive.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DomFootprintBenchmark {
+
+    private static final String[] SIZES = {"100KB", "1MB", "5MB"};
+
+    @Param({"CATALOG", "DASHBOARD"})
+    public HtmlCorpus.Page page;
+
+    @Param({"100KB", "1MB", "5MB"})
+    public String size;
+
+    private String pageSource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pageSource = HtmlCorpus.page(page, size);
+    }
+
+    @Benchmark
+    public CompactDom parseCompact() {
+        return CompactDom.parse(pageSource);
+    }
+
+    @Benchmark
+    public Document parseJsoup() {
+        return Jsoup.parse(pageSource);
+    }
+
+    /**
+     * Print retained bytes per node of both representations for each corpus page
+     */
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-6s %8s %14s %14s %14s%n",
+            "page", "size", "nodes", "jsoup B/node", "compact B/node", "estimated");
+        for (HtmlCorpus.Page page : HtmlCorpus.Page.values()) {
+            for (String size : SIZES) {
+                String pageSource = HtmlCorpus.page(page, size);
+                CompactDom sample = CompactDom.parse(pageSource);
+                int nodes = sample.elementCount();
+                long jsoup = retainedBytes(() -> Jsoup.parse(pageSource));
+                long compact = retainedBytes(() -> CompactDom.parse(pageSource));
+                System.out.printf("%-10s %-6s %8d %14.1f %14.1f %14.1f%n", page, size, nodes,
+                    (double) jsoup / nodes, (double) compact / nodes, (double) sample.estimatedBytes() / nodes);
+            }
+        }
+    }
+
+    /**
+     * Average heap growth per instance while a few instances are kept reachable
+     */
+    private static long retainedBytes(Supplier<Object> parser) {
+        int copies = 4;
+        Object[] kept = new Object[copies];
+        parser.get(); // Warm the parser so class loading is not counted
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            kept[i] = parser.get();
+        }
+        long after = usedHeap();
+        if (kept[copies - 1] == null) {
+            throw new IllegalStateException("Parser returned null");
+        }
+        return Math.max(0, after - before) / copies;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // A few collections in a row settle on the live set
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,136 @@
+package com.automation.autoheal.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checked-in HTML corpus used by the benchmarks.
+ *
+ * Each seed page under resources/corpus marks one block with
+ * &lt;!--repeat--&gt; ... &lt;!--/repeat--&gt;. Pages of a requested size are built
+ * by repeating that block (with {{n}} replaced by the copy number) so the
+ * 10 KB - 5 MB variants are deterministic without checking in megabytes of HTML.
+ */
+public final class HtmlCorpus {
+
+    private static final String REPEAT_START = "<!--repeat-->";
+    private static final String REPEAT_END = "<!--/repeat-->";
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Seed pages with a locator that is broken on them and should heal
+     */
+    public enum Page {
+        LOGIN("login.html", "https://acme.test/login",
+            "//button[@id='login-submit' and text()='Sign in']"),
+        CATALOG("catalog.html", "https://acme.test/catalog",
+            "//a[@name='checkout' and @class='cart-checkout']"),
+        DASHBOARD("dashboard.html", "https://acme.test/admin",
+            "//input[@id='search' and @name='q']");
+
+        private final String resource;
+        private final String url;
+        private final String brokenXPath;
+
+        Page(String resource, String url, String brokenXPath) {
+            this.resource = resource;
+            this.url = url;
+            this.brokenXPath = brokenXPath;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getBrokenXPath() {
+            return brokenXPath;
+        }
+    }
+
+    private HtmlCorpus() {
+    }
+
+    /**
+     * Build a page of at least the given size, e.g. "10KB", "1MB"
+     */
+    public static String page(Page page, String size) {
+        return page(page, parseSize(size));
+    }
+
+    /**
+     * Build a page of at least the given size in bytes
+     */
+    public static String page(Page page, int targetBytes) {
+        return CACHE.computeIfAbsent(page.name() + ":" + targetBytes, key -> expand(seed(page), targetBytes));
+    }
+
+    /**
+     * Raw seed page as checked in
+     */
+    public static String seed(Page page) {
+        return readResource("corpus/" + page.getResource());
+    }
+
+    /**
+     * Repeat the marked block until the page reaches the target size
+     */
+    static String expand(String seed, int targetBytes) {
+        int start = seed.indexOf(REPEAT_START);
+        int end = seed.indexOf(REPEAT_END);
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Seed page has no repeat block");
+        }
+
+        String head = seed.substring(0, start);
+        String block = seed.substring(start + REPEAT_START.length(), end);
+        String tail = seed.substring(end + REPEAT_END.length());
+
+        StringBuilder page = new StringBuilder(Math.max(targetBytes, seed.length()) + block.length());
+        page.append(head);
+        int copy = 1;
+        do {
+            page.append(block.replace("{{n}}", String.valueOf(copy++)));
+        } while (page.length() + tail.length() < targetBytes);
+        page.append(tail);
+        return page.toString();
+    }
+
+    /**
+     * Parse sizes such as "10KB", "512KB" or "5MB"
+     */
+    public static int parseSize(String size) {
+        String normalized = size.trim().toUpperCase();
+        if (normalized.endsWith("MB")) {
+            return Integer.parseInt(normalized.substring(0, normalized.length() - 2).trim()) * 1024 * 1024;
+        }
+        if (normalized.endsWith("KB")) {
+            return Integer.parseInt(normalized.substring(0, normalized.length() - 2).trim()) * 1024;
+        }
+        return Integer.parseInt(normalized);
+    }
+
+    static String readResource(String name) {
+        try (InputStream in = HtmlCorpus.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Corpus resource not found: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read corpus resource: " + name, e);
+        }
+    }
+}
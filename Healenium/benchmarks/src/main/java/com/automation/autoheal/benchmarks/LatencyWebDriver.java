@@ -0,0 +1,53 @@
+package com.automation.autoheal.benchmarks;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stub driver that waits a fixed time on every command, standing in for the
+ * HTTP round trip to a real browser or grid. Waiting parks the thread, so a
+ * virtual thread is unmounted just as it would be on network I/O.
+ */
+public class LatencyWebDriver extends StubWebDriver {
+
+    private final long latencyNanos;
+
+    public LatencyWebDriver(String pageSource, String currentUrl, long latencyMicros) {
+        super(pageSource, currentUrl);
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    private void roundTrip() {
+        long deadline = System.nanoTime() + latencyNanos;
+        for (long remaining = latencyNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @Override
+    public void get(String url) {
+        roundTrip();
+        super.get(url);
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        roundTrip();
+        return super.getCurrentUrl();
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        roundTrip();
+        return super.findElements(by);
+    }
+
+    @Override
+    public Object executeScript(String script, Object... args) {
+        roundTrip();
+        return super.executeScript(script, args);
+    }
+}
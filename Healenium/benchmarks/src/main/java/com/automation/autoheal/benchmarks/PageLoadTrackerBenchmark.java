@@ -0,0 +1,75 @@
+package com.automation.autoheal.benchmarks;
+
+import com.automation.autoheal.utils.PageLoadTracker;
+import org.openjdk.jmh.annotations.*;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for PageLoadTracker statistics, alone and while other threads
+ * record page loads on the same tracker.
+ *
+ * Runs in single-shot batches from a freshly reset tracker so the number of
+ * recorded samples stays bounded and comparable between runs.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = 10000)
+@Measurement(iterations = 20, batchSize = 10000)
+@Fork(1)
+public class PageLoadTrackerBenchmark {
+
+    @Param({"0", "1000"})
+    public int preloadedSamples;
+
+    private PageLoadTracker tracker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StubWebDriver driver = new StubWebDriver(
+            HtmlCorpus.seed(HtmlCorpus.Page.LOGIN), HtmlCorpus.Page.LOGIN.getUrl());
+        tracker = new PageLoadTracker(driver);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        tracker.reset();
+        for (int i = 0; i < preloadedSamples; i++) {
+            record();
+        }
+    }
+
+    private long record() {
+        tracker.startTracking();
+        return tracker.stopTracking();
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public Map<String, Object> statisticsAlone() {
+        return tracker.getStatistics();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public long recordUnderContention() {
+        return record();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public Map<String, Object> statisticsUnderContention() {
+        return tracker.getStatistics();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public long averageUnderContention() {
+        return tracker.getAverageLoadTime();
+    }
+}
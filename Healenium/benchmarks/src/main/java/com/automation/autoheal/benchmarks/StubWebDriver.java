@@ -0,0 +1,206 @@
+package com.automation.autoheal.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openqa.selenium.*;
+import org.openqa.selenium.logging.Logs;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline WebDriver that serves a fixed page source and answers lookups
+ * from an in-memory Jsoup DOM, so benchmarks run without a browser.
+ * Lookup results are memoized per locator so measurements reflect the
+ * framework code rather than the stub's XPath evaluation.
+ */
+public class StubWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot {
+
+    private volatile String pageSource;
+    private volatile String currentUrl;
+    private volatile Document document;
+    private final Map<String, List<WebElement>> lookupCache = new ConcurrentHashMap<>();
+    private final StubOptions options = new StubOptions();
+
+    public StubWebDriver(String pageSource, String currentUrl) {
+        load(pageSource, currentUrl);
+    }
+
+    /**
+     * Replace the served page, as a navigation would
+     */
+    public void load(String pageSource, String currentUrl) {
+        this.pageSource = pageSource;
+        this.currentUrl = currentUrl;
+        this.document = Jsoup.parse(pageSource);
+        this.lookupCache.clear();
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    public void get(String url) {
+        this.currentUrl = url;
+    }
+
+    public String getCurrentUrl() {
+        return currentUrl;
+    }
+
+    public String getTitle() {
+        return document.title();
+    }
+
+    public List<WebElement> findElements(By by) {
+        return lookupCache.computeIfAbsent(by.toString(), key -> select(document, by));
+    }
+
+    public WebElement findElement(By by) {
+        List<WebElement> elements = findElements(by);
+        if (elements.isEmpty()) {
+            throw new NoSuchElementException("Unable to locate element: " + by);
+        }
+        return elements.get(0);
+    }
+
+    /**
+     * Evaluate a locator against a Jsoup element
+     */
+    static List<WebElement> select(Element root, By by) {
+        String locator = by.toString();
+        Elements matches;
+        try {
+            if (locator.startsWith("By.xpath: ")) {
+                matches = root.selectXpath(locator.substring("By.xpath: ".length()));
+            } else if (locator.startsWith("By.id: ")) {
+                matches = root.select("#" + locator.substring("By.id: ".length()));
+            } else if (locator.startsWith("By.cssSelector: ")) {
+                matches = root.select(locator.substring("By.cssSelector: ".length()));
+            } else if (locator.startsWith("By.name: ")) {
+                matches = root.getElementsByAttributeValue("name", locator.substring("By.name: ".length()));
+            } else if (locator.startsWith("By.tagName: ")) {
+                matches = root.getElementsByTag(locator.substring("By.tagName: ".length()));
+            } else {
+                throw new InvalidSelectorException("Unsupported locator for stub driver: " + locator);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new InvalidSelectorException("Invalid locator: " + locator, e);
+        }
+
+        List<WebElement> elements = new ArrayList<>(matches.size());
+        for (Element match : matches) {
+            elements.add(new StubWebElement(match));
+        }
+        return Collections.unmodifiableList(elements);
+    }
+
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    public void close() {
+        // Nothing to release
+    }
+
+    public void quit() {
+        // Nothing to release
+    }
+
+    public Set<String> getWindowHandles() {
+        return Collections.singleton("stub");
+    }
+
+    public String getWindowHandle() {
+        return "stub";
+    }
+
+    public TargetLocator switchTo() {
+        throw new UnsupportedOperationException("Stub driver does not support switching context");
+    }
+
+    public Navigation navigate() {
+        throw new UnsupportedOperationException("Stub driver does not support navigation history");
+    }
+
+    public Options manage() {
+        return options;
+    }
+
+    // JavascriptExecutor implementation - only document.readyState is understood
+    public Object executeScript(String script, Object... args) {
+        if (script.contains("document.readyState")) {
+            return "complete";
+        }
+        return null;
+    }
+
+    public Object executeAsyncScript(String script, Object... args) {
+        return null;
+    }
+
+    // TakesScreenshot implementation
+    public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+        return target.convertFromPngBytes(new byte[0]);
+    }
+
+    /**
+     * Options that accept timeout changes and ignore everything else
+     */
+    private static class StubOptions implements Options, Timeouts {
+
+        public void addCookie(Cookie cookie) {
+        }
+
+        public void deleteCookieNamed(String name) {
+        }
+
+        public void deleteCookie(Cookie cookie) {
+        }
+
+        public void deleteAllCookies() {
+        }
+
+        public Set<Cookie> getCookies() {
+            return Collections.emptySet();
+        }
+
+        public Cookie getCookieNamed(String name) {
+            return null;
+        }
+
+        public Timeouts timeouts() {
+            return this;
+        }
+
+        public ImeHandler ime() {
+            throw new UnsupportedOperationException("Stub driver has no IME");
+        }
+
+        public Window window() {
+            throw new UnsupportedOperationException("Stub driver has no window");
+        }
+
+        public Logs logs() {
+            throw new UnsupportedOperationException("Stub driver has no logs");
+        }
+
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            return this;
+        }
+
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            return this;
+        }
+
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.automation.autoheal.benchmarks;
+
+import org.jsoup.nodes.Element;
+import org.openqa.selenium.*;
+import java.util.List;
+
+/**
+ * WebElement backed by a Jsoup element for the offline stub driver
+ */
+public class StubWebElement implements WebElement {
+
+    private final Element element;
+
+    public StubWebElement(Element element) {
+        this.element = element;
+    }
+
+    public Element getElement() {
+        return element;
+    }
+
+    public void click() {
+    }
+
+    public void submit() {
+    }
+
+    public void sendKeys(CharSequence... keysToSend) {
+    }
+
+    public void clear() {
+    }
+
+    public String getTagName() {
+        return element.tagName();
+    }
+
+    public String getAttribute(String name) {
+        return element.hasAttr(name) ? element.attr(name) : null;
+    }
+
+    public boolean isSelected() {
+        return element.hasAttr("selected") || element.hasAttr("checked");
+    }
+
+    public boolean isEnabled() {
+        return !element.hasAttr("disabled");
+    }
+
+    public String getText() {
+        return element.text();
+    }
+
+    public List<WebElement> findElements(By by) {
+        return StubWebDriver.select(element, by);
+    }
+
+    public WebElement findElement(By by) {
+        List<WebElement> elements = findElements(by);
+        if (elements.isEmpty()) {
+            throw new NoSuchElementException("Unable to locate element: " + by);
+        }
+        return elements.get(0);
+    }
+
+    public boolean isDisplayed() {
+        return true;
+    }
+
+    public Point getLocation() {
+        return new Point(0, 0);
+    }
+
+    public Dimension getSize() {
+        return new Dimension(0, 0);
+    }
+
+    public Rectangle getRect() {
+        return new Rectangle(0, 0, 0, 0);
+    }
+
+    public String getCssValue(String propertyName) {
+        return "";
+    }
+
+    public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+        return target.convertFromPngBytes(new byte[0]);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof StubWebElement && ((StubWebElement) other).element == element;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(element);
+    }
+
+    @Override
+    public String toString() {
+        return "StubWebElement<" + element.tagName() + ">";
+    }
+}
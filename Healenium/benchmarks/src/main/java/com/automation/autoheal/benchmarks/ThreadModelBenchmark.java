@@ -0,0 +1,97 @@
+package com.automation.autoheal.benchmarks;
+
+import com.automation.autoheal.core.AutoHealWebDriver;
+import com.automation.autoheal.reporting.ExtentReportManager;
+import com.automation.autoheal.runner.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.By;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suite throughput with a fixed platform thread pool, as TestNG's
+ * thread-count gives, against one virtual thread per test.
+ *
+ * Each operation runs {@code sessions} short tests through AutoHealWebDriver,
+ * page load tracking and the Extent report, on stub drivers that wait
+ * {@code latencyMicros} per command like a browser round trip. The
+ * {@code virtual} model needs Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ThreadModelBenchmark {
+
+    private static final By[] STEPS = {
+        By.id("username"), By.id("password"), By.xpath("//button[@id='btn-signin']")
+    };
+
+    @Param({"platform", "virtual"})
+    public String threadModel;
+
+    @Param({"200", "1000"})
+    public int sessions;
+
+    @Param({"32"})
+    public int platformThreads;
+
+    @Param({"2000"})
+    public long latencyMicros;
+
+    private String pageSource;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pageSource = HtmlCorpus.seed(HtmlCorpus.Page.LOGIN);
+        executor = "virtual".equals(threadModel)
+            ? VirtualThreads.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(platformThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int suite() throws Exception {
+        List<Future<Integer>> tests = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String name = "test-" + i;
+            tests.add(executor.submit(() -> runTest(name)));
+        }
+        int found = 0;
+        for (Future<Integer> test : tests) {
+            found += test.get();
+        }
+        return found;
+    }
+
+    private int runTest(String name) {
+        ExtentReportManager reportManager = ExtentReportManager.getInstance();
+        reportManager.createTest(name);
+        try {
+            AutoHealWebDriver driver = new AutoHealWebDriver(
+                new LatencyWebDriver(pageSource, HtmlCorpus.Page.LOGIN.getUrl(), latencyMicros));
+            driver.get(HtmlCorpus.Page.LOGIN.getUrl());
+            int found = 0;
+            for (By step : STEPS) {
+                if (driver.findElement(step) != null) {
+                    found++;
+                }
+            }
+            reportManager.logPass("Test passed: " + name);
+            return found;
+        } finally {
+            reportManager.removeTest();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.automation.autoheal.harness;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Produces mutated copies of a page around a target element, the way
+ * front-end refactors typically break locators. Mutations are seeded so
+ * every run of the harness sees exactly the same variants.
+ */
+public class DomMutator {
+
+    /**
+     * Marker attribute placed on the element the healer is expected to find
+     */
+    public static final String TARGET_ATTRIBUTE = "data-autoheal-target";
+
+    /**
+     * Kinds of DOM change the harness measures healing against
+     */
+    public enum Mutation {
+        RENAME_IDS,
+        RESHUFFLE_CLASSES,
+        WRAP_CONTAINERS,
+        REORDER_SIBLINGS,
+        COMBINED
+    }
+
+    private final long seed;
+
+    public DomMutator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Clone the page, mark the target and apply the mutation to the clone
+     *
+     * @param before original page
+     * @param target element in the original page the locator resolves to
+     * @param mutation kind of change to apply
+     * @return mutated page with the target carrying {@link #TARGET_ATTRIBUTE}
+     */
+    public Document mutate(Document before, Element target, Mutation mutation) {
+        target.attr(TARGET_ATTRIBUTE, "");
+        Document after;
+        try {
+            after = before.clone();
+        } finally {
+            target.removeAttr(TARGET_ATTRIBUTE);
+        }
+
+        Element mutatedTarget = after.selectFirst("[" + TARGET_ATTRIBUTE + "]");
+        Random random = new Random(seed ^ (31L * mutation.ordinal()) ^ target.cssSelector().hashCode());
+        switch (mutation) {
+            case RENAME_IDS:
+                renameIds(after, mutatedTarget, random);
+                break;
+            case RESHUFFLE_CLASSES:
+                reshuffleClasses(after, mutatedTarget, random);
+                break;
+            case WRAP_CONTAINERS:
+                wrapContainers(mutatedTarget, random);
+                break;
+            case REORDER_SIBLINGS:
+                reorderSiblings(mutatedTarget, random);
+                break;
+            case COMBINED:
+                renameIds(after, mutatedTarget, random);
+                reshuffleClasses(after, mutatedTarget, random);
+                wrapContainers(mutatedTarget, random);
+                reorderSiblings(mutatedTarget, random);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported mutation: " + mutation);
+        }
+        return after;
+    }
+
+    /**
+     * Rename the target's id and a third of the other ids on the page
+     */
+    private void renameIds(Document document, Element target, Random random) {
+        for (Element element : document.select("[id]")) {
+            if (element == target || random.nextInt(3) == 0) {
+                element.attr("id", renamed(element.id(), random));
+            }
+        }
+    }
+
+    /**
+     * Reorder class tokens everywhere and replace one of the target's tokens
+     * with a hashed, CSS-modules style name
+     */
+    private void reshuffleClasses(Document document, Element target, Random random) {
+        for (Element element : document.select("[class]")) {
+            List<String> classes = new ArrayList<>(element.classNames());
+            if (element == target && !classes.isEmpty()) {
+                int replaced = random.nextInt(classes.size());
+                classes.set(replaced, classes.get(replaced) + "__" + suffix(random));
+            }
+            if (classes.size() > 1) {
+                Collections.shuffle(classes, random);
+            }
+            element.attr("class", String.join(" ", classes));
+        }
+        if (!target.hasAttr("class")) {
+            target.addClass("c-" + suffix(random));
+        }
+    }
+
+    /**
+     * Wrap the target, and one or two of its ancestors, in new div containers
+     */
+    private void wrapContainers(Element target, Random random) {
+        Element ancestor = target.parent();
+        target.wrap("<div class=\"wrap-" + suffix(random) + "\"></div>");
+        int levels = 1 + random.nextInt(2);
+        for (int i = 0; i < levels && isInsideBody(ancestor); i++) {
+            ancestor.wrap("<div class=\"layout-" + suffix(random) + "\"></div>");
+            ancestor = ancestor.parent().parent();
+        }
+    }
+
+    /**
+     * Shuffle the children of the target's parent and grandparent, moving the
+     * target (or its branch) away from its original position where possible
+     */
+    private void reorderSiblings(Element target, Random random) {
+        Element branch = target;
+        for (int level = 0; level < 2 && isInsideBody(branch.parent()); level++) {
+            Element parent = branch.parent();
+            List<Element> children = new ArrayList<>(parent.children());
+            if (children.size() > 1) {
+                int originalIndex = children.indexOf(branch);
+                Collections.shuffle(children, random);
+                if (children.indexOf(branch) == originalIndex) {
+                    Collections.swap(children, originalIndex, (originalIndex + 1) % children.size());
+                }
+                for (Element child : children) {
+                    child.remove();
+                }
+                for (Element child : children) {
+                    parent.appendChild(child);
+                }
+            }
+            branch = parent;
+        }
+    }
+
+    private boolean isInsideBody(Element element) {
+        return element != null && element.parent() != null
+            && !"html".equals(element.tagName()) && !"html".equals(element.parent().tagName());
+    }
+
+    private String renamed(String id, Random random) {
+        String[] parts = id.split("[-_]");
+        List<String> tokens = new ArrayList<>();
+        Collections.addAll(tokens, parts);
+        Collections.reverse(tokens);
+        return String.join("-", tokens) + "-" + suffix(random);
+    }
+
+    private String suffix(Random random) {
+        return Integer.toString(0x1000 + random.nextInt(0xefff), 36);
+    }
+
+    /**
+     * Remove the marker from a mutated page and return the target's position
+     * among all elements in document order
+     */
+    public static int detachTarget(Document after) {
+        List<Element> all = after.getAllElements();
+        for (int i = 0; i < all.size(); i++) {
+            Element element = all.get(i);
+            if (element.hasAttr(TARGET_ATTRIBUTE)) {
+                element.removeAttr(TARGET_ATTRIBUTE);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Position of an element among all elements of its document in document order
+     */
+    public static int documentIndex(Element element) {
+        Node root = element;
+        while (root.parent() != null) {
+            root = root.parent();
+        }
+        List<Element> all = ((Element) root).getAllElements();
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
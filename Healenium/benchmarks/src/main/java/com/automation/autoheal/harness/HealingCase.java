@@ -0,0 +1,61 @@
+package com.automation.autoheal.harness;
+
+/**
+ * One before/after healing scenario: a locator written against the original
+ * page, the mutated page it must be healed on, and which element of the
+ * mutated page is the correct answer
+ */
+public class HealingCase {
+
+    private final String name;
+    private final String mutation;
+    private final String url;
+    private final String originalXPath;
+    private final String afterHtml;
+    private final int targetIndex;
+
+    public HealingCase(String name, String mutation, String url, String originalXPath,
+                       String afterHtml, int targetIndex) {
+        this.name = name;
+        this.mutation = mutation;
+        this.url = url;
+        this.originalXPath = originalXPath;
+        this.afterHtml = afterHtml;
+        this.targetIndex = targetIndex;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMutation() {
+        return mutation;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getOriginalXPath() {
+        return originalXPath;
+    }
+
+    /**
+     * Mutated page as served to the healer, without the target marker
+     */
+    public String getAfterHtml() {
+        return afterHtml;
+    }
+
+    /**
+     * Position of the expected element among all elements of the mutated page
+     */
+    public int getTargetIndex() {
+        return targetIndex;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + mutation + "] " + originalXPath;
+    }
+}
@@ -0,0 +1,136 @@
+package com.automation.autoheal.harness;
+
+import com.automation.autoheal.benchmarks.HtmlCorpus;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Builds healing cases from the benchmark HTML corpus and from
+ * hand-authored before/after page pairs
+ */
+public class HealingCorpus {
+
+    /**
+     * Locators that uniquely identify an element on the original seed pages
+     */
+    private static final Map<HtmlCorpus.Page, List<String>> LOCATORS = new EnumMap<>(HtmlCorpus.Page.class);
+
+    static {
+        LOCATORS.put(HtmlCorpus.Page.LOGIN, Arrays.asList(
+            "//button[@id='btn-signin']",
+            "//input[@name='username']",
+            "//form[@id='login-form']/div[2]/input",
+            "//a[text()='Forgot password?']",
+            "/html/body/main/section[1]/h1",
+            "//input[@class='form-check-input']"));
+        LOCATORS.put(HtmlCorpus.Page.CATALOG, Arrays.asList(
+            "//input[@id='global-search']",
+            "//a[@class='btn cart-checkout' and text()='Checkout']",
+            "//aside/label[2]/input",
+            "//button[text()='Search']"));
+        LOCATORS.put(HtmlCorpus.Page.DASHBOARD, Arrays.asList(
+            "//span[@id='account-name']",
+            "//button[@id='logout' and text()='Log out']",
+            "//ul[@class='menu']/li[3]/a",
+            "//table[@id='orders']/thead/tr/th[3]"));
+    }
+
+    private final DomMutator mutator;
+
+    public HealingCorpus(long seed) {
+        this.mutator = new DomMutator(seed);
+    }
+
+    /**
+     * Every corpus page of the given size, crossed with every locator and mutation
+     */
+    public List<HealingCase> generatedCases(String size) {
+        List<HealingCase> cases = new ArrayList<>();
+        for (HtmlCorpus.Page page : HtmlCorpus.Page.values()) {
+            Document before = Jsoup.parse(HtmlCorpus.page(page, size));
+            for (String xPath : LOCATORS.get(page)) {
+                Element target = uniqueMatch(before, xPath, page.name());
+                for (DomMutator.Mutation mutation : DomMutator.Mutation.values()) {
+                    Document after = mutator.mutate(before, target, mutation);
+                    cases.add(toCase(page.name().toLowerCase(), mutation.name(), page.getUrl(), xPath, after));
+                }
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Hand-authored pairs: each sub-directory holds before.html, after.html and
+     * locators.properties mapping a key to an XPath written against before.html.
+     * The expected element in after.html carries data-autoheal-target="key".
+     */
+    public List<HealingCase> pairCases(File pairsDirectory) throws IOException {
+        File[] directories = pairsDirectory.listFiles(File::isDirectory);
+        if (directories == null) {
+            throw new IOException("Not a directory: " + pairsDirectory);
+        }
+        Arrays.sort(directories);
+
+        List<HealingCase> cases = new ArrayList<>();
+        for (File directory : directories) {
+            Document before = Jsoup.parse(read(new File(directory, "before.html")));
+            String afterHtml = read(new File(directory, "after.html"));
+            Properties locators = new Properties();
+            try (Reader reader = Files.newBufferedReader(new File(directory, "locators.properties").toPath(),
+                    StandardCharsets.UTF_8)) {
+                locators.load(reader);
+            }
+
+            List<String> keys = new ArrayList<>(locators.stringPropertyNames());
+            Collections.sort(keys);
+            for (String key : keys) {
+                String xPath = locators.getProperty(key);
+                uniqueMatch(before, xPath, directory.getName());
+
+                Document after = Jsoup.parse(afterHtml);
+                for (Element marked : after.select("[" + DomMutator.TARGET_ATTRIBUTE + "]")) {
+                    if (!key.equals(marked.attr(DomMutator.TARGET_ATTRIBUTE))) {
+                        marked.removeAttr(DomMutator.TARGET_ATTRIBUTE);
+                    }
+                }
+                cases.add(toCase(directory.getName() + "/" + key, "PAIR", "file:" + directory.getPath(), xPath, after));
+            }
+        }
+        return cases;
+    }
+
+    private HealingCase toCase(String name, String mutation, String url, String xPath, Document after) {
+        int targetIndex = DomMutator.detachTarget(after);
+        if (targetIndex < 0) {
+            throw new IllegalArgumentException("No target marked for " + name + ": " + xPath);
+        }
+        return new HealingCase(name, mutation, url, xPath, after.outerHtml(), targetIndex);
+    }
+
+    private Element uniqueMatch(Document before, String xPath, String source) {
+        Elements matches = before.selectXpath(xPath);
+        if (matches.size() != 1) {
+            throw new IllegalArgumentException("Locator must match exactly one element on " + source
+                + " but matched " + matches.size() + ": " + xPath);
+        }
+        return matches.first();
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
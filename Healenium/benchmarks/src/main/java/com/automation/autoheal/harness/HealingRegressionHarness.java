@@ -0,0 +1,167 @@
+package com.automation.autoheal.harness;
+
+import com.automation.autoheal.benchmarks.StubWebDriver;
+import com.automation.autoheal.benchmarks.StubWebElement;
+import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.utils.XPathHealer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline healing regression harness.
+ *
+ * Heals every case of the mutation corpus with XPathHealer through the
+ * in-process stub driver and reports heal accuracy, false-heal rate and
+ * p50/p99 heal latency. Optional gates make the run fail when a healer
+ * change regresses accuracy or starts healing to the wrong elements.
+ *
+ * Usage: HealingRegressionHarness [--size 10KB] [--iterations 5] [--seed 42]
+ *        [--pairs dir] [--out file.json] [--min-accuracy 0.8] [--max-false-heal-rate 0.05]
+ */
+public class HealingRegressionHarness {
+
+    private final AutoHealConfig config;
+    private final int iterations;
+
+    public HealingRegressionHarness(AutoHealConfig config, int iterations) {
+        this.config = config;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Heal every case once untimed to warm up, then the configured number of timed times
+     */
+    public HealingReport run(List<HealingCase> cases) {
+        HealingReport report = new HealingReport();
+        for (HealingCase healingCase : cases) {
+            StubWebDriver driver = new StubWebDriver(healingCase.getAfterHtml(), healingCase.getUrl());
+            By original = By.xpath(healingCase.getOriginalXPath());
+
+            if (resolvesToTarget(driver, original, healingCase)) {
+                report.record(healingCase, HealingReport.Outcome.NOT_BROKEN, null, new long[0]);
+                continue;
+            }
+
+            By healed = new XPathHealer(driver, config).healXPath(original);
+            long[] latencies = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                XPathHealer healer = new XPathHealer(driver, config);
+                long start = System.nanoTime();
+                healer.healXPath(original);
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            HealingReport.Outcome outcome;
+            if (healed == null) {
+                outcome = HealingReport.Outcome.NOT_HEALED;
+            } else if (resolvesToTarget(driver, healed, healingCase)) {
+                outcome = HealingReport.Outcome.HEALED;
+            } else {
+                outcome = HealingReport.Outcome.FALSE_HEAL;
+            }
+            report.record(healingCase, outcome, healed == null ? null : healed.toString(), latencies);
+        }
+        return report;
+    }
+
+    private boolean resolvesToTarget(StubWebDriver driver, By locator, HealingCase healingCase) {
+        List<WebElement> matches;
+        try {
+            matches = driver.findElements(locator);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (matches.isEmpty()) {
+            return false;
+        }
+        StubWebElement first = (StubWebElement) matches.get(0);
+        return DomMutator.documentIndex(first.getElement()) == healingCase.getTargetIndex();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        String size = options.getOrDefault("size", "10KB");
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        HealingCorpus corpus = new HealingCorpus(seed);
+        List<HealingCase> cases = new ArrayList<>(corpus.generatedCases(size));
+        if (options.containsKey("pairs")) {
+            cases.addAll(corpus.pairCases(new File(options.get("pairs"))));
+        }
+
+        HealingReport report = new HealingRegressionHarness(AutoHealConfig.getInstance(), iterations).run(cases);
+        System.out.println("Healing regression harness: " + cases.size() + " cases, page size " + size);
+        System.out.print(report.toTable());
+
+        if (options.containsKey("out")) {
+            writeJson(report, new File(options.get("out")));
+        }
+
+        HealingReport.Summary overall = report.getOverall();
+        boolean failed = false;
+        if (options.containsKey("min-accuracy")
+                && overall.getAccuracy() < Double.parseDouble(options.get("min-accuracy"))) {
+            System.out.println("FAIL: heal accuracy below " + options.get("min-accuracy"));
+            failed = true;
+        }
+        if (options.containsKey("max-false-heal-rate")
+                && overall.getFalseHealRate() > Double.parseDouble(options.get("max-false-heal-rate"))) {
+            System.out.println("FAIL: false-heal rate above " + options.get("max-false-heal-rate"));
+            failed = true;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static void writeJson(HealingReport report, File file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        Map<String, Object> summaries = new LinkedHashMap<>();
+        for (HealingReport.Summary summary : report.getSummaries().values()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("cases", summary.getCases());
+            values.put("broken", summary.getBroken());
+            values.put("healed", summary.getHealed());
+            values.put("falseHeals", summary.getFalseHeals());
+            values.put("notHealed", summary.getNotHealed());
+            values.put("accuracy", summary.getAccuracy());
+            values.put("falseHealRate", summary.getFalseHealRate());
+            values.put("p50Millis", summary.getP50Millis());
+            values.put("p99Millis", summary.getP99Millis());
+            summaries.put(summary.getName(), values);
+        }
+        json.put("summaries", summaries);
+        json.put("cases", report.getResults());
+
+        if (file.getParentFile() != null) {
+            Files.createDirectories(file.getParentFile().toPath());
+        }
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(json, writer);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs but got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,211 @@
+package com.automation.autoheal.harness;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heal accuracy, false-heal rate and heal latency for a harness run,
+ * overall and per mutation kind
+ */
+public class HealingReport {
+
+    /**
+     * What happened when a case was healed
+     */
+    public enum Outcome {
+        /** Healed locator resolves to the expected element */
+        HEALED,
+        /** Healed locator resolves to a different element */
+        FALSE_HEAL,
+        /** Healer gave up */
+        NOT_HEALED,
+        /** Original locator still finds the expected element, nothing to heal */
+        NOT_BROKEN
+    }
+
+    private final Map<String, Summary> summaries = new LinkedHashMap<>();
+    private final List<CaseResult> results = new ArrayList<>();
+
+    /**
+     * Record one case and the latencies of its timed heal attempts
+     */
+    public void record(HealingCase healingCase, Outcome outcome, String healedXPath, long[] latencyNanos) {
+        results.add(new CaseResult(healingCase, outcome, healedXPath));
+        summary("ALL").add(outcome, latencyNanos);
+        summary(healingCase.getMutation()).add(outcome, latencyNanos);
+    }
+
+    private Summary summary(String key) {
+        return summaries.computeIfAbsent(key, Summary::new);
+    }
+
+    public Summary getOverall() {
+        return summary("ALL");
+    }
+
+    public Map<String, Summary> getSummaries() {
+        return summaries;
+    }
+
+    public List<CaseResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Fixed-width table for the console
+     */
+    public String toTable() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-18s %6s %6s %7s %7s %7s %9s %9s %9s %9s%n",
+            "mutation", "cases", "broken", "healed", "false", "missed", "accuracy", "falseRate", "p50(ms)", "p99(ms)"));
+        for (Summary summary : summaries.values()) {
+            table.append(String.format("%-18s %6d %6d %7d %7d %7d %8.1f%% %8.1f%% %9.2f %9.2f%n",
+                summary.name, summary.cases, summary.getBroken(), summary.healed, summary.falseHeals,
+                summary.notHealed, summary.getAccuracy() * 100, summary.getFalseHealRate() * 100,
+                summary.getP50Millis(), summary.getP99Millis()));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Outcome counts and latency distribution for a group of cases
+     */
+    public static class Summary {
+
+        private final String name;
+        private int cases;
+        private int healed;
+        private int falseHeals;
+        private int notHealed;
+        private int notBroken;
+        private transient long[] latencies = new long[16];
+        private transient int latencyCount;
+
+        Summary(String name) {
+            this.name = name;
+        }
+
+        void add(Outcome outcome, long[] latencyNanos) {
+            cases++;
+            switch (outcome) {
+                case HEALED:
+                    healed++;
+                    break;
+                case FALSE_HEAL:
+                    falseHeals++;
+                    break;
+                case NOT_HEALED:
+                    notHealed++;
+                    break;
+                default:
+                    notBroken++;
+                    return;
+            }
+            for (long latency : latencyNanos) {
+                if (latencyCount == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                }
+                latencies[latencyCount++] = latency;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCases() {
+            return cases;
+        }
+
+        public int getBroken() {
+            return cases - notBroken;
+        }
+
+        public int getHealed() {
+            return healed;
+        }
+
+        public int getFalseHeals() {
+            return falseHeals;
+        }
+
+        public int getNotHealed() {
+            return notHealed;
+        }
+
+        /**
+         * Share of broken locators healed to the right element
+         */
+        public double getAccuracy() {
+            return getBroken() == 0 ? 0 : (double) healed / getBroken();
+        }
+
+        /**
+         * Share of broken locators healed to the wrong element
+         */
+        public double getFalseHealRate() {
+            return getBroken() == 0 ? 0 : (double) falseHeals / getBroken();
+        }
+
+        public double getP50Millis() {
+            return percentile(0.50) / 1_000_000.0;
+        }
+
+        public double getP99Millis() {
+            return percentile(0.99) / 1_000_000.0;
+        }
+
+        private long percentile(double quantile) {
+            if (latencyCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    /**
+     * Outcome of a single case
+     */
+    public static class CaseResult {
+
+        private final String name;
+        private final String mutation;
+        private final String originalXPath;
+        private final String healedXPath;
+        private final Outcome outcome;
+
+        CaseResult(HealingCase healingCase, Outcome outcome, String healedXPath) {
+            this.name = healingCase.getName();
+            this.mutation = healingCase.getMutation();
+            this.originalXPath = healingCase.getOriginalXPath();
+            this.healedXPath = healedXPath;
+            this.outcome = outcome;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getMutation() {
+            return mutation;
+        }
+
+        public String getOriginalXPath() {
+            return originalXPath;
+        }
+
+        public String getHealedXPath() {
+            return healedXPath;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+    }
+}
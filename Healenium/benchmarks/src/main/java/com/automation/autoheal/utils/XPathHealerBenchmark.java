@@ -0,0 +1,120 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.benchmarks.HtmlCorpus;
+import com.automation.autoheal.benchmarks.StubWebDriver;
+import com.automation.autoheal.config.AutoHealConfig;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.By;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for each stage of XPathHealer over the HTML corpus.
+ *
+ * Lives in the healer's package so the package-private stages can be
+ * measured individually as well as end to end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XPathHealerBenchmark {
+
+    @Param({"LOGIN", "CATALOG", "DASHBOARD"})
+    public HtmlCorpus.Page page;
+
+    @Param({"10KB", "100KB", "1MB", "5MB"})
+    public String size;
+
+    private String pageSource;
+    private String brokenXPath;
+    private By brokenLocator;
+    private CompactDom dom;
+    private XPathHealer healer;
+    private XPathHealer.XPathAttributes attributes;
+    private CompactDom.Filter filter;
+    private int[] candidates;
+    private int bestMatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pageSource = HtmlCorpus.page(page, size);
+        brokenXPath = page.getBrokenXPath();
+        brokenLocator = By.xpath(brokenXPath);
+        dom = CompactDom.parse(pageSource);
+
+        StubWebDriver driver = new StubWebDriver(pageSource, page.getUrl());
+        healer = new XPathHealer(driver, AutoHealConfig.getInstance());
+        attributes = healer.extractAttributesFromXPath(brokenXPath);
+        filter = new CompactDom.Filter()
+            .id(attributes.id)
+            .text(attributes.text)
+            .className(attributes.className)
+            .name(attributes.name)
+            .tagName(attributes.tagName);
+        candidates = healer.collectCandidates(dom, attributes);
+        bestMatch = healer.findBestMatch(dom, candidates, attributes);
+        if (bestMatch < 0) {
+            throw new IllegalStateException("Corpus page " + page + " does not heal " + brokenXPath);
+        }
+    }
+
+    @Benchmark
+    public XPathHealer.XPathAttributes extractAttributes() {
+        return healer.extractAttributesFromXPath(brokenXPath);
+    }
+
+    @Benchmark
+    public CompactDom parse() {
+        return CompactDom.parse(pageSource);
+    }
+
+    /**
+     * Streaming scan the healer uses: only candidates and their ancestors are kept
+     */
+    @Benchmark
+    public CompactDom scan() {
+        return CompactDom.scan(pageSource, filter);
+    }
+
+    /**
+     * The Jsoup parse the healer used before CompactDom, for comparison
+     */
+    @Benchmark
+    public Document parseJsoup() {
+        return Jsoup.parse(pageSource);
+    }
+
+    @Benchmark
+    public int[] collectCandidates() {
+        return healer.collectCandidates(dom, attributes);
+    }
+
+    @Benchmark
+    public int findBestMatch() {
+        return healer.findBestMatch(dom, candidates, attributes);
+    }
+
+    @Benchmark
+    public DomIndex buildIndex() {
+        return new DomIndex(dom);
+    }
+
+    @Benchmark
+    public String generateXPath() {
+        return healer.generateXPath(dom, bestMatch);
+    }
+
+    /**
+     * Full heal from a cold cache: page source, parse, candidates, scoring, generation
+     */
+    @Benchmark
+    public void healXPath(Blackhole blackhole) {
+        healer.clearCache();
+        blackhole.consume(healer.healXPath(brokenLocator));
+    }
+}
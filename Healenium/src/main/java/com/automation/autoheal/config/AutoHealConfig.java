@@ -1,85 +1,816 @@
 package com.automation.autoheal.config;
 
-import java.io.FileInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
- * Configuration manager for AutoHeal framework
+ * Configuration manager for AutoHeal framework.
+ *
+ * Values are layered, later sources winning: built-in defaults, the
+ * autoheal.properties classpath resource, the file named by -Dautoheal.config
+ * (when present), AUTOHEAL_* environment variables, then system properties.
+ * The result is parsed once into an immutable snapshot published through a
+ * volatile field, so getters are lock-free field reads. With
+ * config.hotReload.enabled, a change to a configuration file on disk rebuilds
+ * and swaps the snapshot, letting long suites pick up new healing and timeout
+ * settings without a restart; an invalid edit is logged and the previous
+ * snapshot kept.
  */
 public class AutoHealConfig {
-    
-    private static AutoHealConfig instance;
-    private Properties properties;
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoHealConfig.class);
+
+    public static final String CONFIG_RESOURCE = "autoheal.properties";
+    public static final String CONFIG_FILE_PROPERTY = "autoheal.config";
+    private static final String ENV_PREFIX = "AUTOHEAL_";
+
+    // System properties with these prefixes override the configuration files
+    private static final String[] KEY_PREFIXES = {
+        "autoheal.", "pageLoad.", "budget.", "driver.", "browser.", "screenshot.", "report.", "config."
+    };
+
     // Default values
     private static final int DEFAULT_MAX_RETRY_ATTEMPTS = 3;
     private static final long DEFAULT_PAGE_LOAD_TIMEOUT = 30000; // 30 seconds
     private static final boolean DEFAULT_AUTO_HEAL_ENABLED = true;
     private static final boolean DEFAULT_PAGE_LOAD_TRACKING_ENABLED = true;
-    
+    private static final String DEFAULT_PAGE_LOAD_BASELINE_FILE = "test-output/page-load/baseline.json";
+    private static final boolean DEFAULT_PAGE_LOAD_BASELINE_UPDATE = true;
+    private static final int DEFAULT_PAGE_LOAD_BASELINE_MAX_SAMPLES = 200;
+    private static final String DEFAULT_PAGE_LOAD_SUMMARY_FILE = "test-output/page-load/summary.json";
+    private static final int DEFAULT_PAGE_LOAD_REGRESSION_MIN_SAMPLES = 5;
+    private static final double DEFAULT_PAGE_LOAD_REGRESSION_THRESHOLD = 0.2;
+    private static final long DEFAULT_PAGE_LOAD_REGRESSION_MIN_DELTA = 100;
+    private static final String DEFAULT_BUDGET_ENFORCEMENT = "warn";
+    private static final String DEFAULT_BUDGET_HISTORY_FILE = "test-output/test-budgets.jsonl";
+    private static final String DEFAULT_REPORT_DIRECTORY = "test-output";
+    private static final String DEFAULT_REPORT_SINKS = "extent";
+    private static final String DEFAULT_REPORT_LOG_LEVEL = "info";
+    private static final int DEFAULT_REPORT_LOG_REPEAT_LIMIT = 5;
+    private static final int DEFAULT_REPORT_LOG_SAMPLE_EVERY = 100;
+    private static final boolean DEFAULT_FAILURE_BUNDLE_ENABLED = true;
+    private static final String DEFAULT_FAILURE_BUNDLE_DIRECTORY = "test-output/failure-bundles";
+    private static final int DEFAULT_FAILURE_BUNDLE_COMMANDS = 50;
+    private static final long DEFAULT_FAILURE_BUNDLE_MAX_PART_BYTES = 1024 * 1024; // 1 MB
+    private static final int DEFAULT_FAILURE_BUNDLE_MAX_BUNDLES = 50;
+    private static final long DEFAULT_FAILURE_BUNDLE_MAX_TOTAL_BYTES = 100 * 1024 * 1024; // 100 MB
+    private static final boolean DEFAULT_DRIVER_POOL_ENABLED = false;
+    private static final String DEFAULT_DRIVER_POOL_SIZE = "auto";
+    private static final int DEFAULT_DRIVER_POOL_MAX_USES = 50;
+    private static final long DEFAULT_DRIVER_POOL_ACQUIRE_TIMEOUT = 120000; // 2 minutes
+    private static final String DEFAULT_DRIVER_SCOPE = "method";
+    private static final long DEFAULT_REMOTE_CONNECTION_TIMEOUT = 10000; // 10 seconds
+    private static final long DEFAULT_REMOTE_READ_TIMEOUT = 120000; // 2 minutes
+    private static final boolean DEFAULT_COMMAND_BATCHING_ENABLED = false;
+    private static final boolean DEFAULT_HOT_RELOAD_ENABLED = false;
+    private static final boolean DEFAULT_HEAL_AHEAD_ENABLED = false;
+    private static final int DEFAULT_HEAL_AHEAD_MAX_LOCATORS = 200;
+    private static final int DEFAULT_STALE_ELEMENT_RETRIES = 2;
+    private static final boolean DEFAULT_CIRCUIT_BREAKER_ENABLED = true;
+    private static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 3;
+    private static final long DEFAULT_CIRCUIT_BREAKER_COOLDOWN = 30000; // 30 seconds
+    private static final long DEFAULT_CIRCUIT_BREAKER_MAX_COOLDOWN = 600000; // 10 minutes
+    private static final String DEFAULT_HEALING_ENGINE = "jvm";
+    private static final int DEFAULT_HEALING_TOP_CANDIDATES = 5;
+    private static final double DEFAULT_HEAL_MIN_CONFIDENCE = 0.3;
+    private static final double DEFAULT_HEAL_MIN_MARGIN = 0.05;
+    private static final boolean DEFAULT_HEAL_AUDIT_ENABLED = true;
+    private static final String DEFAULT_HEAL_AUDIT_DIRECTORY = "test-output/heal-audit";
+    private static final String DEFAULT_HEAL_CACHE_SEED_FILE = "";
+    private static final String DEFAULT_HEAL_CACHE_EXPORT_FILE = "";
+    private static final long RELOAD_SETTLE_MILLIS = 100; // Let editors finish writing before reading
+
+    private final Set<Path> configFiles;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Created on first use; class initialization makes getInstance() lock-free
+     */
+    private static class Holder {
+        private static final AutoHealConfig INSTANCE = new AutoHealConfig();
+    }
+
     private AutoHealConfig() {
-        properties = new Properties();
-        loadProperties();
+        configFiles = findConfigFiles();
+        try {
+            snapshot = new Snapshot(loadValues(), 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read AutoHeal configuration", e);
+        }
+        if (snapshot.hotReloadEnabled) {
+            startWatcher();
+        }
+    }
+
+    public static AutoHealConfig getInstance() {
+        return Holder.INSTANCE;
     }
-    
-    public static synchronized AutoHealConfig getInstance() {
-        if (instance == null) {
-            instance = new AutoHealConfig();
+
+    /**
+     * Configuration files on disk that are loaded and watched for changes
+     */
+    private static Set<Path> findConfigFiles() {
+        Set<Path> files = new LinkedHashSet<>();
+        URL resource = classLoader().getResource(CONFIG_RESOURCE);
+        if (resource != null && "file".equals(resource.getProtocol())) {
+            try {
+                files.add(Paths.get(resource.toURI()).toAbsolutePath());
+            } catch (URISyntaxException e) {
+                // Not watchable, still loaded from the classpath
+            }
+        }
+        String explicit = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (explicit != null && !explicit.trim().isEmpty()) {
+            Path file = Paths.get(explicit.trim()).toAbsolutePath();
+            if (!Files.isRegularFile(file)) {
+                throw new IllegalStateException("AutoHeal configuration file not found: " + file);
+            }
+            files.add(file);
         }
-        return instance;
+        return Collections.unmodifiableSet(files);
     }
-    
+
+    private static ClassLoader classLoader() {
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        return contextLoader != null ? contextLoader : AutoHealConfig.class.getClassLoader();
+    }
+
     /**
-     * Load properties from config file or use defaults
+     * Merge all configuration sources, later ones overriding earlier ones
      */
-    private void loadProperties() {
+    private Map<String, String> loadValues() throws IOException {
+        Map<String, String> values = new HashMap<>(defaultValues());
+
+        try (InputStream in = classLoader().getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                putAll(values, in);
+            }
+        }
+        for (Path file : configFiles) {
+            // The classpath copy was loaded above; only later files can override it
+            try (InputStream in = Files.newInputStream(file)) {
+                putAll(values, in);
+            }
+        }
+
+        for (String key : values.keySet().toArray(new String[0])) {
+            String fromEnvironment = System.getenv(environmentName(key));
+            if (fromEnvironment != null) {
+                values.put(key, fromEnvironment);
+            }
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (hasConfigPrefix(key)) {
+                values.put(key, System.getProperty(key));
+            }
+        }
+        return values;
+    }
+
+    private static void putAll(Map<String, String> values, InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load(in);
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key));
+        }
+    }
+
+    /**
+     * Default values, also the keys that can be set through environment variables
+     */
+    private static Map<String, String> defaultValues() {
+        Map<String, String> defaults = new HashMap<>();
+        defaults.put("autoheal.enabled", String.valueOf(DEFAULT_AUTO_HEAL_ENABLED));
+        defaults.put("autoheal.maxRetryAttempts", String.valueOf(DEFAULT_MAX_RETRY_ATTEMPTS));
+        defaults.put("autoheal.healAhead.enabled", String.valueOf(DEFAULT_HEAL_AHEAD_ENABLED));
+        defaults.put("autoheal.healAhead.maxLocatorsPerPage", String.valueOf(DEFAULT_HEAL_AHEAD_MAX_LOCATORS));
+        defaults.put("autoheal.staleElement.maxRetries", String.valueOf(DEFAULT_STALE_ELEMENT_RETRIES));
+        defaults.put("autoheal.circuitBreaker.enabled", String.valueOf(DEFAULT_CIRCUIT_BREAKER_ENABLED));
+        defaults.put("autoheal.circuitBreaker.failureThreshold", String.valueOf(DEFAULT_CIRCUIT_BREAKER_THRESHOLD));
+        defaults.put("autoheal.circuitBreaker.cooldown", String.valueOf(DEFAULT_CIRCUIT_BREAKER_COOLDOWN));
+        defaults.put("autoheal.circuitBreaker.maxCooldown", String.valueOf(DEFAULT_CIRCUIT_BREAKER_MAX_COOLDOWN));
+        defaults.put("autoheal.engine", DEFAULT_HEALING_ENGINE);
+        defaults.put("autoheal.engine.topCandidates", String.valueOf(DEFAULT_HEALING_TOP_CANDIDATES));
+        defaults.put("autoheal.heal.minConfidence", String.valueOf(DEFAULT_HEAL_MIN_CONFIDENCE));
+        defaults.put("autoheal.heal.minMargin", String.valueOf(DEFAULT_HEAL_MIN_MARGIN));
+        defaults.put("autoheal.audit.enabled", String.valueOf(DEFAULT_HEAL_AUDIT_ENABLED));
+        defaults.put("autoheal.audit.directory", DEFAULT_HEAL_AUDIT_DIRECTORY);
+        defaults.put("autoheal.cache.seedFile", DEFAULT_HEAL_CACHE_SEED_FILE);
+        defaults.put("autoheal.cache.exportFile", DEFAULT_HEAL_CACHE_EXPORT_FILE);
+        defaults.put("pageLoad.tracking.enabled", String.valueOf(DEFAULT_PAGE_LOAD_TRACKING_ENABLED));
+        defaults.put("pageLoad.defaultTimeout", String.valueOf(DEFAULT_PAGE_LOAD_TIMEOUT));
+        defaults.put("pageLoad.baseline.file", DEFAULT_PAGE_LOAD_BASELINE_FILE);
+        defaults.put("pageLoad.baseline.update", String.valueOf(DEFAULT_PAGE_LOAD_BASELINE_UPDATE));
+        defaults.put("pageLoad.baseline.maxSamples", String.valueOf(DEFAULT_PAGE_LOAD_BASELINE_MAX_SAMPLES));
+        defaults.put("pageLoad.summary.file", DEFAULT_PAGE_LOAD_SUMMARY_FILE);
+        defaults.put("pageLoad.regression.minSamples", String.valueOf(DEFAULT_PAGE_LOAD_REGRESSION_MIN_SAMPLES));
+        defaults.put("pageLoad.regression.threshold", String.valueOf(DEFAULT_PAGE_LOAD_REGRESSION_THRESHOLD));
+        defaults.put("pageLoad.regression.minDelta", String.valueOf(DEFAULT_PAGE_LOAD_REGRESSION_MIN_DELTA));
+        defaults.put("budget.enforcement", DEFAULT_BUDGET_ENFORCEMENT);
+        defaults.put("budget.historyFile", DEFAULT_BUDGET_HISTORY_FILE);
+        defaults.put("report.path", DEFAULT_REPORT_DIRECTORY);
+        defaults.put("report.sinks", DEFAULT_REPORT_SINKS);
+        defaults.put("report.log.level", DEFAULT_REPORT_LOG_LEVEL);
+        defaults.put("report.log.repeatLimit", String.valueOf(DEFAULT_REPORT_LOG_REPEAT_LIMIT));
+        defaults.put("report.log.sampleEvery", String.valueOf(DEFAULT_REPORT_LOG_SAMPLE_EVERY));
+        defaults.put("report.failureBundle.enabled", String.valueOf(DEFAULT_FAILURE_BUNDLE_ENABLED));
+        defaults.put("report.failureBundle.directory", DEFAULT_FAILURE_BUNDLE_DIRECTORY);
+        defaults.put("report.failureBundle.commands", String.valueOf(DEFAULT_FAILURE_BUNDLE_COMMANDS));
+        defaults.put("report.failureBundle.maxPartBytes", String.valueOf(DEFAULT_FAILURE_BUNDLE_MAX_PART_BYTES));
+        defaults.put("report.failureBundle.maxBundles", String.valueOf(DEFAULT_FAILURE_BUNDLE_MAX_BUNDLES));
+        defaults.put("report.failureBundle.maxTotalBytes", String.valueOf(DEFAULT_FAILURE_BUNDLE_MAX_TOTAL_BYTES));
+        defaults.put("driver.pool.enabled", String.valueOf(DEFAULT_DRIVER_POOL_ENABLED));
+        defaults.put("driver.pool.size", DEFAULT_DRIVER_POOL_SIZE);
+        defaults.put("driver.pool.maxUsesPerSession", String.valueOf(DEFAULT_DRIVER_POOL_MAX_USES));
+        defaults.put("driver.pool.acquireTimeout", String.valueOf(DEFAULT_DRIVER_POOL_ACQUIRE_TIMEOUT));
+        defaults.put("driver.scope", DEFAULT_DRIVER_SCOPE);
+        defaults.put("driver.remote.url", "");
+        defaults.put("driver.remote.connectionTimeout", String.valueOf(DEFAULT_REMOTE_CONNECTION_TIMEOUT));
+        defaults.put("driver.remote.readTimeout", String.valueOf(DEFAULT_REMOTE_READ_TIMEOUT));
+        defaults.put("driver.commandBatching.enabled", String.valueOf(DEFAULT_COMMAND_BATCHING_ENABLED));
+        defaults.put("config.hotReload.enabled", String.valueOf(DEFAULT_HOT_RELOAD_ENABLED));
+        return defaults;
+    }
+
+    /**
+     * Environment variable for a key: driver.pool.maxUsesPerSession is
+     * AUTOHEAL_DRIVER_POOL_MAX_USES_PER_SESSION, autoheal.enabled is AUTOHEAL_ENABLED
+     */
+    static String environmentName(String key) {
+        String name = key.startsWith("autoheal.") ? key.substring("autoheal.".length()) : key;
+        return ENV_PREFIX + name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").replace('.', '_').toUpperCase();
+    }
+
+    private static boolean hasConfigPrefix(String key) {
+        for (String prefix : KEY_PREFIXES) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Re-read all sources and publish the result if it differs from the current
+     * snapshot. An invalid configuration is rejected and the current one kept.
+     *
+     * @return true if a new snapshot was published
+     */
+    public boolean reload() {
+        Snapshot current = snapshot;
+        try {
+            Map<String, String> values = loadValues();
+            if (values.equals(current.values)) {
+                return false;
+            }
+            snapshot = new Snapshot(values, current.version + 1);
+            logger.info("AutoHeal configuration reloaded (version {})", current.version + 1);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring invalid AutoHeal configuration change, keeping version {}: {}",
+                current.version, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Watch the directories of the configuration files and reload on change
+     */
+    private void startWatcher() {
+        if (configFiles.isEmpty()) {
+            return;
+        }
+        WatchService watchService;
+        Map<WatchKey, Path> directories = new HashMap<>();
         try {
-            FileInputStream fis = new FileInputStream("src/main/resources/autoheal.properties");
-            properties.load(fis);
-            fis.close();
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path file : configFiles) {
+                Path directory = file.getParent();
+                if (!directories.containsValue(directory)) {
+                    directories.put(directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE), directory);
+                }
+            }
         } catch (IOException e) {
-            // Use default values if config file doesn't exist
-            setDefaultProperties();
+            logger.warn("AutoHeal configuration hot reload unavailable: {}", e.getMessage());
+            return;
         }
+
+        Thread watcher = new Thread(() -> watch(watchService, directories), "autoheal-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
     }
-    
+
+    private void watch(WatchService watchService, Map<WatchKey, Path> directories) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (directory != null && context instanceof Path
+                            && configFiles.contains(directory.resolve((Path) context))) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed && snapshot.hotReloadEnabled) {
+                    Thread.sleep(RELOAD_SETTLE_MILLIS);
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // JVM shutting down
+        }
+    }
+
     /**
-     * Set default properties
+     * Number of the current snapshot, incremented on every applied reload
      */
-    private void setDefaultProperties() {
-        properties.setProperty("autoheal.enabled", String.valueOf(DEFAULT_AUTO_HEAL_ENABLED));
-        properties.setProperty("autoheal.maxRetryAttempts", String.valueOf(DEFAULT_MAX_RETRY_ATTEMPTS));
-        properties.setProperty("pageLoad.tracking.enabled", String.valueOf(DEFAULT_PAGE_LOAD_TRACKING_ENABLED));
-        properties.setProperty("pageLoad.defaultTimeout", String.valueOf(DEFAULT_PAGE_LOAD_TIMEOUT));
+    public long getVersion() {
+        return snapshot.version;
     }
-    
+
     public boolean isAutoHealEnabled() {
-        return Boolean.parseBoolean(properties.getProperty("autoheal.enabled", 
-            String.valueOf(DEFAULT_AUTO_HEAL_ENABLED)));
+        return snapshot.autoHealEnabled;
     }
-    
+
     public int getMaxRetryAttempts() {
-        return Integer.parseInt(properties.getProperty("autoheal.maxRetryAttempts", 
-            String.valueOf(DEFAULT_MAX_RETRY_ATTEMPTS)));
+        return snapshot.maxRetryAttempts;
+    }
+
+    /**
+     * Validate a page's known locators right after navigation and heal broken ones in the background
+     */
+    public boolean isHealAheadEnabled() {
+        return snapshot.healAheadEnabled;
+    }
+
+    /**
+     * Locators remembered per URL template for heal-ahead validation
+     */
+    public int getHealAheadMaxLocatorsPerPage() {
+        return snapshot.healAheadMaxLocators;
+    }
+
+    /**
+     * Times an element is re-located after a StaleElementReferenceException, 0 to disable
+     */
+    public int getStaleElementMaxRetries() {
+        return snapshot.staleElementRetries;
+    }
+
+    /**
+     * Skip healing for a locator on a page after repeated failures
+     */
+    public boolean isCircuitBreakerEnabled() {
+        return snapshot.circuitBreakerEnabled;
+    }
+
+    /**
+     * Consecutive heal failures that open a locator's circuit
+     */
+    public int getCircuitBreakerFailureThreshold() {
+        return snapshot.circuitBreakerThreshold;
+    }
+
+    /**
+     * Milliseconds an opened circuit skips healing before one attempt is let through
+     */
+    public long getCircuitBreakerCooldown() {
+        return snapshot.circuitBreakerCooldown;
+    }
+
+    /**
+     * Upper bound for the cooldown, which doubles each time a half-open attempt fails
+     */
+    public long getCircuitBreakerMaxCooldown() {
+        return snapshot.circuitBreakerMaxCooldown;
+    }
+
+    /**
+     * Where candidates are scored: jvm (DOM snapshot) or browser (live DOM via executeScript)
+     */
+    public String getHealingEngine() {
+        return snapshot.healingEngine;
+    }
+
+    /**
+     * Candidates kept per heal, best first, by either engine
+     */
+    public int getHealingTopCandidates() {
+        return snapshot.healingTopCandidates;
+    }
+
+    /**
+     * Lowest share of the attainable score the best candidate needs to be used, 0 to 1
+     */
+    public double getHealMinConfidence() {
+        return snapshot.healMinConfidence;
+    }
+
+    /**
+     * Confidence the best candidate needs over the runner-up to be used, 0 to 1
+     */
+    public double getHealMinMargin() {
+        return snapshot.healMinMargin;
+    }
+
+    /**
+     * Append every heal attempt to a JSON-lines file for HealAuditReport
+     */
+    public boolean isHealAuditEnabled() {
+        return snapshot.healAuditEnabled;
+    }
+
+    /**
+     * Directory the heal log files are written to, one file per JVM
+     */
+    public String getHealAuditDirectory() {
+        return snapshot.healAuditDirectory;
+    }
+
+    /**
+     * Heal cache snapshot to seed healed locators from, empty for none
+     */
+    public String getHealCacheSeedFile() {
+        return snapshot.healCacheSeedFile;
+    }
+
+    /**
+     * File or directory the heals learned in this run are exported to at suite end, empty for none
+     */
+    public String getHealCacheExportFile() {
+        return snapshot.healCacheExportFile;
     }
-    
+
     public boolean isPageLoadTrackingEnabled() {
-        return Boolean.parseBoolean(properties.getProperty("pageLoad.tracking.enabled", 
-            String.valueOf(DEFAULT_PAGE_LOAD_TRACKING_ENABLED)));
+        return snapshot.pageLoadTrackingEnabled;
     }
-    
+
     public long getDefaultPageLoadTimeout() {
-        return Long.parseLong(properties.getProperty("pageLoad.defaultTimeout", 
-            String.valueOf(DEFAULT_PAGE_LOAD_TIMEOUT)));
+        return snapshot.defaultPageLoadTimeout;
+    }
+
+    /**
+     * Page load times of earlier runs to compare this run with, empty to skip the comparison
+     */
+    public String getPageLoadBaselineFile() {
+        return snapshot.pageLoadBaselineFile;
+    }
+
+    /**
+     * Add this run's load times to the baseline, except for regressed pages
+     */
+    public boolean isPageLoadBaselineUpdateEnabled() {
+        return snapshot.pageLoadBaselineUpdate;
+    }
+
+    /**
+     * Most recent load times the baseline keeps per URL template
+     */
+    public int getPageLoadBaselineMaxSamples() {
+        return snapshot.pageLoadBaselineMaxSamples;
+    }
+
+    /**
+     * JSON file the comparison is written to for the CI, empty for none
+     */
+    public String getPageLoadSummaryFile() {
+        return snapshot.pageLoadSummaryFile;
+    }
+
+    /**
+     * Load times the run and the baseline both need for a page before it is compared
+     */
+    public int getPageLoadRegressionMinSamples() {
+        return snapshot.pageLoadRegressionMinSamples;
+    }
+
+    /**
+     * Relative increase of a percentile reported as a regression, 0 to 1
+     */
+    public double getPageLoadRegressionThreshold() {
+        return snapshot.pageLoadRegressionThreshold;
+    }
+
+    /**
+     * Increase of a percentile in milliseconds below which it is never a regression
+     */
+    public long getPageLoadRegressionMinDelta() {
+        return snapshot.pageLoadRegressionMinDelta;
+    }
+
+    /**
+     * What a test over its budget does: off (not checked), warn (reported) or fail (fails the test)
+     */
+    public String getBudgetEnforcement() {
+        return snapshot.budgetEnforcement;
+    }
+
+    /**
+     * File the per-class test usage is appended to at suite end, empty for none
+     */
+    public String getBudgetHistoryFile() {
+        return snapshot.budgetHistoryFile;
+    }
+
+    /**
+     * Directory the reports are written to
+     */
+    public String getReportDirectory() {
+        return snapshot.reportDirectory;
+    }
+
+    /**
+     * Comma-separated report sinks: extent, jsonl, none or ReportSink class names
+     */
+    public String getReportSinks() {
+        return snapshot.reportSinks;
+    }
+
+    /**
+     * Lowest level of framework events written to the report: debug, info or warning
+     */
+    public String getReportLogLevel() {
+        return snapshot.reportLogLevel;
+    }
+
+    /**
+     * Occurrences of the same framework event reported per test before further ones are only counted
+     */
+    public int getReportLogRepeatLimit() {
+        return snapshot.reportLogRepeatLimit;
+    }
+
+    /**
+     * Past the repeat limit, every n-th occurrence is still reported; 0 reports none
+     */
+    public int getReportLogSampleEvery() {
+        return snapshot.reportLogSampleEvery;
+    }
+
+    /**
+     * Whether a failed test leaves a bundle of what the browser showed and did
+     */
+    public boolean isFailureBundleEnabled() {
+        return snapshot.failureBundleEnabled;
+    }
+
+    public String getFailureBundleDirectory() {
+        return snapshot.failureBundleDirectory;
+    }
+
+    /**
+     * Last driver commands kept for the bundle
+     */
+    public int getFailureBundleCommands() {
+        return snapshot.failureBundleCommands;
+    }
+
+    /**
+     * Size cap in bytes for each part of a bundle (DOM, console, timing) before compression
+     */
+    public long getFailureBundleMaxPartBytes() {
+        return snapshot.failureBundleMaxPartBytes;
+    }
+
+    /**
+     * Bundles written per run; later failures get none
+     */
+    public int getFailureBundleMaxBundles() {
+        return snapshot.failureBundleMaxBundles;
     }
-    
+
+    /**
+     * Compressed bytes written per run across all bundles
+     */
+    public long getFailureBundleMaxTotalBytes() {
+        return snapshot.failureBundleMaxTotalBytes;
+    }
+
+    public boolean isDriverPoolEnabled() {
+        return snapshot.driverPoolEnabled;
+    }
+
+    /**
+     * Sessions kept per browser type, 0 when the pool should follow the TestNG thread count
+     */
+    public int getDriverPoolSize() {
+        return snapshot.driverPoolSize;
+    }
+
+    public int getDriverPoolMaxUsesPerSession() {
+        return snapshot.driverPoolMaxUses;
+    }
+
+    public long getDriverPoolAcquireTimeout() {
+        return snapshot.driverPoolAcquireTimeout;
+    }
+
+    /**
+     * Driver lifetime for BaseTest: method, class, thread or suite
+     */
+    public String getDriverScope() {
+        return snapshot.driverScope;
+    }
+
+    /**
+     * Selenium Grid or driver server URL, empty to start local browsers
+     */
+    public String getRemoteUrl() {
+        return snapshot.remoteUrl;
+    }
+
+    public long getRemoteConnectionTimeout() {
+        return snapshot.remoteConnectionTimeout;
+    }
+
+    public long getRemoteReadTimeout() {
+        return snapshot.remoteReadTimeout;
+    }
+
+    public boolean isCommandBatchingEnabled() {
+        return snapshot.commandBatchingEnabled;
+    }
+
     public String getProperty(String key) {
-        return properties.getProperty(key);
+        return snapshot.values.get(key);
     }
-    
+
     public String getProperty(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+        return snapshot.values.getOrDefault(key, defaultValue);
     }
-}
 
+    /**
+     * Immutable, fully parsed view of one version of the configuration
+     */
+    private static final class Snapshot {
+
+        private final Map<String, String> values;
+        private final long version;
+        private final boolean autoHealEnabled;
+        private final int maxRetryAttempts;
+        private final boolean healAheadEnabled;
+        private final int healAheadMaxLocators;
+        private final int staleElementRetries;
+        private final boolean circuitBreakerEnabled;
+        private final int circuitBreakerThreshold;
+        private final long circuitBreakerCooldown;
+        private final long circuitBreakerMaxCooldown;
+        private final String healingEngine;
+        private final int healingTopCandidates;
+        private final double healMinConfidence;
+        private final double healMinMargin;
+        private final boolean healAuditEnabled;
+        private final String healAuditDirectory;
+        private final String healCacheSeedFile;
+        private final String healCacheExportFile;
+        private final boolean pageLoadTrackingEnabled;
+        private final long defaultPageLoadTimeout;
+        private final String pageLoadBaselineFile;
+        private final boolean pageLoadBaselineUpdate;
+        private final int pageLoadBaselineMaxSamples;
+        private final String pageLoadSummaryFile;
+        private final int pageLoadRegressionMinSamples;
+        private final double pageLoadRegressionThreshold;
+        private final long pageLoadRegressionMinDelta;
+        private final String budgetEnforcement;
+        private final String budgetHistoryFile;
+        private final String reportDirectory;
+        private final String reportSinks;
+        private final String reportLogLevel;
+        private final int reportLogRepeatLimit;
+        private final int reportLogSampleEvery;
+        private final boolean failureBundleEnabled;
+        private final String failureBundleDirectory;
+        private final int failureBundleCommands;
+        private final long failureBundleMaxPartBytes;
+        private final int failureBundleMaxBundles;
+        private final long failureBundleMaxTotalBytes;
+        private final boolean driverPoolEnabled;
+        private final int driverPoolSize;
+        private final int driverPoolMaxUses;
+        private final long driverPoolAcquireTimeout;
+        private final String driverScope;
+        private final String remoteUrl;
+        private final long remoteConnectionTimeout;
+        private final long remoteReadTimeout;
+        private final boolean commandBatchingEnabled;
+        private final boolean hotReloadEnabled;
+
+        Snapshot(Map<String, String> values, long version) {
+            this.values = Collections.unmodifiableMap(new HashMap<>(values));
+            this.version = version;
+            autoHealEnabled = flag("autoheal.enabled");
+            maxRetryAttempts = (int) number("autoheal.maxRetryAttempts");
+            healAheadEnabled = flag("autoheal.healAhead.enabled");
+            healAheadMaxLocators = (int) number("autoheal.healAhead.maxLocatorsPerPage");
+            staleElementRetries = (int) number("autoheal.staleElement.maxRetries");
+            circuitBreakerEnabled = flag("autoheal.circuitBreaker.enabled");
+            circuitBreakerThreshold = (int) number("autoheal.circuitBreaker.failureThreshold");
+            circuitBreakerCooldown = number("autoheal.circuitBreaker.cooldown");
+            circuitBreakerMaxCooldown = number("autoheal.circuitBreaker.maxCooldown");
+            healingEngine = text("autoheal.engine").toLowerCase();
+            if (!"jvm".equals(healingEngine) && !"browser".equals(healingEngine)) {
+                throw new IllegalArgumentException("Invalid value for autoheal.engine: '" + values.get("autoheal.engine") + "'");
+            }
+            healingTopCandidates = (int) number("autoheal.engine.topCandidates");
+            healMinConfidence = fraction("autoheal.heal.minConfidence");
+            healMinMargin = fraction("autoheal.heal.minMargin");
+            healAuditEnabled = flag("autoheal.audit.enabled");
+            healAuditDirectory = text("autoheal.audit.directory");
+            healCacheSeedFile = text("autoheal.cache.seedFile");
+            healCacheExportFile = text("autoheal.cache.exportFile");
+            pageLoadTrackingEnabled = flag("pageLoad.tracking.enabled");
+            defaultPageLoadTimeout = number("pageLoad.defaultTimeout");
+            pageLoadBaselineFile = text("pageLoad.baseline.file");
+            pageLoadBaselineUpdate = flag("pageLoad.baseline.update");
+            pageLoadBaselineMaxSamples = (int) number("pageLoad.baseline.maxSamples");
+            pageLoadSummaryFile = text("pageLoad.summary.file");
+            pageLoadRegressionMinSamples = (int) number("pageLoad.regression.minSamples");
+            pageLoadRegressionThreshold = fraction("pageLoad.regression.threshold");
+            pageLoadRegressionMinDelta = number("pageLoad.regression.minDelta");
+            budgetEnforcement = text("budget.enforcement").toLowerCase();
+            if (!"off".equals(budgetEnforcement) && !"warn".equals(budgetEnforcement) && !"fail".equals(budgetEnforcement)) {
+                throw new IllegalArgumentException("Invalid value for budget.enforcement: '" + values.get("budget.enforcement") + "'");
+            }
+            budgetHistoryFile = text("budget.historyFile");
+            reportDirectory = text("report.path");
+            reportSinks = text("report.sinks");
+            reportLogLevel = text("report.log.level").toLowerCase();
+            if (!"debug".equals(reportLogLevel) && !"info".equals(reportLogLevel) && !"warning".equals(reportLogLevel)) {
+                throw new IllegalArgumentException("Invalid value for report.log.level: '" + values.get("report.log.level") + "'");
+            }
+            reportLogRepeatLimit = (int) number("report.log.repeatLimit");
+            reportLogSampleEvery = (int) number("report.log.sampleEvery");
+            failureBundleEnabled = flag("report.failureBundle.enabled");
+            failureBundleDirectory = text("report.failureBundle.directory");
+            failureBundleCommands = (int) number("report.failureBundle.commands");
+            failureBundleMaxPartBytes = number("report.failureBundle.maxPartBytes");
+            failureBundleMaxBundles = (int) number("report.failureBundle.maxBundles");
+            failureBundleMaxTotalBytes = number("report.failureBundle.maxTotalBytes");
+            driverPoolEnabled = flag("driver.pool.enabled");
+            String size = text("driver.pool.size");
+            driverPoolSize = "auto".equalsIgnoreCase(size) ? 0 : (int) number("driver.pool.size");
+            driverPoolMaxUses = (int) number("driver.pool.maxUsesPerSession");
+            driverPoolAcquireTimeout = number("driver.pool.acquireTimeout");
+            driverScope = text("driver.scope");
+            remoteUrl = text("driver.remote.url");
+            remoteConnectionTimeout = number("driver.remote.connectionTimeout");
+            remoteReadTimeout = number("driver.remote.readTimeout");
+            commandBatchingEnabled = flag("driver.commandBatching.enabled");
+            hotReloadEnabled = flag("config.hotReload.enabled");
+        }
+
+        private String text(String key) {
+            String value = values.get(key);
+            return value == null ? "" : value.trim();
+        }
+
+        private boolean flag(String key) {
+            return Boolean.parseBoolean(text(key));
+        }
+
+        private long number(String key) {
+            try {
+                return Long.parseLong(text(key));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for " + key + ": '" + values.get(key) + "'");
+            }
+        }
+
+        private double fraction(String key) {
+            double value;
+            try {
+                value = Double.parseDouble(text(key));
+            } catch (NumberFormatException e) {
+                value = Double.NaN;
+            }
+            if (!(value >= 0 && value <= 1)) {
+                throw new IllegalArgumentException("Invalid value for " + key + ", expected 0 to 1: '" + values.get(key) + "'");
+            }
+            return value;
+        }
+    }
+}
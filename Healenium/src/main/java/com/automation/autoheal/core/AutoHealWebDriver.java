@@ -1,16 +1,32 @@
 package com.automation.autoheal.core;
 
 import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.utils.ByScopedXPath;
+import com.automation.autoheal.utils.CommandBatcher;
+import com.automation.autoheal.utils.CommandLog;
+import com.automation.autoheal.utils.DomSnapshot;
+import com.automation.autoheal.utils.HealAhead;
+import com.automation.autoheal.utils.HealAuditLog;
+import com.automation.autoheal.utils.HealCache;
+import com.automation.autoheal.utils.HealCircuitBreaker;
+import com.automation.autoheal.utils.HealResult;
+import com.automation.autoheal.utils.HealingMetrics;
 import com.automation.autoheal.utils.XPathHealer;
 import com.automation.autoheal.utils.PageLoadTracker;
+import com.automation.autoheal.utils.TestUsage;
 import com.automation.autoheal.reporting.ExtentReportManager;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Auto-healing WebDriver wrapper that extends WebDriver functionality
@@ -21,99 +37,476 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
     private WebDriver driver;
     private XPathHealer xPathHealer;
     private PageLoadTracker pageLoadTracker;
+    private HealAhead healAhead;
     private ExtentReportManager reportManager;
     private AutoHealConfig config;
-    private java.util.Map<String, Integer> retryCountMap = new ConcurrentHashMap<>();
+    private HealCircuitBreaker circuitBreaker = HealCircuitBreaker.getInstance();
+    private HealingMetrics metrics = HealingMetrics.getInstance();
+    private HealAuditLog auditLog = HealAuditLog.getInstance();
+    private HealCache healCache = HealCache.getInstance();
+    private CommandLog commandLog; // Last commands of the test, for the failure bundle
+    private CommandBatcher commandBatcher; // Read-only queries of the healer
+    private int autoSwitchedFrames; // Frames entered by a frame-qualified healed locator
+    private long appliedImplicitWait = -1; // Last implicit wait sent to the browser
+    private final Set<String> visitedOrigins = new LinkedHashSet<>(); // Origins opened with get(), cleared by the pool
+    
+    private static final long RETRY_BACKOFF_MILLIS = 100; // Pause before the second heal attempt, doubled after
+    
+    // Tag, id and name of each element passed in, for the stale-element fingerprint
+    private static final String FINGERPRINT_SCRIPT =
+        "var elements = arguments[0], result = [];" +
+        "for (var i = 0; i < elements.length; i++) {" +
+        "  var e = elements[i];" +
+        "  result.push([e.tagName, e.id || '', e.getAttribute('name') || '']);" +
+        "}" +
+        "return result;";
+    
+    // Whether the second element lies inside the first, for heals of lookups below an element
+    private static final String CONTAINS_SCRIPT =
+        "return arguments[0] !== arguments[1] && arguments[0].contains(arguments[1]);";
     
     public AutoHealWebDriver(WebDriver driver) {
         this.driver = driver;
         this.config = AutoHealConfig.getInstance();
-        this.xPathHealer = new XPathHealer(driver, config);
+        this.xPathHealer = new XPathHealer(driver, config, this::findNow);
         this.pageLoadTracker = new PageLoadTracker(driver);
+        this.healAhead = new HealAhead(driver, xPathHealer, config);
         this.reportManager = ExtentReportManager.getInstance();
+        this.commandBatcher = new CommandBatcher(driver, config.isCommandBatchingEnabled());
+        this.commandLog = new CommandLog(config.isFailureBundleEnabled() ? config.getFailureBundleCommands() : 0);
         
         // Set default timeouts based on tracked page load times
         updateTimeouts();
     }
     
     /**
-     * Auto-healing findElement with XPath recovery
+     * Auto-healing findElement with XPath recovery. The element returned
+     * re-locates itself if the page re-renders it (see {@link HealingWebElement}).
      */
     public WebElement findElement(By locator) {
+        return command("findElement", locator, () -> wrap(null, locator, locate(locator)));
+    }
+    
+    /**
+     * Auto-healing findElements with XPath recovery
+     */
+    public List<WebElement> findElements(By locator) {
+        return command("findElements", locator, () -> wrapAll(null, locator, locateAll(locator)));
+    }
+    
+    /**
+     * Run a command of the test, counting it for the test's budget and keeping
+     * it with its latency for the failure bundle
+     */
+    <T> T command(String name, Object target, Supplier<T> call) {
+        TestUsage.recordCommand();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            commandLog.record(name, target, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException e) {
+            commandLog.record(name, target, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Proxy for an element found with findElement
+     */
+    HealingWebElement wrap(HealingWebElement parent, By locator, WebElement element) {
+        return new HealingWebElement(this, parent, locator, -1, element,
+            fingerprints(Collections.singletonList(element)).get(0));
+    }
+    
+    /**
+     * Proxies for elements found with a locator, remembering their position in the result
+     */
+    List<WebElement> wrapAll(HealingWebElement parent, By locator, List<WebElement> elements) {
+        List<HealingWebElement.Fingerprint> fingerprints = fingerprints(elements);
+        List<WebElement> proxies = new ArrayList<>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            proxies.add(new HealingWebElement(this, parent, locator, i, elements.get(i), fingerprints.get(i)));
+        }
+        return proxies;
+    }
+    
+    /**
+     * Fingerprints of raw elements, read in one script; nulls where scripts are
+     * unavailable, fail, or stale elements are not recovered anyway
+     */
+    List<HealingWebElement.Fingerprint> fingerprints(List<WebElement> elements) {
+        List<HealingWebElement.Fingerprint> fingerprints =
+            new ArrayList<>(Collections.<HealingWebElement.Fingerprint>nCopies(elements.size(), null));
+        if (elements.isEmpty() || config.getStaleElementMaxRetries() <= 0 || !(driver instanceof JavascriptExecutor)) {
+            return fingerprints;
+        }
+        try {
+            Object result = ((JavascriptExecutor) driver).executeScript(FINGERPRINT_SCRIPT, elements);
+            if (result instanceof List && ((List<?>) result).size() == elements.size()) {
+                List<?> rows = (List<?>) result;
+                for (int i = 0; i < rows.size(); i++) {
+                    List<?> row = (List<?>) rows.get(i);
+                    fingerprints.set(i, new HealingWebElement.Fingerprint(
+                        String.valueOf(row.get(0)), (String) row.get(1), (String) row.get(2)));
+                }
+            }
+        } catch (RuntimeException e) {
+            // No fingerprint: stale recovery then accepts what the locator finds, as without one
+        }
+        return fingerprints;
+    }
+    
+    /**
+     * Fingerprint of a re-located element, from its tag alone if scripts are unavailable
+     */
+    HealingWebElement.Fingerprint fingerprint(WebElement element) {
+        HealingWebElement.Fingerprint fingerprint = fingerprints(Collections.singletonList(element)).get(0);
+        return fingerprint != null ? fingerprint : new HealingWebElement.Fingerprint(element.getTagName(), null, null);
+    }
+    
+    /**
+     * Find the raw element for a locator, healing it if it is broken
+     */
+    WebElement locate(By locator) {
+        restoreAutoSwitchedContext();
+        By healedAhead = healedAhead(locator);
+        if (healedAhead != null) {
+            try {
+                long start = System.nanoTime();
+                WebElement element = driver.findElement(healedAhead);
+                trackAutoSwitch(healedAhead);
+                auditHealedAhead(locator, System.nanoTime() - start);
+                return element;
+            } catch (NoSuchElementException e) {
+                // Look up the original and heal as usual
+            }
+        }
+        long lookupStart = System.nanoTime();
         try {
             WebElement element = driver.findElement(locator);
-            retryCountMap.remove(locator.toString());
+            trackAutoSwitch(locator);
             return element;
         } catch (NoSuchElementException e) {
+            TestUsage.recordWait(System.nanoTime() - lookupStart); // The implicit wait ran out
             return handleElementNotFound(locator, e);
         }
     }
     
     /**
-     * Auto-healing findElements with XPath recovery
+     * Find the raw elements for a locator, healing it if it is broken
      */
-    public List<WebElement> findElements(By locator) {
+    List<WebElement> locateAll(By locator) {
+        restoreAutoSwitchedContext();
+        By healedAhead = healedAhead(locator);
+        if (healedAhead != null) {
+            long start = System.nanoTime();
+            List<WebElement> elements = driver.findElements(healedAhead);
+            if (!elements.isEmpty()) {
+                trackAutoSwitch(healedAhead);
+                auditHealedAhead(locator, System.nanoTime() - start);
+                return elements;
+            }
+        }
+        long lookupStart = System.nanoTime();
         try {
             List<WebElement> elements = driver.findElements(locator);
-            retryCountMap.remove(locator.toString());
+            if (!elements.isEmpty()) {
+                trackAutoSwitch(locator);
+            } else {
+                TestUsage.recordWait(System.nanoTime() - lookupStart);
+            }
             return elements;
         } catch (Exception e) {
-            String locatorKey = locator.toString();
-            int retryCount = retryCountMap.getOrDefault(locatorKey, 0);
-            if (retryCount < config.getMaxRetryAttempts()) {
-                retryCountMap.put(locatorKey, retryCount + 1);
-                reportManager.logWarning("Element not found with locator: " + locator + ". Attempting to heal...");
-                
-                if (isXPathLocator(locator)) {
-                    By healedLocator = xPathHealer.healXPath(locator);
-                    if (healedLocator != null) {
-                        reportManager.logInfo("XPath healed successfully: " + healedLocator);
-                        retryCountMap.remove(locatorKey);
-                        return findElements(healedLocator);
-                    }
-                }
+            List<WebElement> elements = heal(locator, healedLocator -> {
+                List<WebElement> found = findNow(healedLocator);
+                return found.isEmpty() ? null : found;
+            });
+            if (elements != null) {
+                return elements;
             }
-            retryCountMap.remove(locatorKey);
             reportManager.logError("Failed to find elements with locator: " + locator, e);
             throw e;
         }
     }
     
+    /**
+     * Record the locator for heal-ahead and return the locator healed ahead for it,
+     * if it was found broken when the current page was loaded
+     */
+    private By healedAhead(By locator) {
+        if (!config.isHealAheadEnabled()) {
+            return null;
+        }
+        healAhead.record(locator);
+        By healed = healAhead.healedFor(locator);
+        if (healed != null) {
+            reportManager.logEvent(ExtentReportManager.Level.INFO, "Using locator healed ahead", locator + " -> " + healed);
+        }
+        return healed;
+    }
+    
+    /**
+     * Log a locator healed ahead that the lookup used; the heal itself ran in the background
+     */
+    private void auditHealedAhead(By locator, long lookupNanos) {
+        XPathHealer.Match match = xPathHealer.getCachedMatch(locator);
+        auditLog.record(reportManager.getTestName(), healAhead.getPageTemplate(), locator, HealResult.reused(match),
+            true, 0, 0, lookupNanos);
+        healCache.record(locator, match);
+        TestUsage.recordHeal(0, true);
+    }
+    
     /**
      * Handle element not found exception with auto-healing
      */
     private WebElement handleElementNotFound(By locator, Exception e) {
-        String locatorKey = locator.toString();
-        int retryCount = retryCountMap.getOrDefault(locatorKey, 0);
-        
-        if (retryCount < config.getMaxRetryAttempts()) {
-            retryCountMap.put(locatorKey, retryCount + 1);
-            reportManager.logWarning("Element not found with locator: " + locator + ". Attempting to heal...");
+        WebElement element = heal(locator, this::findOrNull);
+        if (element != null) {
+            return element;
+        }
+        reportManager.logError("Failed to find element with locator: " + locator, e);
+        throw new NoSuchElementException("Element not found even after healing attempt: " + locator.toString(), e);
+    }
+    
+    /**
+     * Find the raw element for a locator below another element. A broken XPath is
+     * healed against the whole page, since healed locators are absolute, and the
+     * heal only counts if what it finds lies inside the context element.
+     */
+    WebElement locateWithin(WebElement context, By locator) {
+        long lookupStart = System.nanoTime();
+        try {
+            return context.findElement(locator);
+        } catch (NoSuchElementException e) {
+            TestUsage.recordWait(System.nanoTime() - lookupStart);
+            WebElement element = heal(locator, healedLocator -> findWithin(context, healedLocator));
+            if (element != null) {
+                return element;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Heal a broken XPath and look the element up with the result. Attempts are
+     * repeated with growing pauses, up to maxRetryAttempts, while the healed
+     * locator finds nothing, and are skipped while the locator's circuit is open
+     * for the current page. An attempt the circuit let through always records
+     * its result or releases the circuit, also when interrupted or the finder
+     * throws. When the first attempt needs a DOM snapshot, it is read in the
+     * same round trip as the URL the circuit is keyed by.
+     *
+     * @param finder looks up the healed locator, null if it finds nothing
+     * @return what the finder found, or null if healing did not help
+     */
+    private <T> T heal(By locator, Function<By, T> finder) {
+        if (!isXPathLocator(locator)) {
+            return null;
+        }
+        String key = locator.toString();
+        DomSnapshot snapshot = null;
+        String page;
+        if (xPathHealer.needsSnapshot(locator) && !circuitBreaker.isTripped(key)) {
+            CommandBatcher.Result reads = read(CommandBatcher.CURRENT_URL, DomSnapshot.SCOPES);
+            page = urlTemplate(reads);
+            snapshot = snapshot(reads);
+        } else {
+            page = urlTemplate(read(CommandBatcher.CURRENT_URL));
+        }
+        long backoff = RETRY_BACKOFF_MILLIS;
+        for (int attempt = 0; attempt < config.getMaxRetryAttempts(); attempt++) {
+            if (!circuitBreaker.allowAttempt(page, key)) {
+                metrics.recordSkipped();
+                reportManager.logEvent(ExtentReportManager.Level.WARNING, "Healing skipped, circuit open",
+                    locator + ", healing it failed repeatedly on " + page);
+                return null;
+            }
+            boolean recorded = false;
+            try {
+                if (attempt > 0) {
+                    try {
+                        Thread.sleep(backoff); // Give a changing page time to settle before capturing it again
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                    backoff *= 2;
+                }
             
-            if (isXPathLocator(locator)) {
-                By healedLocator = xPathHealer.healXPath(locator);
-                if (healedLocator != null) {
-                    reportManager.logInfo("XPath healed successfully: " + healedLocator);
-                    retryCountMap.remove(locatorKey);
-                    return findElement(healedLocator);
+                reportManager.logEvent(ExtentReportManager.Level.DEBUG, "Element not found, attempting to heal", String.valueOf(locator));
+                long start = System.nanoTime();
+                // Later attempts capture the page again, it may have changed during the pause
+                HealResult result = xPathHealer.heal(locator, attempt == 0 ? snapshot : null);
+                long healNanos = System.nanoTime() - start;
+                XPathHealer.Match match = result.getMatch();
+                By healedLocator = match == null ? null : match.getLocator();
+                T found = healedLocator == null ? null : finder.apply(healedLocator);
+                long elapsed = System.nanoTime() - start;
+                metrics.recordAttempt(found != null, elapsed);
+                TestUsage.recordHeal(elapsed, found != null);
+                auditLog.record(reportManager.getTestName(), page, locator, result, found != null, attempt + 1, healNanos, elapsed);
+                if (found != null) {
+                    healCache.record(locator, match);
+                    circuitBreaker.recordSuccess(page, key);
+                    recorded = true;
+                    trackAutoSwitch(healedLocator);
+                    reportManager.logEvent(ExtentReportManager.Level.INFO, "XPath healed successfully", String.valueOf(healedLocator));
+                    return found;
+                }
+                circuitBreaker.recordFailure(page, key);
+                recorded = true;
+                if (healedLocator == null) {
+                    if (!result.getCandidates().isEmpty()) {
+                        reportManager.logEvent(ExtentReportManager.Level.WARNING, "Heal refused", locator + ", " + result);
+                    }
+                    return null; // No usable candidate on the page, another capture would find the same
+                }
+            } finally {
+                if (!recorded) {
+                    circuitBreaker.release(page, key);
                 }
             }
         }
-        
-        retryCountMap.remove(locatorKey);
-        reportManager.logError("Failed to find element with locator: " + locator, e);
-        throw new NoSuchElementException("Element not found even after healing attempt: " + locator.toString(), e);
+        return null;
+    }
+    
+    private WebElement findOrNull(By locator) {
+        List<WebElement> found = findNow(locator);
+        return found.isEmpty() ? null : found.get(0);
+    }
+    
+    /**
+     * Look a healed locator up for a lookup below an element, null unless the
+     * element found is a descendant of the context. Frame-qualified locators
+     * lead out of the context, and without scripts containment cannot be
+     * checked, so neither is accepted.
+     */
+    private WebElement findWithin(WebElement context, By healedLocator) {
+        if (healedLocator instanceof ByScopedXPath || !(driver instanceof JavascriptExecutor)) {
+            return null;
+        }
+        WebElement found = findOrNull(healedLocator);
+        if (found == null) {
+            return null;
+        }
+        Object inside = ((JavascriptExecutor) driver).executeScript(CONTAINS_SCRIPT, context, found);
+        if (!Boolean.TRUE.equals(inside)) {
+            reportManager.logEvent(ExtentReportManager.Level.WARNING, "Heal rejected, outside the parent element",
+                String.valueOf(healedLocator));
+            return null;
+        }
+        return found;
+    }
+    
+    /**
+     * Look a healed or cached locator up without the implicit wait: it was picked
+     * from the page as it is now, so waiting would only make every failed attempt
+     * cost a full implicit wait
+     */
+    private List<WebElement> findNow(By locator) {
+        long implicitWait = appliedImplicitWait;
+        if (implicitWait > 0) {
+            driver.manage().timeouts().implicitlyWait(0, TimeUnit.MILLISECONDS);
+        }
+        try {
+            return driver.findElements(locator);
+        } finally {
+            if (implicitWait > 0) {
+                driver.manage().timeouts().implicitlyWait(implicitWait, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+    
+    /**
+     * Answer read-only queries of a heal in one batch, null if the browser could not be read
+     */
+    private CommandBatcher.Result read(CommandBatcher.Query<?>... queries) {
+        try {
+            return commandBatcher.execute(queries);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Template of the current URL for the circuit breaker, "unknown" if it cannot be read
+     */
+    private static String urlTemplate(CommandBatcher.Result reads) {
+        try {
+            String url = reads == null ? null : reads.get(CommandBatcher.CURRENT_URL);
+            return url == null ? "unknown" : HealAhead.urlTemplate(url);
+        } catch (RuntimeException e) {
+            return "unknown";
+        }
+    }
+    
+    /**
+     * DOM snapshot read with the URL, null to let the healer capture it itself
+     */
+    private DomSnapshot snapshot(CommandBatcher.Result reads) {
+        if (reads == null) {
+            return null;
+        }
+        try {
+            return DomSnapshot.capture(commandBatcher, reads);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Locator to re-locate a stale element with: the healed locator if the original
+     * was healed before, so recovery does not wait for the broken original again
+     */
+    By effectiveLocator(By locator) {
+        By healedLocator = xPathHealer.getCachedHealedLocator(locator);
+        return healedLocator != null ? healedLocator : locator;
+    }
+    
+    /**
+     * Remember how many frames a frame-qualified healed locator switched into
+     */
+    private void trackAutoSwitch(By locator) {
+        if (locator instanceof ByScopedXPath) {
+            autoSwitchedFrames = ((ByScopedXPath) locator).getFrameDepth();
+        }
+    }
+    
+    /**
+     * Switch back to the context the test was in before a healed locator
+     * switched into frames, so its next plain locator resolves where it expects
+     */
+    private void restoreAutoSwitchedContext() {
+        while (autoSwitchedFrames > 0) {
+            driver.switchTo().parentFrame();
+            autoSwitchedFrames--;
+        }
     }
     
     /**
      * Navigate to URL with page load time tracking
      */
     public void get(String url) {
+        command("get", url, () -> {
+            load(url);
+            return null;
+        });
+    }
+    
+    private void load(String url) {
+        autoSwitchedFrames = 0;
+        recordOrigin(url);
         pageLoadTracker.startTracking();
         try {
             driver.get(url);
             long loadTime = pageLoadTracker.stopTracking();
-            reportManager.logInfo("Page loaded: " + url + " in " + loadTime + "ms");
+            TestUsage.recordPageLoad(loadTime);
+            reportManager.logEvent(ExtentReportManager.Level.DEBUG, "Page loaded", url + " in " + loadTime + "ms");
+            
+            if (config.isHealAheadEnabled()) {
+                healAhead.afterNavigation(url);
+            }
             
             // Update explicit wait timeout based on page load time
             updateTimeouts();
@@ -124,6 +517,22 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
         }
     }
     
+    /**
+     * Remember the scheme, host and port of an http(s) URL
+     */
+    private void recordOrigin(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme();
+            if (uri.getHost() != null && ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+                visitedOrigins.add(scheme.toLowerCase() + "://" + uri.getHost().toLowerCase()
+                    + (uri.getPort() == -1 ? "" : ":" + uri.getPort()));
+            }
+        } catch (java.net.URISyntaxException e) {
+            // Not a URL the pool can revisit
+        }
+    }
+    
     /**
      * Update timeouts based on tracked page load times
      */
@@ -132,8 +541,13 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
         if (avgLoadTime > 0) {
             // Set explicit wait to 2x average load time, minimum 10 seconds
             long waitTime = Math.max(10000, avgLoadTime * 2);
+            if (waitTime == appliedImplicitWait) {
+                return; // Unchanged, skip the round trip to the browser
+            }
             driver.manage().timeouts().implicitlyWait(waitTime, TimeUnit.MILLISECONDS);
-            reportManager.logInfo("Updated implicit wait to: " + waitTime + "ms based on page load time");
+            appliedImplicitWait = waitTime;
+            reportManager.logEvent(ExtentReportManager.Level.DEBUG, "Updated implicit wait",
+                waitTime + "ms based on page load time");
         }
     }
     
@@ -150,15 +564,29 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
      * Wait for element with auto-healing
      */
     public WebElement waitForElement(By locator) {
+        return command("waitForElement", locator, () -> awaitElement(locator));
+    }
+    
+    private WebElement awaitElement(By locator) {
+        restoreAutoSwitchedContext();
+        long waitStart = System.nanoTime();
         try {
-            return getWait().until(ExpectedConditions.presenceOfElementLocated(locator));
+            WebElement found = getWait().until(ExpectedConditions.presenceOfElementLocated(locator));
+            TestUsage.recordWait(System.nanoTime() - waitStart);
+            return wrap(null, locator, found);
         } catch (TimeoutException e) {
-            reportManager.logWarning("Timeout waiting for element: " + locator + ". Attempting to heal...");
-            if (isXPathLocator(locator)) {
-                By healedLocator = xPathHealer.healXPath(locator);
-                if (healedLocator != null) {
+            TestUsage.recordWait(System.nanoTime() - waitStart);
+            reportManager.logEvent(ExtentReportManager.Level.DEBUG, "Timeout waiting for element, attempting to heal",
+                String.valueOf(locator));
+            WebElement element = heal(locator, healedLocator -> {
+                try {
                     return getWait().until(ExpectedConditions.presenceOfElementLocated(healedLocator));
+                } catch (TimeoutException healedTimeout) {
+                    return null;
                 }
+            });
+            if (element != null) {
+                return wrap(null, locator, element);
             }
             throw e;
         }
@@ -166,19 +594,22 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
     
     // Delegate all other WebDriver methods
     public String getCurrentUrl() {
-        return driver.getCurrentUrl();
+        return command("getCurrentUrl", null, driver::getCurrentUrl);
     }
     
     public String getTitle() {
-        return driver.getTitle();
+        return command("getTitle", null, driver::getTitle);
     }
     
     public String getPageSource() {
-        return driver.getPageSource();
+        return command("getPageSource", null, driver::getPageSource);
     }
     
     public void close() {
-        driver.close();
+        command("close", null, () -> {
+            driver.close();
+            return null;
+        });
     }
     
     public void quit() {
@@ -189,18 +620,23 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
     }
     
     public Set<String> getWindowHandles() {
-        return driver.getWindowHandles();
+        return command("getWindowHandles", null, driver::getWindowHandles);
     }
     
     public String getWindowHandle() {
-        return driver.getWindowHandle();
+        return command("getWindowHandle", null, driver::getWindowHandle);
     }
     
     public TargetLocator switchTo() {
+        // The test is taking control of the context, automatic switches no longer apply
+        autoSwitchedFrames = 0;
+        healAhead.contextChanged();
         return driver.switchTo();
     }
     
     public Navigation navigate() {
+        autoSwitchedFrames = 0;
+        healAhead.contextChanged();
         return driver.navigate();
     }
     
@@ -210,25 +646,31 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
     
     // TakesScreenshot implementation
     public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
-        if (driver instanceof TakesScreenshot) {
-            return ((TakesScreenshot) driver).getScreenshotAs(target);
-        }
-        throw new WebDriverException("Driver does not support screenshots");
+        return command("getScreenshotAs", target, () -> {
+            if (driver instanceof TakesScreenshot) {
+                return ((TakesScreenshot) driver).getScreenshotAs(target);
+            }
+            throw new WebDriverException("Driver does not support screenshots");
+        });
     }
     
     // JavascriptExecutor implementation
     public Object executeScript(String script, Object... args) {
-        if (driver instanceof JavascriptExecutor) {
-            return ((JavascriptExecutor) driver).executeScript(script, args);
-        }
-        throw new WebDriverException("Driver does not support JavaScript execution");
+        return command("executeScript", script, () -> {
+            if (driver instanceof JavascriptExecutor) {
+                return ((JavascriptExecutor) driver).executeScript(script, args);
+            }
+            throw new WebDriverException("Driver does not support JavaScript execution");
+        });
     }
     
     public Object executeAsyncScript(String script, Object... args) {
-        if (driver instanceof JavascriptExecutor) {
-            return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
-        }
-        throw new WebDriverException("Driver does not support async JavaScript execution");
+        return command("executeAsyncScript", script, () -> {
+            if (driver instanceof JavascriptExecutor) {
+                return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+            }
+            throw new WebDriverException("Driver does not support async JavaScript execution");
+        });
     }
     
     // Get underlying driver
@@ -236,11 +678,31 @@ public class AutoHealWebDriver implements WebDriver, TakesScreenshot, Javascript
         return driver;
     }
     
+    // Get the origins opened with get(), e.g. http://localhost:8080
+    public Set<String> getVisitedOrigins() {
+        return Collections.unmodifiableSet(visitedOrigins);
+    }
+    
     // Get page load tracker
     public PageLoadTracker getPageLoadTracker() {
         return pageLoadTracker;
     }
     
+    // Get the healer, with the locators healed on this driver
+    public XPathHealer getXPathHealer() {
+        return xPathHealer;
+    }
+    
+    // Get the last commands run, with their latencies
+    public CommandLog getCommandLog() {
+        return commandLog;
+    }
+    
+    // Get heal-ahead validator
+    public HealAhead getHealAhead() {
+        return healAhead;
+    }
+    
     /**
      * Check if a locator is an XPath locator
      */
@@ -0,0 +1,257 @@
+package com.automation.autoheal.core;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.reporting.ExtentReportManager;
+import com.automation.autoheal.utils.XPathGenerator;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.interactions.Coordinates;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Element returned by {@link AutoHealWebDriver} that survives re-renders.
+ *
+ * It remembers how it was found (the locator, healed if it had to be, its
+ * position in a findElements result and the element it was found under) and
+ * every call goes straight to the wrapped element, so calls cost no extra
+ * round trip. When a call fails with {@link StaleElementReferenceException}
+ * the element is located again, up to autoheal.staleElement.maxRetries times,
+ * and the call repeated. When an element is wrapped its tag, id and name are
+ * read as a fingerprint, in one script per lookup; a re-located element that
+ * does not match it is not accepted, since something else renders there now.
+ * Elements found from this one heal and recover the same way.
+ */
+public class HealingWebElement implements WebElement, WrapsElement, Locatable {
+
+    private final AutoHealWebDriver owner;
+    private final HealingWebElement parent; // Null when found from the driver
+    private final By locator;
+    private final int index; // Position in a findElements result, -1 for findElement
+    private volatile WebElement element;
+    private volatile Fingerprint fingerprint; // Null if it could not be read, then the tag once the test read it
+
+    /**
+     * What identifies the element beyond its locator: its tag, and its id and
+     * name where it has them
+     */
+    static final class Fingerprint {
+
+        private final String tagName;
+        private final String id;
+        private final String name;
+
+        Fingerprint(String tagName, String id, String name) {
+            this.tagName = tagName;
+            this.id = id == null ? "" : id;
+            this.name = name == null ? "" : name;
+        }
+
+        /**
+         * Whether a re-located element can be the same one: same tag, and the
+         * same id and name where this one had them. Ids that look generated may
+         * change on every render and are not compared.
+         */
+        boolean matches(Fingerprint fresh) {
+            if (!tagName.equalsIgnoreCase(fresh.tagName)) {
+                return false;
+            }
+            if (!id.isEmpty() && !XPathGenerator.isGeneratedId(id) && !id.equals(fresh.id)) {
+                return false;
+            }
+            return name.isEmpty() || name.equals(fresh.name);
+        }
+    }
+
+    HealingWebElement(AutoHealWebDriver owner, HealingWebElement parent, By locator, int index, WebElement element,
+                      Fingerprint fingerprint) {
+        this.owner = owner;
+        this.parent = parent;
+        this.locator = locator;
+        this.index = index;
+        this.element = element instanceof HealingWebElement ? ((HealingWebElement) element).element : element;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Run a call on the wrapped element, re-locating it when it has gone stale
+     */
+    private <T> T call(String command, Function<WebElement, T> action) {
+        int maxRetries = AutoHealConfig.getInstance().getStaleElementMaxRetries();
+        for (int attempt = 0; ; attempt++) {
+            WebElement current = element;
+            try {
+                return owner.command(command, locator, () -> action.apply(current));
+            } catch (StaleElementReferenceException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                recover(current, e);
+            }
+        }
+    }
+
+    private void run(String command, Consumer<WebElement> action) {
+        call(command, current -> {
+            action.accept(current);
+            return null;
+        });
+    }
+
+    /**
+     * Locate the element again, keeping the stale exception if that fails
+     */
+    private void recover(WebElement stale, StaleElementReferenceException cause) {
+        WebElement fresh;
+        try {
+            fresh = relocate();
+            Fingerprint expected = fingerprint;
+            if (expected != null && !expected.matches(owner.fingerprint(fresh))) {
+                throw cause; // Something else renders there now
+            }
+        } catch (WebDriverException e) {
+            if (e != cause) {
+                cause.addSuppressed(e);
+            }
+            throw cause;
+        }
+        if (element == stale) {
+            element = fresh;
+        }
+        ExtentReportManager.getInstance().logEvent(ExtentReportManager.Level.DEBUG, "Re-located stale element",
+            String.valueOf(locator));
+    }
+
+    private WebElement relocate() {
+        By effective = owner.effectiveLocator(locator);
+        if (parent == null) {
+            return index < 0 ? owner.locate(effective) : nth(owner.locateAll(effective));
+        }
+        return parent.call("relocate", context -> index < 0
+            ? owner.locateWithin(context, effective)
+            : nth(context.findElements(effective)));
+    }
+
+    private WebElement nth(List<WebElement> elements) {
+        if (index >= elements.size()) {
+            throw new NoSuchElementException("Only " + elements.size() + " elements match " + locator
+                + ", element " + index + " is gone");
+        }
+        return elements.get(index);
+    }
+
+    /**
+     * Locator this element was found with
+     */
+    public By getLocator() {
+        return locator;
+    }
+
+    public WebElement getWrappedElement() {
+        return element;
+    }
+
+    public void click() {
+        run("click", WebElement::click);
+    }
+
+    public void submit() {
+        run("submit", WebElement::submit);
+    }
+
+    public void sendKeys(CharSequence... keysToSend) {
+        run("sendKeys", current -> current.sendKeys(keysToSend));
+    }
+
+    public void clear() {
+        run("clear", WebElement::clear);
+    }
+
+    public String getTagName() {
+        String name = call("getTagName", WebElement::getTagName);
+        if (fingerprint == null) {
+            fingerprint = new Fingerprint(name, null, null);
+        }
+        return name;
+    }
+
+    public String getAttribute(String name) {
+        return call("getAttribute", current -> current.getAttribute(name));
+    }
+
+    public boolean isSelected() {
+        return call("isSelected", WebElement::isSelected);
+    }
+
+    public boolean isEnabled() {
+        return call("isEnabled", WebElement::isEnabled);
+    }
+
+    public String getText() {
+        return call("getText", WebElement::getText);
+    }
+
+    public List<WebElement> findElements(By by) {
+        return owner.wrapAll(this, by, call("findElements", current -> current.findElements(by)));
+    }
+
+    public WebElement findElement(By by) {
+        return owner.wrap(this, by, call("findElement", current -> owner.locateWithin(current, by)));
+    }
+
+    public boolean isDisplayed() {
+        return call("isDisplayed", WebElement::isDisplayed);
+    }
+
+    public Point getLocation() {
+        return call("getLocation", WebElement::getLocation);
+    }
+
+    public Dimension getSize() {
+        return call("getSize", WebElement::getSize);
+    }
+
+    public Rectangle getRect() {
+        return call("getRect", WebElement::getRect);
+    }
+
+    public String getCssValue(String propertyName) {
+        return call("getCssValue", current -> current.getCssValue(propertyName));
+    }
+
+    public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+        return call("getScreenshotAs", current -> current.getScreenshotAs(target));
+    }
+
+    public Coordinates getCoordinates() {
+        return call("getCoordinates", current -> ((Locatable) current).getCoordinates());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof WrapsElement) {
+            other = ((WrapsElement) other).getWrappedElement();
+        }
+        return element.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return element.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HealingWebElement(" + locator + ") -> " + element;
+    }
+}
@@ -0,0 +1,149 @@
+package com.automation.autoheal.factory;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import org.openqa.selenium.PageLoadStrategy;
+
+/**
+ * Declarative browser launch profile read from autoheal.properties.
+ *
+ * The active profile is chosen with {@code browser.profile} (a
+ * {@code -Dbrowser.profile=...} system property wins, so the same suite can be
+ * run once per profile and the page load statistics compared). Settings are
+ * read from {@code browser.profile.<name>.<setting>}; anything not set keeps
+ * the historical headed, maximized behaviour.
+ */
+public class BrowserProfile {
+
+    public static final String DEFAULT_PROFILE = "default";
+    public static final int DEFAULT_USER_DATA_SLOTS = 32;
+
+    private final String name;
+    private final boolean headless;
+    private final boolean blockImages;
+    private final boolean blockFonts;
+    private final boolean disableGpu;
+    private final boolean disableBackgroundThrottling;
+    private final boolean disableExtensions;
+    private final int windowWidth;
+    private final int windowHeight;
+    private final PageLoadStrategy pageLoadStrategy;
+    private final String userDataDir;
+    private final int userDataSlots;
+
+    private BrowserProfile(String name, AutoHealConfig config) {
+        this.name = name;
+        this.headless = flag(config, "headless");
+        this.blockImages = flag(config, "blockImages");
+        this.blockFonts = flag(config, "blockFonts");
+        this.disableGpu = flag(config, "disableGpu");
+        this.disableBackgroundThrottling = flag(config, "disableBackgroundThrottling");
+        this.disableExtensions = flag(config, "disableExtensions");
+
+        String windowSize = setting(config, "windowSize", "");
+        if (windowSize.isEmpty()) {
+            this.windowWidth = 0;
+            this.windowHeight = 0;
+        } else {
+            String[] dimensions = windowSize.toLowerCase().split("[x,]");
+            if (dimensions.length != 2) {
+                throw new IllegalArgumentException("Invalid window size for browser profile '" + name
+                    + "', expected WIDTHxHEIGHT: " + windowSize);
+            }
+            this.windowWidth = Integer.parseInt(dimensions[0].trim());
+            this.windowHeight = Integer.parseInt(dimensions[1].trim());
+        }
+
+        this.pageLoadStrategy = PageLoadStrategy.valueOf(
+            setting(config, "pageLoadStrategy", "normal").toUpperCase());
+        String dir = setting(config, "userDataDir", "");
+        this.userDataDir = dir.isEmpty() ? null : dir;
+        this.userDataSlots = Integer.parseInt(setting(config, "userDataSlots", String.valueOf(DEFAULT_USER_DATA_SLOTS)));
+        if (userDataSlots < 1) {
+            throw new IllegalArgumentException("Invalid userDataSlots for browser profile '" + name
+                + "', expected a positive number: " + userDataSlots);
+        }
+    }
+
+    /**
+     * Profile selected by browser.profile (a -D system property overrides the file)
+     */
+    public static BrowserProfile active(AutoHealConfig config) {
+        String name = config.getProperty("browser.profile", DEFAULT_PROFILE).trim();
+        return new BrowserProfile(name.isEmpty() ? DEFAULT_PROFILE : name, config);
+    }
+
+    private String setting(AutoHealConfig config, String key, String defaultValue) {
+        return config.getProperty("browser.profile." + name + "." + key, defaultValue).trim();
+    }
+
+    private boolean flag(AutoHealConfig config, String key) {
+        return Boolean.parseBoolean(setting(config, key, "false"));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public boolean isBlockImages() {
+        return blockImages;
+    }
+
+    public boolean isBlockFonts() {
+        return blockFonts;
+    }
+
+    public boolean isDisableGpu() {
+        return disableGpu;
+    }
+
+    public boolean isDisableBackgroundThrottling() {
+        return disableBackgroundThrottling;
+    }
+
+    public boolean isDisableExtensions() {
+        return disableExtensions;
+    }
+
+    /**
+     * True when a fixed viewport is configured, otherwise the window is maximized
+     */
+    public boolean hasWindowSize() {
+        return windowWidth > 0 && windowHeight > 0;
+    }
+
+    public int getWindowWidth() {
+        return windowWidth;
+    }
+
+    public int getWindowHeight() {
+        return windowHeight;
+    }
+
+    public PageLoadStrategy getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+
+    /**
+     * Base directory for reusable browser profiles (HTTP cache, compiled code cache),
+     * null to start every browser with a throwaway profile
+     */
+    public String getUserDataDir() {
+        return userDataDir;
+    }
+
+    /**
+     * Maximum number of profile directories under userDataDir, one per concurrent browser
+     */
+    public int getUserDataSlots() {
+        return userDataSlots;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,250 @@
+package com.automation.autoheal.factory;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.core.AutoHealWebDriver;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Per-thread registry of the drivers handed to tests.
+ *
+ * Each TestNG worker thread gets its own {@link AutoHealWebDriver}, kept for the
+ * configured {@link DriverScope} so that healing caches and page load statistics
+ * carry over between the methods it runs. Drivers are registered by thread (and
+ * by test class for {@link DriverScope#CLASS}) so they can be released from
+ * the listener thread once their scope ends. The driver a thread's test is
+ * using is also kept on its own, so {@link #current()} is a single lookup;
+ * tests that create their drivers themselves can {@link #bind} them to be
+ * found the same way.
+ */
+public class DriverRegistry {
+
+    private static final Map<Thread, Map<Object, Entry>> drivers = new ConcurrentHashMap<>();
+    private static final Map<Thread, AutoHealWebDriver> bound = new ConcurrentHashMap<>(); // Driver each thread's test uses
+
+    // Suite-scoped drivers whose TestNG test finished, waiting for a thread of the next test
+    private static final ConcurrentLinkedQueue<Entry> parked = new ConcurrentLinkedQueue<>();
+
+    private DriverRegistry() {
+    }
+
+    /**
+     * Driver lifetime configured by driver.scope
+     */
+    public static DriverScope getScope() {
+        return DriverScope.fromString(AutoHealConfig.getInstance().getDriverScope());
+    }
+
+    /**
+     * Driver of the current thread for the configured scope, acquiring one if the
+     * thread has none yet
+     */
+    public static AutoHealWebDriver acquire(String browserName, Class<?> testClass, String testName) {
+        DriverScope scope = getScope();
+        Object key = scope == DriverScope.CLASS ? testClass : scope;
+        Map<Object, Entry> owned = drivers.computeIfAbsent(Thread.currentThread(), thread -> new ConcurrentHashMap<>());
+
+        Entry entry = owned.get(key);
+        if (entry != null && !entry.browser.equalsIgnoreCase(browserName)) {
+            owned.remove(key);
+            release(entry);
+            entry = null;
+        }
+        if (entry == null && scope == DriverScope.SUITE) {
+            entry = adopt(browserName);
+        }
+        if (entry == null) {
+            entry = new Entry(WebDriverFactory.acquireDriver(browserName), browserName, scope);
+        }
+        entry.testName = testName;
+        entry.lastAcquired = System.nanoTime();
+        owned.put(key, entry);
+        bound.put(Thread.currentThread(), entry.driver);
+        return entry.driver;
+    }
+
+    /**
+     * Driver the current thread is using, or null if it has none. When the thread
+     * holds drivers for several classes the most recently acquired or bound one is returned.
+     */
+    public static AutoHealWebDriver current() {
+        return bound.get(Thread.currentThread());
+    }
+
+    /**
+     * Make a driver the test created itself the current thread's driver, for
+     * failure screenshots and reporting. The registry never releases it.
+     */
+    public static void bind(AutoHealWebDriver driver) {
+        bound.put(Thread.currentThread(), driver);
+    }
+
+    /**
+     * Forget the driver bound to the current thread, once the test has quit it
+     */
+    public static void unbind() {
+        Thread thread = Thread.currentThread();
+        bound.remove(thread);
+        rebind(thread);
+    }
+
+    /**
+     * After the thread's current driver went away, fall back to the latest one it still holds
+     */
+    private static void rebind(Thread thread) {
+        Map<Object, Entry> owned = drivers.get(thread);
+        if (owned == null || bound.containsKey(thread)) {
+            return;
+        }
+        Entry latest = null;
+        for (Entry entry : owned.values()) {
+            if (latest == null || entry.lastAcquired > latest.lastAcquired) {
+                latest = entry;
+            }
+        }
+        if (latest != null) {
+            bound.putIfAbsent(thread, latest.driver);
+        }
+    }
+
+    /**
+     * Release a driver a thread held, unbinding it if it was the thread's current one
+     */
+    private static void release(Thread thread, Entry entry) {
+        if (bound.remove(thread, entry.driver)) {
+            rebind(thread);
+        }
+        release(entry);
+    }
+
+    /**
+     * End of a test method: release the current thread's method-scoped driver
+     */
+    public static void afterMethod() {
+        Map<Object, Entry> owned = drivers.get(Thread.currentThread());
+        if (owned != null) {
+            Entry entry = owned.remove(DriverScope.METHOD);
+            if (entry != null) {
+                release(Thread.currentThread(), entry);
+            }
+        }
+    }
+
+    /**
+     * End of a test class: release the drivers every thread used for it
+     */
+    public static void afterClass(Class<?> testClass) {
+        for (Map.Entry<Thread, Map<Object, Entry>> owned : drivers.entrySet()) {
+            Entry entry = owned.getValue().remove(testClass);
+            if (entry != null) {
+                release(owned.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * The current thread is about to end, as a virtual thread does after its one
+     * test: release its drivers (parking suite-scoped ones) so they do not hold
+     * pool slots until the end of their scope
+     */
+    public static void afterThread() {
+        bound.remove(Thread.currentThread());
+        Map<Object, Entry> owned = drivers.remove(Thread.currentThread());
+        if (owned == null) {
+            return;
+        }
+        for (Entry entry : owned.values()) {
+            if (entry.scope == DriverScope.SUITE) {
+                parked.offer(entry);
+            } else {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * End of a TestNG test: its worker threads are done, so thread-scoped drivers
+     * are released and suite-scoped drivers parked for the next test's threads
+     */
+    public static void afterTest(String testName) {
+        for (Iterator<Map.Entry<Thread, Map<Object, Entry>>> threads = drivers.entrySet().iterator(); threads.hasNext(); ) {
+            Map.Entry<Thread, Map<Object, Entry>> thread = threads.next();
+            Map<Object, Entry> owned = thread.getValue();
+            for (Iterator<Entry> entries = owned.values().iterator(); entries.hasNext(); ) {
+                Entry entry = entries.next();
+                if (!testName.equals(entry.testName)) {
+                    continue;
+                }
+                entries.remove();
+                bound.remove(thread.getKey(), entry.driver);
+                if (entry.scope == DriverScope.SUITE) {
+                    parked.offer(entry);
+                } else {
+                    release(entry);
+                }
+            }
+            if (owned.isEmpty()) {
+                threads.remove();
+            } else {
+                rebind(thread.getKey());
+            }
+        }
+    }
+
+    /**
+     * End of the suite: release every driver still registered
+     */
+    public static void releaseAll() {
+        List<Entry> remaining = new ArrayList<>();
+        for (Map<Object, Entry> owned : drivers.values()) {
+            remaining.addAll(owned.values());
+        }
+        drivers.clear();
+        bound.clear();
+        Entry entry;
+        while ((entry = parked.poll()) != null) {
+            remaining.add(entry);
+        }
+        for (Entry each : remaining) {
+            release(each);
+        }
+    }
+
+    /**
+     * Take over a parked suite-scoped driver for the same browser
+     */
+    private static Entry adopt(String browserName) {
+        for (Entry entry : parked) {
+            if (entry.browser.equalsIgnoreCase(browserName) && parked.remove(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static void release(Entry entry) {
+        WebDriverFactory.releaseDriver(entry.driver);
+    }
+
+    /**
+     * Driver owned by a thread for one scope
+     */
+    private static class Entry {
+
+        private final AutoHealWebDriver driver;
+        private final String browser;
+        private final DriverScope scope;
+        private volatile String testName;
+        private volatile long lastAcquired;
+
+        Entry(AutoHealWebDriver driver, String browser, DriverScope scope) {
+            this.driver = driver;
+            this.browser = browser;
+            this.scope = scope;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.automation.autoheal.factory;
+
+/**
+ * How long a test thread keeps the driver it was given
+ */
+public enum DriverScope {
+    
+    /** New driver for every test method, the historical behaviour */
+    METHOD,
+    
+    /** One driver per test class and worker thread, released after the class */
+    CLASS,
+    
+    /** One driver per worker thread, released when the TestNG test (worker pool) finishes */
+    THREAD,
+    
+    /** Like THREAD, but drivers outlive the TestNG test and are handed to later tests' threads */
+    SUITE;
+    
+    /**
+     * Parse a driver.scope value, case-insensitively
+     */
+    public static DriverScope fromString(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported driver scope: " + value
+                + " (expected method, class, thread or suite)");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.automation.autoheal.factory;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import java.net.URL;
+import java.time.Duration;
+
+/**
+ * HTTP client factory shared by every RemoteWebDriver session.
+ *
+ * Clients created by one Selenium client factory share its connection pool,
+ * so keeping a single factory for all sessions lets commands reuse open
+ * keep-alive connections to the grid instead of paying a TCP (and TLS)
+ * handshake per session. Timeouts come from autoheal.properties rather than
+ * Selenium's defaults, whose three-hour read timeout hides a dead node.
+ */
+public class KeepAliveHttpClientFactory implements HttpClient.Factory {
+    
+    private static volatile KeepAliveHttpClientFactory instance;
+    
+    private final HttpClient.Factory delegate;
+    private final Duration connectionTimeout;
+    private final Duration readTimeout;
+    
+    private KeepAliveHttpClientFactory(AutoHealConfig config) {
+        this.delegate = HttpClient.Factory.createDefault();
+        this.connectionTimeout = Duration.ofMillis(config.getRemoteConnectionTimeout());
+        this.readTimeout = Duration.ofMillis(config.getRemoteReadTimeout());
+    }
+    
+    public static KeepAliveHttpClientFactory getInstance() {
+        if (instance == null) {
+            synchronized (KeepAliveHttpClientFactory.class) {
+                if (instance == null) {
+                    instance = new KeepAliveHttpClientFactory(AutoHealConfig.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+    
+    @Override
+    public HttpClient.Builder builder() {
+        return delegate.builder()
+            .connectionTimeout(connectionTimeout)
+            .readTimeout(readTimeout);
+    }
+    
+    @Override
+    public HttpClient createClient(URL url) {
+        return builder().createClient(url);
+    }
+    
+    /**
+     * Close pooled connections nobody is using
+     */
+    @Override
+    public void cleanupIdleClients() {
+        delegate.cleanupIdleClients();
+    }
+}
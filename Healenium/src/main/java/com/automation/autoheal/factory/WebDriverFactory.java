@@ -1,13 +1,40 @@
 package com.automation.autoheal.factory;
 
+import com.automation.autoheal.config.AutoHealConfig;
 import com.automation.autoheal.core.AutoHealWebDriver;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.ie.InternetExplorerOptions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Factory class for creating WebDriver instances wrapped with AutoHeal functionality
@@ -18,57 +45,388 @@ public class WebDriverFactory {
     private static final String FIREFOX = "firefox";
     private static final String IE = "ie";
     
+    // Headless browsers ignore --start-maximized and would otherwise render at 800x600
+    private static final int HEADLESS_WIDTH = 1920;
+    private static final int HEADLESS_HEIGHT = 1080;
+    
+    // Files a running browser holds in its profile directory
+    private static final String[] CHROME_PROFILE_LOCKS = {"SingletonLock", "lockfile"};
+    private static final String[] FIREFOX_PROFILE_LOCKS = {"lock", "parent.lock"};
+    
+    // Chrome links SingletonLock to "<host>-<pid>", Firefox links lock to "<address>:+<pid>"
+    private static final Pattern LOCK_OWNER_PID = Pattern.compile("(\\d+)$");
+    private static final File PROC = new File("/proc");
+    // Lock links whose owner cannot be checked (no /proc) are taken as stale after this long
+    private static final long STALE_LOCK_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+    
+    private static volatile WebDriverPool pool;
+    
+    // Profile directories handed to a browser that has not created its lock file yet
+    private static final Set<File> startingProfiles = new HashSet<>();
+    
     /**
      * Create AutoHeal WebDriver instance
      */
     public static AutoHealWebDriver createDriver(String browserName) {
+        return wrap(createBrowser(browserName));
+    }
+    
+    /**
+     * Get an AutoHeal WebDriver backed by a warm pooled browser session when
+     * pooling is enabled, or a fresh browser otherwise.
+     * Hand it back with {@link #releaseDriver(AutoHealWebDriver)} instead of quitting it.
+     */
+    public static AutoHealWebDriver acquireDriver(String browserName) {
+        if (!AutoHealConfig.getInstance().isDriverPoolEnabled()) {
+            return createDriver(browserName);
+        }
+        return wrap(getPool().acquire(browserName));
+    }
+    
+    /**
+     * Return a driver obtained from {@link #acquireDriver(String)}: pooled
+     * sessions are reset and kept warm, anything else is quit
+     */
+    public static void releaseDriver(AutoHealWebDriver driver) {
+        WebDriverPool current = pool;
+        if (current == null) {
+            driver.quit();
+            return;
+        }
+        if (driver.getPageLoadTracker() != null) {
+            driver.getPageLoadTracker().saveStatistics();
+        }
+        current.release(driver.getDriver(), driver.getVisitedOrigins());
+    }
+    
+    /**
+     * Size the pool to the number of test threads, unless a fixed
+     * driver.pool.size is configured
+     */
+    public static void configurePool(int threadCount) {
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        if (config.isDriverPoolEnabled() && config.getDriverPoolSize() == 0) {
+            getPool().resize(threadCount);
+        }
+    }
+    
+    /**
+     * Quit all pooled sessions and close idle remote connections
+     */
+    public static synchronized void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (!AutoHealConfig.getInstance().getRemoteUrl().isEmpty()) {
+            KeepAliveHttpClientFactory.getInstance().cleanupIdleClients();
+        }
+    }
+    
+    /**
+     * Pool usage and wait-time statistics, empty when pooling has not been used
+     */
+    public static Map<String, Object> getPoolStatistics() {
+        WebDriverPool current = pool;
+        return current == null ? Collections.<String, Object>emptyMap() : current.getStatistics();
+    }
+    
+    private static WebDriverPool getPool() {
+        WebDriverPool current = pool;
+        if (current == null) {
+            synchronized (WebDriverFactory.class) {
+                if (pool == null) {
+                    AutoHealConfig config = AutoHealConfig.getInstance();
+                    int size = config.getDriverPoolSize();
+                    pool = new WebDriverPool(WebDriverFactory::createBrowser, size == 0 ? 1 : size,
+                        config.getDriverPoolMaxUsesPerSession(), config.getDriverPoolAcquireTimeout());
+                    Runtime.getRuntime().addShutdownHook(new Thread(WebDriverFactory::shutdownPool));
+                }
+                current = pool;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Wrap a browser session, tagging its page load statistics with the active profile
+     */
+    private static AutoHealWebDriver wrap(WebDriver browser) {
+        AutoHealWebDriver driver = new AutoHealWebDriver(browser);
+        driver.getPageLoadTracker().setProfileName(BrowserProfile.active(AutoHealConfig.getInstance()).getName());
+        return driver;
+    }
+    
+    /**
+     * Start a plain browser session using the active browser profile, on the
+     * configured remote server when driver.remote.url is set
+     */
+    static WebDriver createBrowser(String browserName) {
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        BrowserProfile profile = BrowserProfile.active(config);
+        if (!config.getRemoteUrl().isEmpty()) {
+            return createRemoteDriver(browserName, profile, config);
+        }
         WebDriver driver;
         
         switch (browserName.toLowerCase()) {
             case CHROME:
-                driver = createChromeDriver();
+                driver = createChromeDriver(profile);
                 break;
             case FIREFOX:
-                driver = createFirefoxDriver();
+                driver = createFirefoxDriver(profile);
                 break;
             case IE:
-                driver = createIEDriver();
+                driver = createIEDriver(profile);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported browser: " + browserName);
         }
         
-        return new AutoHealWebDriver(driver);
+        return driver;
+    }
+    
+    /**
+     * Create a RemoteWebDriver session. All sessions share one keep-alive HTTP
+     * client factory, so commands reuse open connections to the server.
+     * Profile directories live on the remote node and are not managed here.
+     */
+    private static WebDriver createRemoteDriver(String browserName, BrowserProfile profile, AutoHealConfig config) {
+        Capabilities options;
+        switch (browserName.toLowerCase()) {
+            case CHROME:
+                options = chromeOptions(profile);
+                break;
+            case FIREFOX:
+                options = firefoxOptions(profile);
+                break;
+            case IE:
+                options = ieOptions(profile);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported browser: " + browserName);
+        }
+        
+        URL remoteUrl;
+        try {
+            remoteUrl = new URL(config.getRemoteUrl());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid driver.remote.url: " + config.getRemoteUrl(), e);
+        }
+        HttpCommandExecutor executor = new HttpCommandExecutor(
+            Collections.emptyMap(), remoteUrl, KeepAliveHttpClientFactory.getInstance());
+        return new RemoteWebDriver(executor, options);
     }
     
     /**
      * Create Chrome driver
      */
-    private static WebDriver createChromeDriver() {
+    private static WebDriver createChromeDriver(BrowserProfile profile) {
+        ChromeOptions options = chromeOptions(profile);
+        if (profile.getUserDataDir() == null) {
+            return new ChromeDriver(options);
+        }
+        File profileDir = claimProfileDirectory(profile, CHROME, CHROME_PROFILE_LOCKS);
+        try {
+            options.addArguments("--user-data-dir=" + profileDir.getAbsolutePath());
+            return new ChromeDriver(options);
+        } finally {
+            releaseProfileDirectory(profileDir);
+        }
+    }
+    
+    /**
+     * Chrome options for a browser profile
+     */
+    private static ChromeOptions chromeOptions(BrowserProfile profile) {
         ChromeOptions options = new ChromeOptions();
-        options.addArguments("--start-maximized");
         options.addArguments("--disable-notifications");
-        // Add more Chrome options as needed
-        return new ChromeDriver(options);
+        if (profile.isHeadless()) {
+            options.addArguments("--headless=new");
+        }
+        if (profile.hasWindowSize() || profile.isHeadless()) {
+            options.addArguments("--window-size=" + windowWidth(profile) + "," + windowHeight(profile));
+        } else {
+            options.addArguments("--start-maximized");
+        }
+        if (profile.isBlockImages()) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            options.setExperimentalOption("prefs", prefs);
+        }
+        if (profile.isBlockFonts()) {
+            options.addArguments("--disable-remote-fonts");
+        }
+        if (profile.isDisableGpu()) {
+            options.addArguments("--disable-gpu");
+        }
+        if (profile.isDisableBackgroundThrottling()) {
+            options.addArguments("--disable-background-timer-throttling",
+                "--disable-backgrounding-occluded-windows", "--disable-renderer-backgrounding");
+        }
+        if (profile.isDisableExtensions()) {
+            options.addArguments("--disable-extensions");
+        }
+        if (AutoHealConfig.getInstance().isFailureBundleEnabled()) {
+            // Chrome only hands out the console it was asked to keep, for the failure bundle
+            LoggingPreferences logging = new LoggingPreferences();
+            logging.enable(LogType.BROWSER, Level.ALL);
+            options.setCapability("goog:loggingPrefs", logging);
+        }
+        options.setPageLoadStrategy(profile.getPageLoadStrategy());
+        return options;
     }
     
     /**
      * Create Firefox driver
      */
-    private static WebDriver createFirefoxDriver() {
+    private static WebDriver createFirefoxDriver(BrowserProfile profile) {
+        FirefoxOptions options = firefoxOptions(profile);
+        if (profile.getUserDataDir() == null) {
+            return new FirefoxDriver(options);
+        }
+        File profileDir = claimProfileDirectory(profile, FIREFOX, FIREFOX_PROFILE_LOCKS);
+        try {
+            // Passed as an argument so geckodriver runs the profile in place instead of copying it
+            options.addArguments("-profile", profileDir.getAbsolutePath());
+            return new FirefoxDriver(options);
+        } finally {
+            releaseProfileDirectory(profileDir);
+        }
+    }
+    
+    /**
+     * Firefox options for a browser profile
+     */
+    private static FirefoxOptions firefoxOptions(BrowserProfile profile) {
         FirefoxOptions options = new FirefoxOptions();
-        // Add Firefox options as needed
-        return new FirefoxDriver(options);
+        if (profile.isHeadless()) {
+            options.addArguments("-headless");
+        }
+        if (profile.hasWindowSize() || profile.isHeadless()) {
+            options.addArguments("-width", String.valueOf(windowWidth(profile)),
+                "-height", String.valueOf(windowHeight(profile)));
+        }
+        if (profile.isBlockImages()) {
+            options.addPreference("permissions.default.image", 2);
+        }
+        if (profile.isBlockFonts()) {
+            options.addPreference("gfx.downloadable_fonts.enabled", false);
+        }
+        if (profile.isDisableGpu()) {
+            options.addPreference("layers.acceleration.disabled", true);
+        }
+        if (profile.isDisableBackgroundThrottling()) {
+            options.addPreference("dom.min_background_timeout_value", 4);
+            options.addPreference("dom.timeout.enable_budget_timer_throttling", false);
+        }
+        options.setPageLoadStrategy(profile.getPageLoadStrategy());
+        return options;
     }
     
     /**
      * Create Internet Explorer driver
      */
-    private static WebDriver createIEDriver() {
+    private static WebDriver createIEDriver(BrowserProfile profile) {
+        return new InternetExplorerDriver(ieOptions(profile));
+    }
+    
+    /**
+     * Internet Explorer options for a browser profile
+     */
+    private static InternetExplorerOptions ieOptions(BrowserProfile profile) {
         InternetExplorerOptions options = new InternetExplorerOptions();
         options.ignoreZoomSettings();
         options.introduceFlakinessByIgnoringSecurityDomains();
-        return new InternetExplorerDriver(options);
+        options.setPageLoadStrategy(profile.getPageLoadStrategy());
+        return options;
+    }
+    
+    private static int windowWidth(BrowserProfile profile) {
+        return profile.hasWindowSize() ? profile.getWindowWidth() : HEADLESS_WIDTH;
+    }
+    
+    private static int windowHeight(BrowserProfile profile) {
+        return profile.hasWindowSize() ? profile.getWindowHeight() : HEADLESS_HEIGHT;
+    }
+    
+    /**
+     * Pick the first profile directory under the profile's userDataDir that no
+     * running or starting browser uses. A profile cannot be opened by two
+     * browsers at once, so each concurrent session gets its own slot and
+     * later sessions reuse the slot's warm cache. Locks left behind by crashed
+     * browsers are removed; there are at most userDataSlots directories.
+     */
+    private static File claimProfileDirectory(BrowserProfile profile, String browser, String[] lockFiles) {
+        synchronized (startingProfiles) {
+            for (int slot = 0; slot < profile.getUserDataSlots(); slot++) {
+                File dir = new File(profile.getUserDataDir(), profile.getName() + "-" + browser + "-" + slot);
+                if (!startingProfiles.contains(dir) && !isLocked(dir, lockFiles)) {
+                    dir.mkdirs();
+                    startingProfiles.add(dir);
+                    return dir;
+                }
+            }
+        }
+        throw new WebDriverException("All " + profile.getUserDataSlots() + " " + browser
+            + " profile directories of browser profile '" + profile.getName() + "' under "
+            + profile.getUserDataDir() + " are in use; quit running browsers or raise browser.profile."
+            + profile.getName() + ".userDataSlots");
+    }
+    
+    /**
+     * Stop reserving a directory once its browser has started and holds the lock itself
+     */
+    private static void releaseProfileDirectory(File dir) {
+        synchronized (startingProfiles) {
+            startingProfiles.remove(dir);
+        }
+    }
+    
+    private static boolean isLocked(File dir, String[] lockFiles) {
+        for (String lockFile : lockFiles) {
+            Path lock = new File(dir, lockFile).toPath();
+            // Chrome's SingletonLock is a symlink to a non-existent target, do not follow it
+            if (Files.exists(lock, LinkOption.NOFOLLOW_LINKS) && !deleteIfStale(lock)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Remove a lock whose browser is no longer running
+     *
+     * @return true if the lock was stale and is gone
+     */
+    private static boolean deleteIfStale(Path lock) {
+        try {
+            if (!isStale(lock)) {
+                return false;
+            }
+            Files.deleteIfExists(lock);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private static boolean isStale(Path lock) throws IOException {
+        if (!Files.isSymbolicLink(lock)) {
+            // Browsers on Windows keep the lock file open exclusively, Firefox on Unix holds a file lock on it
+            try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.WRITE);
+                 FileLock fileLock = channel.tryLock()) {
+                return fileLock != null;
+            } catch (IOException | OverlappingFileLockException e) {
+                return false;
+            }
+        }
+        Matcher owner = LOCK_OWNER_PID.matcher(Files.readSymbolicLink(lock).toString());
+        if (owner.find() && PROC.isDirectory()) {
+            return !new File(PROC, owner.group(1)).exists();
+        }
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(lock, LinkOption.NOFOLLOW_LINKS).toMillis();
+        return age > STALE_LOCK_AGE_MILLIS;
     }
 }
 
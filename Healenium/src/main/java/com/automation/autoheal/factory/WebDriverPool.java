@@ -0,0 +1,323 @@
+package com.automation.autoheal.factory;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Pool of warm browser sessions per browser type.
+ *
+ * Browser startup dominates short tests, so sessions are reset and reused
+ * instead of quit: on release cookies and web storage are cleared, extra
+ * windows closed and the session parked on about:blank. A session is
+ * health-checked before reuse and replaced after a configurable number of
+ * uses so long suites do not accumulate browser state or leaks.
+ *
+ * WebDriver only reaches the cookies and storage of the page it is on, so
+ * reset clears every open window's origin in place and then revisits the
+ * other origins the test opened. Origins only reached through links or
+ * redirects are not known to the pool and keep their state; sessions that
+ * opened more than {@link #MAX_CLEARED_ORIGINS} origins are quit instead of
+ * being reused.
+ */
+public class WebDriverPool {
+
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    // Each extra origin costs a navigation on release; past this a new browser is cheaper
+    static final int MAX_CLEARED_ORIGINS = 5;
+
+    // Small same-origin document to clear an origin from without running the site's pages
+    private static final String CLEAR_ORIGIN_PATH = "/robots.txt";
+
+    private static final String CLEAR_STORAGE_SCRIPT =
+        "try { window.localStorage.clear(); } catch (e) {}" +
+        "try { window.sessionStorage.clear(); } catch (e) {}" +
+        "return window.location.origin;";
+
+    private final Function<String, WebDriver> driverCreator;
+    private final int maxUsesPerSession;
+    private final long acquireTimeoutMillis;
+    private volatile int sizePerBrowser;
+    private volatile boolean closed;
+
+    private final Map<String, BrowserPool> pools = new ConcurrentHashMap<>();
+    private final Map<WebDriver, PooledSession> leased = new ConcurrentHashMap<>(); // Drivers use identity equality
+
+    // Metrics
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong unhealthy = new AtomicLong();
+    private final AtomicLong resetFailures = new AtomicLong();
+    private final AtomicLong tooManyOrigins = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public WebDriverPool(Function<String, WebDriver> driverCreator, int sizePerBrowser,
+                         int maxUsesPerSession, long acquireTimeoutMillis) {
+        this.driverCreator = driverCreator;
+        this.sizePerBrowser = Math.max(1, sizePerBrowser);
+        this.maxUsesPerSession = Math.max(1, maxUsesPerSession);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Resize the pool, e.g. to the TestNG thread count once the suite starts.
+     * Existing sessions above the new size are quit as they are released.
+     */
+    public void resize(int sizePerBrowser) {
+        this.sizePerBrowser = Math.max(1, sizePerBrowser);
+    }
+
+    public int getSizePerBrowser() {
+        return sizePerBrowser;
+    }
+
+    /**
+     * Take a warm session, starting a new browser if the pool is not full yet
+     * and waiting for a release otherwise
+     */
+    public WebDriver acquire(String browserName) {
+        if (closed) {
+            throw new IllegalStateException("WebDriver pool has been shut down");
+        }
+
+        String browser = browserName.toLowerCase();
+        BrowserPool pool = pools.computeIfAbsent(browser, key -> new BrowserPool());
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            PooledSession session = pool.idle.poll();
+            if (session != null && !isHealthy(session)) {
+                unhealthy.incrementAndGet();
+                discard(pool, session);
+                continue;
+            }
+
+            if (session == null && pool.reserveSlot(sizePerBrowser)) {
+                try {
+                    session = new PooledSession(browser, driverCreator.apply(browser));
+                    created.incrementAndGet();
+                } catch (RuntimeException e) {
+                    pool.live.decrementAndGet();
+                    throw e;
+                }
+            } else if (session == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new WebDriverException("Timed out after " + acquireTimeoutMillis
+                        + "ms waiting for a pooled " + browser + " driver");
+                }
+                try {
+                    // Wake up regularly: a slot can also free up when a session is recycled
+                    session = pool.idle.poll(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebDriverException("Interrupted while waiting for a pooled " + browser + " driver", e);
+                }
+                continue;
+            } else {
+                reused.incrementAndGet();
+            }
+
+            recordWait(System.nanoTime() - start);
+            session.uses++;
+            leased.put(session.driver, session);
+            return session.driver;
+        }
+    }
+
+    /**
+     * Return a session to the pool, or quit it when it is worn out, broken or
+     * the pool has shrunk. Drivers the pool did not hand out are simply quit.
+     */
+    public void release(WebDriver driver) {
+        release(driver, Collections.<String>emptySet());
+    }
+
+    /**
+     * Return a session to the pool after clearing the state of the given
+     * origins as well as the pages still open
+     *
+     * @param origins origins the test opened, e.g. https://example.com:8443
+     */
+    public void release(WebDriver driver, Collection<String> origins) {
+        PooledSession session = leased.remove(driver);
+        if (session == null) {
+            driver.quit();
+            return;
+        }
+
+        BrowserPool pool = pools.get(session.browser);
+        if (closed || session.uses >= maxUsesPerSession || pool.live.get() > sizePerBrowser) {
+            recycled.incrementAndGet();
+            discard(pool, session);
+            return;
+        }
+        if (origins.size() > MAX_CLEARED_ORIGINS) {
+            tooManyOrigins.incrementAndGet();
+            discard(pool, session);
+            return;
+        }
+
+        try {
+            reset(session.driver, origins);
+            pool.idle.offer(session);
+        } catch (RuntimeException e) {
+            resetFailures.incrementAndGet();
+            discard(pool, session);
+        }
+    }
+
+    /**
+     * Quit every idle session; sessions still in use are quit when released
+     */
+    public void shutdown() {
+        closed = true;
+        for (BrowserPool pool : pools.values()) {
+            PooledSession session;
+            while ((session = pool.idle.poll()) != null) {
+                discard(pool, session);
+            }
+        }
+    }
+
+    /**
+     * Pool usage and wait-time statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = acquisitions.get();
+        stats.put("sizePerBrowser", sizePerBrowser);
+        stats.put("acquisitions", count);
+        stats.put("created", created.get());
+        stats.put("reused", reused.get());
+        stats.put("recycled", recycled.get());
+        stats.put("unhealthy", unhealthy.get());
+        stats.put("resetFailures", resetFailures.get());
+        stats.put("tooManyOrigins", tooManyOrigins.get());
+        stats.put("averageWaitMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count));
+        stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        Map<String, String> perBrowser = new LinkedHashMap<>();
+        for (Map.Entry<String, BrowserPool> entry : pools.entrySet()) {
+            perBrowser.put(entry.getKey(), entry.getValue().idle.size() + " idle / " + entry.getValue().live.get() + " live");
+        }
+        stats.put("browsers", perBrowser);
+        return stats;
+    }
+
+    /**
+     * Clear per-test browser state and park the session on a blank page
+     */
+    private void reset(WebDriver driver, Collection<String> origins) {
+        // Cookies and storage are scoped to the current origin, clear each window's before leaving it
+        Set<String> cleared = new HashSet<>();
+        List<String> handles = new ArrayList<>(driver.getWindowHandles());
+        for (int i = handles.size() - 1; i >= 0; i--) {
+            driver.switchTo().window(handles.get(i));
+            driver.switchTo().defaultContent();
+            cleared.add(clearCurrentOrigin(driver));
+            if (i > 0) {
+                driver.close();
+            }
+        }
+
+        for (String origin : origins) {
+            if (!cleared.contains(origin)) {
+                driver.get(origin + CLEAR_ORIGIN_PATH);
+                clearCurrentOrigin(driver);
+            }
+        }
+        driver.get("about:blank");
+    }
+
+    /**
+     * Delete the cookies and web storage of the page the driver is on
+     *
+     * @return origin of the page, e.g. https://example.com
+     */
+    private static String clearCurrentOrigin(WebDriver driver) {
+        driver.manage().deleteAllCookies();
+        if (driver instanceof JavascriptExecutor) {
+            Object origin = ((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+            return origin instanceof String ? (String) origin : null;
+        }
+        return null;
+    }
+
+    private boolean isHealthy(PooledSession session) {
+        try {
+            return session.driver.getWindowHandle() != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void discard(BrowserPool pool, PooledSession session) {
+        pool.live.decrementAndGet();
+        try {
+            session.driver.quit();
+        } catch (RuntimeException e) {
+            // Already gone
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Idle sessions and live session count for one browser type
+     */
+    private static class BrowserPool {
+
+        private final BlockingQueue<PooledSession> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger live = new AtomicInteger();
+
+        boolean reserveSlot(int size) {
+            int current;
+            do {
+                current = live.get();
+                if (current >= size) {
+                    return false;
+                }
+            } while (!live.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Browser session owned by the pool
+     */
+    private static class PooledSession {
+
+        private final String browser;
+        private final WebDriver driver;
+        private int uses;
+
+        PooledSession(String browser, WebDriver driver) {
+            this.browser = browser;
+            this.driver = driver;
+        }
+    }
+}
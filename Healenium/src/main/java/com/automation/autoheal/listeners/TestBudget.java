@@ -0,0 +1,34 @@
+package com.automation.autoheal.listeners;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits for what a test may use, on a test method or on a class for all its
+ * tests. A negative value leaves the limit to the class, the properties or
+ * no limit; budget.* properties override the annotation (see {@link TestBudgets}).
+ *
+ * <pre>
+ * &#64;Test
+ * &#64;TestBudget(wallTimeMs = 20000, heals = 2)
+ * public void testCheckout() { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface TestBudget {
+
+    long wallTimeMs() default -1;
+
+    long commands() default -1;
+
+    long waitMs() default -1;
+
+    long healMs() default -1;
+
+    long heals() default -1;
+
+    long pageLoadMs() default -1;
+}
@@ -0,0 +1,302 @@
+package com.automation.autoheal.listeners;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.reporting.ExtentReportManager;
+import com.automation.autoheal.utils.TestUsage;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks the {@link TestUsage} of each test against its budget and totals the
+ * usage per test class.
+ *
+ * Each limit is looked up on its own, most specific first: the property
+ * budget.&lt;Class&gt;.&lt;method&gt;.&lt;limit&gt;, {@link TestBudget} on the method,
+ * budget.&lt;Class&gt;.&lt;limit&gt;, {@link TestBudget} on the class, then
+ * budget.default.&lt;limit&gt;, with the simple class name and the limits named
+ * as in the annotation (budget.CheckoutTest.heals=2). Properties win over
+ * annotations so a CI can tighten or relax a budget without a code change.
+ * At suite end the per-class totals go to the Extent report and are appended
+ * to budget.historyFile as one JSON line per class, for trends across runs.
+ */
+public class TestBudgets {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestBudgets.class);
+
+    public enum Limit {
+        WALL_TIME("wallTimeMs"),
+        COMMANDS("commands"),
+        WAIT("waitMs"),
+        HEAL_TIME("healMs"),
+        HEALS("heals"),
+        PAGE_LOAD("pageLoadMs");
+
+        private final String key;
+
+        Limit(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Name in properties, annotation and reports
+         */
+        public String getKey() {
+            return key;
+        }
+
+        long used(TestUsage usage) {
+            switch (this) {
+                case WALL_TIME:
+                    return usage.getWallTimeMs();
+                case COMMANDS:
+                    return usage.getCommands();
+                case WAIT:
+                    return usage.getWaitMs();
+                case HEAL_TIME:
+                    return usage.getHealMs();
+                case HEALS:
+                    return usage.getHeals();
+                default:
+                    return usage.getPageLoadMs();
+            }
+        }
+
+        long declared(TestBudget budget) {
+            switch (this) {
+                case WALL_TIME:
+                    return budget.wallTimeMs();
+                case COMMANDS:
+                    return budget.commands();
+                case WAIT:
+                    return budget.waitMs();
+                case HEAL_TIME:
+                    return budget.healMs();
+                case HEALS:
+                    return budget.heals();
+                default:
+                    return budget.pageLoadMs();
+            }
+        }
+    }
+
+    /**
+     * Usage of the tests of one class
+     */
+    private static class ClassTotals {
+        private int tests;
+        private int overBudget;
+        private final long[] total = new long[Limit.values().length];
+        private final long[] max = new long[Limit.values().length];
+    }
+
+    private static volatile TestBudgets instance;
+
+    private final Map<String, ClassTotals> classes = new TreeMap<>();
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    private TestBudgets() {
+    }
+
+    public static TestBudgets getInstance() {
+        if (instance == null) {
+            synchronized (TestBudgets.class) {
+                if (instance == null) {
+                    instance = new TestBudgets();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Limits the test exceeded, like "heals 3 > 2", empty if it kept its budget
+     */
+    public List<String> check(Class<?> testClass, Method method, TestUsage usage) {
+        List<String> exceeded = new ArrayList<>();
+        for (Limit limit : Limit.values()) {
+            long allowed = limit(testClass, method, limit);
+            long used = limit.used(usage);
+            if (allowed >= 0 && used > allowed) {
+                exceeded.add(limit.getKey() + " " + used + " > " + allowed);
+            }
+        }
+        return exceeded;
+    }
+
+    /**
+     * Budget of a test for one limit, -1 for none
+     */
+    long limit(Class<?> testClass, Method method, Limit limit) {
+        String className = testClass.getSimpleName();
+        Long value = property("budget." + className + "." + method.getName() + "." + limit.getKey());
+        if (value != null) {
+            return value;
+        }
+        TestBudget budget = method.getAnnotation(TestBudget.class);
+        if (budget != null && limit.declared(budget) >= 0) {
+            return limit.declared(budget);
+        }
+        value = property("budget." + className + "." + limit.getKey());
+        if (value != null) {
+            return value;
+        }
+        budget = testClass.getAnnotation(TestBudget.class);
+        if (budget != null && limit.declared(budget) >= 0) {
+            return limit.declared(budget);
+        }
+        value = property("budget.default." + limit.getKey());
+        return value == null ? -1 : value;
+    }
+
+    private static Long property(String key) {
+        String value = AutoHealConfig.getInstance().getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": '" + value + "'");
+        }
+    }
+
+    /**
+     * Check a finished test, log its usage and any exceeded limits to its
+     * report and add it to its class totals
+     *
+     * @return the exceeded limits, empty if the test kept its budget
+     */
+    public List<String> evaluate(Class<?> testClass, Method method, TestUsage usage) {
+        List<String> exceeded = check(testClass, method, usage);
+        record(testClass, usage, !exceeded.isEmpty());
+        ExtentReportManager reportManager = ExtentReportManager.getInstance();
+        reportManager.logInfo("Test usage: " + usage.getStatistics());
+        if (!exceeded.isEmpty()) {
+            String message = "Test budget exceeded: " + String.join(", ", exceeded);
+            if (isFailing()) {
+                reportManager.logFail(message);
+            } else {
+                reportManager.logWarning(message);
+            }
+        }
+        return exceeded;
+    }
+
+    /**
+     * Whether budgets are checked at all
+     */
+    public static boolean isEnabled() {
+        return !"off".equals(AutoHealConfig.getInstance().getBudgetEnforcement());
+    }
+
+    /**
+     * Whether a test over budget fails
+     */
+    public static boolean isFailing() {
+        return "fail".equals(AutoHealConfig.getInstance().getBudgetEnforcement());
+    }
+
+    /**
+     * Add a finished test to its class totals
+     */
+    public synchronized void record(Class<?> testClass, TestUsage usage, boolean overBudget) {
+        ClassTotals totals = classes.computeIfAbsent(testClass.getName(), name -> new ClassTotals());
+        totals.tests++;
+        if (overBudget) {
+            totals.overBudget++;
+        }
+        for (Limit limit : Limit.values()) {
+            long used = limit.used(usage);
+            totals.total[limit.ordinal()] += used;
+            totals.max[limit.ordinal()] = Math.max(totals.max[limit.ordinal()], used);
+        }
+    }
+
+    /**
+     * Per-class totals: tests, tests over budget, and the total and maximum of each limit
+     */
+    public synchronized Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, ClassTotals> entry : classes.entrySet()) {
+            ClassTotals totals = entry.getValue();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("tests", totals.tests);
+            values.put("overBudget", totals.overBudget);
+            for (Limit limit : Limit.values()) {
+                Map<String, Object> usage = new LinkedHashMap<>();
+                usage.put("total", totals.total[limit.ordinal()]);
+                usage.put("max", totals.max[limit.ordinal()]);
+                values.put(limit.getKey(), usage);
+            }
+            stats.put(entry.getKey(), values);
+        }
+        return stats;
+    }
+
+    /**
+     * Report the per-class totals and append them to the history file
+     */
+    public synchronized void finishRun() {
+        if (classes.isEmpty()) {
+            return;
+        }
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[] {"Class", "Tests", "Over budget", "Wall ms (avg / max)", "Commands (avg / max)",
+            "Wait ms (avg / max)", "Heal ms (avg / max)", "Heals (avg / max)", "Page load ms (avg / max)"});
+        int overBudget = 0;
+        for (Map.Entry<String, ClassTotals> entry : classes.entrySet()) {
+            ClassTotals totals = entry.getValue();
+            overBudget += totals.overBudget;
+            List<String> row = new ArrayList<>();
+            row.add(entry.getKey());
+            row.add(String.valueOf(totals.tests));
+            row.add(String.valueOf(totals.overBudget));
+            for (Limit limit : Limit.values()) {
+                row.add(totals.total[limit.ordinal()] / totals.tests + " / " + totals.max[limit.ordinal()]);
+            }
+            rows.add(row.toArray(new String[0]));
+        }
+        String description = overBudget == 0 ? "All tests kept their budgets" : overBudget + " tests went over budget";
+        ExtentReportManager.getInstance().addSection("Test Budgets", description, rows.toArray(new String[0][]),
+            overBudget > 0);
+        appendHistory();
+        classes.clear();
+    }
+
+    private void appendHistory() {
+        String historyFile = AutoHealConfig.getInstance().getBudgetHistoryFile();
+        if (historyFile.isEmpty()) {
+            return;
+        }
+        long time = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : getStatistics().entrySet()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("time", time);
+            line.put("class", entry.getKey());
+            line.putAll(entry.getValue());
+            lines.add(gson.toJson(line));
+        }
+        try {
+            File file = new File(historyFile);
+            File directory = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Could not append test budget history to {}: {}", historyFile, e.getMessage());
+        }
+    }
+}
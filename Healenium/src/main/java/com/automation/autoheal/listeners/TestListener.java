@@ -1,21 +1,51 @@
 package com.automation.autoheal.listeners;
 
 import com.automation.autoheal.core.AutoHealWebDriver;
+import com.automation.autoheal.factory.DriverRegistry;
+import com.automation.autoheal.factory.WebDriverFactory;
 import com.automation.autoheal.reporting.ExtentReportManager;
+import com.automation.autoheal.utils.FailureBundle;
+import com.automation.autoheal.utils.HealCache;
+import com.automation.autoheal.utils.PageLoadRegression;
+import com.automation.autoheal.utils.TestUsage;
+import org.openqa.selenium.WebDriver;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * TestNG listener for automatic test reporting and failure handling
+ * TestNG listener for automatic test reporting and failure handling.
+ * It also records what each test method uses and checks it against the
+ * test's budget (see {@link TestBudgets}).
  */
-public class TestListener implements ITestListener {
+public class TestListener implements ITestListener, ISuiteListener, IInvokedMethodListener {
+    
+    // Driver fields of each test class, superclasses included, looked up once per class
+    private static final Map<Class<?>, List<Field>> driverFields = new ConcurrentHashMap<>();
     
     private ExtentReportManager reportManager = ExtentReportManager.getInstance();
     
     @Override
     public void onStart(ITestContext context) {
-        // Initialize report if needed
+        // Keep one warm browser per test thread
+        XmlTest xmlTest = context.getCurrentXmlTest();
+        XmlSuite.ParallelMode parallel = xmlTest.getParallel();
+        boolean sequential = parallel == null || parallel == XmlSuite.ParallelMode.NONE;
+        WebDriverFactory.configurePool(sequential ? 1 : xmlTest.getThreadCount());
     }
     
     @Override
@@ -29,6 +59,31 @@ public class TestListener implements ITestListener {
         reportManager.logInfo("Test started: " + testName);
     }
     
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        if (method.isTestMethod() && TestBudgets.isEnabled()) {
+            TestUsage.start();
+        }
+    }
+    
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        TestUsage usage = TestUsage.finish();
+        if (usage == null) {
+            return;
+        }
+        List<String> exceeded = TestBudgets.getInstance().evaluate(result.getTestClass().getRealClass(),
+            result.getMethod().getConstructorOrMethod().getMethod(), usage);
+        // Called before the test is reported, so a failure set here reaches onTestFailure
+        if (!exceeded.isEmpty() && TestBudgets.isFailing() && result.getStatus() == ITestResult.SUCCESS) {
+            result.setStatus(ITestResult.FAILURE);
+            result.setThrowable(new AssertionError("Test budget exceeded: " + String.join(", ", exceeded)));
+        }
+    }
+    
     @Override
     public void onTestSuccess(ITestResult result) {
         reportManager.logPass("Test passed: " + result.getMethod().getMethodName());
@@ -42,33 +97,24 @@ public class TestListener implements ITestListener {
         
         reportManager.logFail("Test failed: " + testName);
         
-        // Try to get WebDriver from test instance and capture screenshot
-        Object testInstance = result.getInstance();
+        // Capture a screenshot from the failing thread's driver, or from a driver field of the test
         try {
-            // Try to get AutoHealWebDriver from test class
-            java.lang.reflect.Field[] fields = testInstance.getClass().getDeclaredFields();
-            for (java.lang.reflect.Field field : fields) {
-                if (field.getType().equals(AutoHealWebDriver.class) || 
-                    field.getType().getName().contains("WebDriver")) {
-                    field.setAccessible(true);
-                    Object driver = field.get(testInstance);
-                    if (driver instanceof AutoHealWebDriver) {
-                        AutoHealWebDriver autoHealDriver = (AutoHealWebDriver) driver;
-                        reportManager.logFailureWithScreenshot(
-                            autoHealDriver.getDriver(), 
-                            "Test failed with exception", 
-                            throwable
-                        );
-                        break;
-                    } else if (driver instanceof org.openqa.selenium.WebDriver) {
-                        reportManager.logFailureWithScreenshot(
-                            (org.openqa.selenium.WebDriver) driver, 
-                            "Test failed with exception", 
-                            throwable
-                        );
-                        break;
-                    }
+            WebDriver driver = findDriver(result.getInstance());
+            if (driver instanceof AutoHealWebDriver) {
+                AutoHealWebDriver autoHealDriver = (AutoHealWebDriver) driver;
+                reportManager.logFailureWithScreenshot(autoHealDriver.getDriver(), "Test failed with exception", throwable);
+                // A wrong heal can be the cause of the failure
+                Map<String, String> healed = autoHealDriver.getXPathHealer().getHealedLocators();
+                if (!healed.isEmpty()) {
+                    reportManager.logInfo("Healed locators in use: " + healed);
                 }
+                File bundle = FailureBundle.getInstance().capture(testName, autoHealDriver.getDriver(),
+                    autoHealDriver.getCommandLog(), healed, throwable);
+                if (bundle != null) {
+                    reportManager.attachFile("Failure bundle", bundle);
+                }
+            } else if (driver != null) {
+                reportManager.logFailureWithScreenshot(driver, "Test failed with exception", throwable);
             }
         } catch (Exception e) {
             reportManager.logError("Failed to capture screenshot", e);
@@ -79,6 +125,63 @@ public class TestListener implements ITestListener {
         reportManager.removeTest();
     }
     
+    /**
+     * Driver of a failed test: the one registered for its thread, else the
+     * first driver held by a field of the test instance
+     */
+    static WebDriver findDriver(Object testInstance) {
+        AutoHealWebDriver current = DriverRegistry.current();
+        if (current != null || testInstance == null) {
+            return current;
+        }
+        for (Field field : driverFields.computeIfAbsent(testInstance.getClass(), TestListener::driverFields)) {
+            try {
+                Object value = field.get(testInstance);
+                if (value instanceof ThreadLocal) {
+                    value = ((ThreadLocal<?>) value).get(); // The listener runs on the test's thread
+                }
+                if (value instanceof WebDriver) {
+                    return (WebDriver) value;
+                }
+            } catch (IllegalAccessException e) {
+                // Made accessible when cached, cannot happen
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Fields of a test class and its superclasses that can hold a driver, made accessible
+     */
+    private static List<Field> driverFields(Class<?> testClass) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!holdsDriver(field)) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    fields.add(field);
+                } catch (RuntimeException e) {
+                    // Not accessible on this JVM, e.g. in a module that is not open
+                }
+            }
+        }
+        return fields;
+    }
+    
+    private static boolean holdsDriver(Field field) {
+        if (WebDriver.class.isAssignableFrom(field.getType())) {
+            return true;
+        }
+        if (field.getType() == ThreadLocal.class && field.getGenericType() instanceof ParameterizedType) {
+            Type held = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            return held instanceof Class && WebDriver.class.isAssignableFrom((Class<?>) held);
+        }
+        return false;
+    }
+    
     @Override
     public void onTestSkipped(ITestResult result) {
         reportManager.logWarning("Test skipped: " + result.getMethod().getMethodName());
@@ -92,8 +195,21 @@ public class TestListener implements ITestListener {
     
     @Override
     public void onFinish(ITestContext context) {
+        DriverRegistry.afterTest(context.getName());
         reportManager.flush();
         reportManager.logInfo("Test execution completed. Report available at: " + reportManager.getReportPath());
     }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        DriverRegistry.releaseAll();
+        WebDriverFactory.shutdownPool();
+        HealCache.getInstance().exportIfConfigured();
+        // Drivers hand their load times over when released, so compare once all are
+        PageLoadRegression.getInstance().finishRun();
+        TestBudgets.getInstance().finishRun();
+        FailureBundle.getInstance().awaitWrites();
+        reportManager.flush();
+    }
 }
 
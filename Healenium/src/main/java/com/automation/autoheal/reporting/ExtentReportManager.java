@@ -1,12 +1,6 @@
 package com.automation.autoheal.reporting;
 
-import com.aventstack.extentreports.ExtentReports;
-import com.aventstack.extentreports.ExtentTest;
-import com.aventstack.extentreports.Status;
-import com.aventstack.extentreports.markuputils.ExtentColor;
-import com.aventstack.extentreports.markuputils.MarkupHelper;
-import com.aventstack.extentreports.reporter.ExtentSparkReporter;
-import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.automation.autoheal.config.AutoHealConfig;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
@@ -15,85 +9,133 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Extent Reports manager for automatic log attachment and reporting
+ *
+ * Events go to the {@link ReportSink}s named in report.sinks (the Extent HTML
+ * report by default). The sinks are only created on the first test or
+ * section, so a driver used outside of tests never opens a report, and with
+ * report.sinks=none nothing is reported or captured for the report at all.
  */
 public class ExtentReportManager {
     
-    private static ExtentReportManager instance;
-    private ExtentReports extent;
-    private Map<Long, ExtentTest> testMap;
-    private String reportPath;
+    /**
+     * Level of a framework event, see {@link #logEvent}
+     */
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARNING
+    }
+    
+    /**
+     * How often one event occurred in the current test and how often it was written
+     */
+    private static class EventCount {
+        private final Level level;
+        private long occurrences;
+        private long written;
+        
+        EventCount(Level level) {
+            this.level = level;
+        }
+    }
+    
+    private static volatile ExtentReportManager instance;
+    private volatile ReportSink sink; // Created on first use
+    // Test being reported by the current thread; thread ids are not a safe key once virtual threads are used
+    private final ThreadLocal<ReportSink.TestReport> currentTest = new ThreadLocal<>();
+    private final ThreadLocal<String> currentTestName = new ThreadLocal<>();
+    private final ThreadLocal<Map<String, EventCount>> currentEvents = ThreadLocal.withInitial(LinkedHashMap::new);
+    private final AtomicLong screenshotCounter = new AtomicLong();
     
     private ExtentReportManager() {
-        testMap = new HashMap<>();
-        initializeReport();
     }
     
-    public static synchronized ExtentReportManager getInstance() {
+    public static ExtentReportManager getInstance() {
+        // Lock only while creating the instance, not on every call from a test thread
         if (instance == null) {
-            instance = new ExtentReportManager();
+            synchronized (ExtentReportManager.class) {
+                if (instance == null) {
+                    instance = new ExtentReportManager();
+                }
+            }
         }
         return instance;
     }
     
     /**
-     * Initialize Extent Reports
+     * The configured sinks, created on the first call
      */
-    private void initializeReport() {
-        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        reportPath = "test-output/ExtentReport_" + timestamp + ".html";
-        
-        ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportPath);
-        sparkReporter.config().setTheme(Theme.DARK);
-        sparkReporter.config().setDocumentTitle("AutoHeal Test Report");
-        sparkReporter.config().setReportName("AutoHeal Framework Test Execution Report");
-        sparkReporter.config().setTimeStampFormat("MMM dd, yyyy HH:mm:ss");
-        
-        extent = new ExtentReports();
-        extent.attachReporter(sparkReporter);
-        extent.setSystemInfo("Framework", "AutoHeal Framework");
-        extent.setSystemInfo("Selenium Version", "3.141.59");
-        extent.setSystemInfo("TestNG Version", "7.5");
-        extent.setSystemInfo("Java Version", System.getProperty("java.version"));
+    private ReportSink sink() {
+        ReportSink current = sink;
+        if (current == null) {
+            synchronized (this) {
+                current = sink;
+                if (current == null) {
+                    AutoHealConfig config = AutoHealConfig.getInstance();
+                    String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+                    current = ReportSinks.create(config.getReportSinks(), config.getReportDirectory(), timestamp);
+                    sink = current;
+                }
+            }
+        }
+        return current;
     }
     
     /**
      * Create a new test in the report
      */
-    public ExtentTest createTest(String testName) {
-        ExtentTest test = extent.createTest(testName);
-        testMap.put(Thread.currentThread().getId(), test);
-        return test;
+    public void createTest(String testName) {
+        startTest(testName, null);
     }
     
     /**
      * Create a new test with description
      */
-    public ExtentTest createTest(String testName, String description) {
-        ExtentTest test = extent.createTest(testName, description);
-        testMap.put(Thread.currentThread().getId(), test);
-        return test;
+    public void createTest(String testName, String description) {
+        startTest(testName, description);
+    }
+    
+    private void startTest(String testName, String description) {
+        ReportSink reportSink = sink();
+        currentTestName.set(testName);
+        currentEvents.get().clear();
+        if (reportSink instanceof NoOpReportSink) {
+            currentTest.remove(); // Logging then stops at the first check, without building anything
+        } else {
+            currentTest.set(reportSink.startTest(testName, description));
+        }
     }
     
     /**
-     * Get current test
+     * Report of the current thread's test, null outside a test or when nothing is reported
      */
-    public ExtentTest getTest() {
-        return testMap.get(Thread.currentThread().getId());
+    private ReportSink.TestReport getTest() {
+        return currentTest.get();
+    }
+    
+    /**
+     * Name of the current thread's test, or null outside a test
+     */
+    public String getTestName() {
+        return currentTestName.get();
     }
     
     /**
      * Log info message
      */
     public void logInfo(String message) {
-        ExtentTest test = getTest();
+        ReportSink.TestReport test = getTest();
         if (test != null) {
-            test.log(Status.INFO, message);
+            test.log(ReportSink.Status.INFO, message);
         }
     }
     
@@ -101,9 +143,9 @@ public class ExtentReportManager {
      * Log pass message
      */
     public void logPass(String message) {
-        ExtentTest test = getTest();
+        ReportSink.TestReport test = getTest();
         if (test != null) {
-            test.log(Status.PASS, MarkupHelper.createLabel(message, ExtentColor.GREEN));
+            test.label(ReportSink.Status.PASS, message);
         }
     }
     
@@ -111,9 +153,9 @@ public class ExtentReportManager {
      * Log fail message
      */
     public void logFail(String message) {
-        ExtentTest test = getTest();
+        ReportSink.TestReport test = getTest();
         if (test != null) {
-            test.log(Status.FAIL, MarkupHelper.createLabel(message, ExtentColor.RED));
+            test.label(ReportSink.Status.FAIL, message);
         }
     }
     
@@ -121,20 +163,80 @@ public class ExtentReportManager {
      * Log warning message
      */
     public void logWarning(String message) {
-        ExtentTest test = getTest();
+        ReportSink.TestReport test = getTest();
         if (test != null) {
-            test.log(Status.WARNING, MarkupHelper.createLabel(message, ExtentColor.YELLOW));
+            test.label(ReportSink.Status.WARNING, message);
+        }
+    }
+    
+    /**
+     * Log a framework event, such as a page load or a heal attempt, that can
+     * repeat thousands of times in a long test. Events below report.log.level
+     * are only counted. Of the rest, the first report.log.repeatLimit
+     * occurrences per test are written and after that every
+     * report.log.sampleEvery-th; the counts of events not written in full are
+     * summarized when the test ends, so the report grows with the kinds of
+     * events rather than their number.
+     *
+     * @param event what happened, the same for every occurrence, e.g. "Page loaded"
+     * @param detail this occurrence, e.g. the URL and load time
+     */
+    public void logEvent(Level level, String event, String detail) {
+        ReportSink.TestReport test = getTest();
+        if (test == null) {
+            return;
+        }
+        EventCount count = currentEvents.get().computeIfAbsent(event, key -> new EventCount(level));
+        long occurrence = ++count.occurrences;
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        if (level.compareTo(Level.valueOf(config.getReportLogLevel().toUpperCase())) < 0) {
+            return;
+        }
+        long beyondLimit = occurrence - config.getReportLogRepeatLimit();
+        if (beyondLimit > 0) {
+            int sampleEvery = config.getReportLogSampleEvery();
+            if (sampleEvery <= 0 || beyondLimit % sampleEvery != 0) {
+                return;
+            }
+        }
+        count.written++;
+        String message = event + ": " + detail + (beyondLimit > 0 ? " (occurrence " + occurrence + ")" : "");
+        if (level == Level.WARNING) {
+            logWarning(message);
+        } else {
+            test.log(ReportSink.Status.INFO, message);
+        }
+    }
+    
+    /**
+     * Add the counts of the events of the current test that were not all written
+     */
+    private void summarizeEvents() {
+        Map<String, EventCount> events = currentEvents.get();
+        ReportSink.TestReport test = getTest();
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[] {"Event", "Level", "Occurrences", "Written"});
+        for (Map.Entry<String, EventCount> entry : events.entrySet()) {
+            EventCount count = entry.getValue();
+            if (count.written < count.occurrences) {
+                rows.add(new String[] {entry.getKey(), count.level.name().toLowerCase(),
+                    String.valueOf(count.occurrences), String.valueOf(count.written)});
+            }
+        }
+        if (test != null && rows.size() > 1) {
+            test.table(ReportSink.Status.INFO, rows.toArray(new String[0][]));
         }
+        events.clear();
     }
     
     /**
      * Log error with exception
      */
     public void logError(String message, Throwable throwable) {
-        ExtentTest test = getTest();
+        ReportSink.TestReport test = getTest();
         if (test != null) {
-            test.log(Status.FAIL, message);
-            test.log(Status.FAIL, throwable);
+            test.log(ReportSink.Status.FAIL, message);
+            test.log(ReportSink.Status.FAIL, throwable);
         }
     }
     
@@ -142,11 +244,11 @@ public class ExtentReportManager {
      * Attach screenshot to report
      */
     public void attachScreenshot(WebDriver driver, String screenshotName) {
-        ExtentTest test = getTest();
+        ReportSink.TestReport test = getTest();
         if (test != null && driver instanceof TakesScreenshot) {
             try {
                 String screenshotPath = captureScreenshot(driver, screenshotName);
-                test.addScreenCaptureFromPath(screenshotPath);
+                test.screenshot(screenshotPath);
                 logInfo("Screenshot attached: " + screenshotName);
             } catch (Exception e) {
                 logError("Failed to attach screenshot: " + screenshotName, e);
@@ -159,7 +261,9 @@ public class ExtentReportManager {
      */
     private String captureScreenshot(WebDriver driver, String screenshotName) throws IOException {
         String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        String screenshotPath = "test-output/screenshots/" + screenshotName + "_" + timestamp + ".png";
+        // Concurrent tests can fail within the same second, keep their file names apart
+        String screenshotPath = "test-output/screenshots/" + screenshotName + "_" + timestamp
+            + "_" + screenshotCounter.incrementAndGet() + ".png";
         
         // Create screenshots directory if it doesn't exist
         Files.createDirectories(Paths.get("test-output/screenshots"));
@@ -179,24 +283,54 @@ public class ExtentReportManager {
     }
     
     /**
-     * Flush report
+     * Link a file to the current test
+     */
+    public void attachFile(String label, File file) {
+        ReportSink.TestReport test = getTest();
+        if (test != null) {
+            test.link(label, file);
+        }
+    }
+    
+    /**
+     * Add a run-level section with a table, outside of any test; the first row is the header
+     *
+     * @param warning mark the section as a warning instead of information
+     */
+    public void addSection(String title, String description, String[][] table, boolean warning) {
+        sink().addSection(title, description, table, warning);
+    }
+    
+    /**
+     * Flush report, if anything was reported
      */
     public void flush() {
-        extent.flush();
+        ReportSink current = sink;
+        if (current != null) {
+            current.flush();
+        }
     }
     
     /**
-     * Get report path
+     * Get report path, null until something is reported or when nothing is
      */
     public String getReportPath() {
-        return reportPath;
+        ReportSink current = sink;
+        return current == null ? null : current.getLocation();
     }
     
     /**
-     * Remove test from map
+     * Stop reporting to the current thread's test
      */
     public void removeTest() {
-        testMap.remove(Thread.currentThread().getId());
+        summarizeEvents();
+        ReportSink.TestReport test = getTest();
+        if (test != null) {
+            test.end();
+        }
+        currentEvents.remove();
+        currentTest.remove();
+        currentTestName.remove();
     }
 }
 
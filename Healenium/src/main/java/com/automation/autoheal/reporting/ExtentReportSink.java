@@ -0,0 +1,132 @@
+package com.automation.autoheal.reporting;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.markuputils.ExtentColor;
+import com.aventstack.extentreports.markuputils.MarkupHelper;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The Extent Spark HTML report
+ */
+public class ExtentReportSink implements ReportSink {
+
+    private final ExtentReports extent;
+    private final String reportPath;
+
+    /**
+     * @param reportPath HTML file the report is written to
+     */
+    public ExtentReportSink(String reportPath) {
+        this.reportPath = reportPath;
+
+        ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportPath);
+        sparkReporter.config().setTheme(Theme.DARK);
+        sparkReporter.config().setDocumentTitle("AutoHeal Test Report");
+        sparkReporter.config().setReportName("AutoHeal Framework Test Execution Report");
+        sparkReporter.config().setTimeStampFormat("MMM dd, yyyy HH:mm:ss");
+
+        extent = new ExtentReports();
+        extent.attachReporter(sparkReporter);
+        extent.setSystemInfo("Framework", "AutoHeal Framework");
+        extent.setSystemInfo("Selenium Version", "3.141.59");
+        extent.setSystemInfo("TestNG Version", "7.5");
+        extent.setSystemInfo("Java Version", System.getProperty("java.version"));
+    }
+
+    @Override
+    public TestReport startTest(String name, String description) {
+        ExtentTest test = description == null ? extent.createTest(name) : extent.createTest(name, description);
+        return new TestReport() {
+            @Override
+            public void log(Status status, String message) {
+                test.log(status(status), message);
+            }
+
+            @Override
+            public void label(Status status, String message) {
+                test.log(status(status), MarkupHelper.createLabel(message, color(status)));
+            }
+
+            @Override
+            public void log(Status status, Throwable throwable) {
+                test.log(status(status), throwable);
+            }
+
+            @Override
+            public void table(Status status, String[][] table) {
+                test.log(status(status), MarkupHelper.createTable(table));
+            }
+
+            @Override
+            public void screenshot(String path) {
+                try {
+                    test.addScreenCaptureFromPath(path);
+                } catch (IOException e) {
+                    test.log(com.aventstack.extentreports.Status.WARNING, "Screenshot not attached: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void link(String label, File file) {
+                // Relative to the report, so the link survives moving the output directory
+                Path reportDirectory = Paths.get(reportPath).toAbsolutePath().getParent();
+                String link = reportDirectory.relativize(file.toPath().toAbsolutePath()).toString().replace(File.separatorChar, '/');
+                test.log(com.aventstack.extentreports.Status.INFO, label + ": <a href='" + link + "'>" + file.getName() + "</a>");
+            }
+
+            @Override
+            public void end() {
+                // Extent keeps the test until the report is flushed
+            }
+        };
+    }
+
+    @Override
+    public void addSection(String title, String description, String[][] table, boolean warning) {
+        ExtentTest section = extent.createTest(title, description);
+        section.log(warning ? com.aventstack.extentreports.Status.WARNING : com.aventstack.extentreports.Status.INFO,
+            MarkupHelper.createTable(table));
+    }
+
+    @Override
+    public void flush() {
+        extent.flush();
+    }
+
+    @Override
+    public String getLocation() {
+        return reportPath;
+    }
+
+    private static com.aventstack.extentreports.Status status(Status status) {
+        switch (status) {
+            case PASS:
+                return com.aventstack.extentreports.Status.PASS;
+            case WARNING:
+                return com.aventstack.extentreports.Status.WARNING;
+            case FAIL:
+                return com.aventstack.extentreports.Status.FAIL;
+            default:
+                return com.aventstack.extentreports.Status.INFO;
+        }
+    }
+
+    private static ExtentColor color(Status status) {
+        switch (status) {
+            case PASS:
+                return ExtentColor.GREEN;
+            case WARNING:
+                return ExtentColor.YELLOW;
+            case FAIL:
+                return ExtentColor.RED;
+            default:
+                return ExtentColor.BLUE;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.automation.autoheal.reporting;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One JSON object per line for every report event, for dashboards and
+ * scripts: {"time", "type", "test", ...} with type test-start, log, error,
+ * table, screenshot, link, test-end or section. Lines are buffered and
+ * written out on {@link #flush()}; a line that cannot be written is dropped
+ * with a log message rather than failing the test. Writes take a lock
+ * rather than {@code synchronized}, so tests on virtual threads do not pin
+ * their carrier while another test is writing.
+ */
+public class JsonLinesReportSink implements ReportSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonLinesReportSink.class);
+
+    private final String path;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Writer writer; // Null once writing failed
+
+    /**
+     * @param path file the lines are written to, replaced if it exists
+     */
+    public JsonLinesReportSink(String path) {
+        this.path = path;
+        try {
+            File file = new File(path);
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Could not open JSON lines report {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public TestReport startTest(String name, String description) {
+        write(event("test-start", name, "description", description));
+        return new TestReport() {
+            @Override
+            public void log(Status status, String message) {
+                write(event("log", name, "status", status.name().toLowerCase(), "message", message));
+            }
+
+            @Override
+            public void label(Status status, String message) {
+                log(status, message);
+            }
+
+            @Override
+            public void log(Status status, Throwable throwable) {
+                StringWriter stack = new StringWriter();
+                throwable.printStackTrace(new PrintWriter(stack));
+                write(event("error", name, "status", status.name().toLowerCase(), "error", throwable.getClass().getName(),
+                    "message", throwable.getMessage(), "stackTrace", stack.toString()));
+            }
+
+            @Override
+            public void table(Status status, String[][] table) {
+                write(event("table", name, "status", status.name().toLowerCase(), "rows", Arrays.asList(table)));
+            }
+
+            @Override
+            public void screenshot(String path) {
+                write(event("screenshot", name, "path", path));
+            }
+
+            @Override
+            public void link(String label, File file) {
+                write(event("link", name, "label", label, "path", file.getPath()));
+            }
+
+            @Override
+            public void end() {
+                write(event("test-end", name));
+            }
+        };
+    }
+
+    @Override
+    public void addSection(String title, String description, String[][] table, boolean warning) {
+        write(event("section", null, "title", title, "description", description,
+            "status", warning ? "warning" : "info", "rows", Arrays.asList(table)));
+    }
+
+    private static Map<String, Object> event(String type, String test, Object... fields) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("time", System.currentTimeMillis());
+        event.put("type", type);
+        if (test != null) {
+            event.put("test", test);
+        }
+        for (int i = 0; i < fields.length; i += 2) {
+            if (fields[i + 1] != null) {
+                event.put((String) fields[i], fields[i + 1]);
+            }
+        }
+        return event;
+    }
+
+    private void write(Map<String, Object> event) {
+        String line = gson.toJson(event);
+        lock.lock();
+        try {
+            if (writer == null) {
+                return;
+            }
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            logger.warn("Could not write to JSON lines report {}: {}", path, e.getMessage());
+            writer = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            if (writer == null) {
+                return;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            logger.warn("Could not write to JSON lines report {}: {}", path, e.getMessage());
+            writer = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String getLocation() {
+        return path;
+    }
+}
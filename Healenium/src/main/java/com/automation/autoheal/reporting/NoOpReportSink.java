@@ -0,0 +1,57 @@
+package com.automation.autoheal.reporting;
+
+import java.io.File;
+
+/**
+ * Reports nothing, for drivers used outside of tests (load tests, scraping)
+ */
+public class NoOpReportSink implements ReportSink {
+
+    private static final TestReport NO_REPORT = new TestReport() {
+        @Override
+        public void log(Status status, String message) {
+        }
+
+        @Override
+        public void label(Status status, String message) {
+        }
+
+        @Override
+        public void log(Status status, Throwable throwable) {
+        }
+
+        @Override
+        public void table(Status status, String[][] table) {
+        }
+
+        @Override
+        public void screenshot(String path) {
+        }
+
+        @Override
+        public void link(String label, File file) {
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    @Override
+    public TestReport startTest(String name, String description) {
+        return NO_REPORT;
+    }
+
+    @Override
+    public void addSection(String title, String description, String[][] table, boolean warning) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public String getLocation() {
+        return null;
+    }
+}
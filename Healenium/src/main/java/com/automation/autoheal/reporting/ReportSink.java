@@ -0,0 +1,74 @@
+package com.automation.autoheal.reporting;
+
+import java.io.File;
+
+/**
+ * Where report events go. {@link ExtentReportManager} creates the sinks named
+ * in report.sinks on the first event that needs one and hands every event to
+ * them: extent (the HTML report), jsonl (one JSON object per line, for
+ * tooling) and none are built in, and any other name is taken as the class
+ * name of an implementation with a public no-argument constructor.
+ *
+ * A sink is shared by all test threads; each test gets its own
+ * {@link TestReport}, used only by the thread running that test.
+ */
+public interface ReportSink {
+
+    enum Status {
+        INFO,
+        PASS,
+        WARNING,
+        FAIL
+    }
+
+    /**
+     * Report of one test
+     */
+    interface TestReport {
+
+        void log(Status status, String message);
+
+        /**
+         * Log a message meant to stand out, such as the test's outcome
+         */
+        void label(Status status, String message);
+
+        void log(Status status, Throwable throwable);
+
+        /**
+         * Log a table; the first row is the header
+         */
+        void table(Status status, String[][] table);
+
+        void screenshot(String path);
+
+        void link(String label, File file);
+
+        /**
+         * The test is done, nothing more is logged to this report
+         */
+        void end();
+    }
+
+    /**
+     * Start the report of a test
+     *
+     * @param description may be null
+     */
+    TestReport startTest(String name, String description);
+
+    /**
+     * Add a run-level section with a table, outside of any test; the first row is the header
+     */
+    void addSection(String title, String description, String[][] table, boolean warning);
+
+    /**
+     * Write out what was reported so far
+     */
+    void flush();
+
+    /**
+     * File or address the report goes to, null if it goes nowhere
+     */
+    String getLocation();
+}
@@ -0,0 +1,126 @@
+package com.automation.autoheal.reporting;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the sinks named in report.sinks
+ */
+final class ReportSinks {
+
+    private ReportSinks() {
+    }
+
+    /**
+     * @param names comma-separated sink names or class names
+     * @param directory directory the built-in sinks write to
+     * @param timestamp part of the built-in sinks' file names, keeping runs apart
+     */
+    static ReportSink create(String names, String directory, String timestamp) {
+        List<ReportSink> sinks = new ArrayList<>();
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty() || "none".equalsIgnoreCase(name)) {
+                continue;
+            }
+            sinks.add(createSink(name, directory, timestamp));
+        }
+        if (sinks.isEmpty()) {
+            return new NoOpReportSink();
+        }
+        return sinks.size() == 1 ? sinks.get(0) : new Fanout(sinks);
+    }
+
+    private static ReportSink createSink(String name, String directory, String timestamp) {
+        switch (name.toLowerCase()) {
+            case "extent":
+                return new ExtentReportSink(new File(directory, "ExtentReport_" + timestamp + ".html").getPath());
+            case "jsonl":
+                return new JsonLinesReportSink(new File(directory, "report_" + timestamp + ".jsonl").getPath());
+            default:
+                try {
+                    return Class.forName(name).asSubclass(ReportSink.class).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Invalid report sink in report.sinks: '" + name + "'", e);
+                }
+        }
+    }
+
+    /**
+     * Hands every event to several sinks
+     */
+    private static class Fanout implements ReportSink {
+
+        private final List<ReportSink> sinks;
+
+        Fanout(List<ReportSink> sinks) {
+            this.sinks = sinks;
+        }
+
+        @Override
+        public TestReport startTest(String name, String description) {
+            List<TestReport> reports = new ArrayList<>(sinks.size());
+            for (ReportSink sink : sinks) {
+                reports.add(sink.startTest(name, description));
+            }
+            return new TestReport() {
+                @Override
+                public void log(Status status, String message) {
+                    reports.forEach(report -> report.log(status, message));
+                }
+
+                @Override
+                public void label(Status status, String message) {
+                    reports.forEach(report -> report.label(status, message));
+                }
+
+                @Override
+                public void log(Status status, Throwable throwable) {
+                    reports.forEach(report -> report.log(status, throwable));
+                }
+
+                @Override
+                public void table(Status status, String[][] table) {
+                    reports.forEach(report -> report.table(status, table));
+                }
+
+                @Override
+                public void screenshot(String path) {
+                    reports.forEach(report -> report.screenshot(path));
+                }
+
+                @Override
+                public void link(String label, File file) {
+                    reports.forEach(report -> report.link(label, file));
+                }
+
+                @Override
+                public void end() {
+                    reports.forEach(TestReport::end);
+                }
+            };
+        }
+
+        @Override
+        public void addSection(String title, String description, String[][] table, boolean warning) {
+            sinks.forEach(sink -> sink.addSection(title, description, table, warning));
+        }
+
+        @Override
+        public void flush() {
+            sinks.forEach(ReportSink::flush);
+        }
+
+        @Override
+        public String getLocation() {
+            List<String> locations = new ArrayList<>();
+            for (ReportSink sink : sinks) {
+                if (sink.getLocation() != null) {
+                    locations.add(sink.getLocation());
+                }
+            }
+            return locations.isEmpty() ? null : String.join(", ", locations);
+        }
+    }
+}
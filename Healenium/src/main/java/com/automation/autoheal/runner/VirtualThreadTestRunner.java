@@ -0,0 +1,391 @@
+package com.automation.autoheal.runner;
+
+import com.automation.autoheal.core.AutoHealWebDriver;
+import com.automation.autoheal.factory.DriverRegistry;
+import com.automation.autoheal.factory.WebDriverFactory;
+import com.automation.autoheal.listeners.TestBudgets;
+import com.automation.autoheal.reporting.ExtentReportManager;
+import com.automation.autoheal.utils.FailureBundle;
+import com.automation.autoheal.utils.PageLoadRegression;
+import com.automation.autoheal.utils.TestUsage;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterGroups;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeGroups;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs TestNG-annotated test classes with every test method on its own
+ * virtual thread.
+ *
+ * Browser tests spend nearly all their time waiting on the driver, so a few
+ * hundred concurrent sessions do not need a few hundred platform threads.
+ * TestNG 7.5's worker pool cannot be replaced, so this runner covers the
+ * subset of TestNG the framework's tests use: {@code @Test} (enabled,
+ * description), {@code @BeforeClass}/{@code @AfterClass},
+ * {@code @BeforeMethod}/{@code @AfterMethod} and {@code @Parameters}
+ * bound to String arguments. Other TestNG-injected arguments such as
+ * {@code ITestContext} are passed as null, a {@code Method} argument gets the
+ * test method. Results go to the Extent report like TestListener's.
+ * Classes using anything else that would change the outcome (expected
+ * exceptions, data providers, dependencies, groups, suite- or test-level
+ * configuration methods) are rejected before any test runs, rather than
+ * silently run differently than under TestNG.
+ *
+ * On JVMs before Java 21 a cached platform thread pool is used instead.
+ */
+public class VirtualThreadTestRunner {
+
+    // Configuration methods that only exist at suite, <test> or group level, which the runner does not have
+    private static final List<Class<? extends Annotation>> UNSUPPORTED_CONFIGURATIONS = Arrays.asList(
+        BeforeSuite.class, AfterSuite.class, BeforeTest.class, AfterTest.class, BeforeGroups.class, AfterGroups.class);
+
+    private final int maxConcurrentTests;
+    private final Map<String, String> parameters;
+    private final ExtentReportManager reportManager = ExtentReportManager.getInstance();
+
+    private final AtomicInteger passed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * @param maxConcurrentTests tests running at once, which is also the number of browsers
+     * @param parameters values for {@code @Parameters}, as a testng.xml would supply them
+     */
+    public VirtualThreadTestRunner(int maxConcurrentTests, Map<String, String> parameters) {
+        this.maxConcurrentTests = Math.max(1, maxConcurrentTests);
+        this.parameters = new LinkedHashMap<>(parameters);
+    }
+
+    /**
+     * Run all test methods of the given classes and return the run statistics
+     */
+    public Map<String, Object> run(List<Class<?>> testClasses) throws InterruptedException {
+        checkSupported(testClasses);
+        passed.set(0);
+        failed.set(0);
+        skipped.set(0);
+        WebDriverFactory.configurePool(maxConcurrentTests);
+        Semaphore permits = new Semaphore(maxConcurrentTests);
+        long start = System.nanoTime();
+
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("autoheal-test");
+        try {
+            Map<Object, List<Future<?>>> testsByInstance = new LinkedHashMap<>();
+            for (Class<?> testClass : testClasses) {
+                Object instance = instantiate(testClass);
+                List<Future<?>> tests = new ArrayList<>();
+                testsByInstance.put(instance, tests);
+                if (!invokeAll(instance, lifecycleMethods(testClass, BeforeClass.class), null)) {
+                    skipped.addAndGet(testMethods(testClass).size());
+                    continue;
+                }
+                for (Method testMethod : testMethods(testClass)) {
+                    // Waiting here rather than in the task also bounds the platform-thread fallback
+                    permits.acquire();
+                    try {
+                        tests.add(executor.submit(() -> runTest(instance, testMethod, permits)));
+                    } catch (RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+                }
+            }
+
+            for (Map.Entry<Object, List<Future<?>>> entry : testsByInstance.entrySet()) {
+                for (Future<?> test : entry.getValue()) {
+                    try {
+                        test.get();
+                    } catch (ExecutionException e) {
+                        failed.incrementAndGet(); // runTest reports its own failures, this is the runner failing
+                    }
+                }
+                invokeAll(entry.getKey(), reversed(lifecycleMethods(entry.getKey().getClass(), AfterClass.class)), null);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            DriverRegistry.releaseAll();
+            WebDriverFactory.shutdownPool();
+            PageLoadRegression.getInstance().finishRun();
+            TestBudgets.getInstance().finishRun();
+            FailureBundle.getInstance().awaitWrites();
+            reportManager.flush();
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int total = passed.get() + failed.get() + skipped.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", VirtualThreads.isSupported() ? "virtual" : "platform");
+        stats.put("maxConcurrentTests", maxConcurrentTests);
+        stats.put("total", total);
+        stats.put("passed", passed.get());
+        stats.put("failed", failed.get());
+        stats.put("skipped", skipped.get());
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("testsPerSecond", elapsedMs == 0 ? 0.0 : total * 1000.0 / elapsedMs);
+        return stats;
+    }
+
+    /**
+     * One test method with its before/after methods, on the current (virtual) thread.
+     * The caller has taken a permit, released here when the test is done.
+     */
+    private void runTest(Object instance, Method testMethod, Semaphore permits) {
+        Class<?> testClass = instance.getClass();
+        Test test = testMethod.getAnnotation(Test.class);
+        String description = test.description().isEmpty() ? testMethod.getName() : test.description();
+        reportManager.createTest(testMethod.getName(), description);
+        reportManager.logInfo("Test started: " + testMethod.getName());
+        try {
+            if (!invokeAll(instance, lifecycleMethods(testClass, BeforeMethod.class), testMethod)) {
+                reportManager.logWarning("Test skipped: " + testMethod.getName());
+                skipped.incrementAndGet();
+                return;
+            }
+            if (TestBudgets.isEnabled()) {
+                TestUsage.start();
+            }
+            Throwable cause = null;
+            try {
+                testMethod.invoke(instance, arguments(testMethod, testMethod));
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                cause = e instanceof InvocationTargetException ? e.getCause() : e;
+            }
+            TestUsage usage = TestUsage.finish();
+            if (usage != null) {
+                List<String> exceeded = TestBudgets.getInstance().evaluate(testClass, testMethod, usage);
+                if (cause == null && !exceeded.isEmpty() && TestBudgets.isFailing()) {
+                    cause = new AssertionError("Test budget exceeded: " + String.join(", ", exceeded));
+                }
+            }
+            if (cause == null) {
+                reportManager.logPass("Test passed: " + testMethod.getName());
+                passed.incrementAndGet();
+            } else {
+                reportManager.logFail("Test failed: " + testMethod.getName());
+                AutoHealWebDriver driver = DriverRegistry.current();
+                if (driver != null) {
+                    reportManager.logFailureWithScreenshot(driver.getDriver(), "Test failed with exception", cause);
+                    File bundle = FailureBundle.getInstance().capture(testMethod.getName(), driver.getDriver(),
+                        driver.getCommandLog(), driver.getXPathHealer().getHealedLocators(), cause);
+                    if (bundle != null) {
+                        reportManager.attachFile("Failure bundle", bundle);
+                    }
+                } else {
+                    reportManager.logError("Test failure details", cause);
+                }
+                failed.incrementAndGet();
+            }
+        } finally {
+            invokeAll(instance, reversed(lifecycleMethods(testClass, AfterMethod.class)), testMethod);
+            // The virtual thread ends with this test, hand its driver back now
+            DriverRegistry.afterThread();
+            reportManager.removeTest();
+            permits.release();
+        }
+    }
+
+    /**
+     * Invoke methods in order, stopping at the first failure
+     */
+    private boolean invokeAll(Object instance, List<Method> methods, Method testMethod) {
+        for (Method method : methods) {
+            try {
+                method.invoke(instance, arguments(method, testMethod));
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                reportManager.logError("Configuration method failed: " + method.getName(), cause);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Arguments for a test or configuration method: {@code @Parameters} values for
+     * String arguments, the test method for a Method argument, null otherwise
+     */
+    private Object[] arguments(Method method, Method testMethod) {
+        Class<?>[] types = method.getParameterTypes();
+        Parameters names = method.getAnnotation(Parameters.class);
+        Object[] arguments = new Object[types.length];
+        int nextName = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == String.class && names != null && nextName < names.value().length) {
+                arguments[i] = parameters.get(names.value()[nextName++]);
+            } else if (types[i] == Method.class) {
+                arguments[i] = testMethod;
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Fail with every TestNG feature the classes use that the runner does not support
+     */
+    static void checkSupported(List<Class<?>> testClasses) {
+        List<String> problems = new ArrayList<>();
+        for (Class<?> testClass : testClasses) {
+            Test classTest = testClass.getAnnotation(Test.class);
+            if (classTest != null) {
+                checkSupported(classTest, testClass.getName(), problems);
+            }
+            for (Method method : testClass.getMethods()) {
+                Test test = method.getAnnotation(Test.class);
+                if (test != null) {
+                    checkSupported(test, testClass.getName() + "." + method.getName(), problems);
+                }
+            }
+            for (Class<?> current = testClass; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Method method : current.getDeclaredMethods()) {
+                    for (Class<? extends Annotation> annotation : UNSUPPORTED_CONFIGURATIONS) {
+                        if (method.isAnnotationPresent(annotation)) {
+                            problems.add(current.getName() + "." + method.getName() + ": @" + annotation.getSimpleName());
+                        }
+                    }
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("VirtualThreadTestRunner does not support, run these with testng.xml instead: "
+                + String.join("; ", problems));
+        }
+    }
+
+    private static void checkSupported(Test test, String name, List<String> problems) {
+        if (test.expectedExceptions().length > 0) {
+            problems.add(name + ": expectedExceptions");
+        }
+        if (!test.dataProvider().isEmpty()) {
+            problems.add(name + ": dataProvider");
+        }
+        if (test.dependsOnMethods().length > 0) {
+            problems.add(name + ": dependsOnMethods");
+        }
+        if (test.dependsOnGroups().length > 0) {
+            problems.add(name + ": dependsOnGroups");
+        }
+        if (test.groups().length > 0) {
+            problems.add(name + ": groups");
+        }
+        if (test.invocationCount() > 1) {
+            problems.add(name + ": invocationCount");
+        }
+    }
+
+    /**
+     * Enabled {@code @Test} methods of the class, public methods of superclasses included
+     */
+    private static List<Method> testMethods(Class<?> testClass) {
+        List<Method> tests = new ArrayList<>();
+        boolean classLevelTest = testClass.isAnnotationPresent(Test.class);
+        for (Method method : testClass.getMethods()) {
+            Test test = method.getAnnotation(Test.class);
+            if (method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            if (test != null ? test.enabled() : classLevelTest && method.getDeclaringClass() == testClass) {
+                method.setAccessible(true);
+                tests.add(method);
+            }
+        }
+        // getMethods() order is unspecified, keep runs reproducible
+        tests.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return tests;
+    }
+
+    /**
+     * Configuration methods with the given annotation, superclass methods first and
+     * overridden methods only once
+     */
+    private static List<Method> lifecycleMethods(Class<?> testClass, Class<? extends Annotation> annotation) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = testClass; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+
+        List<Method> methods = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for (int i = hierarchy.size() - 1; i >= 0; i--) {
+            for (Method method : hierarchy.get(i).getDeclaredMethods()) {
+                if (method.isAnnotationPresent(annotation)
+                        && signatures.add(method.getName() + Arrays.toString(method.getParameterTypes()))) {
+                    method.setAccessible(true);
+                    methods.add(0, method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static List<Method> reversed(List<Method> methods) {
+        List<Method> copy = new ArrayList<>(methods);
+        Collections.reverse(copy);
+        return copy;
+    }
+
+    private static Object instantiate(Class<?> testClass) {
+        try {
+            return testClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot instantiate test class " + testClass.getName(), e);
+        }
+    }
+
+    /**
+     * Usage: VirtualThreadTestRunner [--threads N] [--param name=value ...] testClass...
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = 100;
+        Map<String, String> parameters = new LinkedHashMap<>();
+        List<Class<?>> testClasses = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--param":
+                    String[] parameter = args[++i].split("=", 2);
+                    parameters.put(parameter[0], parameter.length > 1 ? parameter[1] : "");
+                    break;
+                default:
+                    testClasses.add(Class.forName(args[i]));
+            }
+        }
+        if (testClasses.isEmpty()) {
+            System.err.println("Usage: VirtualThreadTestRunner [--threads N] [--param name=value ...] testClass...");
+            System.exit(2);
+        }
+
+        Map<String, Object> stats = new VirtualThreadTestRunner(threads, parameters).run(testClasses);
+        System.out.println(stats);
+        System.exit(((Integer) stats.get("failed")) == 0 ? 0 : 1);
+    }
+}
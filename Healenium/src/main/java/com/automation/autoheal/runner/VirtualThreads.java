@@ -0,0 +1,69 @@
+package com.automation.autoheal.runner;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Access to virtual threads (Java 21+) from code compiled for Java 8.
+ *
+ * The API is looked up reflectively so the framework still builds and runs
+ * on older JVMs, where a cached platform thread pool is used instead.
+ */
+public class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookupVirtualExecutor();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookupVirtualExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * True when the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Executor starting one virtual thread per task
+     *
+     * @throws UnsupportedOperationException on JVMs without virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later, running on "
+                + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Virtual thread per task where supported, otherwise a cached pool of named platform threads
+     */
+    public static ExecutorService newPerTaskExecutor(String threadNamePrefix) {
+        if (isSupported()) {
+            return newVirtualThreadPerTaskExecutor();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, threadNamePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+}
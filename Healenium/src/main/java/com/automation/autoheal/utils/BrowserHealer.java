@@ -0,0 +1,330 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Healing engine that scores candidates inside the browser, selected with
+ * autoheal.engine=browser.
+ *
+ * The JVM engine has the whole page serialized and sent over the wire before
+ * it looks at a single element, which on large pages costs more than the
+ * healing itself. Here only the constraints parsed from the broken XPath and
+ * the scoring weights are sent, in one executeScript call. The script
+ * collects and scores candidates in the live DOM by the rules of
+ * {@link XPathHealer}, generates locators for the best of them by the rules
+ * of {@link XPathGenerator} (uniqueness is checked against the live page),
+ * and returns only those, so the response stays a few hundred bytes. All
+ * limits, weights and tag lists are passed in from the JVM side, which keeps
+ * both engines in step. Only the top document is searched: elements inside
+ * shadow roots and frames need the JVM engine.
+ */
+public class BrowserHealer {
+
+    /**
+     * Best candidates for the constraints in arguments[0], scored and limited by the settings in arguments[1]
+     */
+    static final String HEAL_SCRIPT =
+        "var c = arguments[0], s = arguments[1], w = s.weights, ATTRS = s.locatorAttributes;" +
+        "function set(list) { var o = {}; for (var i = 0; i < list.length; i++) { o[list[i]] = true; } return o; }" +
+        "var BLOCK = set(s.blockTags), RAW = set(s.rawTextTags), WS = /[ \\t\\n\\r\\f\\u00a0]+/g;" +
+        "var all = [], order = new Map(), last = [], from = [], to = [], parts = [], len = 0, space = true;" +
+        "function add(piece) { parts.push(piece); len += piece.length; space = piece.charAt(piece.length - 1) === ' '; }" +
+        "function sep() { if (len > 0 && !space) { add(' '); } }" +
+        "function append(value) {" +
+        "  var t = value.replace(WS, ' ');" +
+        "  if (space && t.charAt(0) === ' ') { t = t.substring(1); }" +
+        "  if (t.length) { add(t); }" +
+        "}" +
+        "function walk(el) {" +
+        "  var tag = el.localName, i = all.length;" +
+        "  if (BLOCK[tag]) { sep(); }" +
+        "  all.push(el); order.set(el, i); from[i] = len;" +
+        "  if (!RAW[tag]) {" +
+        "    for (var n = el.firstChild; n; n = n.nextSibling) {" +
+        "      if (n.nodeType === 3) { append(n.nodeValue); } else if (n.nodeType === 1) { walk(n); }" +
+        "    }" +
+        "  }" +
+        "  to[i] = len; last[i] = all.length;" +
+        "  if (BLOCK[tag]) { sep(); }" +
+        "}" +
+        "walk(document.documentElement);" +
+        "var buffer = parts.join(''), lower = buffer.toLowerCase();" +
+        "function text(el) {" +
+        "  var i = order.get(el);" +
+        "  return i === undefined ? '' : buffer.substring(from[i], to[i]).replace(/^ +| +$/g, '');" +
+        "}" +
+        "function attr(el, name) { var v = el.getAttribute(name); return v === null ? '' : v; }" +
+        "function hasClass(el, name) {" +
+        "  if (!name || /\\s/.test(name)) { return false; }" +
+        "  var tokens = attr(el, 'class').split(/\\s+/);" +
+        "  for (var t = 0; t < tokens.length; t++) { if (tokens[t].toLowerCase() === name.toLowerCase()) { return true; } }" +
+        "  return false;" +
+        "}" +
+        "var candidates = [];" +
+        "if (c.id) { var byId = document.getElementById(c.id); if (byId && order.has(byId)) { candidates.push(byId); } }" +
+        "if (c.text) {" +
+        "  var needle = c.text.replace(WS, ' ').replace(/^ | $/g, '').toLowerCase(), starts = [];" +
+        "  for (var at = lower.indexOf(needle); at >= 0 && needle.length; at = lower.indexOf(needle, at + 1)) { starts.push(at); }" +
+        "  for (var e = 0; e < all.length; e++) {" +
+        "    if (!needle.length) { candidates.push(all[e]); continue; }" +
+        "    var lo = 0, hi = starts.length;" +
+        "    while (lo < hi) { var mid = (lo + hi) >> 1; if (starts[mid] < from[e]) { lo = mid + 1; } else { hi = mid; } }" +
+        "    if (lo < starts.length && starts[lo] + needle.length <= to[e]) { candidates.push(all[e]); }" +
+        "  }" +
+        "}" +
+        "if (c.className) { for (var k = 0; k < all.length; k++) { if (hasClass(all[k], c.className)) { candidates.push(all[k]); } } }" +
+        "if (c.name) {" +
+        "  for (var m = 0; m < all.length; m++) {" +
+        "    var v = all[m].getAttribute('name');" +
+        "    if (v !== null && v.trim().toLowerCase() === c.name.trim().toLowerCase()) { candidates.push(all[m]); }" +
+        "  }" +
+        "}" +
+        "if (c.tagName) {" +
+        "  var wanted = c.tagName.toLowerCase();" +
+        "  for (var q = 0; q < all.length; q++) { if (all[q].localName === wanted) { candidates.push(all[q]); } }" +
+        "}" +
+        "var BITS = {id: 1, name: 2, className: 4, text: 8, tagName: 16};" +
+        "function matches(el) {" +
+        "  var matched = [];" +
+        "  if (c.id != null && c.id === attr(el, 'id')) { matched.push('id'); }" +
+        "  if (c.name != null && c.name === attr(el, 'name')) { matched.push('name'); }" +
+        "  if (c.className != null && hasClass(el, c.className)) { matched.push('className'); }" +
+        "  if (c.text != null && text(el).indexOf(c.text) >= 0) { matched.push('text'); }" +
+        "  if (c.tagName != null && c.tagName === el.localName) { matched.push('tagName'); }" +
+        "  return matched;" +
+        "}" +
+        "var seen = new Set(), scored = [];" +
+        "for (var r = 0; r < candidates.length; r++) {" +
+        "  if (!seen.has(candidates[r])) {" +
+        "    seen.add(candidates[r]);" +
+        "    var matched = matches(candidates[r]), value = 0, mask = 0;" +
+        "    for (var x = 0; x < matched.length; x++) { value += w[matched[x]]; mask |= BITS[matched[x]]; }" +
+        "    if (value > 0) { scored.push({el: candidates[r], score: value, matched: matched, mask: mask, rank: scored.length}); }" +
+        "  }" +
+        "}" +
+        "var nested = scored.slice().sort(function(a, b) { return order.get(a.el) - order.get(b.el); });" +
+        "for (var o = 0; o < nested.length; o++) {" +
+        "  var end = last[order.get(nested[o].el)];" +
+        "  for (var p = o + 1; p < nested.length && order.get(nested[p].el) < end; p++) {" +
+        "    if ((nested[p].mask & nested[o].mask) === nested[o].mask) { nested[o].hidden = true; break; }" +
+        "  }" +
+        "}" +
+        "scored = scored.filter(function(x) { return !x.hidden; });" +
+        "scored.sort(function(a, b) { return b.score - a.score || a.rank - b.rank; });" +
+        "" +
+        "var GENERATED_ID = new RegExp(s.generatedId, 'i'), attributeCounts = {}, textCounts = {};" +
+        "function literal(v) {" +
+        "  if (v.indexOf(\"'\") < 0) { return \"'\" + v + \"'\"; }" +
+        "  if (v.indexOf('\"') < 0) { return '\"' + v + '\"'; }" +
+        "  return \"concat('\" + v.split(\"'\").join(\"', \\\"'\\\", '\") + \"')\";" +
+        "}" +
+        "function countAttribute(tag, name, v) {" +
+        "  var counts = attributeCounts[name];" +
+        "  if (!counts) {" +
+        "    counts = attributeCounts[name] = new Map();" +
+        "    for (var i = 0; i < all.length; i++) {" +
+        "      var value = all[i].getAttribute(name);" +
+        "      if (value) {" +
+        "        counts.set('* ' + value, (counts.get('* ' + value) || 0) + 1);" +
+        "        counts.set(all[i].localName + ' ' + value, (counts.get(all[i].localName + ' ' + value) || 0) + 1);" +
+        "      }" +
+        "    }" +
+        "  }" +
+        "  return counts.get(tag + ' ' + v) || 0;" +
+        "}" +
+        "function countText(tag, t) {" +
+        "  var counts = textCounts[tag];" +
+        "  if (!counts) {" +
+        "    counts = textCounts[tag] = new Map();" +
+        "    for (var i = 0; i < all.length; i++) {" +
+        "      if (all[i].localName === tag) { var x = text(all[i]); counts.set(x, (counts.get(x) || 0) + 1); }" +
+        "    }" +
+        "  }" +
+        "  return counts.get(t) || 0;" +
+        "}" +
+        "function stable(v) { return v.length > 0 && v.length <= s.maxValueLength; }" +
+        "function usableText(el, t) { return t.length > 0 && t.length <= s.maxTextLength && el.children.length === 0; }" +
+        "function unique(el, allowText) {" +
+        "  var tag = el.localName, id = attr(el, 'id');" +
+        "  if (stable(id) && !GENERATED_ID.test(id) && countAttribute('*', 'id', id) === 1) {" +
+        "    return '//' + tag + '[@id=' + literal(id) + ']';" +
+        "  }" +
+        "  for (var a = 0; a < ATTRS.length; a++) {" +
+        "    var v = attr(el, ATTRS[a]);" +
+        "    if (stable(v) && countAttribute(tag, ATTRS[a], v) === 1) { return '//' + tag + '[@' + ATTRS[a] + '=' + literal(v) + ']'; }" +
+        "  }" +
+        "  if (allowText) {" +
+        "    var t = text(el);" +
+        "    if (usableText(el, t) && countText(tag, t) === 1) { return '//' + tag + '[normalize-space()=' + literal(t) + ']'; }" +
+        "  }" +
+        "  return null;" +
+        "}" +
+        "function step(el) {" +
+        "  var tag = el.localName, parent = el.parentElement;" +
+        "  if (!parent) { return tag; }" +
+        "  var position = 0, count = 0;" +
+        "  for (var sibling = parent.firstElementChild; sibling; sibling = sibling.nextElementSibling) {" +
+        "    if (sibling.localName === tag) { count++; if (sibling === el) { position = count; } }" +
+        "  }" +
+        "  return count > 1 ? tag + '[' + position + ']' : tag;" +
+        "}" +
+        "function countWith(list, fn) { var n = 0; for (var i = 0; i < list.length; i++) { if (fn(list[i])) { n++; } } return n; }" +
+        "function relative(anchor, el) {" +
+        "  var tag = el.localName, sameTag = anchor.getElementsByTagName(tag);" +
+        "  if (sameTag.length === 1) { return '//' + tag; }" +
+        "  for (var a = 0; a < ATTRS.length; a++) {" +
+        "    var v = attr(el, ATTRS[a]);" +
+        "    if (stable(v) && countWith(sameTag, function(x) { return attr(x, ATTRS[a]) === v; }) === 1) {" +
+        "      return '//' + tag + '[@' + ATTRS[a] + '=' + literal(v) + ']';" +
+        "    }" +
+        "  }" +
+        "  var type = attr(el, 'type');" +
+        "  if (type && countWith(sameTag, function(x) { return attr(x, 'type') === type; }) === 1) {" +
+        "    return '//' + tag + '[@type=' + literal(type) + ']';" +
+        "  }" +
+        "  var t = text(el);" +
+        "  if (usableText(el, t) && countWith(sameTag, function(x) { return text(x) === t; }) === 1) {" +
+        "    return '//' + tag + '[normalize-space()=' + literal(t) + ']';" +
+        "  }" +
+        "  var steps = [];" +
+        "  for (var cur = el; cur !== anchor; cur = cur.parentElement) { steps.unshift(step(cur)); }" +
+        "  return '/' + steps.join('/');" +
+        "}" +
+        "function generate(el) {" +
+        "  var u = unique(el, true);" +
+        "  if (u) { return u; }" +
+        "  var ancestor = el.parentElement;" +
+        "  for (var d = 0; d < s.maxAnchorDepth && ancestor; d++) {" +
+        "    var anchor = unique(ancestor, false);" +
+        "    if (anchor) { return anchor + relative(ancestor, el); }" +
+        "    ancestor = ancestor.parentElement;" +
+        "  }" +
+        "  var steps = [];" +
+        "  for (var cur = el; cur; cur = cur.parentElement) { steps.unshift(step(cur)); }" +
+        "  return '/' + steps.join('/');" +
+        "}" +
+        "var result = [];" +
+        "for (var h = 0; h < scored.length && h < s.topCandidates; h++) {" +
+        "  var best = scored[h];" +
+        "  result.push({locator: generate(best.el), score: best.score, matched: best.matched, tagName: best.el.localName});" +
+        "}" +
+        "return result;";
+
+    /**
+     * A scored candidate and the locator the browser generated for it
+     */
+    public static class Candidate {
+
+        private final String locator;
+        private final int score;
+        private final List<String> matched;
+        private final String tagName;
+
+        Candidate(String locator, int score, List<String> matched, String tagName) {
+            this.locator = locator;
+            this.score = score;
+            this.matched = matched;
+            this.tagName = tagName;
+        }
+
+        public String getLocator() {
+            return locator;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Attributes of the original XPath the candidate matched: id, name, className, text, tagName
+         */
+        public List<String> getMatched() {
+            return matched;
+        }
+
+        public String getTagName() {
+            return tagName;
+        }
+
+        @Override
+        public String toString() {
+            return locator + " (" + score + ")";
+        }
+    }
+
+    private final WebDriver driver;
+    private final AutoHealConfig config;
+
+    public BrowserHealer(WebDriver driver, AutoHealConfig config) {
+        this.driver = driver;
+        this.config = config;
+    }
+
+    /**
+     * Up to XPathHealer.candidateLimit candidates for the attributes of a
+     * broken XPath, best first; ties keep the JVM engine's strategy order
+     *
+     * @throws WebDriverException if the script cannot run on this page
+     */
+    List<Candidate> findCandidates(XPathHealer.XPathAttributes attributes) {
+        if (!(driver instanceof JavascriptExecutor)) {
+            throw new WebDriverException("Driver cannot execute scripts");
+        }
+        Object result = ((JavascriptExecutor) driver).executeScript(HEAL_SCRIPT, constraints(attributes), settings());
+        if (!(result instanceof List)) {
+            throw new WebDriverException("Unexpected heal script result: " + result);
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Object item : (List<?>) result) {
+            Map<?, ?> candidate = (Map<?, ?>) item;
+            List<String> matched = new ArrayList<>();
+            for (Object attribute : (List<?>) candidate.get("matched")) {
+                matched.add((String) attribute);
+            }
+            candidates.add(new Candidate((String) candidate.get("locator"),
+                ((Number) candidate.get("score")).intValue(), matched, (String) candidate.get("tagName")));
+        }
+        return candidates;
+    }
+
+    private static Map<String, Object> constraints(XPathHealer.XPathAttributes attributes) {
+        Map<String, Object> constraints = new HashMap<>();
+        constraints.put("id", attributes.id);
+        constraints.put("name", attributes.name);
+        constraints.put("className", attributes.className);
+        constraints.put("text", attributes.text);
+        constraints.put("tagName", attributes.tagName);
+        return constraints;
+    }
+
+    private Map<String, Object> settings() {
+        Map<String, Object> weights = new LinkedHashMap<>();
+        weights.put("id", XPathHealer.ID_WEIGHT);
+        weights.put("name", XPathHealer.NAME_WEIGHT);
+        weights.put("className", XPathHealer.CLASS_WEIGHT);
+        weights.put("text", XPathHealer.TEXT_WEIGHT);
+        weights.put("tagName", XPathHealer.TAG_WEIGHT);
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("weights", weights);
+        settings.put("topCandidates", XPathHealer.candidateLimit(config));
+        settings.put("locatorAttributes", Arrays.asList(DomIndex.LOCATOR_ATTRIBUTES));
+        settings.put("blockTags", new ArrayList<>(CompactDom.BLOCK_TAGS));
+        settings.put("rawTextTags", new ArrayList<>(CompactDom.RAW_TEXT_TAGS));
+        settings.put("generatedId", XPathGenerator.GENERATED_ID.pattern());
+        settings.put("maxTextLength", XPathGenerator.MAX_TEXT_LENGTH);
+        settings.put("maxValueLength", XPathGenerator.MAX_VALUE_LENGTH);
+        settings.put("maxAnchorDepth", XPathGenerator.MAX_ANCHOR_DEPTH);
+        return settings;
+    }
+}
@@ -0,0 +1,170 @@
+package com.automation.autoheal.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * XPath locator qualified with the frames and shadow hosts that have to be
+ * entered, from the browsing context the element was healed in, to reach it.
+ *
+ * Finding elements switches the driver into the frames on the way (and
+ * leaves it there, so the element can be used); {@link #restoreContext(WebDriver)}
+ * switches back out. Shadow roots are entered with a script since plain
+ * XPath cannot cross them.
+ */
+public class ByScopedXPath extends By {
+
+    private static final String FIND_SCRIPT =
+        "var hosts = arguments[0], xpath = arguments[1], root = document;" +
+        "function rel(path, scoped) { return scoped && path.charAt(0) === '/' ? '.' + path : path; }" +
+        "for (var i = 0; i < hosts.length; i++) {" +
+        "  var host = document.evaluate(rel(hosts[i], i > 0), root, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null)" +
+        "    .singleNodeValue;" +
+        "  if (!host || !host.shadowRoot) { return []; }" +
+        "  root = host.shadowRoot;" +
+        "}" +
+        "var result = document.evaluate(rel(xpath, hosts.length > 0), root, null," +
+        "  XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null), found = [];" +
+        "for (var j = 0; j < result.snapshotLength; j++) { found.push(result.snapshotItem(j)); }" +
+        "return found;";
+
+    /**
+     * One boundary to cross: a frame to switch into or a shadow host to enter
+     */
+    public static class Hop {
+
+        private final DomSnapshot.Kind kind;
+        private final String hostXPath;
+
+        public Hop(DomSnapshot.Kind kind, String hostXPath) {
+            this.kind = kind;
+            this.hostXPath = hostXPath;
+        }
+
+        public DomSnapshot.Kind getKind() {
+            return kind;
+        }
+
+        public String getHostXPath() {
+            return hostXPath;
+        }
+
+        @Override
+        public String toString() {
+            return (kind == DomSnapshot.Kind.FRAME ? "frame(" : "shadow(") + hostXPath + ")";
+        }
+    }
+
+    private final List<Hop> hops;
+    private final String xPath;
+
+    public ByScopedXPath(List<Hop> hops, String xPath) {
+        this.hops = Collections.unmodifiableList(new ArrayList<>(hops));
+        this.xPath = xPath;
+    }
+
+    public List<Hop> getHops() {
+        return hops;
+    }
+
+    public String getXPath() {
+        return xPath;
+    }
+
+    /**
+     * Number of frames the driver is left in after a successful lookup
+     */
+    public int getFrameDepth() {
+        int depth = 0;
+        for (Hop hop : hops) {
+            if (hop.getKind() == DomSnapshot.Kind.FRAME) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    @Override
+    public List<WebElement> findElements(SearchContext context) {
+        if (!(context instanceof WebDriver) || !(context instanceof JavascriptExecutor)) {
+            throw new InvalidSelectorException("Scoped XPath needs a WebDriver with JavaScript support: " + this);
+        }
+        WebDriver driver = (WebDriver) context;
+
+        List<String> shadowHosts = new ArrayList<>();
+        int entered = 0;
+        try {
+            for (Hop hop : hops) {
+                if (hop.getKind() == DomSnapshot.Kind.FRAME) {
+                    List<WebElement> frames = find(driver, shadowHosts, hop.getHostXPath());
+                    if (frames.isEmpty()) {
+                        restore(driver, entered);
+                        return Collections.emptyList();
+                    }
+                    driver.switchTo().frame(frames.get(0));
+                    entered++;
+                    shadowHosts.clear();
+                } else {
+                    shadowHosts.add(hop.getHostXPath());
+                }
+            }
+
+            List<WebElement> elements = find(driver, shadowHosts, xPath);
+            if (elements.isEmpty()) {
+                restore(driver, entered);
+            }
+            return elements;
+        } catch (RuntimeException e) {
+            restore(driver, entered);
+            throw e;
+        }
+    }
+
+    @Override
+    public WebElement findElement(SearchContext context) {
+        List<WebElement> elements = findElements(context);
+        if (elements.isEmpty()) {
+            throw new NoSuchElementException("Unable to locate element: " + this);
+        }
+        return elements.get(0);
+    }
+
+    /**
+     * Switch back out of the frames entered by a successful lookup
+     */
+    public void restoreContext(WebDriver driver) {
+        restore(driver, getFrameDepth());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WebElement> find(WebDriver driver, List<String> shadowHosts, String path) {
+        if (shadowHosts.isEmpty()) {
+            return driver.findElements(By.xpath(path));
+        }
+        Object result = ((JavascriptExecutor) driver).executeScript(FIND_SCRIPT, shadowHosts, path);
+        return result instanceof List ? (List<WebElement>) result : Collections.<WebElement>emptyList();
+    }
+
+    private static void restore(WebDriver driver, int frames) {
+        for (int i = 0; i < frames; i++) {
+            driver.switchTo().parentFrame();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder("By.scopedXPath: ");
+        for (Hop hop : hops) {
+            description.append(hop).append(" >> ");
+        }
+        return description.append(xPath).toString();
+    }
+}
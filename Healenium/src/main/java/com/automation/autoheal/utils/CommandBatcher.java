@@ -0,0 +1,140 @@
+package com.automation.autoheal.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Coalesces independent read-only browser queries into a single
+ * {@code executeScript} call.
+ *
+ * Against a remote grid every WebDriver command is an HTTP round trip, so
+ * reading the URL, the ready state and the navigation timing one after the
+ * other costs three round trips where one script can answer all of them. When
+ * batching is disabled, the driver cannot run scripts or the batched script
+ * fails, each query is answered by its own command instead.
+ */
+public class CommandBatcher {
+
+    /**
+     * Read-only value that can be computed by a script expression or, as a
+     * fallback, by a regular driver command
+     */
+    public static class Query<T> {
+
+        private final String expression;
+        private final Function<WebDriver, Object> fallback;
+
+        public Query(String expression, Function<WebDriver, Object> fallback) {
+            this.expression = expression;
+            this.fallback = fallback;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+    }
+
+    public static final Query<String> CURRENT_URL = new Query<>("window.location.href", WebDriver::getCurrentUrl);
+
+    public static final Query<String> PAGE_SOURCE = new Query<>("document.documentElement.outerHTML", WebDriver::getPageSource);
+
+    public static final Query<String> READY_STATE = script("document.readyState");
+
+    /**
+     * Milliseconds from navigation start to the load event, null while the page is still loading
+     */
+    public static final Query<Number> NAVIGATION_TIMING = script(
+        "(function() { var t = window.performance && performance.timing;" +
+        " return t && t.loadEventEnd > 0 ? t.loadEventEnd - t.navigationStart : null; })()");
+
+    private final WebDriver driver;
+    private final boolean enabled;
+
+    public CommandBatcher(WebDriver driver, boolean enabled) {
+        this.driver = driver;
+        this.enabled = enabled && driver instanceof JavascriptExecutor;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Query answered by evaluating the expression on its own when batching is off,
+     * null if the script fails
+     */
+    public static <T> Query<T> script(String expression) {
+        return new Query<>(expression, driver -> {
+            if (!(driver instanceof JavascriptExecutor)) {
+                return null;
+            }
+            try {
+                return ((JavascriptExecutor) driver).executeScript("return " + expression + ";");
+            } catch (RuntimeException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Answer all queries, in one round trip when batching is enabled
+     */
+    public Result execute(Query<?>... queries) {
+        Map<Query<?>, Object> values = new IdentityHashMap<>();
+        if (enabled && queries.length > 1) {
+            try {
+                Object result = ((JavascriptExecutor) driver).executeScript(batchScript(queries));
+                if (result instanceof List && ((List<?>) result).size() == queries.length) {
+                    List<?> list = (List<?>) result;
+                    for (int i = 0; i < queries.length; i++) {
+                        values.put(queries[i], list.get(i));
+                    }
+                    return new Result(values);
+                }
+            } catch (RuntimeException e) {
+                // Fall back to one command per query below
+            }
+        }
+
+        for (Query<?> query : queries) {
+            values.put(query, query.fallback.apply(driver));
+        }
+        return new Result(values);
+    }
+
+    /**
+     * Script evaluating every expression, isolated so one failing query does not fail the others
+     */
+    static String batchScript(Query<?>... queries) {
+        StringBuilder script = new StringBuilder("return [");
+        for (int i = 0; i < queries.length; i++) {
+            if (i > 0) {
+                script.append(", ");
+            }
+            script.append("(function() { try { return ").append(queries[i].expression)
+                .append("; } catch (e) { return null; } })()");
+        }
+        return script.append("];").toString();
+    }
+
+    /**
+     * Values of one batch, looked up by query
+     */
+    public static class Result {
+
+        private final Map<Query<?>, Object> values;
+
+        Result(Map<Query<?>, Object> values) {
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(Query<T> query) {
+            return (T) values.get(query);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.automation.autoheal.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The last commands a driver ran, with their latency and outcome, for the
+ * failure bundle. A fixed ring: recording allocates one small entry and never
+ * grows, so it can stay on for every command of every test. Guarded by a
+ * lock rather than {@code synchronized} so virtual-thread tests never pin
+ * their carrier on it.
+ */
+public class CommandLog {
+
+    private static final int MAX_TARGET_LENGTH = 300;
+
+    private static class Entry {
+        private final long time;
+        private final String command;
+        private final String target;
+        private final long nanos;
+        private final String error;
+
+        Entry(long time, String command, String target, long nanos, String error) {
+            this.time = time;
+            this.command = command;
+            this.target = target;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+
+    private final Entry[] entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int next;
+    private long total;
+
+    /**
+     * @param capacity commands kept, 0 to keep none
+     */
+    public CommandLog(int capacity) {
+        this.entries = new Entry[Math.max(capacity, 0)];
+    }
+
+    /**
+     * Record a finished command
+     *
+     * @param target locator, URL or script the command ran with, may be null
+     * @param error what the command threw, null if it succeeded
+     */
+    public void record(String command, Object target, long nanos, Throwable error) {
+        if (entries.length == 0) {
+            return;
+        }
+        String text = target == null ? null : String.valueOf(target);
+        if (text != null && text.length() > MAX_TARGET_LENGTH) {
+            text = text.substring(0, MAX_TARGET_LENGTH) + "...";
+        }
+        Entry entry = new Entry(System.currentTimeMillis() - nanos / 1000000, command, text, nanos,
+            error == null ? null : error.getClass().getSimpleName());
+        lock.lock();
+        try {
+            entries[next] = entry;
+            next = (next + 1) % entries.length;
+            total++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commands recorded since the driver was created
+     */
+    public long getTotal() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The kept commands, oldest first
+     */
+    public List<Map<String, Object>> getEntries() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < entries.length; i++) {
+                Entry entry = entries[(next + i) % entries.length];
+                if (entry == null) {
+                    continue;
+                }
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("time", entry.time);
+                values.put("command", entry.command);
+                values.put("target", entry.target);
+                values.put("ms", Math.round(entry.nanos / 10000.0) / 100.0);
+                values.put("error", entry.error);
+                list.add(values);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return list;
+    }
+}
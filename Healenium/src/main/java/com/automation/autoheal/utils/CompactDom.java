@@ -0,0 +1,1501 @@
+package com.automation.autoheal.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Read-only, columnar DOM used for healing.
+ *
+ * A Jsoup document keeps an Element, an Attributes object and a TextNode per
+ * node, several hundred MB for a 5 MB page, and every healing driver holds
+ * one while it heals. Here elements are ints numbered in document order and
+ * each property is a parallel primitive array: parent, tag (id into one pool
+ * of interned strings), end of the subtree, first attribute, text range. The
+ * descendants of element n are n+1 up to end(n), so subtree walks need no
+ * child lists. Attribute names and values are pool ids. All text is appended
+ * to one char buffer with whitespace collapsed, in document order, so an
+ * element's text is one range of it.
+ *
+ * The tokenizer is lenient rather than spec-complete. It handles what the
+ * snapshot script and browsers' page source produce: closed elements, quoted
+ * attributes, void and self-closing tags, comments, raw script and style
+ * bodies, and numeric and HTML5 named character references. The HTML5 rules
+ * for omitted tags that change element paths are applied: a block element
+ * closes an open p, li, dt/dd, option and table rows, sections and cells
+ * close their open siblings, and a row or cell directly in a table gets the
+ * tbody (and tr) a browser would insert. Unlike Jsoup it does not add html,
+ * head or body when they are missing.
+ *
+ * {@link #scan} is the streaming form used for healing: the same single pass,
+ * but an element is dropped as soon as it closes unless it matches the
+ * {@link Filter} or has a kept descendant, and attribute values are only
+ * interned for kept elements. What remains is the candidates and their
+ * ancestor chains, plus hashed counts of locator attribute values and short
+ * texts so single-step locators can still be proven unique page-wide.
+ */
+public class CompactDom {
+
+    /**
+     * Node above the top-level elements; not an element and never a healing target
+     */
+    public static final int ROOT = 0;
+
+    private static final Set<String> VOID_TAGS = new HashSet<>(Arrays.asList(
+        "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param",
+        "source", "track", "wbr"));
+    static final Set<String> RAW_TEXT_TAGS = new HashSet<>(Arrays.asList(
+        "script", "style", "template", "noscript"));
+    private static final Set<String> ESCAPABLE_TEXT_TAGS = new HashSet<>(Arrays.asList("title", "textarea"));
+    // Start tags that close an open p, as in the HTML5 tree builder
+    private static final Set<String> CLOSES_P = new HashSet<>(Arrays.asList(
+        "address", "article", "aside", "blockquote", "center", "details", "dialog", "dir", "div", "dl",
+        "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header",
+        "hgroup", "hr", "li", "dd", "dt", "main", "menu", "nav", "ol", "p", "pre", "section", "summary",
+        "table", "ul"));
+    // An open p, li, dt or dd above one of these is not closed implicitly
+    private static final Set<String> SCOPE_BOUNDARIES = new HashSet<>(Arrays.asList(
+        "applet", "button", "caption", "html", "marquee", "object", "table", "td", "template", "th"));
+    private static final Set<String> TABLE_SECTIONS = new HashSet<>(Arrays.asList("tbody", "thead", "tfoot"));
+    private static final Set<String> TABLE_CELLS = new HashSet<>(Arrays.asList("td", "th"));
+    // Boundaries of these separate words in text(), as in Jsoup's Element.text()
+    static final Set<String> BLOCK_TAGS = new HashSet<>(Arrays.asList(
+        "address", "article", "aside", "blockquote", "br", "dd", "div", "dl", "dt", "fieldset",
+        "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header",
+        "hr", "li", "main", "nav", "ol", "p", "pre", "section", "table", "tbody", "td", "tfoot",
+        "th", "thead", "tr", "ul", "option", "select", "button", "label"));
+
+    private final String[] strings;
+    private final StringPool pool;
+    private final int size;
+    private final int[] parent;
+    private final int[] tag;
+    private final int[] end;
+    private final int[] attributeStart; // size + 1 entries, attributes of n are [start[n], start[n + 1])
+    private final int[] attributeNames;
+    private final int[] attributeValues;
+    private final int[] textStart;
+    private final int[] textEnd;
+    private final char[] text;
+    private final int[] documentOrder; // Node number in the complete parse, null unless pruned
+    private final int[] documentEnd; // Subtree end in the complete parse, null unless pruned
+    private final Counter uniquenessCounts; // Hashed locator counts of the whole page, null unless pruned
+
+    private CompactDom(Builder builder) {
+        this.pool = builder.pool;
+        this.attributeValues = builder.internValues();
+        this.strings = pool.toArray();
+        this.size = builder.size;
+        this.parent = Arrays.copyOf(builder.parent, size);
+        this.tag = Arrays.copyOf(builder.tag, size);
+        this.end = Arrays.copyOf(builder.end, size);
+        this.attributeStart = Arrays.copyOf(builder.attributeStart, size + 1);
+        this.attributeStart[size] = builder.attributeCount;
+        this.attributeNames = Arrays.copyOf(builder.attributeNames, builder.attributeCount);
+        this.textStart = Arrays.copyOf(builder.textStart, size);
+        this.textEnd = Arrays.copyOf(builder.textEnd, size);
+        this.text = Arrays.copyOf(builder.text, builder.textLength);
+        this.documentOrder = builder.filter == null ? null : Arrays.copyOf(builder.documentOrder, size);
+        this.documentEnd = builder.filter == null ? null : Arrays.copyOf(builder.documentEnd, size);
+        this.uniquenessCounts = builder.counts;
+    }
+
+    /**
+     * Parse HTML into a compact DOM
+     */
+    public static CompactDom parse(String html) {
+        return new Builder(html, null).parse();
+    }
+
+    /**
+     * Scan HTML keeping only the elements that match the filter and their
+     * ancestors. Memory grows with the matches instead of the page; the
+     * elements kept have their full attributes and text.
+     */
+    public static CompactDom scan(String html, Filter filter) {
+        return new Builder(html, filter).parse();
+    }
+
+    /**
+     * Whether this DOM came from {@link #scan} and lacks unmatched elements
+     */
+    public boolean isPruned() {
+        return documentOrder != null;
+    }
+
+    /**
+     * Node number the element has in a complete parse of the same page
+     */
+    public int documentOrder(int node) {
+        return documentOrder == null ? node : documentOrder[node];
+    }
+
+    /**
+     * Number of nodes, the root included
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of elements
+     */
+    public int elementCount() {
+        return size - 1;
+    }
+
+    public String tagName(int node) {
+        return strings[tag[node]];
+    }
+
+    /**
+     * Parent element, ROOT for top-level elements and -1 for the root itself
+     */
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * One past the last descendant: the subtree of n is [n, end(n))
+     */
+    public int end(int node) {
+        return end[node];
+    }
+
+    public int firstChild(int node) {
+        return node + 1 < end[node] ? node + 1 : -1;
+    }
+
+    public int nextSibling(int node) {
+        int next = end[node];
+        return node != ROOT && next < end[parent[node]] ? next : -1;
+    }
+
+    /**
+     * Whether the element has child elements, also those a scan dropped
+     */
+    public boolean hasChildren(int node) {
+        return documentEnd != null ? documentOrder[node] + 1 < documentEnd[node] : node + 1 < end[node];
+    }
+
+    public boolean isElement(int node) {
+        return node > ROOT && node < size;
+    }
+
+    /**
+     * Attribute value, empty if the element does not have it
+     */
+    public String attr(int node, String name) {
+        int nameId = pool.find(name);
+        if (nameId >= 0) {
+            for (int i = attributeStart[node]; i < attributeStart[node + 1]; i++) {
+                if (attributeNames[i] == nameId) {
+                    return strings[attributeValues[i]];
+                }
+            }
+        }
+        return "";
+    }
+
+    public boolean hasAttr(int node, String name) {
+        int nameId = pool.find(name);
+        for (int i = attributeStart[node]; nameId >= 0 && i < attributeStart[node + 1]; i++) {
+            if (attributeNames[i] == nameId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String id(int node) {
+        return attr(node, "id");
+    }
+
+    /**
+     * Whether the class attribute contains the class name, ignoring case like Jsoup
+     */
+    public boolean hasClass(int node, String className) {
+        return containsClass(attr(node, "class"), className);
+    }
+
+    private static boolean containsClass(CharSequence classes, String className) {
+        int length = className.length();
+        if (length == 0 || className.chars().anyMatch(Character::isWhitespace)) {
+            return false;
+        }
+        for (int start = 0; start <= classes.length() - length; start++) {
+            if ((start == 0 || Character.isWhitespace(classes.charAt(start - 1)))
+                    && regionMatchesIgnoreCase(classes, start, className)
+                    && (start + length == classes.length() || Character.isWhitespace(classes.charAt(start + length)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence value, int start, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            char a = value.charAt(start + i);
+            char b = expected.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Jsoup's attribute value comparison: surrounding whitespace of the value ignored, case ignored
+     */
+    private static boolean equalsTrimmedIgnoreCase(CharSequence value, String expected) {
+        int from = 0;
+        int to = value.length();
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to - from == expected.length() && regionMatchesIgnoreCase(value, from, expected);
+    }
+
+    private static boolean contentEquals(CharSequence value, String expected) {
+        if (value.length() != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (value.charAt(i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Text of the element and its descendants, whitespace normalized and trimmed
+     */
+    public String text(int node) {
+        int from = textStart[node];
+        int to = textEnd[node];
+        while (from < to && text[from] == ' ') {
+            from++;
+        }
+        while (to > from && text[to - 1] == ' ') {
+            to--;
+        }
+        return new String(text, from, to - from);
+    }
+
+    /**
+     * Elements whose text contains the given text, ignoring case and whitespace
+     * differences like Jsoup's getElementsContainingText, in document order
+     */
+    public int[] elementsContainingText(String search) {
+        char[] needle = needle(search);
+        IntList matches = new IntList();
+        if (needle.length == 0) {
+            for (int node = ROOT + 1; node < size; node++) {
+                matches.add(node);
+            }
+            return matches.toArray();
+        }
+
+        // Every occurrence in the buffer once, then each element checks for one inside its range
+        IntList occurrences = new IntList();
+        for (int i = 0; i + needle.length <= text.length; i++) {
+            int j = 0;
+            while (j < needle.length && Character.toLowerCase(text[i + j]) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                occurrences.add(i);
+            }
+        }
+        if (occurrences.size() == 0) {
+            return new int[0];
+        }
+        int[] starts = occurrences.toArray();
+        for (int node = ROOT + 1; node < size; node++) {
+            int first = Arrays.binarySearch(starts, textStart[node]);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            if (first < starts.length && starts[first] + needle.length <= textEnd[node]) {
+                matches.add(node);
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * First element with the id, -1 if there is none
+     */
+    public int elementById(String id) {
+        int nameId = pool.find("id");
+        int valueId = pool.find(id);
+        if (nameId < 0 || valueId < 0) {
+            return -1;
+        }
+        for (int i = 0; i < attributeNames.length; i++) {
+            if (attributeNames[i] == nameId && attributeValues[i] == valueId) {
+                return ownerOfAttribute(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Elements in the subtree of the given node (itself excluded) with the tag, ignoring case
+     */
+    public int[] elementsByTag(int within, String tagName) {
+        int tagId = pool.find(tagName.toLowerCase(Locale.ROOT));
+        IntList matches = new IntList();
+        for (int node = within + 1; tagId >= 0 && node < end[within]; node++) {
+            if (tag[node] == tagId) {
+                matches.add(node);
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Elements with the class, ignoring case
+     */
+    public int[] elementsByClass(String className) {
+        IntList matches = new IntList();
+        for (int node = ROOT + 1; node < size; node++) {
+            if (hasClass(node, className)) {
+                matches.add(node);
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Elements whose attribute equals the value, ignoring case and surrounding
+     * whitespace of the value like Jsoup's getElementsByAttributeValue
+     */
+    public int[] elementsByAttributeValue(String name, String value) {
+        int nameId = pool.find(name.toLowerCase(Locale.ROOT));
+        String expected = value.trim();
+        IntList matches = new IntList();
+        for (int i = 0; nameId >= 0 && i < attributeNames.length; i++) {
+            if (attributeNames[i] == nameId && equalsTrimmedIgnoreCase(strings[attributeValues[i]], expected)) {
+                matches.add(ownerOfAttribute(i));
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Elements that have the attribute
+     */
+    public int[] elementsWithAttribute(String name) {
+        int nameId = pool.find(name.toLowerCase(Locale.ROOT));
+        IntList matches = new IntList();
+        for (int i = 0; nameId >= 0 && i < attributeNames.length; i++) {
+            if (attributeNames[i] == nameId) {
+                matches.add(ownerOfAttribute(i));
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Pool id of a string, -1 if it occurs nowhere in the page
+     */
+    int stringId(String value) {
+        return pool.find(value);
+    }
+
+    int tagId(int node) {
+        return tag[node];
+    }
+
+    int attributeStart(int node) {
+        return attributeStart[node];
+    }
+
+    int attributeNameId(int attribute) {
+        return attributeNames[attribute];
+    }
+
+    int attributeValueId(int attribute) {
+        return attributeValues[attribute];
+    }
+
+    /**
+     * Hashed page-wide counts from {@link #scan}, null for a complete parse
+     */
+    Counter uniquenessCounts() {
+        return uniquenessCounts;
+    }
+
+    /**
+     * Count key of an element with the tag (-1 for any tag) and attribute value
+     */
+    static long attributeKey(int tagId, int nameId, long valueHash) {
+        return valueHash ^ ((((long) (tagId + 1) << 32) | nameId) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Count key of an element with the tag and normalized text
+     */
+    static long textKey(int tagId, long textHash) {
+        return textHash ^ ((tagId + 1L) * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    /**
+     * 64-bit FNV-1a hash. Hash collisions can only raise a count, so a count
+     * of one still proves a locator unique.
+     */
+    static long hash(CharSequence value, int start, int end) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Element an attribute slot belongs to: attribute slots are in element order
+     */
+    private int ownerOfAttribute(int attribute) {
+        int low = ROOT;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (attributeStart[middle] <= attribute) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        // Elements without attributes share their start with the next element
+        while (low > ROOT && attributeStart[low] == attributeStart[low + 1]) {
+            low--;
+        }
+        return low;
+    }
+
+    /**
+     * Approximate retained size in bytes: arrays, text buffer and pooled strings
+     */
+    public long estimatedBytes() {
+        long bytes = 16L * 11 + 4L * (parent.length + tag.length + end.length + attributeStart.length
+            + attributeNames.length + attributeValues.length + textStart.length + textEnd.length)
+            + 2L * text.length + pool.estimatedBytes();
+        if (documentOrder != null) {
+            bytes += 8L * documentOrder.length + uniquenessCounts.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Search text the way it appears in the text buffer, lower case
+     */
+    private static char[] needle(String search) {
+        return normalize(search).toLowerCase(Locale.ROOT).toCharArray();
+    }
+
+    private static String normalize(String value) {
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean space = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isWhitespace(c)) {
+                if (!space) {
+                    normalized.append(' ');
+                    space = true;
+                }
+            } else {
+                normalized.append(c);
+                space = false;
+            }
+        }
+        int length = normalized.length();
+        return length > 0 && normalized.charAt(length - 1) == ' '
+            ? normalized.substring(0, length - 1) : normalized.toString();
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u00a0';
+    }
+
+    /**
+     * HTML5 named character references, loaded on first use
+     */
+    private static final class Entities {
+
+        private static final int MAX_NAME_LENGTH = 32; // CounterClockwiseContourIntegral;
+        private static final int MAX_LEGACY_NAME_LENGTH = 6; // Names also valid without the semicolon
+
+        private static final Map<String, String> VALUES = load();
+
+        private static Map<String, String> load() {
+            Properties properties = new Properties();
+            try (InputStream in = CompactDom.class.getResourceAsStream("html-entities.properties")) {
+                if (in == null) {
+                    throw new IllegalStateException("html-entities.properties is missing from the classpath");
+                }
+                properties.load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read html-entities.properties", e);
+            }
+            Map<String, String> values = new HashMap<>(properties.size() * 2);
+            for (String name : properties.stringPropertyNames()) {
+                values.put(name, properties.getProperty(name));
+            }
+            return values;
+        }
+    }
+
+    /**
+     * What {@link #scan} keeps: elements matching any of the set constraints,
+     * with the semantics of the corresponding CompactDom lookups
+     */
+    public static final class Filter {
+
+        private String id;
+        private String text;
+        private String className;
+        private String name;
+        private String tagName;
+
+        /**
+         * The first element with exactly this id
+         */
+        public Filter id(String id) {
+            this.id = emptyToNull(id);
+            return this;
+        }
+
+        /**
+         * Elements containing the text, as {@link #elementsContainingText}
+         */
+        public Filter text(String text) {
+            this.text = emptyToNull(text);
+            return this;
+        }
+
+        /**
+         * Elements with the class, ignoring case
+         */
+        public Filter className(String className) {
+            this.className = emptyToNull(className);
+            return this;
+        }
+
+        /**
+         * Elements whose name attribute equals the value, as {@link #elementsByAttributeValue}
+         */
+        public Filter name(String name) {
+            this.name = emptyToNull(name);
+            return this;
+        }
+
+        /**
+         * Elements with the tag, ignoring case
+         */
+        public Filter tagName(String tagName) {
+            this.tagName = tagName == null || tagName.isEmpty() ? null : tagName.toLowerCase(Locale.ROOT);
+            return this;
+        }
+
+        private static String emptyToNull(String value) {
+            return value == null || value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * Open-addressing map from a long key to a count, so counting boxes nothing
+     */
+    static final class Counter {
+
+        private long[] keys = new long[256];
+        private int[] counts = new int[256];
+        private int size;
+
+        void increment(long key) {
+            int slot = slot(keys, counts, key);
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    counts[slot] = 1;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot]++;
+        }
+
+        int get(long key) {
+            return counts[slot(keys, counts, key)];
+        }
+
+        long estimatedBytes() {
+            return 12L * keys.length;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldCounts.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    int slot = slot(keys, counts, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, int[] counts, long key) {
+            int mask = keys.length - 1;
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Growable int array, to collect node numbers without boxing
+     */
+    static final class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Interns strings by content, looking up character ranges without creating a String
+     */
+    static final class StringPool {
+
+        private String[] values = new String[64];
+        private int[] slots = new int[128]; // Open addressing, id + 1, 0 = free
+        private int count;
+
+        int intern(CharSequence source, int start, int end) {
+            int hash = hash(source, start, end);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    return add(source.subSequence(start, end).toString(), slot);
+                }
+                if (equals(values[id], source, start, end)) {
+                    return id;
+                }
+            }
+        }
+
+        int find(String value) {
+            int hash = hash(value, 0, value.length());
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    return -1;
+                }
+                if (values[id].equals(value)) {
+                    return id;
+                }
+            }
+        }
+
+        private int add(String value, int slot) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count] = value;
+            slots[slot] = ++count;
+            if (count * 2 > slots.length) {
+                rehash();
+            }
+            return count - 1;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < count; id++) {
+                int slot = hash(values[id], 0, values[id].length()) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, count);
+        }
+
+        long estimatedBytes() {
+            long bytes = 4L * slots.length + 8L * values.length;
+            for (int id = 0; id < count; id++) {
+                bytes += 40 + 2L * values[id].length();
+            }
+            return bytes;
+        }
+
+        private static int hash(CharSequence source, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + source.charAt(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equals(String value, CharSequence source, int start, int end) {
+            if (value.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) != source.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reusable view of a char range, to hash and compare without copying
+     */
+    private static final class Slice implements CharSequence {
+
+        private CharSequence chars;
+        private char[] array;
+        private int start;
+        private int length;
+
+        Slice of(CharSequence chars, int start, int end) {
+            this.chars = chars;
+            this.array = null;
+            this.start = start;
+            this.length = end - start;
+            return this;
+        }
+
+        Slice of(char[] array, int start, int end) {
+            this.chars = null;
+            this.array = array;
+            this.start = start;
+            this.length = end - start;
+            return this;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            return array != null ? array[start + index] : chars.charAt(start + index);
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            return array != null ? new String(array, start + from, to - from) : chars.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return array != null ? new String(array, start, length) : chars.subSequence(start, start + length).toString();
+        }
+    }
+
+    /**
+     * Single-pass tokenizer filling the columns, pruning as it goes when given a filter
+     */
+    private static final class Builder {
+
+        private final String html;
+        private final Filter filter;
+        private final StringPool pool = new StringPool();
+        private final StringBuilder scratch = new StringBuilder();
+        private final StringBuilder decoded = new StringBuilder();
+        private final Slice slice = new Slice();
+
+        private int size;
+        private int[] parent = new int[256];
+        private int[] tag = new int[256];
+        private int[] end = new int[256];
+        private int[] attributeStart = new int[257];
+        private int[] textStart = new int[256];
+        private int[] textEnd = new int[256];
+
+        private int attributeCount;
+        private int[] attributeNames = new int[256];
+        private int[] valueStart = new int[256]; // Raw value ranges, interned once the element is kept
+        private int[] valueEnd = new int[256];
+
+        private char[] text = new char[1024];
+        private int textLength;
+
+        private int[] open = new int[64]; // Stack of open elements, the root at the bottom
+        private int depth;
+
+        // Scan state, only used with a filter
+        private int elementsSeen;
+        private int[] documentOrder;
+        private int[] documentEnd;
+        private boolean[] matched;
+        private boolean[] keptBelow;
+        private boolean idMatched;
+        private char[] needle;
+        private IntList occurrences;
+        private Counter counts;
+        private int[] countedNames;
+
+        Builder(String html, Filter filter) {
+            this.html = html;
+            this.filter = filter;
+            if (filter != null) {
+                documentOrder = new int[256];
+                documentEnd = new int[256];
+                matched = new boolean[256];
+                keptBelow = new boolean[256];
+                counts = new Counter();
+                countedNames = new int[DomIndex.LOCATOR_ATTRIBUTES.length + 1];
+                countedNames[0] = pool.intern("id", 0, 2);
+                for (int i = 0; i < DomIndex.LOCATOR_ATTRIBUTES.length; i++) {
+                    String name = DomIndex.LOCATOR_ATTRIBUTES[i];
+                    countedNames[i + 1] = pool.intern(name, 0, name.length());
+                }
+                if (filter.text != null) {
+                    needle = needle(filter.text);
+                    occurrences = new IntList();
+                }
+            }
+        }
+
+        CompactDom parse() {
+            int rootTag = pool.intern("#root", 0, 5);
+            addNode(-1, rootTag);
+            open[depth++] = ROOT;
+
+            int length = html.length();
+            int position = 0;
+            while (position < length) {
+                int next = html.indexOf('<', position);
+                if (next < 0) {
+                    appendText(position, length);
+                    break;
+                }
+                if (next > position) {
+                    appendText(position, next);
+                }
+                position = markup(next);
+            }
+            while (depth > 0) {
+                close();
+            }
+            return new CompactDom(this);
+        }
+
+        /**
+         * Handle the markup starting at a '<' and return the position after it
+         */
+        private int markup(int at) {
+            int length = html.length();
+            if (html.startsWith("<!--", at)) {
+                int close = html.indexOf("-->", at + 4);
+                return close < 0 ? length : close + 3;
+            }
+            if (at + 1 < length && (html.charAt(at + 1) == '!' || html.charAt(at + 1) == '?')) {
+                int close = html.indexOf('>', at);
+                return close < 0 ? length : close + 1;
+            }
+            if (at + 1 < length && html.charAt(at + 1) == '/') {
+                int nameEnd = nameEnd(at + 2);
+                if (nameEnd > at + 2) {
+                    closeTag(internLowerCase(at + 2, nameEnd));
+                }
+                int close = html.indexOf('>', nameEnd);
+                return close < 0 ? length : close + 1;
+            }
+            if (at + 1 < length && Character.isLetter(html.charAt(at + 1))) {
+                return startTag(at);
+            }
+            appendText(at, at + 1); // A lone '<' is text
+            return at + 1;
+        }
+
+        private int startTag(int at) {
+            int nameEnd = nameEnd(at + 1);
+            int tagId = internLowerCase(at + 1, nameEnd);
+            String tagName = pool.values[tagId];
+
+            closeOmitted(tagName);
+            if (tagName.equals("tr") || TABLE_CELLS.contains(tagName)) {
+                if (currentTag().equals("table")) {
+                    openImplied("tbody");
+                }
+                if (TABLE_CELLS.contains(tagName) && TABLE_SECTIONS.contains(currentTag())) {
+                    openImplied("tr");
+                }
+            }
+            if (BLOCK_TAGS.contains(tagName)) {
+                separateWords();
+            }
+
+            int node = addNode(open[depth - 1], tagId);
+            int position = attributes(nameEnd);
+            if (filter != null) {
+                inspect(node, tagName);
+            }
+            boolean selfClosing = position > 0 && html.charAt(position - 1) == '/';
+            int length = html.length();
+            int close = position < length ? position + 1 : length; // Past '>'
+
+            push(node);
+            if (VOID_TAGS.contains(tagName) || selfClosing) {
+                close();
+                return close;
+            }
+            if (RAW_TEXT_TAGS.contains(tagName) || ESCAPABLE_TEXT_TAGS.contains(tagName)) {
+                int bodyEnd = indexOfEndTag(close, tagName);
+                if (ESCAPABLE_TEXT_TAGS.contains(tagName)) {
+                    appendText(close, bodyEnd);
+                }
+                close();
+                int after = html.indexOf('>', bodyEnd);
+                return bodyEnd >= length || after < 0 ? length : after + 1;
+            }
+            return close;
+        }
+
+        /**
+         * Close the open elements whose end tag may be omitted before this start tag
+         */
+        private void closeOmitted(String tagName) {
+            if (tagName.equals("li")) {
+                closeTo(openLevel("li", "li", "ul", "ol"));
+            } else if (tagName.equals("dt") || tagName.equals("dd")) {
+                closeTo(openLevel("dt", "dd", "dl", "dl"));
+            } else if (tagName.equals("option") || tagName.equals("optgroup")) {
+                if (currentTag().equals("option")) {
+                    close();
+                }
+                if (tagName.equals("optgroup") && currentTag().equals("optgroup")) {
+                    close();
+                }
+            } else if (tagName.equals("tr")) {
+                closeTo(tableLevel("tr", "tr"));
+            } else if (TABLE_CELLS.contains(tagName)) {
+                closeTo(tableLevel("td", "th"));
+            } else if (TABLE_SECTIONS.contains(tagName)) {
+                closeTo(tableLevel("tbody", "thead", "tfoot"));
+            }
+            if (CLOSES_P.contains(tagName)) {
+                closeTo(openLevel("p", "p", "button", "button"));
+            }
+        }
+
+        private String currentTag() {
+            return pool.values[tag[open[depth - 1]]];
+        }
+
+        /**
+         * Stack level of the innermost open element named first or second, 0 if there
+         * is none or a scope boundary (or one of the extra boundaries) comes first
+         */
+        private int openLevel(String first, String second, String boundary, String otherBoundary) {
+            for (int level = depth - 1; level > 0; level--) {
+                String name = pool.values[tag[open[level]]];
+                if (name.equals(first) || name.equals(second)) {
+                    return level;
+                }
+                if (SCOPE_BOUNDARIES.contains(name) || name.equals(boundary) || name.equals(otherBoundary)) {
+                    return 0;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Stack level of the innermost open element with one of the tags inside the current table, 0 if none
+         */
+        private int tableLevel(String... tags) {
+            for (int level = depth - 1; level > 0; level--) {
+                String name = pool.values[tag[open[level]]];
+                for (String candidate : tags) {
+                    if (name.equals(candidate)) {
+                        return level;
+                    }
+                }
+                if (name.equals("table")) {
+                    return 0;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Close the open element at the level and everything inside it; nothing for level 0
+         */
+        private void closeTo(int level) {
+            while (level > 0 && depth > level) {
+                close();
+            }
+        }
+
+        /**
+         * Open an element without attributes whose start tag the page omitted
+         */
+        private void openImplied(String tagName) {
+            if (BLOCK_TAGS.contains(tagName)) {
+                separateWords();
+            }
+            int node = addNode(open[depth - 1], pool.intern(tagName, 0, tagName.length()));
+            if (filter != null) {
+                inspect(node, tagName);
+            }
+            push(node);
+        }
+
+        /**
+         * Read attributes up to the closing '>', returning its position
+         */
+        private int attributes(int position) {
+            int length = html.length();
+            while (position < length) {
+                char c = html.charAt(position);
+                if (c == '>') {
+                    return position;
+                }
+                if (isWhitespace(c) || c == '/') {
+                    position++;
+                    continue;
+                }
+
+                int nameStart = position;
+                while (position < length && !isWhitespace(html.charAt(position))
+                        && "=>/".indexOf(html.charAt(position)) < 0) {
+                    position++;
+                }
+                int nameId = internLowerCase(nameStart, position);
+                while (position < length && isWhitespace(html.charAt(position))) {
+                    position++;
+                }
+
+                int valueStart;
+                int valueEnd;
+                if (position < length && html.charAt(position) == '=') {
+                    position++;
+                    while (position < length && isWhitespace(html.charAt(position))) {
+                        position++;
+                    }
+                    if (position < length && (html.charAt(position) == '"' || html.charAt(position) == '\'')) {
+                        char quote = html.charAt(position);
+                        valueStart = position + 1;
+                        valueEnd = html.indexOf(quote, valueStart);
+                        if (valueEnd < 0) {
+                            valueEnd = length;
+                        }
+                        position = Math.min(length, valueEnd + 1);
+                    } else {
+                        valueStart = position;
+                        while (position < length && !isWhitespace(html.charAt(position)) && html.charAt(position) != '>') {
+                            position++;
+                        }
+                        valueEnd = position;
+                    }
+                } else {
+                    valueStart = 0;
+                    valueEnd = 0;
+                }
+                addAttribute(nameId, valueStart, valueEnd);
+            }
+            return length;
+        }
+
+        private int nameEnd(int position) {
+            int length = html.length();
+            while (position < length) {
+                char c = html.charAt(position);
+                if (isWhitespace(c) || c == '>' || c == '/') {
+                    break;
+                }
+                position++;
+            }
+            return position;
+        }
+
+        /**
+         * Start of the end tag of a raw text element, or the end of input
+         */
+        private int indexOfEndTag(int from, String tagName) {
+            int length = html.length();
+            for (int at = html.indexOf("</", from); at >= 0; at = html.indexOf("</", at + 2)) {
+                if (html.regionMatches(true, at + 2, tagName, 0, tagName.length())) {
+                    return at;
+                }
+            }
+            return length;
+        }
+
+        private int addNode(int parentNode, int tagId) {
+            if (size == parent.length) {
+                int capacity = size * 2;
+                parent = Arrays.copyOf(parent, capacity);
+                tag = Arrays.copyOf(tag, capacity);
+                end = Arrays.copyOf(end, capacity);
+                attributeStart = Arrays.copyOf(attributeStart, capacity + 1);
+                textStart = Arrays.copyOf(textStart, capacity);
+                textEnd = Arrays.copyOf(textEnd, capacity);
+                if (filter != null) {
+                    documentOrder = Arrays.copyOf(documentOrder, capacity);
+                    documentEnd = Arrays.copyOf(documentEnd, capacity);
+                    matched = Arrays.copyOf(matched, capacity);
+                    keptBelow = Arrays.copyOf(keptBelow, capacity);
+                }
+            }
+            int node = size++;
+            parent[node] = parentNode;
+            tag[node] = tagId;
+            attributeStart[node] = attributeCount;
+            textStart[node] = textLength;
+            if (filter != null) {
+                documentOrder[node] = node == ROOT ? ROOT : ++elementsSeen;
+                matched[node] = false;
+                keptBelow[node] = false;
+            }
+            return node;
+        }
+
+        /**
+         * Check a new element against the attribute and tag constraints, and
+         * count its locator attribute values for the whole page
+         */
+        private void inspect(int node, String tagName) {
+            boolean match = tagName.equals(filter.tagName);
+            for (int i = attributeStart[node]; i < attributeCount; i++) {
+                String name = pool.values[attributeNames[i]];
+                if (valueStart[i] == valueEnd[i]) {
+                    continue;
+                }
+                CharSequence value = value(i);
+                if (filter.id != null && !idMatched && name.equals("id") && contentEquals(value, filter.id)) {
+                    idMatched = true; // Only the first element with the id, like getElementById
+                    match = true;
+                } else if (filter.className != null && name.equals("class") && containsClass(value, filter.className)) {
+                    match = true;
+                } else if (filter.name != null && name.equals("name") && equalsTrimmedIgnoreCase(value, filter.name.trim())) {
+                    match = true;
+                }
+                for (int counted : countedNames) {
+                    if (counted == attributeNames[i]) {
+                        long valueHash = hash(value, 0, value.length());
+                        counts.increment(attributeKey(tag[node], counted, valueHash));
+                        counts.increment(attributeKey(-1, counted, valueHash));
+                        break;
+                    }
+                }
+            }
+            matched[node] = match;
+        }
+
+        /**
+         * Decide whether a closing element stays: it matches, or something below it does.
+         * Everything after a dropped element is inside it, so dropping is truncating.
+         */
+        private void prune(int node) {
+            int from = textStart[node];
+            int to = textEnd[node];
+            if (to - from <= XPathGenerator.MAX_TEXT_LENGTH + 2) {
+                // Longer texts are never used in locators, so they need no counts
+                while (from < to && text[from] == ' ') {
+                    from++;
+                }
+                while (to > from && text[to - 1] == ' ') {
+                    to--;
+                }
+                if (to > from) {
+                    counts.increment(textKey(tag[node], hash(slice.of(text, from, to), 0, to - from)));
+                }
+            }
+
+            boolean keep = matched[node] || keptBelow[node] || containsNeedle(node);
+            if (keep) {
+                keptBelow[parent[node]] = true;
+            } else {
+                size = node;
+                attributeCount = attributeStart[node];
+            }
+        }
+
+        private boolean containsNeedle(int node) {
+            if (needle == null || occurrences.size() == 0) {
+                return false;
+            }
+            int[] starts = occurrences.values;
+            int first = Arrays.binarySearch(starts, 0, occurrences.size(), textStart[node]);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            return first < occurrences.size() && starts[first] + needle.length <= textEnd[node];
+        }
+
+        /**
+         * Attribute value with character references decoded, valid until the next call
+         */
+        private CharSequence value(int attribute) {
+            int start = valueStart[attribute];
+            int end = valueEnd[attribute];
+            if (!containsAmpersand(start, end)) {
+                return slice.of(html, start, end);
+            }
+            decoded.setLength(0);
+            for (int i = start; i < end; i++) {
+                char c = html.charAt(i);
+                int consumed = c == '&' ? decodeReference(i, end, true) : 0;
+                if (consumed > 0) {
+                    decoded.append(scratch);
+                    i += consumed - 1;
+                } else {
+                    decoded.append(c);
+                }
+            }
+            return decoded;
+        }
+
+        private boolean containsAmpersand(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (html.charAt(i) == '&') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Pool ids of the values of the attributes that survived
+         */
+        int[] internValues() {
+            int[] values = new int[attributeCount];
+            for (int i = 0; i < attributeCount; i++) {
+                CharSequence value = value(i);
+                values[i] = pool.intern(value, 0, value.length());
+            }
+            return values;
+        }
+
+        private void addAttribute(int nameId, int start, int end) {
+            for (int i = attributeStart[size - 1]; i < attributeCount; i++) {
+                if (attributeNames[i] == nameId) {
+                    return; // The first of duplicate attributes wins, as in browsers
+                }
+            }
+            if (attributeCount == attributeNames.length) {
+                attributeNames = Arrays.copyOf(attributeNames, attributeCount * 2);
+                valueStart = Arrays.copyOf(valueStart, attributeCount * 2);
+                valueEnd = Arrays.copyOf(valueEnd, attributeCount * 2);
+            }
+            attributeNames[attributeCount] = nameId;
+            valueStart[attributeCount] = start;
+            valueEnd[attributeCount] = end;
+            attributeCount++;
+        }
+
+        private void push(int node) {
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+            }
+            open[depth++] = node;
+        }
+
+        /**
+         * Close the innermost open element
+         */
+        private void close() {
+            int node = open[--depth];
+            end[node] = size;
+            textEnd[node] = textLength;
+            boolean block = node != ROOT && BLOCK_TAGS.contains(pool.values[tag[node]]);
+            if (filter != null && node != ROOT) {
+                documentEnd[node] = elementsSeen + 1;
+                prune(node);
+            }
+            if (block) {
+                separateWords();
+            }
+        }
+
+        /**
+         * Close the innermost open element with the tag and everything inside it;
+         * an end tag without a matching open element is ignored, except that a
+         * stray {@code </p>} is an empty p as in browsers
+         */
+        private void closeTag(int tagId) {
+            for (int level = depth - 1; level > 0; level--) {
+                if (tag[open[level]] == tagId) {
+                    while (depth > level) {
+                        close();
+                    }
+                    return;
+                }
+            }
+            if (pool.values[tagId].equals("p")) {
+                openImplied("p");
+                close();
+            }
+        }
+
+        private void separateWords() {
+            if (textLength > 0 && text[textLength - 1] != ' ') {
+                appendChar(' ');
+            }
+        }
+
+        /**
+         * Append decoded text with whitespace runs collapsed to one space
+         */
+        private void appendText(int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = html.charAt(i);
+                if (c == '&') {
+                    int consumed = decodeReference(i, end, false);
+                    if (consumed > 0) {
+                        for (int j = 0; j < scratch.length(); j++) {
+                            appendCollapsed(scratch.charAt(j));
+                        }
+                        i += consumed - 1;
+                        continue;
+                    }
+                }
+                appendCollapsed(c);
+            }
+        }
+
+        private void appendCollapsed(char c) {
+            if (isWhitespace(c)) {
+                if (textLength > 0 && text[textLength - 1] != ' ') {
+                    appendChar(' ');
+                }
+            } else {
+                appendChar(c);
+            }
+        }
+
+        private void appendChar(char c) {
+            if (textLength == text.length) {
+                text = Arrays.copyOf(text, textLength * 2);
+            }
+            text[textLength++] = c;
+            if (needle != null && Character.toLowerCase(c) == needle[needle.length - 1] && textLength >= needle.length) {
+                int start = textLength - needle.length;
+                int i = 0;
+                while (i < needle.length && Character.toLowerCase(text[start + i]) == needle[i]) {
+                    i++;
+                }
+                if (i == needle.length) {
+                    occurrences.add(start);
+                }
+            }
+        }
+
+        private int internLowerCase(int start, int end) {
+            boolean lowerCase = true;
+            for (int i = start; i < end && lowerCase; i++) {
+                lowerCase = !Character.isUpperCase(html.charAt(i));
+            }
+            if (lowerCase) {
+                return pool.intern(html, start, end);
+            }
+            scratch.setLength(0);
+            for (int i = start; i < end; i++) {
+                scratch.append(Character.toLowerCase(html.charAt(i)));
+            }
+            return pool.intern(scratch, 0, scratch.length());
+        }
+
+        /**
+         * Decode the character reference at the position into scratch and return its
+         * length, or 0 if it is not a reference. Legacy names such as {@code &eacute}
+         * are also decoded without the semicolon, except in an attribute value when
+         * followed by a letter, digit or '=' (a query string such as {@code ?a=1&copy=2}).
+         */
+        private int decodeReference(int at, int limit, boolean attribute) {
+            if (at + 1 < limit && html.charAt(at + 1) == '#') {
+                return decodeNumericReference(at, limit);
+            }
+            int nameEnd = at + 1;
+            while (nameEnd < limit && nameEnd - at <= Entities.MAX_NAME_LENGTH
+                    && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            if (nameEnd == at + 1) {
+                return 0;
+            }
+            scratch.setLength(0);
+            if (nameEnd < limit && html.charAt(nameEnd) == ';') {
+                String value = Entities.VALUES.get(html.substring(at + 1, nameEnd + 1));
+                if (value != null) {
+                    scratch.append(value);
+                    return nameEnd - at + 1;
+                }
+            }
+            for (int end = Math.min(nameEnd, at + 1 + Entities.MAX_LEGACY_NAME_LENGTH); end > at + 1; end--) {
+                String value = Entities.VALUES.get(html.substring(at + 1, end));
+                if (value != null) {
+                    if (attribute && end < limit && (Character.isLetterOrDigit(html.charAt(end)) || html.charAt(end) == '=')) {
+                        return 0;
+                    }
+                    scratch.append(value);
+                    return end - at;
+                }
+            }
+            return 0;
+        }
+
+        private int decodeNumericReference(int at, int limit) {
+            int semicolon = at + 2;
+            while (semicolon < limit && semicolon - at <= 10 && html.charAt(semicolon) != ';') {
+                semicolon++;
+            }
+            if (semicolon >= limit || html.charAt(semicolon) != ';') {
+                return 0;
+            }
+            scratch.setLength(0);
+            String name = html.substring(at + 1, semicolon);
+            try {
+                int codePoint = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X')
+                    ? Integer.parseInt(name.substring(2), 16)
+                    : Integer.parseInt(name.substring(1));
+                scratch.appendCodePoint(codePoint);
+            } catch (IllegalArgumentException e) {
+                return 0;
+            }
+            return semicolon - at + 1;
+        }
+    }
+}
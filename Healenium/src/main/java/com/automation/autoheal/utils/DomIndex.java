@@ -0,0 +1,120 @@
+package com.automation.autoheal.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory index over a parsed page used to check that a generated locator
+ * is unique without asking the browser.
+ *
+ * Over a pruned DOM from {@link CompactDom#scan} the counts come from the
+ * hashes the scan took of the whole page, so they still cover elements that
+ * were dropped.
+ */
+public class DomIndex {
+
+    /**
+     * Attributes worth using in a locator, most stable first after id
+     */
+    public static final String[] LOCATOR_ATTRIBUTES = {
+        "data-testid", "data-test-id", "data-test", "data-qa", "data-cy",
+        "name", "aria-label", "placeholder", "title", "alt"
+    };
+
+    private static final String ANY_TAG = "*";
+    private static final int ANY_TAG_ID = -1;
+
+    private final CompactDom dom;
+    private final CompactDom.Counter counts; // Attribute counts, and text counts too when pruned
+    private final Map<String, Map<String, Integer>> textCountsByTag = new HashMap<>();
+
+    public DomIndex(CompactDom dom) {
+        this.dom = dom;
+        if (dom.isPruned()) {
+            counts = dom.uniquenessCounts();
+            return;
+        }
+        counts = new CompactDom.Counter();
+        int[] indexed = new int[LOCATOR_ATTRIBUTES.length + 1];
+        indexed[0] = dom.stringId("id");
+        for (int i = 0; i < LOCATOR_ATTRIBUTES.length; i++) {
+            indexed[i + 1] = dom.stringId(LOCATOR_ATTRIBUTES[i]);
+        }
+        int empty = dom.stringId("");
+
+        for (int node = CompactDom.ROOT + 1; node < dom.size(); node++) {
+            for (int attribute = dom.attributeStart(node); attribute < dom.attributeStart(node + 1); attribute++) {
+                int name = dom.attributeNameId(attribute);
+                int value = dom.attributeValueId(attribute);
+                if (value != empty && contains(indexed, name)) {
+                    counts.increment(key(dom.tagId(node), name, value));
+                    counts.increment(key(ANY_TAG_ID, name, value));
+                }
+            }
+        }
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id && id >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pool ids packed into one long: 21 bits each, the tag shifted by one so ANY_TAG_ID fits
+     */
+    private static long key(int tagId, int attributeId, int valueId) {
+        return ((long) (tagId + 1) << 42) | ((long) attributeId << 21) | valueId;
+    }
+
+    public CompactDom getDom() {
+        return dom;
+    }
+
+    /**
+     * Number of elements with the given attribute value on any tag
+     */
+    public int countAttribute(String attribute, String value) {
+        return countAttribute(ANY_TAG, attribute, value);
+    }
+
+    /**
+     * Number of elements of the given tag with the given attribute value
+     */
+    public int countAttribute(String tagName, String attribute, String value) {
+        int tagId = ANY_TAG.equals(tagName) ? ANY_TAG_ID : dom.stringId(tagName);
+        int attributeId = dom.stringId(attribute);
+        if (tagId == -1 && !ANY_TAG.equals(tagName) || attributeId < 0) {
+            return 0;
+        }
+        if (dom.isPruned()) {
+            long valueHash = CompactDom.hash(value, 0, value.length());
+            return counts.get(CompactDom.attributeKey(tagId, attributeId, valueHash));
+        }
+        int valueId = dom.stringId(value);
+        return valueId < 0 ? 0 : counts.get(key(tagId, attributeId, valueId));
+    }
+
+    /**
+     * Number of elements of the given tag whose normalized text equals the given text.
+     * Text is only indexed for a tag the first time it is asked for. A pruned DOM
+     * only has counts for texts a locator may use, up to XPathGenerator.MAX_TEXT_LENGTH.
+     */
+    public int countText(String tagName, String text) {
+        if (dom.isPruned()) {
+            int tagId = dom.stringId(tagName);
+            return tagId < 0 ? 0 : counts.get(CompactDom.textKey(tagId, CompactDom.hash(text, 0, text.length())));
+        }
+        Map<String, Integer> counts = textCountsByTag.computeIfAbsent(tagName, tag -> {
+            Map<String, Integer> byText = new HashMap<>();
+            for (int node : dom.elementsByTag(CompactDom.ROOT, tag)) {
+                byText.merge(dom.text(node), 1, Integer::sum);
+            }
+            return byText;
+        });
+        return counts.getOrDefault(text, 0);
+    }
+}
@@ -0,0 +1,230 @@
+package com.automation.autoheal.utils;
+
+import org.openqa.selenium.WebDriver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the page used for healing, including the contents of open
+ * shadow roots and same-origin frames.
+ *
+ * {@code getPageSource()} only returns the top document's light DOM, so
+ * elements inside web components and embedded frames could never be healed.
+ * The snapshot script serializes every reachable scope separately (script and
+ * style bodies are dropped, they are never healing targets) and marks the
+ * element hosting each nested scope, so healed locators can be qualified with
+ * the frames and shadow hosts needed to reach them. Scopes keep their HTML
+ * and are only parsed on demand: healing first scans them for candidates with
+ * {@link CompactDom#scan}, and a complete {@link CompactDom} is built only
+ * when a locator needs one.
+ */
+public class DomSnapshot {
+
+    /**
+     * Attribute the snapshot script puts on shadow hosts and frame elements,
+     * holding the id of the scope they contain
+     */
+    static final String SCOPE_ATTRIBUTE = "data-autoheal-scope";
+
+    static final String SNAPSHOT_SCRIPT =
+        "var scopes = [];" +
+        "var VOID = {area:1, base:1, br:1, col:1, embed:1, hr:1, img:1, input:1, link:1, meta:1, source:1, track:1, wbr:1};" +
+        "function text(s) { return s.replace(/&/g, '&amp;').replace(/</g, '&lt;').replace(/>/g, '&gt;'); }" +
+        "function attr(s) { return text(s).replace(/\"/g, '&quot;'); }" +
+        "function scope(root, kind, parent) {" +
+        "  var id = scopes.length, out = [];" +
+        "  scopes.push({id: id, parent: parent, kind: kind, html: ''});" +
+        "  var nodes = root.nodeType === 9 ? [root.documentElement] : root.childNodes;" +
+        "  for (var i = 0; i < nodes.length; i++) { write(nodes[i], out, id); }" +
+        "  scopes[id].html = out.join('');" +
+        "  return id;" +
+        "}" +
+        "function write(node, out, id) {" +
+        "  if (node.nodeType === 3) { out.push(text(node.nodeValue)); return; }" +
+        "  if (node.nodeType !== 1) { return; }" +
+        "  var tag = node.localName, nested = -1;" +
+        "  if (node.shadowRoot) { nested = scope(node.shadowRoot, 'shadow', id); }" +
+        "  if (tag === 'iframe' || tag === 'frame') {" +
+        "    try { var doc = node.contentDocument; if (doc && doc.documentElement) { nested = scope(doc, 'frame', id); } } catch (e) {}" +
+        "  }" +
+        "  out.push('<' + tag);" +
+        "  for (var a = 0; a < node.attributes.length; a++) {" +
+        "    out.push(' ' + node.attributes[a].name + '=\"' + attr(node.attributes[a].value) + '\"');" +
+        "  }" +
+        "  if (nested >= 0) { out.push(' " + SCOPE_ATTRIBUTE + "=\"' + nested + '\"'); }" +
+        "  if (VOID[tag]) { out.push('/>'); return; }" +
+        "  out.push('>');" +
+        "  if (tag !== 'script' && tag !== 'style' && tag !== 'template') {" +
+        "    for (var c = 0; c < node.childNodes.length; c++) { write(node.childNodes[c], out, id); }" +
+        "  }" +
+        "  out.push('</' + tag + '>');" +
+        "}" +
+        "scope(document, 'document', -1);" +
+        "return scopes;";
+
+    /**
+     * All scopes as a list of {id, parent, kind, html} records, null if the script cannot run
+     */
+    public static final CommandBatcher.Query<Object> SCOPES = CommandBatcher.script("(function() { " + SNAPSHOT_SCRIPT + " })()");
+
+    /**
+     * Kind of node tree a scope was serialized from
+     */
+    public enum Kind {
+        DOCUMENT,
+        FRAME,
+        SHADOW
+    }
+
+    /**
+     * One separately addressable node tree: the top document, a frame document or a shadow root
+     */
+    public static class Scope {
+
+        private final int id;
+        private final Kind kind;
+        private final String html;
+        private final Scope parent;
+        private CompactDom dom;
+        private DomIndex index;
+
+        Scope(int id, Kind kind, String html, Scope parent) {
+            this.id = id;
+            this.kind = kind;
+            this.html = html;
+            this.parent = parent;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getHtml() {
+            return html;
+        }
+
+        /**
+         * Complete DOM of this scope, parsed on first use
+         */
+        public CompactDom getDom() {
+            if (dom == null) {
+                // Shadow roots are fragments and parse as-is, so paths start at their top level
+                dom = CompactDom.parse(html);
+            }
+            return dom;
+        }
+
+        /**
+         * Candidates for the filter and their ancestors, without parsing the whole scope
+         */
+        public CompactDom scan(CompactDom.Filter filter) {
+            return CompactDom.scan(html, filter);
+        }
+
+        /**
+         * Enclosing scope, null for the top document
+         */
+        public Scope getParent() {
+            return parent;
+        }
+
+        /**
+         * Frame element or shadow host in the parent scope's DOM, -1 for the top document.
+         * The marker attribute stays in the DOM; locators are never built from it.
+         */
+        public int getHost() {
+            if (parent == null) {
+                return -1;
+            }
+            CompactDom parentDom = parent.getDom();
+            for (int host : parentDom.elementsWithAttribute(SCOPE_ATTRIBUTE)) {
+                if (parentDom.attr(host, SCOPE_ATTRIBUTE).equals(String.valueOf(id))) {
+                    return host;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Uniqueness index over this scope only, built on first use
+         */
+        public DomIndex getIndex() {
+            if (index == null) {
+                index = new DomIndex(getDom());
+            }
+            return index;
+        }
+    }
+
+    private final List<Scope> scopes;
+
+    private DomSnapshot(List<Scope> scopes) {
+        this.scopes = Collections.unmodifiableList(scopes);
+    }
+
+    /**
+     * Capture all reachable scopes of the driver's current browsing context,
+     * falling back to the plain page source when scripts are unavailable
+     */
+    public static DomSnapshot capture(WebDriver driver) {
+        return capture(new CommandBatcher(driver, false));
+    }
+
+    /**
+     * Capture all reachable scopes with the batcher's queries, so the
+     * snapshot follows driver.commandBatching like the healer's other reads
+     */
+    public static DomSnapshot capture(CommandBatcher batcher) {
+        return capture(batcher, batcher.execute(SCOPES));
+    }
+
+    /**
+     * Snapshot from a batch that included {@link #SCOPES}, so it can share a
+     * round trip with other reads; falls back to the page source if the
+     * script returned nothing
+     */
+    public static DomSnapshot capture(CommandBatcher batcher, CommandBatcher.Result reads) {
+        Object result = reads.get(SCOPES);
+        if (result instanceof List && !((List<?>) result).isEmpty()) {
+            return fromScopes((List<?>) result);
+        }
+        return fromPageSource(batcher.execute(CommandBatcher.PAGE_SOURCE).get(CommandBatcher.PAGE_SOURCE));
+    }
+
+    /**
+     * Snapshot of a single document without nested scopes
+     */
+    public static DomSnapshot fromPageSource(String pageSource) {
+        List<Scope> scopes = new ArrayList<>();
+        scopes.add(new Scope(0, Kind.DOCUMENT, pageSource, null));
+        return new DomSnapshot(scopes);
+    }
+
+    /**
+     * Build the snapshot from the records returned by the snapshot script
+     */
+    static DomSnapshot fromScopes(List<?> records) {
+        List<Scope> scopes = new ArrayList<>(records.size());
+        for (Object item : records) {
+            Map<?, ?> record = (Map<?, ?>) item;
+            int parentId = ((Number) record.get("parent")).intValue();
+            Kind kind = Kind.valueOf(String.valueOf(record.get("kind")).toUpperCase());
+            String html = String.valueOf(record.get("html"));
+            scopes.add(new Scope(scopes.size(), kind, html, parentId >= 0 ? scopes.get(parentId) : null));
+        }
+        return new DomSnapshot(scopes);
+    }
+
+    /**
+     * All scopes, the top document first
+     */
+    public List<Scope> getScopes() {
+        return scopes;
+    }
+
+    public Scope getRootScope() {
+        return scopes.get(0);
+    }
+}
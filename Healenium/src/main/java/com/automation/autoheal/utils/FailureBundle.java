@@ -0,0 +1,300 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * What the browser showed and did when a test failed, as one zip per failure:
+ * the DOM the healer sees (every open shadow root and same-origin frame as
+ * its own file), the browser console, navigation and resource timing, the
+ * last driver commands with their latency, and the exception with the healed
+ * locators in use.
+ *
+ * Capturing has to happen on the test's thread while the browser still shows
+ * the failure; compressing and writing do not, and go to a single background
+ * writer so a failing test is not slowed by disk I/O. Each part is cut at
+ * report.failureBundle.maxPartBytes, and a run writes at most maxBundles
+ * bundles and about maxTotalBytes, so a suite failing everywhere cannot fill
+ * the disk. A capture the writer has no room for is dropped, not waited for.
+ */
+public class FailureBundle {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailureBundle.class);
+
+    /**
+     * Navigation entry and the latest resource entries, as JSON
+     */
+    static final String TIMING_SCRIPT =
+        "var nav = performance.getEntriesByType('navigation')[0] || null;" +
+        "var res = performance.getEntriesByType('resource');" +
+        "return JSON.stringify({url: location.href, navigation: nav, resourceCount: res.length," +
+        " resources: res.slice(-200).map(function(r) {" +
+        "  return {name: r.name, type: r.initiatorType, start: Math.round(r.startTime)," +
+        "   duration: Math.round(r.duration), transferSize: r.transferSize};" +
+        " })}, null, 1);";
+
+    private static final int MAX_STACK_LENGTH = 64 * 1024;
+    private static final int WRITE_QUEUE = 4; // Captures waiting for the writer before further ones are dropped
+    private static final long AWAIT_SECONDS = 60;
+
+    private static volatile FailureBundle instance;
+
+    private final ThreadPoolExecutor writer = newWriter();
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().serializeNulls().create();
+    private final AtomicInteger counter = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private FailureBundle() {
+    }
+
+    public static FailureBundle getInstance() {
+        if (instance == null) {
+            synchronized (FailureBundle.class) {
+                if (instance == null) {
+                    instance = new FailureBundle();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * One daemon thread with a short queue; a full queue rejects instead of blocking the test
+     */
+    private static ThreadPoolExecutor newWriter() {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(WRITE_QUEUE), task -> {
+            Thread thread = new Thread(task, "autoheal-failure-bundle");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Capture the bundle of a failed test and queue it for writing
+     *
+     * @param driver the browser driver itself, so capturing does not show up as test commands
+     * @param commands last commands of the test's driver, may be null
+     * @param healedLocators healed locators in use, original to healed
+     * @return the zip the bundle is being written to, null if bundles are disabled or over their caps
+     */
+    public File capture(String testName, WebDriver driver, CommandLog commands, Map<String, String> healedLocators,
+                        Throwable error) {
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        if (!config.isFailureBundleEnabled()) {
+            return null;
+        }
+        int number = counter.incrementAndGet();
+        if (number > config.getFailureBundleMaxBundles() || bytes.get() >= config.getFailureBundleMaxTotalBytes()) {
+            skipped.incrementAndGet();
+            logger.info("No failure bundle for {}: the run reached its bundle limits", testName);
+            return null;
+        }
+
+        long maxPartBytes = config.getFailureBundleMaxPartBytes();
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+        parts.put("meta.json", meta(testName, driver, commands, healedLocators, error, maxPartBytes));
+        captureDom(driver, parts, maxPartBytes);
+        parts.put("console.log", cap(console(driver), maxPartBytes));
+        parts.put("timing.json", cap(timing(driver), maxPartBytes));
+        if (commands != null) {
+            parts.put("commands.json", cap(gson.toJson(commands.getEntries()), maxPartBytes));
+        }
+
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        File file = new File(config.getFailureBundleDirectory(),
+            safeName(testName) + "_" + timestamp + "_" + number + ".zip");
+        try {
+            pending.add(writer.submit(() -> write(file, parts)));
+        } catch (RejectedExecutionException e) {
+            skipped.incrementAndGet();
+            logger.warn("No failure bundle for {}: the writer is still busy with earlier failures", testName);
+            return null;
+        }
+        return file;
+    }
+
+    private byte[] meta(String testName, WebDriver driver, CommandLog commands, Map<String, String> healedLocators,
+                        Throwable error, long maxPartBytes) {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("test", testName);
+        meta.put("time", System.currentTimeMillis());
+        try {
+            meta.put("url", driver.getCurrentUrl());
+            meta.put("title", driver.getTitle());
+        } catch (RuntimeException e) {
+            meta.put("url", null); // The browser may be gone, the rest of the bundle still helps
+        }
+        if (error != null) {
+            StringWriter stack = new StringWriter();
+            error.printStackTrace(new PrintWriter(stack));
+            meta.put("error", error.getClass().getName());
+            meta.put("message", error.getMessage());
+            String trace = stack.toString();
+            meta.put("stackTrace", trace.length() > MAX_STACK_LENGTH ? trace.substring(0, MAX_STACK_LENGTH) : trace);
+        }
+        meta.put("healedLocators", healedLocators);
+        meta.put("commandsRecorded", commands == null ? 0 : commands.getTotal());
+        return cap(gson.toJson(meta), maxPartBytes);
+    }
+
+    /**
+     * The healer's view of the page; all scopes share one part budget
+     */
+    private void captureDom(WebDriver driver, Map<String, byte[]> parts, long maxPartBytes) {
+        try {
+            List<DomSnapshot.Scope> scopes = DomSnapshot.capture(driver).getScopes();
+            long remaining = maxPartBytes;
+            for (int i = 0; i < scopes.size() && remaining > 0; i++) {
+                DomSnapshot.Scope scope = scopes.get(i);
+                String name = i == 0 ? "dom.html" : "dom-scope-" + i + "-" + scope.getKind().name().toLowerCase() + ".html";
+                byte[] html = cap(scope.getHtml(), remaining);
+                parts.put(name, html);
+                remaining -= html.length;
+            }
+        } catch (RuntimeException e) {
+            parts.put("dom.html", cap("DOM not available: " + e.getMessage(), maxPartBytes));
+        }
+    }
+
+    private static String console(WebDriver driver) {
+        StringBuilder text = new StringBuilder();
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
+            for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+                text.append(format.format(new Date(entry.getTimestamp()))).append(' ')
+                    .append(entry.getLevel()).append(' ').append(entry.getMessage()).append('\n');
+            }
+        } catch (RuntimeException e) {
+            // Not every browser hands out its console (Firefox does not)
+            text.append("Browser console not available: ").append(e.getMessage()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String timing(WebDriver driver) {
+        if (!(driver instanceof JavascriptExecutor)) {
+            return "{}";
+        }
+        try {
+            return String.valueOf(((JavascriptExecutor) driver).executeScript(TIMING_SCRIPT));
+        } catch (RuntimeException e) {
+            return "{\"error\": " + new Gson().toJson(String.valueOf(e.getMessage())) + "}";
+        }
+    }
+
+    /**
+     * UTF-8 bytes of the text, cut to at most maxBytes with a note of what was left out
+     */
+    static byte[] cap(String text, long maxBytes) {
+        byte[] bytes = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxBytes) {
+            return bytes;
+        }
+        byte[] note = ("\n... truncated " + bytes.length + " bytes to " + maxBytes + "\n").getBytes(StandardCharsets.UTF_8);
+        int keep = (int) Math.max(0, maxBytes - note.length);
+        byte[] capped = Arrays.copyOf(bytes, keep + note.length);
+        System.arraycopy(note, 0, capped, keep, note.length);
+        return capped;
+    }
+
+    static String safeName(String testName) {
+        String name = testName == null ? "test" : testName.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.length() > 80 ? name.substring(0, 80) : name;
+    }
+
+    /**
+     * Compress the parts into the zip, complete or not at all
+     */
+    private void write(File file, Map<String, byte[]> parts) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (OutputStream out = Files.newOutputStream(temp.toPath());
+                 ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+                zip.setLevel(Deflater.BEST_COMPRESSION); // DOM and logs are repetitive text, and the writer is off the test's path
+                for (Map.Entry<String, byte[]> part : parts.entrySet()) {
+                    zip.putNextEntry(new ZipEntry(part.getKey()));
+                    zip.write(part.getValue());
+                    zip.closeEntry();
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            bytes.addAndGet(file.length());
+            written.incrementAndGet();
+            logger.info("Failure bundle written: {} ({} bytes)", file.getPath(), file.length());
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            temp.delete();
+            logger.warn("Could not write failure bundle {}: {}", file.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Wait for the queued bundles to be written, so they exist before the report is flushed
+     */
+    public void awaitWrites() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(AWAIT_SECONDS);
+        Future<?> write;
+        while ((write = pending.poll()) != null) {
+            try {
+                write.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("Failure bundles still being written after {} s", AWAIT_SECONDS);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // write() logs its own failures
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("written", written.get());
+        stats.put("skipped", skipped.get());
+        stats.put("failed", failed.get());
+        stats.put("bytes", bytes.get());
+        return stats;
+    }
+}
@@ -0,0 +1,289 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Heal-ahead: validates the XPath locators previously used on a page right
+ * after navigating to it, and heals broken ones in the background.
+ *
+ * Without it a broken locator is only noticed when a step looks it up, and
+ * the step pays for the implicit wait running out plus a DOM capture and the
+ * healing itself. Locators are remembered per URL template (ids in the path
+ * replaced, query and fragment dropped), shared by all drivers. After
+ * {@code get()} a single script checks every remembered locator and, if any
+ * are missing, returns the DOM snapshot with the answer; healing then runs on
+ * a background thread against that snapshot without further browser commands.
+ * When the step asks for a broken locator, one script confirms the page is
+ * still the validated one and the original is still absent before the
+ * healed locator is used, so a late-rendering element is never replaced.
+ */
+public class HealAhead {
+
+    /**
+     * Indexes of the given XPaths that match nothing, plus the DOM snapshot if any do
+     */
+    static final String VALIDATE_SCRIPT =
+        "var xpaths = arguments[0], broken = [];" +
+        "for (var i = 0; i < xpaths.length; i++) {" +
+        "  try {" +
+        "    if (!document.evaluate(xpaths[i], document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue) {" +
+        "      broken.push(i);" +
+        "    }" +
+        "  } catch (e) {}" + // Invalid XPath: fails the same way whether healed or not
+        "}" +
+        "return {url: window.location.href, broken: broken," +
+        " scopes: broken.length ? (function() { " + DomSnapshot.SNAPSHOT_SCRIPT + " })() : null};";
+
+    /**
+     * Current URL and whether the original and the healed XPath match anything
+     */
+    static final String RESOLVE_SCRIPT =
+        "function present(xpath) {" +
+        "  try { return !!document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue; }" +
+        "  catch (e) { return false; }" +
+        "}" +
+        "return [window.location.href, present(arguments[0]), arguments[1] ? present(arguments[1]) : true];";
+
+    private static final long HEAL_WAIT_MILLIS = 2000; // Longer than a snapshot heal takes, shorter than an implicit wait
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+        "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|(?=[^/]*\\d)[0-9a-fA-F]{16,}");
+
+    // XPaths looked up per URL template, shared by all drivers
+    private static final Map<String, Set<String>> history = new ConcurrentHashMap<>();
+
+    private static final ExecutorService healers = newHealerPool();
+
+    private final WebDriver driver;
+    private final XPathHealer healer;
+    private final AutoHealConfig config;
+
+    private volatile String template; // Template of the page locators are recorded for, null when unknown
+    private volatile String validatedUrl;
+    private final Map<String, CompletableFuture<By>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong validations = new AtomicLong();
+    private final AtomicLong brokenFound = new AtomicLong();
+    private final AtomicLong healedAhead = new AtomicLong();
+    private final AtomicLong used = new AtomicLong();
+
+    public HealAhead(WebDriver driver, XPathHealer healer, AutoHealConfig config) {
+        this.driver = driver;
+        this.healer = healer;
+        this.config = config;
+    }
+
+    /**
+     * URL without query, fragment and id-like path segments, e.g.
+     * https://shop/orders/1234?tab=2 becomes https://shop/orders/{id}
+     */
+    public static String urlTemplate(String url) {
+        String base = url;
+        int cut = indexOfAny(base, '?', '#');
+        if (cut >= 0) {
+            base = base.substring(0, cut);
+        }
+        int pathStart = base.indexOf("://");
+        pathStart = base.indexOf('/', pathStart < 0 ? 0 : pathStart + 3);
+        if (pathStart < 0) {
+            return base;
+        }
+
+        StringBuilder template = new StringBuilder(base.substring(0, pathStart));
+        for (String segment : base.substring(pathStart + 1).split("/", -1)) {
+            template.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return template.toString();
+    }
+
+    /**
+     * Daemon threads, so pending heals never keep the JVM alive
+     */
+    private static ExecutorService newHealerPool() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "autoheal-heal-ahead-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), factory);
+    }
+
+    private static int indexOfAny(String text, char first, char second) {
+        int a = text.indexOf(first);
+        int b = text.indexOf(second);
+        return a < 0 ? b : b < 0 ? a : Math.min(a, b);
+    }
+
+    /**
+     * Remember an XPath used on the page last navigated to
+     */
+    public void record(By locator) {
+        String current = template;
+        if (current == null || !isPlainXPath(locator)) {
+            return;
+        }
+        Set<String> locators = history.computeIfAbsent(current, key -> ConcurrentHashMap.newKeySet());
+        if (locators.size() < config.getHealAheadMaxLocatorsPerPage()) {
+            locators.add(xPathOf(locator));
+        }
+    }
+
+    /**
+     * URL template of the page last navigated to with get(), null after the context changed
+     */
+    public String getPageTemplate() {
+        return template;
+    }
+
+    /**
+     * The test switched frames or navigated without get(): stop recording until the next get()
+     */
+    public void contextChanged() {
+        template = null;
+    }
+
+    /**
+     * Validate the page's known locators after get() and start healing the broken ones
+     */
+    public void afterNavigation(String url) {
+        pending.clear();
+        validatedUrl = null;
+        template = urlTemplate(url);
+        Set<String> known = history.get(template);
+        if (known == null || known.isEmpty() || !(driver instanceof JavascriptExecutor)) {
+            return;
+        }
+
+        List<String> xpaths = new ArrayList<>(known);
+        Object result;
+        try {
+            result = ((JavascriptExecutor) driver).executeScript(VALIDATE_SCRIPT, xpaths);
+        } catch (RuntimeException e) {
+            return; // Heal-ahead is an optimization, healing on lookup still works
+        }
+        validations.incrementAndGet();
+        if (!(result instanceof Map)) {
+            return;
+        }
+        Map<?, ?> answer = (Map<?, ?>) result;
+        Object brokenIndexes = answer.get("broken");
+        Object scopes = answer.get("scopes");
+        if (!(brokenIndexes instanceof List) || ((List<?>) brokenIndexes).isEmpty() || !(scopes instanceof List)) {
+            return;
+        }
+
+        validatedUrl = String.valueOf(answer.get("url"));
+        Map<String, CompletableFuture<By>> heals = new LinkedHashMap<>();
+        for (Object index : (List<?>) brokenIndexes) {
+            heals.put(xpaths.get(((Number) index).intValue()), new CompletableFuture<>());
+        }
+        brokenFound.addAndGet(heals.size());
+        pending.putAll(heals);
+
+        // One task per page: the snapshot's indexes are built lazily and are not thread-safe
+        healers.execute(() -> {
+            DomSnapshot snapshot;
+            try {
+                snapshot = DomSnapshot.fromScopes((List<?>) scopes);
+            } catch (RuntimeException e) {
+                heals.values().forEach(heal -> heal.complete(null));
+                return;
+            }
+            for (Map.Entry<String, CompletableFuture<By>> heal : heals.entrySet()) {
+                By healed = null;
+                try {
+                    healed = healer.healFromSnapshot(heal.getKey(), snapshot);
+                } catch (RuntimeException e) {
+                    // Left to healing on lookup
+                }
+                if (healed != null) {
+                    healedAhead.incrementAndGet();
+                }
+                heal.getValue().complete(healed);
+            }
+        });
+    }
+
+    /**
+     * Locator healed ahead for a locator found broken on the current page, or
+     * null if the original should be looked up as usual
+     */
+    public By healedFor(By locator) {
+        CompletableFuture<By> heal = isPlainXPath(locator) ? pending.get(xPathOf(locator)) : null;
+        if (heal == null) {
+            return null;
+        }
+
+        By healed;
+        try {
+            healed = heal.get(HEAL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+        if (healed == null) {
+            return null;
+        }
+
+        Object state;
+        try {
+            state = ((JavascriptExecutor) driver).executeScript(RESOLVE_SCRIPT,
+                xPathOf(locator), isPlainXPath(healed) ? xPathOf(healed) : null);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (!(state instanceof List) || ((List<?>) state).size() != 3) {
+            return null;
+        }
+        List<?> values = (List<?>) state;
+        if (!String.valueOf(values.get(0)).equals(validatedUrl)) {
+            pending.clear(); // The test navigated away, the heals belong to another page
+            return null;
+        }
+        if (Boolean.TRUE.equals(values.get(1))) {
+            pending.remove(xPathOf(locator)); // Rendered after validation, not broken after all
+            return null;
+        }
+        if (!Boolean.TRUE.equals(values.get(2))) {
+            return null;
+        }
+        used.incrementAndGet();
+        return healed;
+    }
+
+    /**
+     * Heal-ahead activity of this driver
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("validations", validations.get());
+        stats.put("brokenFound", brokenFound.get());
+        stats.put("healedAhead", healedAhead.get());
+        stats.put("used", used.get());
+        return stats;
+    }
+
+    private static boolean isPlainXPath(By locator) {
+        return locator != null && !(locator instanceof ByScopedXPath) && locator.toString().startsWith("By.xpath: ");
+    }
+
+    private static String xPathOf(By locator) {
+        return locator.toString().substring("By.xpath: ".length());
+    }
+}
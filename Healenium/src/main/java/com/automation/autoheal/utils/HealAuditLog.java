@@ -0,0 +1,193 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openqa.selenium.By;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Structured heal log: one JSON object per heal attempt, appended while the run goes.
+ *
+ * Healed locators otherwise only live in the in-memory cache and free-text
+ * report lines, so the same broken locators are healed again in every run.
+ * Each entry holds the original and healed locator, score, matched
+ * attributes, engine, the outcome and the best candidates, URL template,
+ * timings, test name and the first stack frame outside the framework, which
+ * is usually the page object declaring the locator. Every JVM writes its own file named after host, process and
+ * start time, so parallel forks and CI shards can share one directory.
+ * Lines are flushed as they are written; a killed run loses at most the line
+ * in progress. {@link HealAuditReport} aggregates the files after the run.
+ * Writes are serialized with a lock rather than {@code synchronized}, which
+ * would pin the carrier of a virtual thread blocked on the file.
+ */
+public class HealAuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealAuditLog.class);
+
+    // Frames in these packages are the framework or libraries, not the code that owns the locator
+    private static final String[] INTERNAL_PACKAGES = {
+        "com.automation.autoheal.core.", "com.automation.autoheal.utils.", "com.automation.autoheal.config.",
+        "com.automation.autoheal.factory.", "com.automation.autoheal.reporting.", "com.automation.autoheal.listeners.",
+        "com.automation.autoheal.runner.", "org.openqa.selenium.", "org.testng.", "java.", "javax.", "sun.",
+        "jdk.", "com.sun."
+    };
+
+    private static volatile HealAuditLog instance;
+
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final ReentrantLock lock = new ReentrantLock();
+    private BufferedWriter writer;
+    private File file;
+    private boolean failed; // Writing failed once, the log stays off for the rest of the run
+
+    private HealAuditLog() {
+    }
+
+    public static HealAuditLog getInstance() {
+        if (instance == null) {
+            synchronized (HealAuditLog.class) {
+                if (instance == null) {
+                    instance = new HealAuditLog();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Append one heal attempt
+     *
+     * @param result what the healer proposed or why it refused, with the best candidates
+     * @param healed whether the healed locator found the element
+     * @param attempt 1 for the first attempt of a lookup, 0 for a locator healed ahead
+     * @param healNanos time spent finding the replacement
+     * @param totalNanos heal plus the lookup with the healed locator
+     */
+    public void record(String test, String urlTemplate, By original, HealResult result, boolean healed,
+                       int attempt, long healNanos, long totalNanos) {
+        if (!AutoHealConfig.getInstance().isHealAuditEnabled()) {
+            return;
+        }
+        XPathHealer.Match match = result.getMatch();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", System.currentTimeMillis());
+        entry.put("test", test);
+        entry.put("page", urlTemplate);
+        entry.put("original", original.toString());
+        entry.put("healed", match == null ? null : match.getLocator().toString());
+        entry.put("success", healed);
+        entry.put("status", result.getStatus().name());
+        entry.put("score", match == null ? 0 : match.getScore());
+        entry.put("strategy", match == null ? null : match.getStrategy());
+        entry.put("engine", match == null ? null : match.getEngine());
+        List<Map<String, Object>> candidates = new ArrayList<>();
+        for (HealResult.Candidate candidate : result.getCandidates()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("locator", candidate.getLocator() == null ? null : candidate.getLocator().toString());
+            values.put("score", candidate.getScore());
+            values.put("confidence", Math.round(candidate.getConfidence() * 1000) / 1000.0);
+            values.put("strategy", candidate.getStrategy());
+            candidates.add(values);
+        }
+        entry.put("candidates", candidates);
+        entry.put("attempt", attempt);
+        entry.put("healMs", millis(healNanos));
+        entry.put("totalMs", millis(totalNanos));
+        StackTraceElement caller = caller();
+        if (caller != null) {
+            entry.put("sourceClass", caller.getClassName());
+            entry.put("sourceFile", caller.getFileName());
+            entry.put("sourceLine", caller.getLineNumber());
+        }
+        write(gson.toJson(entry));
+    }
+
+    /**
+     * File this JVM appends to, null until the first heal is recorded
+     */
+    public File getFile() {
+        lock.lock();
+        try {
+            return file;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(String line) {
+        lock.lock();
+        try {
+            writeLocked(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLocked(String line) {
+        if (failed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                File directory = new File(AutoHealConfig.getInstance().getHealAuditDirectory());
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Cannot create " + directory);
+                }
+                file = new File(directory, "heals-" + processName() + "-" + System.currentTimeMillis() + ".jsonl");
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            }
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            failed = true;
+            logger.warn("Heal audit log disabled, cannot write it: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * First frame of the current stack outside the framework, Selenium and the JDK
+     */
+    private static StackTraceElement caller() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            if (!isInternal(frame.getClassName())) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isInternal(String className) {
+        for (String prefix : INTERNAL_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * pid@host as reported by the JVM, made safe for a file name
+     */
+    private static String processName() {
+        return ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10000.0) / 100.0;
+    }
+}
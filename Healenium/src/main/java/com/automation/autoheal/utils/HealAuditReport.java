@@ -0,0 +1,311 @@
+package com.automation.autoheal.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Post-run aggregation of {@link HealAuditLog} files.
+ *
+ * Reads every heal log given, typically the heal-audit directories of all
+ * shards of a run copied into one place, and groups the entries by the
+ * source location and original locator. Groups are ranked by the time their
+ * heals cost in total. Each group suggests a replacement: the healed locator
+ * that found the element most often, with the share of successful heals
+ * that agreed on it. The JSON report also lists the suggestions per source
+ * file, so page objects can be patched one file at a time. Lines that are
+ * not valid JSON, like the last line of a killed run, are skipped.
+ *
+ * Usage: HealAuditReport [--top 20] [--min-occurrences 2] [--out report.json] file-or-directory...
+ */
+public class HealAuditReport {
+
+    private final Map<String, Group> groups = new HashMap<>();
+    private int files;
+    private long entries;
+    private long skippedLines;
+
+    /**
+     * Add a heal log file, or every .jsonl file below a directory
+     */
+    public void add(File path) throws IOException {
+        File[] children = path.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory() || child.getName().endsWith(".jsonl")) {
+                    add(child);
+                }
+            }
+            return;
+        }
+
+        files++;
+        try (BufferedReader reader = Files.newBufferedReader(path.toPath(), StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    add(JsonParser.parseString(line).getAsJsonObject());
+                    entries++;
+                } catch (RuntimeException e) {
+                    skippedLines++; // Truncated or not a heal entry
+                }
+            }
+        }
+    }
+
+    private void add(JsonObject entry) {
+        String original = string(entry, "original");
+        if (original == null) {
+            throw new IllegalStateException("Entry without original locator");
+        }
+        String sourceClass = string(entry, "sourceClass");
+        String sourceFile = string(entry, "sourceFile");
+        Group group = groups.computeIfAbsent(sourceClass + " " + original,
+            key -> new Group(original, sourceClass, sourceFile));
+
+        boolean success = entry.has("success") && entry.get("success").getAsBoolean();
+        group.occurrences++;
+        group.totalMs += number(entry, "totalMs");
+        if (success) {
+            group.successes++;
+            String healed = string(entry, "healed");
+            if (healed != null) {
+                group.replacements.merge(healed, 1, Integer::sum);
+            }
+        }
+        if (entry.has("sourceLine")) {
+            group.lines.add(entry.get("sourceLine").getAsInt());
+        }
+        addIfPresent(group.pages, string(entry, "page"));
+        addIfPresent(group.tests, string(entry, "test"));
+    }
+
+    /**
+     * Groups healed at least minOccurrences times, most expensive first
+     */
+    public List<Group> getRecurring(int minOccurrences) {
+        List<Group> recurring = new ArrayList<>();
+        for (Group group : groups.values()) {
+            if (group.occurrences >= minOccurrences) {
+                recurring.add(group);
+            }
+        }
+        recurring.sort((a, b) -> Double.compare(b.totalMs, a.totalMs));
+        return recurring;
+    }
+
+    /**
+     * Report of the top groups and, per source file, the replacements suggested for it
+     */
+    public Map<String, Object> toJson(int top, int minOccurrences) {
+        List<Group> recurring = getRecurring(minOccurrences);
+        List<Map<String, Object>> ranked = new ArrayList<>();
+        for (Group group : recurring.subList(0, Math.min(top, recurring.size()))) {
+            ranked.add(group.toJson());
+        }
+
+        Map<String, List<Map<String, Object>>> byFile = new TreeMap<>();
+        for (Group group : recurring) {
+            if (group.getSuggestedLocator() != null) {
+                String file = group.sourceFile == null ? "unknown" : group.sourceFile;
+                byFile.computeIfAbsent(file, key -> new ArrayList<>()).add(group.toJson());
+            }
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("files", files);
+        json.put("entries", entries);
+        json.put("skippedLines", skippedLines);
+        json.put("locators", groups.size());
+        json.put("recurring", recurring.size());
+        json.put("mostExpensive", ranked);
+        json.put("suggestionsByFile", byFile);
+        return json;
+    }
+
+    /**
+     * Plain text table of the top groups
+     */
+    public String toTable(int top, int minOccurrences) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-40s %6s %6s %10s %6s  %s%n",
+            "source", "heals", "healed", "total ms", "agree", "original -> suggested"));
+        List<Group> recurring = getRecurring(minOccurrences);
+        for (Group group : recurring.subList(0, Math.min(top, recurring.size()))) {
+            table.append(String.format("%-40s %6d %6d %10.1f %5.0f%%  %s -> %s%n",
+                group.getSource(), group.occurrences, group.successes, group.totalMs,
+                group.getAgreement() * 100, group.original, group.getSuggestedLocator()));
+        }
+        return table.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                inputs.add(new File(args[i]));
+            } else if (i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("Usage: HealAuditReport [--top 20] [--min-occurrences 2] [--out report.json] file-or-directory...");
+        }
+        int top = Integer.parseInt(options.getOrDefault("top", "20"));
+        int minOccurrences = Integer.parseInt(options.getOrDefault("min-occurrences", "2"));
+
+        HealAuditReport report = new HealAuditReport();
+        for (File input : inputs) {
+            report.add(input);
+        }
+        System.out.println("Heal audit: " + report.entries + " heals from " + report.files + " files, "
+            + report.skippedLines + " unreadable lines skipped");
+        System.out.print(report.toTable(top, minOccurrences));
+
+        if (options.containsKey("out")) {
+            File file = new File(options.get("out"));
+            if (file.getParentFile() != null) {
+                Files.createDirectories(file.getParentFile().toPath());
+            }
+            Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                gson.toJson(report.toJson(top, minOccurrences), writer);
+            }
+        }
+    }
+
+    private static String string(JsonObject entry, String key) {
+        JsonElement value = entry.get(key);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    private static double number(JsonObject entry, String key) {
+        JsonElement value = entry.get(key);
+        return value == null || value.isJsonNull() ? 0 : value.getAsDouble();
+    }
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null) {
+            values.add(value);
+        }
+    }
+
+    /**
+     * Heals of one original locator from one source class
+     */
+    public static class Group {
+
+        private final String original;
+        private final String sourceClass;
+        private final String sourceFile;
+        private final Set<Integer> lines = new TreeSet<>();
+        private final Set<String> pages = new TreeSet<>();
+        private final Set<String> tests = new TreeSet<>();
+        private final Map<String, Integer> replacements = new HashMap<>();
+        private int occurrences;
+        private int successes;
+        private double totalMs;
+
+        Group(String original, String sourceClass, String sourceFile) {
+            this.original = original;
+            this.sourceClass = sourceClass;
+            this.sourceFile = sourceFile;
+        }
+
+        public String getOriginal() {
+            return original;
+        }
+
+        /**
+         * File and lines the locator was looked up from, like LoginPage.java:42,57
+         */
+        public String getSource() {
+            if (sourceFile == null) {
+                return sourceClass == null ? "unknown" : sourceClass;
+            }
+            StringBuilder source = new StringBuilder(sourceFile);
+            String separator = ":";
+            for (int line : lines) {
+                source.append(separator).append(line);
+                separator = ",";
+            }
+            return source.toString();
+        }
+
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        public double getTotalMs() {
+            return totalMs;
+        }
+
+        /**
+         * Healed locator that found the element most often, null if no heal succeeded
+         */
+        public String getSuggestedLocator() {
+            String best = null;
+            int bestCount = 0;
+            for (Map.Entry<String, Integer> replacement : replacements.entrySet()) {
+                if (replacement.getValue() > bestCount
+                        || (replacement.getValue() == bestCount && replacement.getKey().compareTo(best) < 0)) {
+                    best = replacement.getKey();
+                    bestCount = replacement.getValue();
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Share of successful heals that agree on the suggested locator
+         */
+        public double getAgreement() {
+            String suggested = getSuggestedLocator();
+            return suggested == null ? 0 : (double) replacements.get(suggested) / successes;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("original", original);
+            json.put("suggested", getSuggestedLocator());
+            json.put("agreement", Math.round(getAgreement() * 1000) / 1000.0);
+            json.put("sourceClass", sourceClass);
+            json.put("source", getSource());
+            json.put("occurrences", occurrences);
+            json.put("successes", successes);
+            json.put("totalMs", Math.round(totalMs * 100) / 100.0);
+            json.put("averageMs", Math.round(totalMs / occurrences * 100) / 100.0);
+            json.put("tests", tests.size());
+            json.put("pages", new ArrayList<>(pages));
+            List<Map.Entry<String, Integer>> ranked = new ArrayList<>(replacements.entrySet());
+            ranked.sort((a, b) -> b.getValue() - a.getValue());
+            Map<String, Integer> healedTo = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> replacement : ranked) {
+                healedTo.put(replacement.getKey(), replacement.getValue());
+            }
+            json.put("healedTo", healedTo);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import org.openqa.selenium.By;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Healed locators shared by every driver of the JVM and carried between runs.
+ *
+ * On first use the store is seeded from autoheal.cache.seedFile, the merged
+ * {@link HealCacheSnapshot} of earlier runs, so a locator one shard healed
+ * yesterday is reused without scoring the DOM again. Heals and invalidations
+ * of this run are kept apart as a delta; at suite end the delta is written to
+ * autoheal.cache.exportFile and the CI merges the deltas of all shards into
+ * the next seed. Nothing is shared while the run is going, only files
+ * before and after it.
+ */
+public class HealCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealCache.class);
+
+    private static volatile HealCache instance;
+
+    private HealCacheSnapshot.Index seed; // Null without a seed
+    private final Map<String, HealCacheSnapshot.Entry> reseeded = new ConcurrentHashMap<>(); // Seeded entries changed by this run
+    private final Map<String, HealCacheSnapshot.Entry> learned = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private long seedGeneration;
+    private double loadMs;
+
+    private HealCache(String seedFile) {
+        if (!seedFile.isEmpty()) {
+            load(new File(seedFile));
+        }
+    }
+
+    public static HealCache getInstance() {
+        if (instance == null) {
+            synchronized (HealCache.class) {
+                if (instance == null) {
+                    instance = new HealCache(AutoHealConfig.getInstance().getHealCacheSeedFile());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private void load(File file) {
+        if (!file.isFile()) {
+            logger.info("No heal cache seed at {}, starting empty", file);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            seed = HealCacheSnapshot.open(file);
+            seedGeneration = seed.getGeneration();
+            loadMs = (System.nanoTime() - start) / 1e6;
+            logger.info("Seeded {} healed locators from {} in {} ms", seed.size(), seed, Math.round(loadMs));
+        } catch (IOException e) {
+            // A damaged seed only costs the heals it would have saved
+            logger.warn("Ignoring heal cache seed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Seeded locator for a broken XPath, or null
+     */
+    public XPathHealer.Match lookup(String originalXPath) {
+        HealCacheSnapshot.Entry entry = seeded(originalXPath);
+        if (entry == null) {
+            return null;
+        }
+        hits.incrementAndGet();
+        By locator = entry.getHops().isEmpty()
+            ? By.xpath(entry.getXPath()) : new ByScopedXPath(entry.getHops(), entry.getXPath());
+        return new XPathHealer.Match(locator, entry.getScore(), entry.getStrategy(), "seed");
+    }
+
+    /**
+     * Whether a seeded locator exists for a broken XPath, without counting a hit
+     */
+    public boolean contains(String originalXPath) {
+        return seeded(originalXPath) != null;
+    }
+
+    /**
+     * Remember a heal that found its element, for the export and for later
+     * lookups if the locator was seeded. Reuses of this run's own heals are
+     * not recorded again.
+     */
+    public void record(By original, XPathHealer.Match match) {
+        if (match == null || "cache".equals(match.getEngine())) {
+            return;
+        }
+        String originalXPath = original.toString().replace("By.xpath: ", "");
+        By locator = match.getLocator();
+        HealCacheSnapshot.Entry entry;
+        if (locator instanceof ByScopedXPath) {
+            ByScopedXPath scoped = (ByScopedXPath) locator;
+            entry = new HealCacheSnapshot.Entry(originalXPath, scoped.getXPath(), scoped.getHops(),
+                match.getScore(), match.getStrategy(), System.currentTimeMillis());
+        } else {
+            entry = new HealCacheSnapshot.Entry(originalXPath, locator.toString().replace("By.xpath: ", ""),
+                Collections.<ByScopedXPath.Hop>emptyList(), match.getScore(), match.getStrategy(),
+                System.currentTimeMillis());
+        }
+        learned.put(originalXPath, entry);
+        if (seeded(originalXPath) != null) {
+            reseeded.put(originalXPath, entry);
+        }
+    }
+
+    /**
+     * Drop a seeded locator that no longer finds its element, and export that as a tombstone
+     */
+    public void invalidate(String originalXPath) {
+        if (seeded(originalXPath) != null) {
+            invalidations.incrementAndGet();
+            HealCacheSnapshot.Entry tombstone = HealCacheSnapshot.Entry.tombstone(originalXPath, System.currentTimeMillis());
+            reseeded.put(originalXPath, tombstone);
+            learned.put(originalXPath, tombstone);
+        }
+    }
+
+    /**
+     * Live seeded entry, as changed by this run, or null
+     */
+    private HealCacheSnapshot.Entry seeded(String originalXPath) {
+        if (seed == null) {
+            return null;
+        }
+        HealCacheSnapshot.Entry entry = reseeded.get(originalXPath);
+        if (entry == null) {
+            entry = seed.get(originalXPath);
+        }
+        return entry == null || entry.isTombstone() ? null : entry;
+    }
+
+    /**
+     * Write the heals and invalidations of this run; a directory gets a file named after this JVM
+     */
+    public File exportDelta(File target) throws IOException {
+        File file = target;
+        if (target.isDirectory()) {
+            String process = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_");
+            file = new File(target, "heal-cache-" + process + "-" + System.currentTimeMillis() + ".delta");
+        }
+        new HealCacheSnapshot(seedGeneration, seedGeneration, System.currentTimeMillis(),
+            new ArrayList<>(learned.values())).write(file);
+        return file;
+    }
+
+    /**
+     * Export the delta if autoheal.cache.exportFile is set, logging instead of failing the suite
+     */
+    public void exportIfConfigured() {
+        String target = AutoHealConfig.getInstance().getHealCacheExportFile();
+        if (target.isEmpty()) {
+            return;
+        }
+        try {
+            File file = new File(target);
+            if (target.endsWith("/") || target.endsWith(File.separator)) {
+                Files.createDirectories(file.toPath()); // Shards sharing a directory export one file each
+            }
+            file = exportDelta(file);
+            logger.info("Exported {} heal cache changes to {}", learned.size(), file);
+        } catch (IOException e) {
+            logger.warn("Could not export heal cache delta to {}: {}", target, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("seedGeneration", seedGeneration);
+        stats.put("seeded", seed == null ? 0 : seed.size());
+        stats.put("seedLoadMs", Math.round(loadMs * 100) / 100.0);
+        stats.put("seedHits", hits.get());
+        stats.put("invalidated", invalidations.get());
+        stats.put("learned", learned.size());
+        return stats;
+    }
+}
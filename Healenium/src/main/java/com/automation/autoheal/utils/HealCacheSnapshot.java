@@ -0,0 +1,469 @@
+package com.automation.autoheal.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * File form of the healed-locator store, exchanged between CI shards as plain files.
+ *
+ * A snapshot is a versioned binary file: a header (magic, format version,
+ * generation, generation it was based on, creation time, entry count), the
+ * entries, and a CRC32 of everything before it. A file that is truncated,
+ * corrupt or of another format version is rejected as a whole. Seeding reads
+ * the file in one call and only indexes the entries, decoding one when it is
+ * looked up, which keeps loading 100k entries under 100 ms.
+ *
+ * A shard seeds itself from the merged snapshot of the previous run and
+ * exports a delta holding only what it learned or invalidated. Merging
+ * keeps, per original locator, the entry updated last, so the most recent
+ * confidence wins; equal times keep the higher score. Invalidations are kept
+ * as tombstones so an older heal merged later cannot come back.
+ *
+ * Usage: HealCacheSnapshot --out merged.snapshot base-or-delta...
+ */
+public class HealCacheSnapshot {
+
+    static final int MAGIC = 0x41484C43; // "AHLC"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+    private static final byte LIVE = 0;
+    private static final byte TOMBSTONE = 1;
+
+    /**
+     * One original locator and what it heals to, or a tombstone if the heal stopped working
+     */
+    public static class Entry {
+
+        private final String original;
+        private final String xPath; // null for a tombstone
+        private final List<ByScopedXPath.Hop> hops;
+        private final int score;
+        private final String strategy;
+        private final long updatedAt;
+
+        public Entry(String original, String xPath, List<ByScopedXPath.Hop> hops, int score, String strategy,
+                     long updatedAt) {
+            this.original = original;
+            this.xPath = xPath;
+            this.hops = hops;
+            this.score = score;
+            this.strategy = strategy;
+            this.updatedAt = updatedAt;
+        }
+
+        static Entry tombstone(String original, long updatedAt) {
+            return new Entry(original, null, Collections.<ByScopedXPath.Hop>emptyList(), 0, null, updatedAt);
+        }
+
+        public String getOriginal() {
+            return original;
+        }
+
+        public String getXPath() {
+            return xPath;
+        }
+
+        public List<ByScopedXPath.Hop> getHops() {
+            return hops;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public boolean isTombstone() {
+            return xPath == null;
+        }
+
+        /**
+         * Whether this entry should replace the other one for the same locator
+         */
+        boolean supersedes(Entry other) {
+            return other == null || updatedAt > other.updatedAt
+                || (updatedAt == other.updatedAt && score > other.score);
+        }
+    }
+
+    private final long generation;
+    private final long baseGeneration;
+    private final long createdAt;
+    private final List<Entry> entries;
+
+    public HealCacheSnapshot(long generation, long baseGeneration, long createdAt, List<Entry> entries) {
+        this.generation = generation;
+        this.baseGeneration = baseGeneration;
+        this.createdAt = createdAt;
+        this.entries = entries;
+    }
+
+    /**
+     * Increases with every merge; a delta carries the generation of the snapshot its shard was seeded from
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Generation of the snapshot this one was built on, 0 if none
+     */
+    public long getBaseGeneration() {
+        return baseGeneration;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Read and verify a snapshot, decoding every entry
+     *
+     * @throws IOException if the file cannot be read, fails its checksum or has another format version
+     */
+    public static HealCacheSnapshot read(File file) throws IOException {
+        ByteBuffer buffer = verify(Files.readAllBytes(file.toPath()), file);
+        long generation = buffer.getLong();
+        long baseGeneration = buffer.getLong();
+        long createdAt = buffer.getLong();
+        int count = buffer.getInt();
+        List<Entry> entries = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                entries.add(decode(buffer));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed heal cache snapshot: " + file, e);
+        }
+        return new HealCacheSnapshot(generation, baseGeneration, createdAt, entries);
+    }
+
+    /**
+     * Verify a snapshot and index its live entries without decoding them, for seeding
+     *
+     * @throws IOException if the file cannot be read, fails its checksum or has another format version
+     */
+    public static Index open(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        try {
+            return new Index(bytes, verify(bytes, file));
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed heal cache snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Check magic, format version and checksum, returning a buffer positioned after the format version
+     */
+    private static ByteBuffer verify(byte[] bytes, File file) throws IOException {
+        if (bytes.length < HEADER_BYTES + 4) {
+            throw new IOException("Not a heal cache snapshot, too short: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a heal cache snapshot: " + file);
+        }
+        int format = buffer.getInt();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("Unsupported heal cache snapshot format " + format + ": " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+            throw new IOException("Heal cache snapshot failed its checksum: " + file);
+        }
+        return buffer;
+    }
+
+    /**
+     * Entries of a verified snapshot, found by the hash of the UTF-8 bytes of
+     * the original locator. Every entry starts with its length, that hash and
+     * whether it is a tombstone, so loading only hops from entry to entry;
+     * strings are decoded for the entries actually looked up. Tombstones are
+     * left out.
+     */
+    public static class Index {
+
+        private final byte[] bytes;
+        private final int[] slots; // Entry offsets, open addressing, -1 for a free slot
+        private final int[] hashes; // Key hash of each slot, compared before the key bytes
+        private final long generation;
+        private final long baseGeneration;
+        private int size;
+
+        private Index(byte[] bytes, ByteBuffer buffer) {
+            this.bytes = bytes;
+            generation = buffer.getLong();
+            baseGeneration = buffer.getLong();
+            buffer.getLong(); // Creation time
+            int count = buffer.getInt();
+            int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+            slots = new int[capacity];
+            hashes = new int[capacity];
+            Arrays.fill(slots, -1);
+            int offset = buffer.position();
+            for (int i = 0; i < count; i++) {
+                if (bytes[offset + 8] != TOMBSTONE) {
+                    insert(offset + 9, intAt(offset + 4));
+                }
+                offset += 4 + intAt(offset);
+            }
+        }
+
+        private void insert(int offset, int hash) {
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                if (slots[slot] == -1) {
+                    slots[slot] = offset;
+                    hashes[slot] = hash;
+                    size++;
+                    return;
+                }
+                if (hashes[slot] == hash && sameKey(slots[slot], bytes, offset + 4, intAt(offset))) {
+                    return; // Merged snapshots have one entry per locator, keep the first otherwise
+                }
+            }
+        }
+
+        /**
+         * Live entry for an original locator, or null
+         */
+        public Entry get(String original) {
+            byte[] key = original.getBytes(StandardCharsets.UTF_8);
+            int hash = hash(key, 0, key.length);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; slots[slot] != -1; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && sameKey(slots[slot], key, 0, key.length)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    buffer.position(slots[slot]);
+                    return decodeFields(buffer);
+                }
+            }
+            return null;
+        }
+
+        private boolean sameKey(int offset, byte[] key, int from, int length) {
+            if (intAt(offset) != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[offset + 4 + i] != key[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int intAt(int offset) {
+            return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "HealCacheSnapshot(generation " + generation + ", " + size + " entries"
+                + (baseGeneration > 0 ? ", based on " + baseGeneration : "") + ")";
+        }
+    }
+
+    private static Entry decode(ByteBuffer buffer) {
+        buffer.position(buffer.position() + 4 + 4 + 1); // Length, hash and tombstone flag
+        return decodeFields(buffer);
+    }
+
+    private static Entry decodeFields(ByteBuffer buffer) {
+        String original = readString(buffer);
+        long updatedAt = buffer.getLong();
+        int score = buffer.getInt();
+        String strategy = readString(buffer);
+        int hopCount = buffer.get();
+        List<ByScopedXPath.Hop> hops = hopCount == 0
+            ? Collections.<ByScopedXPath.Hop>emptyList() : new ArrayList<ByScopedXPath.Hop>(hopCount);
+        for (int h = 0; h < hopCount; h++) {
+            DomSnapshot.Kind kind = buffer.get() == 'F' ? DomSnapshot.Kind.FRAME : DomSnapshot.Kind.SHADOW;
+            hops.add(new ByScopedXPath.Hop(kind, readString(buffer)));
+        }
+        String xPath = readString(buffer);
+        return new Entry(original, xPath, hops, score, strategy, updatedAt);
+    }
+
+    private static int hash(byte[] bytes, int from, int length) {
+        int hash = 0;
+        for (int i = from; i < from + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Write the snapshot to a temporary file next to the target and move it
+     * into place, so readers never see a partial file
+     */
+    public void write(File file) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(entries.size());
+        int size = HEADER_BYTES + 4;
+        for (Entry entry : entries) {
+            byte[] bytes = encode(entry);
+            encoded.add(bytes);
+            size += bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION)
+            .putLong(generation).putLong(baseGeneration).putLong(createdAt).putInt(entries.size());
+        for (byte[] bytes : encoded) {
+            buffer.put(bytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, size - 4);
+        buffer.putInt((int) crc.getValue());
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary.toPath())) {
+            out.write(buffer.array());
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Merge snapshots and deltas into one snapshot of the next generation
+     */
+    public static HealCacheSnapshot merge(Collection<HealCacheSnapshot> snapshots) {
+        Map<String, Entry> merged = new HashMap<>();
+        long generation = 0;
+        for (HealCacheSnapshot snapshot : snapshots) {
+            generation = Math.max(generation, snapshot.generation);
+            for (Entry entry : snapshot.entries) {
+                Entry current = merged.get(entry.original);
+                if (entry.supersedes(current)) {
+                    merged.put(entry.original, entry);
+                }
+            }
+        }
+        return new HealCacheSnapshot(generation + 1, generation, System.currentTimeMillis(),
+            new ArrayList<>(merged.values()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        File out = null;
+        List<HealCacheSnapshot> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--out".equals(args[i]) && i + 1 < args.length) {
+                out = new File(args[++i]);
+            } else {
+                File input = new File(args[i]);
+                if (input.isFile()) {
+                    inputs.add(read(input));
+                } else {
+                    System.out.println("Skipping missing snapshot " + input);
+                }
+            }
+        }
+        if (out == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException("Usage: HealCacheSnapshot --out merged.snapshot base-or-delta...");
+        }
+
+        HealCacheSnapshot merged = merge(inputs);
+        merged.write(out);
+        int tombstones = 0;
+        for (Entry entry : merged.entries) {
+            if (entry.isTombstone()) {
+                tombstones++;
+            }
+        }
+        System.out.println("Merged " + inputs.size() + " snapshots into generation " + merged.generation + ": "
+            + (merged.entries.size() - tombstones) + " healed locators, " + tombstones + " invalidated");
+    }
+
+    private static byte[] encode(Entry entry) {
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(utf8(entry.original));
+        strings.add(utf8(entry.strategy));
+        for (ByScopedXPath.Hop hop : entry.hops) {
+            strings.add(utf8(hop.getHostXPath()));
+        }
+        strings.add(utf8(entry.xPath));
+
+        int size = 4 + 4 + 1 + 8 + 4 + 1 + entry.hops.size();
+        for (byte[] string : strings) {
+            size += 4 + (string == null ? 0 : string.length);
+        }
+        byte[] original = strings.get(0);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size - 4).putInt(hash(original, 0, original.length)).put(entry.isTombstone() ? TOMBSTONE : LIVE);
+        putString(buffer, original);
+        buffer.putLong(entry.updatedAt).putInt(entry.score);
+        putString(buffer, strings.get(1));
+        buffer.put((byte) entry.hops.size());
+        for (int h = 0; h < entry.hops.size(); h++) {
+            buffer.put((byte) (entry.hops.get(h).getKind() == DomSnapshot.Kind.FRAME ? 'F' : 'S'));
+            putString(buffer, strings.get(2 + h));
+        }
+        putString(buffer, strings.get(strings.size() - 1));
+        return buffer.array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "HealCacheSnapshot(generation " + generation + ", " + entries.size() + " entries"
+            + (baseGeneration > 0 ? ", based on " + baseGeneration : "") + ")";
+    }
+}
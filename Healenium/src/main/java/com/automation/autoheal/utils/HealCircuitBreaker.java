@@ -0,0 +1,206 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker for healing, per locator and URL template, shared by all drivers.
+ *
+ * A locator that cannot be healed on a page usually cannot be healed there
+ * for the rest of the run, yet every lookup would pay for another DOM capture
+ * and heal. After autoheal.circuitBreaker.failureThreshold consecutive
+ * failures the circuit opens and healing is skipped for the cooldown. Then one
+ * attempt is let through (half-open): success closes the circuit, failure
+ * reopens it with the cooldown doubled, up to autoheal.circuitBreaker.maxCooldown.
+ */
+public class HealCircuitBreaker {
+
+    /**
+     * Circuit state of one locator on one page
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final int MAX_CIRCUITS = 10000; // Closed circuits are dropped beyond this
+
+    private static volatile HealCircuitBreaker instance;
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final AtomicLong opened = new AtomicLong();
+
+    private HealCircuitBreaker() {
+    }
+
+    public static HealCircuitBreaker getInstance() {
+        if (instance == null) {
+            synchronized (HealCircuitBreaker.class) {
+                if (instance == null) {
+                    instance = new HealCircuitBreaker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Whether a heal may be attempted now. In the half-open state only one
+     * caller gets through until its result is recorded.
+     */
+    public boolean allowAttempt(String urlTemplate, String locator) {
+        if (!AutoHealConfig.getInstance().isCircuitBreakerEnabled()) {
+            return true;
+        }
+        Circuit circuit = circuits.get(key(urlTemplate, locator));
+        return circuit == null || circuit.allow(System.currentTimeMillis());
+    }
+
+    public void recordSuccess(String urlTemplate, String locator) {
+        Circuit circuit = circuits.get(key(urlTemplate, locator));
+        if (circuit != null) {
+            circuit.success();
+        }
+    }
+
+    /**
+     * End an attempt that was allowed but recorded neither a success nor a
+     * failure (interrupted, or the lookup threw), so a half-open circuit lets
+     * the next attempt through instead of waiting for a result forever
+     */
+    public void release(String urlTemplate, String locator) {
+        Circuit circuit = circuits.get(key(urlTemplate, locator));
+        if (circuit != null) {
+            circuit.release();
+        }
+    }
+
+    public void recordFailure(String urlTemplate, String locator) {
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        if (!config.isCircuitBreakerEnabled()) {
+            return;
+        }
+        if (circuits.size() >= MAX_CIRCUITS) {
+            circuits.values().removeIf(circuit -> circuit.state == State.CLOSED);
+        }
+        Circuit circuit = circuits.computeIfAbsent(key(urlTemplate, locator), key -> new Circuit());
+        if (circuit.failure(System.currentTimeMillis(), config)) {
+            opened.incrementAndGet();
+        }
+    }
+
+    /**
+     * Whether the locator's circuit is open or half-open on any page, so a
+     * caller can skip work it would only need for an allowed attempt
+     */
+    public boolean isTripped(String locator) {
+        if (!AutoHealConfig.getInstance().isCircuitBreakerEnabled()) {
+            return false;
+        }
+        String suffix = " " + locator;
+        for (Map.Entry<String, Circuit> entry : circuits.entrySet()) {
+            if (entry.getValue().state != State.CLOSED && entry.getKey().endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public State getState(String urlTemplate, String locator) {
+        Circuit circuit = circuits.get(key(urlTemplate, locator));
+        return circuit == null ? State.CLOSED : circuit.state;
+    }
+
+    /**
+     * Circuits currently open or half-open, and how often circuits opened
+     */
+    public Map<String, Object> getStatistics() {
+        int open = 0;
+        int halfOpen = 0;
+        for (Circuit circuit : circuits.values()) {
+            if (circuit.state == State.OPEN) {
+                open++;
+            } else if (circuit.state == State.HALF_OPEN) {
+                halfOpen++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", circuits.size());
+        stats.put("open", open);
+        stats.put("halfOpen", halfOpen);
+        stats.put("timesOpened", opened.get());
+        return stats;
+    }
+
+    /**
+     * Forget all circuits
+     */
+    public void reset() {
+        circuits.clear();
+        opened.set(0);
+    }
+
+    private static String key(String urlTemplate, String locator) {
+        return urlTemplate + " " + locator;
+    }
+
+    /**
+     * Failure history of one locator on one page
+     */
+    private static class Circuit {
+
+        private volatile State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long cooldown;
+        private long retryAt;
+        private boolean probing; // A half-open attempt is in flight
+
+        synchronized boolean allow(long now) {
+            if (state == State.OPEN && now >= retryAt) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+
+        synchronized void release() {
+            probing = false;
+        }
+
+        synchronized void success() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            cooldown = 0;
+            probing = false;
+        }
+
+        /**
+         * @return true if this failure opened the circuit
+         */
+        synchronized boolean failure(long now, AutoHealConfig config) {
+            consecutiveFailures++;
+            boolean reopen = state == State.HALF_OPEN;
+            if (!reopen && (state == State.OPEN || consecutiveFailures < config.getCircuitBreakerFailureThreshold())) {
+                return false;
+            }
+            cooldown = reopen
+                ? Math.min(cooldown * 2, config.getCircuitBreakerMaxCooldown())
+                : config.getCircuitBreakerCooldown();
+            retryAt = now + cooldown;
+            state = State.OPEN;
+            probing = false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.automation.autoheal.utils;
+
+import org.openqa.selenium.By;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of healing one locator: the replacement, or why there is none, and
+ * the best scoring candidates either way.
+ *
+ * Confidence is a candidate's score over the highest score the attributes of
+ * the original XPath allow, so 1.0 means every attribute matched. A heal is
+ * refused when the best candidate is below autoheal.heal.minConfidence, or
+ * when the runner-up is within autoheal.heal.minMargin of it: on a page full
+ * of links a tag-only match is a guess, and a step that goes on with the
+ * wrong element fails later and slower than the lookup would have.
+ */
+public class HealResult {
+
+    public enum Status {
+        HEALED,
+        NO_CANDIDATE,
+        NO_UNIQUE_LOCATOR,
+        LOW_CONFIDENCE,
+        AMBIGUOUS
+    }
+
+    /**
+     * One scored element; the locator is null if no unique one could be built for it
+     */
+    public static class Candidate {
+
+        private final By locator;
+        private final int score;
+        private final double confidence;
+        private final String strategy;
+
+        Candidate(By locator, int score, double confidence, String strategy) {
+            this.locator = locator;
+            this.score = score;
+            this.confidence = confidence;
+            this.strategy = strategy;
+        }
+
+        public By getLocator() {
+            return locator;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        /**
+         * Attributes of the original XPath the element matched, like "id+tagName"
+         */
+        public String getStrategy() {
+            return strategy;
+        }
+
+        @Override
+        public String toString() {
+            return locator + " (" + score + ", " + String.format("%.2f", confidence) + ")";
+        }
+    }
+
+    private static final HealResult NONE = new HealResult(Status.NO_CANDIDATE, null, Collections.<Candidate>emptyList());
+
+    private final Status status;
+    private final XPathHealer.Match match;
+    private final List<Candidate> candidates;
+
+    private HealResult(Status status, XPathHealer.Match match, List<Candidate> candidates) {
+        this.status = status;
+        this.match = match;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Accept the best of the ranked candidates, or refuse with the reason
+     */
+    static HealResult judge(List<Candidate> ranked, String engine, double minConfidence, double minMargin) {
+        if (ranked.isEmpty()) {
+            return NONE;
+        }
+        Candidate best = ranked.get(0);
+        if (best.confidence < minConfidence) {
+            return new HealResult(Status.LOW_CONFIDENCE, null, ranked);
+        }
+        if (ranked.size() > 1 && best.confidence - ranked.get(1).confidence < minMargin) {
+            return new HealResult(Status.AMBIGUOUS, null, ranked);
+        }
+        if (best.locator == null) {
+            return new HealResult(Status.NO_UNIQUE_LOCATOR, null, ranked);
+        }
+        return new HealResult(Status.HEALED, new XPathHealer.Match(best.locator, best.score, best.strategy, engine), ranked);
+    }
+
+    /**
+     * A replacement reused without scoring the page, from a cache or a seed
+     */
+    public static HealResult reused(XPathHealer.Match match) {
+        return match == null ? NONE : new HealResult(Status.HEALED, match, Collections.<Candidate>emptyList());
+    }
+
+    static HealResult none() {
+        return NONE;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isHealed() {
+        return status == Status.HEALED;
+    }
+
+    /**
+     * The accepted replacement, null unless healed
+     */
+    public XPathHealer.Match getMatch() {
+        return match;
+    }
+
+    /**
+     * Best candidates first, at most autoheal.engine.topCandidates and at
+     * least two when there were; empty for a reused replacement
+     */
+    public List<Candidate> getCandidates() {
+        return candidates;
+    }
+
+    @Override
+    public String toString() {
+        switch (status) {
+            case HEALED:
+                return "healed to " + match.getLocator() + " (" + match.getScore() + ", " + match.getEngine() + ")";
+            case LOW_CONFIDENCE:
+                return "best candidate below the minimum confidence: " + candidates.get(0);
+            case AMBIGUOUS:
+                return "best candidates too close: " + candidates.get(0) + " vs " + candidates.get(1);
+            case NO_UNIQUE_LOCATOR:
+                return "no unique locator for the best candidate: " + candidates.get(0);
+            default:
+                return "no candidate";
+        }
+    }
+}
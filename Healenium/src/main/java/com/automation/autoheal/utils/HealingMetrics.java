@@ -0,0 +1,106 @@
+package com.automation.autoheal.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run-wide counters for healing, shared by all drivers
+ */
+public class HealingMetrics {
+
+    private static volatile HealingMetrics instance;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong healed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skippedOpenCircuit = new AtomicLong();
+    private final AtomicLong refusedLowConfidence = new AtomicLong();
+    private final AtomicLong refusedAmbiguous = new AtomicLong();
+    private final AtomicLong healNanos = new AtomicLong();
+    private final Map<String, EngineCounters> engines = new ConcurrentHashMap<>();
+
+    private HealingMetrics() {
+    }
+
+    public static HealingMetrics getInstance() {
+        if (instance == null) {
+            synchronized (HealingMetrics.class) {
+                if (instance == null) {
+                    instance = new HealingMetrics();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * A heal attempt finished; healed means the healed locator found the element
+     */
+    public void recordAttempt(boolean success, long elapsedNanos) {
+        attempts.incrementAndGet();
+        (success ? healed : failed).incrementAndGet();
+        healNanos.addAndGet(elapsedNanos);
+    }
+
+    /**
+     * One healing engine (jvm or browser) looked for a replacement; found means it returned a locator
+     */
+    public void recordEngineAttempt(String engine, boolean found, long elapsedNanos) {
+        EngineCounters counters = engines.computeIfAbsent(engine, key -> new EngineCounters());
+        counters.heals.incrementAndGet();
+        if (found) {
+            counters.found.incrementAndGet();
+        }
+        counters.nanos.addAndGet(elapsedNanos);
+    }
+
+    /**
+     * A heal was not attempted because the locator's circuit is open
+     */
+    public void recordSkipped() {
+        skippedOpenCircuit.incrementAndGet();
+    }
+
+    /**
+     * An engine found candidates but the best was too weak or too close to the runner-up to use
+     */
+    public void recordRefused(HealResult.Status status) {
+        (status == HealResult.Status.AMBIGUOUS ? refusedAmbiguous : refusedLowConfidence).incrementAndGet();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long count = attempts.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("attempts", count);
+        stats.put("healed", healed.get());
+        stats.put("failed", failed.get());
+        stats.put("skippedOpenCircuit", skippedOpenCircuit.get());
+        stats.put("refusedLowConfidence", refusedLowConfidence.get());
+        stats.put("refusedAmbiguous", refusedAmbiguous.get());
+        stats.put("averageHealMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(healNanos.get() / count));
+        Map<String, Object> engineStats = new LinkedHashMap<>();
+        for (Map.Entry<String, EngineCounters> entry : engines.entrySet()) {
+            long heals = entry.getValue().heals.get();
+            Map<String, Object> counters = new LinkedHashMap<>();
+            counters.put("heals", heals);
+            counters.put("found", entry.getValue().found.get());
+            counters.put("averageHealMs", heals == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(entry.getValue().nanos.get() / heals));
+            engineStats.put(entry.getKey(), counters);
+        }
+        stats.put("engines", engineStats);
+        stats.put("circuitBreaker", HealCircuitBreaker.getInstance().getStatistics());
+        return stats;
+    }
+
+    /**
+     * Heals run by one engine, to compare the engines across runs
+     */
+    private static class EngineCounters {
+        private final AtomicLong heals = new AtomicLong();
+        private final AtomicLong found = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+    }
+}
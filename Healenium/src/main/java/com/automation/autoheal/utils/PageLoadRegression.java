@@ -0,0 +1,409 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.reporting.ExtentReportManager;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the page load times of a run with those of earlier runs.
+ *
+ * Every {@link PageLoadTracker} hands its samples over here, grouped by URL
+ * template, when its driver is released or quit. At suite end each template
+ * is compared with the baseline file, which keeps the most recent samples of
+ * earlier runs. A percentile counts as regressed when the distribution-free
+ * 95% confidence intervals of the baseline and the run do not overlap and the
+ * run is slower by at least the relative threshold and the minimum delta;
+ * the intervals come from order statistics, so a few slow outliers or a
+ * handful of samples are not enough. The outcome goes to the Extent report
+ * and to a JSON summary for the CI. The baseline then takes the samples of
+ * this run, except for regressed templates, so a regression keeps being
+ * reported until it is fixed or its baseline entry is removed.
+ */
+public class PageLoadRegression {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageLoadRegression.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final double[] PERCENTILES = {0.5, 0.9};
+    private static final double Z_95 = 1.96; // Two-sided 95% normal quantile
+
+    public enum Status {
+        REGRESSED,
+        IMPROVED,
+        UNCHANGED,
+        NEW,
+        TOO_FEW_SAMPLES
+    }
+
+    /**
+     * One percentile of a template in the baseline and in this run, in milliseconds
+     */
+    public static class Percentile {
+
+        private final double quantile;
+        private final long baseline;
+        private final long current;
+        private final boolean regressed;
+        private final boolean improved;
+
+        Percentile(double quantile, long baseline, long current, boolean regressed, boolean improved) {
+            this.quantile = quantile;
+            this.baseline = baseline;
+            this.current = current;
+            this.regressed = regressed;
+            this.improved = improved;
+        }
+
+        public String getName() {
+            return "p" + Math.round(quantile * 100);
+        }
+
+        public long getBaseline() {
+            return baseline;
+        }
+
+        public long getCurrent() {
+            return current;
+        }
+
+        /**
+         * Relative change from the baseline, 0.25 for 25% slower
+         */
+        public double getChange() {
+            return baseline == 0 ? 0 : (double) (current - baseline) / baseline;
+        }
+
+        public boolean isRegressed() {
+            return regressed;
+        }
+
+        public boolean isImproved() {
+            return improved;
+        }
+    }
+
+    /**
+     * Comparison of one URL template
+     */
+    public static class Page {
+
+        private final String template;
+        private final Status status;
+        private final int samples;
+        private final int baselineSamples;
+        private final List<Percentile> percentiles;
+
+        Page(String template, Status status, int samples, int baselineSamples, List<Percentile> percentiles) {
+            this.template = template;
+            this.status = status;
+            this.samples = samples;
+            this.baselineSamples = baselineSamples;
+            this.percentiles = percentiles;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public int getBaselineSamples() {
+            return baselineSamples;
+        }
+
+        /**
+         * Empty unless both the baseline and the run have enough samples
+         */
+        public List<Percentile> getPercentiles() {
+            return percentiles;
+        }
+    }
+
+    private static volatile PageLoadRegression instance;
+
+    private final Map<String, List<Long>> samples = new TreeMap<>(); // URL template -> load times of this run
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private boolean finished;
+
+    private PageLoadRegression() {
+    }
+
+    public static PageLoadRegression getInstance() {
+        if (instance == null) {
+            synchronized (PageLoadRegression.class) {
+                if (instance == null) {
+                    instance = new PageLoadRegression();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Add load times of this run, in milliseconds by URL template
+     */
+    public synchronized void addSamples(Map<String, ? extends Collection<Long>> loadTimes) {
+        for (Map.Entry<String, ? extends Collection<Long>> entry : loadTimes.entrySet()) {
+            samples.computeIfAbsent(entry.getKey(), template -> new ArrayList<>()).addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Compare this run with the baseline, report the outcome and update the
+     * baseline. Runs once per JVM; failures are logged, not thrown, so a
+     * broken baseline file never fails the suite.
+     */
+    public synchronized List<Page> finishRun() {
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        if (finished || samples.isEmpty() || config.getPageLoadBaselineFile().isEmpty()) {
+            return Collections.emptyList();
+        }
+        finished = true;
+        File baselineFile = new File(config.getPageLoadBaselineFile());
+        Map<String, List<Long>> baseline = readBaseline(baselineFile);
+        List<Page> pages = compare(baseline, samples, config.getPageLoadRegressionMinSamples(),
+            config.getPageLoadRegressionThreshold(), config.getPageLoadRegressionMinDelta());
+        report(pages);
+        if (!config.getPageLoadSummaryFile().isEmpty()) {
+            writeJson(new File(config.getPageLoadSummaryFile()), summary(pages, baselineFile), true);
+        }
+        if (config.isPageLoadBaselineUpdateEnabled()) {
+            for (Page page : pages) {
+                if (page.getStatus() != Status.REGRESSED) {
+                    List<Long> kept = new ArrayList<>(baseline.getOrDefault(page.getTemplate(), Collections.<Long>emptyList()));
+                    kept.addAll(samples.get(page.getTemplate()));
+                    int maxSamples = config.getPageLoadBaselineMaxSamples();
+                    baseline.put(page.getTemplate(), kept.subList(Math.max(0, kept.size() - maxSamples), kept.size()));
+                }
+            }
+            writeJson(baselineFile, baselineJson(baseline), false);
+        }
+        return pages;
+    }
+
+    /**
+     * Compare the load times of each template of a run with its baseline
+     *
+     * @param minSamples samples both sides need before percentiles are compared
+     * @param threshold relative increase a percentile needs to count as regressed, 0.2 for 20%
+     * @param minDelta increase in milliseconds a percentile needs to count as regressed
+     */
+    static List<Page> compare(Map<String, List<Long>> baseline, Map<String, List<Long>> run,
+                              int minSamples, double threshold, long minDelta) {
+        List<Page> pages = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> entry : run.entrySet()) {
+            List<Long> current = sorted(entry.getValue());
+            List<Long> before = baseline.containsKey(entry.getKey())
+                ? sorted(baseline.get(entry.getKey())) : Collections.<Long>emptyList();
+            if (before.isEmpty()) {
+                pages.add(new Page(entry.getKey(), Status.NEW, current.size(), 0, Collections.<Percentile>emptyList()));
+                continue;
+            }
+            if (current.size() < minSamples || before.size() < minSamples) {
+                pages.add(new Page(entry.getKey(), Status.TOO_FEW_SAMPLES, current.size(), before.size(),
+                    Collections.<Percentile>emptyList()));
+                continue;
+            }
+            List<Percentile> percentiles = new ArrayList<>();
+            boolean regressed = false;
+            boolean improved = false;
+            for (double quantile : PERCENTILES) {
+                long b = percentile(before, quantile);
+                long c = percentile(current, quantile);
+                boolean slower = lowerBound(current, quantile) > upperBound(before, quantile)
+                    && c - b >= minDelta && c - b >= threshold * b;
+                boolean faster = upperBound(current, quantile) < lowerBound(before, quantile)
+                    && b - c >= minDelta && b - c >= threshold * b;
+                percentiles.add(new Percentile(quantile, b, c, slower, faster));
+                regressed |= slower;
+                improved |= faster;
+            }
+            Status status = regressed ? Status.REGRESSED : improved ? Status.IMPROVED : Status.UNCHANGED;
+            pages.add(new Page(entry.getKey(), status, current.size(), before.size(), percentiles));
+        }
+        return pages;
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        List<Long> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values
+     */
+    static long percentile(List<Long> sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    /**
+     * Lower end of the 95% confidence interval of a percentile: the order
+     * statistic below the expected rank by 1.96 binomial standard deviations
+     */
+    static long lowerBound(List<Long> sorted, double quantile) {
+        int n = sorted.size();
+        double rank = Math.floor(n * quantile - Z_95 * Math.sqrt(n * quantile * (1 - quantile)));
+        return sorted.get((int) Math.max(rank, 1) - 1);
+    }
+
+    /**
+     * Upper end of the 95% confidence interval of a percentile
+     */
+    static long upperBound(List<Long> sorted, double quantile) {
+        int n = sorted.size();
+        double rank = Math.ceil(n * quantile + Z_95 * Math.sqrt(n * quantile * (1 - quantile)));
+        return sorted.get((int) Math.min(Math.max(rank, 1), n) - 1);
+    }
+
+    private void report(List<Page> pages) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[] {"Page", "Status", "Samples", "Baseline samples", "p50 ms", "p90 ms"});
+        int regressions = 0;
+        for (Page page : pages) {
+            if (page.getStatus() == Status.REGRESSED) {
+                regressions++;
+                logger.warn("Page load regression on {}: {}", page.getTemplate(), describe(page));
+            }
+            String[] row = new String[6];
+            row[0] = page.getTemplate();
+            row[1] = page.getStatus().name();
+            row[2] = String.valueOf(page.getSamples());
+            row[3] = String.valueOf(page.getBaselineSamples());
+            for (int i = 0; i < 2; i++) {
+                row[4 + i] = i < page.getPercentiles().size() ? cell(page.getPercentiles().get(i)) : "";
+            }
+            rows.add(row);
+        }
+        String description = regressions == 0
+            ? "No page got slower than its baseline"
+            : regressions + " of " + pages.size() + " pages got slower than their baseline";
+        ExtentReportManager.getInstance().addSection("Page Load Regressions", description,
+            rows.toArray(new String[0][]), regressions > 0);
+    }
+
+    private static String cell(Percentile percentile) {
+        return percentile.getBaseline() + " -> " + percentile.getCurrent()
+            + String.format(" (%+.0f%%)", percentile.getChange() * 100);
+    }
+
+    private static String describe(Page page) {
+        StringBuilder text = new StringBuilder();
+        for (Percentile percentile : page.getPercentiles()) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(percentile.getName()).append(' ').append(cell(percentile));
+        }
+        return text.toString();
+    }
+
+    private Map<String, Object> summary(List<Page> pages, File baselineFile) {
+        AutoHealConfig config = AutoHealConfig.getInstance();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("generatedAt", System.currentTimeMillis());
+        summary.put("baselineFile", baselineFile.getPath());
+        summary.put("minSamples", config.getPageLoadRegressionMinSamples());
+        summary.put("threshold", config.getPageLoadRegressionThreshold());
+        summary.put("minDeltaMs", config.getPageLoadRegressionMinDelta());
+        long regressions = pages.stream().filter(page -> page.getStatus() == Status.REGRESSED).count();
+        summary.put("regressions", regressions);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Page page : pages) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("page", page.getTemplate());
+            entry.put("status", page.getStatus().name());
+            entry.put("samples", page.getSamples());
+            entry.put("baselineSamples", page.getBaselineSamples());
+            for (Percentile percentile : page.getPercentiles()) {
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("baselineMs", percentile.getBaseline());
+                values.put("currentMs", percentile.getCurrent());
+                values.put("change", Math.round(percentile.getChange() * 1000) / 1000.0);
+                values.put("regressed", percentile.isRegressed());
+                entry.put(percentile.getName(), values);
+            }
+            entries.add(entry);
+        }
+        summary.put("pages", entries);
+        return summary;
+    }
+
+    private static Map<String, List<Long>> readBaseline(File file) {
+        Map<String, List<Long>> baseline = new TreeMap<>();
+        if (!file.isFile()) {
+            logger.info("No page load baseline at {}, this run starts one", file);
+            return baseline;
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+            if (root.get("version").getAsInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("unsupported version " + root.get("version"));
+            }
+            for (Map.Entry<String, JsonElement> page : root.getAsJsonObject("pages").entrySet()) {
+                List<Long> times = new ArrayList<>();
+                for (JsonElement time : page.getValue().getAsJsonArray()) {
+                    times.add(time.getAsLong());
+                }
+                baseline.put(page.getKey(), times);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Compared against nothing, every page is new; the file is rewritten from this run
+            logger.warn("Ignoring page load baseline {}: {}", file, e.getMessage());
+            baseline.clear();
+        }
+        return baseline;
+    }
+
+    private static Map<String, Object> baselineJson(Map<String, List<Long>> baseline) {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("version", FORMAT_VERSION);
+        root.put("updated", System.currentTimeMillis());
+        root.put("pages", baseline);
+        return root;
+    }
+
+    /**
+     * Write through a temporary file, so parallel readers never see half a file
+     */
+    private void writeJson(File file, Object value, boolean pretty) {
+        try {
+            File directory = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            File temp = File.createTempFile(file.getName(), ".tmp", directory);
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                (pretty ? gson.newBuilder().setPrettyPrinting().create() : gson).toJson(value, writer);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Could not write {}: {}", file, e.getMessage());
+        }
+    }
+}
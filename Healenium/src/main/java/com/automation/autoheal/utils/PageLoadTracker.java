@@ -1,29 +1,40 @@
 package com.automation.autoheal.utils;
 
 import com.automation.autoheal.config.AutoHealConfig;
-import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.Map;
 
 /**
- * Tracks page load times and calculates statistics for automatic timeout updates
+ * Tracks page load times and calculates statistics for automatic timeout updates.
+ * Load times are also kept per URL template and handed to
+ * {@link PageLoadRegression} when the statistics are saved, so they outlive
+ * the session.
  */
 public class PageLoadTracker {
     
     private WebDriver driver;
     private long startTime;
-    private List<Long> loadTimes;
+    private ConcurrentLinkedQueue<Long> loadTimes; // Lock-free, recording never blocks a (virtual) thread
     private Map<String, Long> pageLoadTimes; // URL -> load time mapping
+    private Map<String, Long> navigationTimes; // URL -> browser-reported load time, batched mode only
+    private Map<String, ConcurrentLinkedQueue<Long>> templateLoadTimes; // URL template -> load times not saved yet
     private AutoHealConfig config;
+    private CommandBatcher batcher;
+    private volatile String profileName; // Browser profile the session was started with
     
     public PageLoadTracker(WebDriver driver) {
         this.driver = driver;
-        this.loadTimes = new ArrayList<>();
+        this.loadTimes = new ConcurrentLinkedQueue<>();
         this.pageLoadTimes = new ConcurrentHashMap<>();
+        this.navigationTimes = new ConcurrentHashMap<>();
+        this.templateLoadTimes = new ConcurrentHashMap<>();
         this.config = AutoHealConfig.getInstance();
+        this.batcher = new CommandBatcher(driver, config.isCommandBatchingEnabled());
     }
     
     /**
@@ -43,21 +54,21 @@ public class PageLoadTracker {
         
         long loadTime = System.currentTimeMillis() - startTime;
         
-        // Wait for page to be fully loaded using JavaScript
-        try {
-            if (driver instanceof JavascriptExecutor) {
-                ((JavascriptExecutor) driver).executeScript(
-                    "return document.readyState"
-                ).equals("complete");
-            }
-        } catch (Exception e) {
-            // Ignore exceptions
-        }
+        // Read the page state; batched, the browser's own timing comes along in the same round trip
+        CommandBatcher.Result page = batcher.isEnabled()
+            ? batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL, CommandBatcher.NAVIGATION_TIMING)
+            : batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL);
         
         loadTimes.add(loadTime);
-        String currentUrl = driver.getCurrentUrl();
+        String currentUrl = page.get(CommandBatcher.CURRENT_URL);
         if (currentUrl != null) {
             pageLoadTimes.put(currentUrl, loadTime);
+            templateLoadTimes.computeIfAbsent(HealAhead.urlTemplate(currentUrl), template -> new ConcurrentLinkedQueue<>())
+                .add(loadTime);
+            Number navigationTime = page.get(CommandBatcher.NAVIGATION_TIMING);
+            if (navigationTime != null) {
+                navigationTimes.put(currentUrl, navigationTime.longValue());
+            }
         }
         
         startTime = 0;
@@ -68,26 +79,27 @@ public class PageLoadTracker {
      * Get average page load time
      */
     public long getAverageLoadTime() {
-        if (loadTimes.isEmpty()) {
+        List<Long> times = snapshot();
+        if (times.isEmpty()) {
             return config.getDefaultPageLoadTimeout();
         }
         
         long sum = 0;
-        for (Long time : loadTimes) {
+        for (Long time : times) {
             sum += time;
         }
-        return sum / loadTimes.size();
+        return sum / times.size();
     }
     
     /**
      * Get median page load time
      */
     public long getMedianLoadTime() {
-        if (loadTimes.isEmpty()) {
+        List<Long> sorted = snapshot();
+        if (sorted.isEmpty()) {
             return config.getDefaultPageLoadTimeout();
         }
         
-        List<Long> sorted = new ArrayList<>(loadTimes);
         sorted.sort(Long::compareTo);
         
         int size = sorted.size();
@@ -102,22 +114,35 @@ public class PageLoadTracker {
      * Get maximum page load time
      */
     public long getMaxLoadTime() {
-        if (loadTimes.isEmpty()) {
+        List<Long> times = snapshot();
+        if (times.isEmpty()) {
             return config.getDefaultPageLoadTimeout();
         }
         
-        return loadTimes.stream().max(Long::compareTo).orElse(config.getDefaultPageLoadTimeout());
+        return times.stream().max(Long::compareTo).orElse(config.getDefaultPageLoadTimeout());
     }
     
     /**
      * Get minimum page load time
      */
     public long getMinLoadTime() {
-        if (loadTimes.isEmpty()) {
+        List<Long> times = snapshot();
+        if (times.isEmpty()) {
             return config.getDefaultPageLoadTimeout();
         }
         
-        return loadTimes.stream().min(Long::compareTo).orElse(config.getDefaultPageLoadTimeout());
+        return times.stream().min(Long::compareTo).orElse(config.getDefaultPageLoadTimeout());
+    }
+    
+    /**
+     * Record the browser profile so statistics of different profiles can be compared
+     */
+    public void setProfileName(String profileName) {
+        this.profileName = profileName;
+    }
+    
+    public String getProfileName() {
+        return profileName;
     }
     
     /**
@@ -131,6 +156,14 @@ public class PageLoadTracker {
      * Get all recorded load times
      */
     public List<Long> getAllLoadTimes() {
+        return snapshot();
+    }
+    
+    /**
+     * Copy recorded load times; the queue's iterator never fails on a concurrent
+     * stopTracking() from another thread, it may just miss the newest sample
+     */
+    private List<Long> snapshot() {
         return new ArrayList<>(loadTimes);
     }
     
@@ -139,22 +172,36 @@ public class PageLoadTracker {
      */
     public Map<String, Object> getStatistics() {
         Map<String, Object> stats = new ConcurrentHashMap<>();
+        if (profileName != null) {
+            stats.put("profile", profileName);
+        }
         stats.put("average", getAverageLoadTime());
         stats.put("median", getMedianLoadTime());
         stats.put("max", getMaxLoadTime());
         stats.put("min", getMinLoadTime());
         stats.put("count", loadTimes.size());
         stats.put("pageLoadTimes", new ConcurrentHashMap<>(pageLoadTimes));
+        if (!navigationTimes.isEmpty()) {
+            stats.put("navigationTimes", new ConcurrentHashMap<>(navigationTimes));
+        }
         return stats;
     }
     
     /**
-     * Save statistics to file (optional implementation)
+     * Hand the load times recorded since the last save to {@link PageLoadRegression}
+     * for the comparison with the baseline at suite end
      */
     public void saveStatistics() {
-        // Can be extended to save to JSON/XML file
-        Map<String, Object> stats = getStatistics();
-        // Implementation for saving to file can be added here
+        Map<String, List<Long>> unsaved = new HashMap<>();
+        for (String template : templateLoadTimes.keySet()) {
+            ConcurrentLinkedQueue<Long> times = templateLoadTimes.remove(template);
+            if (times != null) {
+                unsaved.put(template, new ArrayList<>(times));
+            }
+        }
+        if (!unsaved.isEmpty()) {
+            PageLoadRegression.getInstance().addSamples(unsaved);
+        }
     }
     
     /**
@@ -163,6 +210,8 @@ public class PageLoadTracker {
     public void reset() {
         loadTimes.clear();
         pageLoadTimes.clear();
+        navigationTimes.clear();
+        templateLoadTimes.clear();
         startTime = 0;
     }
 }
@@ -0,0 +1,137 @@
+package com.automation.autoheal.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What one test spent: wall time, driver commands, time in waits, healing
+ * and page loads.
+ *
+ * A test runs on one thread, so the usage is kept per thread between
+ * {@link #start()} and {@link #finish()} and {@link com.automation.autoheal.core.AutoHealWebDriver}
+ * adds to it without knowing the test. Commands are the calls the test makes
+ * through the driver and its elements, not the framework's own scripts such
+ * as DOM captures for healing. Waits are explicit waits and the implicit wait
+ * a lookup spends before its locator is found broken. A heal run ahead on a
+ * background thread counts once the test uses it. Outside a test the
+ * recording methods do nothing.
+ */
+public class TestUsage {
+
+    private static final ThreadLocal<TestUsage> current = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private long wallNanos = -1; // Running until finished
+    private long commands;
+    private long waitNanos;
+    private long healNanos;
+    private long heals;
+    private long pageLoadMillis;
+    private long pageLoads;
+
+    private TestUsage() {
+    }
+
+    /**
+     * Start recording the usage of the test running on this thread
+     */
+    public static TestUsage start() {
+        TestUsage usage = new TestUsage();
+        current.set(usage);
+        return usage;
+    }
+
+    /**
+     * Stop recording for this thread, returning what the test used or null if nothing was started
+     */
+    public static TestUsage finish() {
+        TestUsage usage = current.get();
+        current.remove();
+        if (usage != null) {
+            usage.wallNanos = System.nanoTime() - usage.startNanos;
+        }
+        return usage;
+    }
+
+    /**
+     * Usage of the test running on this thread, null outside a test
+     */
+    public static TestUsage current() {
+        return current.get();
+    }
+
+    public static void recordCommand() {
+        TestUsage usage = current.get();
+        if (usage != null) {
+            usage.commands++;
+        }
+    }
+
+    public static void recordWait(long nanos) {
+        TestUsage usage = current.get();
+        if (usage != null) {
+            usage.waitNanos += nanos;
+        }
+    }
+
+    /**
+     * @param used whether the healed locator found the element, so the test went on with a heal
+     */
+    public static void recordHeal(long nanos, boolean used) {
+        TestUsage usage = current.get();
+        if (usage != null) {
+            usage.healNanos += nanos;
+            if (used) {
+                usage.heals++;
+            }
+        }
+    }
+
+    public static void recordPageLoad(long millis) {
+        TestUsage usage = current.get();
+        if (usage != null) {
+            usage.pageLoadMillis += millis;
+            usage.pageLoads++;
+        }
+    }
+
+    public long getWallTimeMs() {
+        return (wallNanos < 0 ? System.nanoTime() - startNanos : wallNanos) / 1000000;
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public long getWaitMs() {
+        return waitNanos / 1000000;
+    }
+
+    public long getHealMs() {
+        return healNanos / 1000000;
+    }
+
+    public long getHeals() {
+        return heals;
+    }
+
+    public long getPageLoadMs() {
+        return pageLoadMillis;
+    }
+
+    public long getPageLoads() {
+        return pageLoads;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("wallTimeMs", getWallTimeMs());
+        stats.put("commands", commands);
+        stats.put("waitMs", getWaitMs());
+        stats.put("healMs", getHealMs());
+        stats.put("heals", heals);
+        stats.put("pageLoadMs", pageLoadMillis);
+        stats.put("pageLoads", pageLoads);
+        return stats;
+    }
+}
@@ -0,0 +1,223 @@
+package com.automation.autoheal.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Generates the shortest stable XPath that uniquely identifies an element.
+ *
+ * Candidates are tried in order: id, test attributes (data-testid, data-qa, ...),
+ * other descriptive attributes, exact text, then a short path anchored on the
+ * nearest uniquely identifiable ancestor. Only if no ancestor qualifies is a
+ * positional path from /html produced. Uniqueness is checked against the
+ * {@link DomIndex} of the page snapshot, so no browser round trip is needed.
+ * A pruned DOM from {@link CompactDom#scan} only supports the single-step
+ * locators; paths need the complete parse.
+ */
+public class XPathGenerator {
+
+    static final int MAX_TEXT_LENGTH = 50;
+    static final int MAX_VALUE_LENGTH = 80;
+    static final int MAX_ANCHOR_DEPTH = 6;
+
+    // Ids that look framework-generated (counters, uuids, React useId) change between builds
+    static final Pattern GENERATED_ID = Pattern.compile(
+        ".*(\\d{4,}|[0-9a-f]{8}-[0-9a-f]{4}|:).*", Pattern.CASE_INSENSITIVE);
+
+    private final DomIndex index;
+    private final CompactDom dom;
+
+    public XPathGenerator(DomIndex index) {
+        this.index = index;
+        this.dom = index.getDom();
+    }
+
+    /**
+     * Generate a unique XPath for the element, or null if the element cannot be
+     * addressed (or, in a pruned DOM, has no single-step locator)
+     */
+    public String generate(int element) {
+        if (!dom.isElement(element)) {
+            return null;
+        }
+
+        String unique = uniqueLocator(element, true);
+        if (unique != null) {
+            return unique;
+        }
+        // Paths depend on siblings and descendants a pruned DOM has dropped
+        return dom.isPruned() ? null : anchoredLocator(element);
+    }
+
+    /**
+     * Single-step locator that matches only this element on the whole page
+     */
+    private String uniqueLocator(int element, boolean allowText) {
+        String tagName = dom.tagName(element);
+
+        String id = dom.id(element);
+        if (isStableId(id) && index.countAttribute("id", id) == 1) {
+            return "//" + tagName + "[@id=" + literal(id) + "]";
+        }
+
+        for (String attribute : DomIndex.LOCATOR_ATTRIBUTES) {
+            String value = dom.attr(element, attribute);
+            if (isStableValue(value) && index.countAttribute(tagName, attribute, value) == 1) {
+                return "//" + tagName + "[@" + attribute + "=" + literal(value) + "]";
+            }
+        }
+
+        if (allowText) {
+            String text = dom.text(element);
+            if (isUsableText(element, text) && index.countText(tagName, text) == 1) {
+                return "//" + tagName + "[normalize-space()=" + literal(text) + "]";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Path relative to the nearest ancestor that has a unique locator of its own,
+     * falling back to an absolute path when there is none
+     */
+    private String anchoredLocator(int element) {
+        int ancestor = dom.parent(element);
+        for (int depth = 0; depth < MAX_ANCHOR_DEPTH && isAddressable(ancestor); depth++) {
+            String anchor = uniqueLocator(ancestor, false);
+            if (anchor != null) {
+                return anchor + relativePath(ancestor, element);
+            }
+            ancestor = dom.parent(ancestor);
+        }
+        return absolutePath(element);
+    }
+
+    /**
+     * Shortest path from the anchor that matches only the element below it
+     */
+    private String relativePath(int anchor, int element) {
+        String tagName = dom.tagName(element);
+        int[] sameTag = dom.elementsByTag(anchor, tagName);
+        if (sameTag.length == 1) {
+            return "//" + tagName;
+        }
+
+        for (String attribute : DomIndex.LOCATOR_ATTRIBUTES) {
+            String value = dom.attr(element, attribute);
+            if (isStableValue(value) && countWithAttribute(sameTag, attribute, value) == 1) {
+                return "//" + tagName + "[@" + attribute + "=" + literal(value) + "]";
+            }
+        }
+
+        String type = dom.attr(element, "type");
+        if (!type.isEmpty() && countWithAttribute(sameTag, "type", type) == 1) {
+            return "//" + tagName + "[@type=" + literal(type) + "]";
+        }
+
+        String text = dom.text(element);
+        if (isUsableText(element, text) && countWithText(sameTag, text) == 1) {
+            return "//" + tagName + "[normalize-space()=" + literal(text) + "]";
+        }
+
+        List<String> steps = new ArrayList<>();
+        for (int current = element; current != anchor; current = dom.parent(current)) {
+            steps.add(0, step(current));
+        }
+        return "/" + String.join("/", steps);
+    }
+
+    /**
+     * Positional path from /html, used only when nothing on the way up is unique
+     */
+    private String absolutePath(int element) {
+        List<String> steps = new ArrayList<>();
+        for (int current = element; isAddressable(current); current = dom.parent(current)) {
+            steps.add(0, step(current));
+        }
+        return "/" + String.join("/", steps);
+    }
+
+    /**
+     * Tag name with a position among same-tag siblings when there is more than one
+     */
+    private String step(int element) {
+        String tagName = dom.tagName(element);
+        int parent = dom.parent(element);
+        if (parent < 0) {
+            return tagName;
+        }
+
+        int position = 0;
+        int count = 0;
+        for (int sibling = dom.firstChild(parent); sibling >= 0; sibling = dom.nextSibling(sibling)) {
+            if (dom.tagName(sibling).equals(tagName)) {
+                count++;
+                if (sibling == element) {
+                    position = count;
+                }
+            }
+        }
+        return count > 1 ? tagName + "[" + position + "]" : tagName;
+    }
+
+    private int countWithAttribute(int[] elements, String attribute, String value) {
+        int count = 0;
+        for (int element : elements) {
+            if (value.equals(dom.attr(element, attribute))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countWithText(int[] elements, String text) {
+        int count = 0;
+        for (int element : elements) {
+            if (text.equals(dom.text(element))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isAddressable(int element) {
+        return dom.isElement(element);
+    }
+
+    private boolean isStableId(String id) {
+        return isStableValue(id) && !isGeneratedId(id);
+    }
+
+    /**
+     * Whether an id looks framework-generated and may change when the element is rendered again
+     */
+    public static boolean isGeneratedId(String id) {
+        return GENERATED_ID.matcher(id).matches();
+    }
+
+    private boolean isStableValue(String value) {
+        return !value.isEmpty() && value.length() <= MAX_VALUE_LENGTH;
+    }
+
+    /**
+     * Text is only used on leaf elements, where the browser's normalize-space()
+     * and the snapshot's normalized text agree
+     */
+    private boolean isUsableText(int element, String text) {
+        return !text.isEmpty() && text.length() <= MAX_TEXT_LENGTH && !dom.hasChildren(element);
+    }
+
+    /**
+     * Quote a value as an XPath string literal
+     */
+    static String literal(String value) {
+        if (!value.contains("'")) {
+            return "'" + value + "'";
+        }
+        if (!value.contains("\"")) {
+            return "\"" + value + "\"";
+        }
+        return "concat('" + value.replace("'", "', \"'\", '") + "')";
+    }
+}
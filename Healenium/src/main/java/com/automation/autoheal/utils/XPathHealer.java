@@ -1,115 +1,270 @@
 package com.automation.autoheal.utils;
 
 import com.automation.autoheal.config.AutoHealConfig;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * XPath healing utility that attempts to regenerate broken XPath locators
- * by analyzing the current DOM structure
+ * by analyzing the current DOM structure, including open shadow roots and
+ * same-origin frames. With autoheal.engine=browser candidates are scored in
+ * the live page by {@link BrowserHealer} instead.
  */
 public class XPathHealer {
     
+    // Score of each attribute of the original XPath a candidate matches, shared with BrowserHealer
+    static final int ID_WEIGHT = 10;
+    static final int NAME_WEIGHT = 8;
+    static final int CLASS_WEIGHT = 6;
+    static final int TEXT_WEIGHT = 5;
+    static final int TAG_WEIGHT = 3;
+    
+    // Attributes in the order of the bits returned by matchedAttributes
+    private static final String[] ATTRIBUTE_NAMES = {"id", "name", "className", "text", "tagName"};
+    private static final int[] ATTRIBUTE_WEIGHTS = {ID_WEIGHT, NAME_WEIGHT, CLASS_WEIGHT, TEXT_WEIGHT, TAG_WEIGHT};
+    
     private WebDriver driver;
     private AutoHealConfig config;
-    private Map<String, String> healedXPaths; // Cache for healed XPaths
+    private BrowserHealer browserHealer;
+    private CommandBatcher batcher;
+    private Function<By, List<WebElement>> finder; // Looks cached locators up, without waiting
+    private Map<String, Match> healedXPaths; // Cache for healed locators, also filled by heal-ahead threads
     
     public XPathHealer(WebDriver driver, AutoHealConfig config) {
+        this(driver, config, driver::findElements);
+    }
+    
+    /**
+     * @param finder looks up cached and seeded locators; pass one that does not
+     *        apply the implicit wait, so a stale entry fails fast
+     */
+    public XPathHealer(WebDriver driver, AutoHealConfig config, Function<By, List<WebElement>> finder) {
         this.driver = driver;
         this.config = config;
-        this.healedXPaths = new HashMap<>();
+        this.finder = finder;
+        this.browserHealer = new BrowserHealer(driver, config);
+        this.batcher = new CommandBatcher(driver, config.isCommandBatchingEnabled());
+        this.healedXPaths = new ConcurrentHashMap<>();
     }
     
     /**
      * Attempt to heal a broken XPath locator
      */
     public By healXPath(By originalLocator) {
+        Match match = heal(originalLocator).getMatch();
+        return match == null ? null : match.getLocator();
+    }
+    
+    /**
+     * Attempt to heal a broken XPath locator, returning the replacement or why
+     * there is none, with the best candidates
+     */
+    public HealResult heal(By originalLocator) {
+        return heal(originalLocator, null);
+    }
+    
+    /**
+     * Heal with a DOM snapshot the caller captured along with its own reads,
+     * used if neither the cache nor the seeded locators answer
+     *
+     * @param snapshot the current DOM, null to capture it when needed
+     */
+    public HealResult heal(By originalLocator, DomSnapshot snapshot) {
         if (!isXPathLocator(originalLocator)) {
-            return null;
+            return HealResult.none();
         }
         
         String originalXPath = originalLocator.toString().replace("By.xpath: ", "");
         
         // Check cache first
-        if (healedXPaths.containsKey(originalXPath)) {
-            String cachedXPath = healedXPaths.get(originalXPath);
-            try {
-                driver.findElement(By.xpath(cachedXPath));
-                return By.xpath(cachedXPath);
-            } catch (Exception e) {
-                // Cached XPath is also broken, remove from cache
-                healedXPaths.remove(originalXPath);
+        Match cached = healedXPaths.get(originalXPath);
+        if (cached != null) {
+            if (isPresent(cached.getLocator())) {
+                return HealResult.reused(cached.fromCache());
             }
+            // Cached locator is also broken, remove from cache
+            healedXPaths.remove(originalXPath);
+        }
+        
+        // Then locators healed in earlier runs, seeded from a heal cache snapshot
+        HealCache sharedCache = HealCache.getInstance();
+        Match seeded = sharedCache.lookup(originalXPath);
+        if (seeded != null) {
+            if (isPresent(seeded.getLocator())) {
+                healedXPaths.put(originalXPath, seeded);
+                return HealResult.reused(seeded);
+            }
+            sharedCache.invalidate(originalXPath);
         }
         
         try {
-            // Get current DOM
-            String pageSource = driver.getPageSource();
-            Document doc = Jsoup.parse(pageSource);
-            
-            // Extract element attributes from original XPath
-            XPathAttributes attributes = extractAttributesFromXPath(originalXPath);
-            
-            // Try to find element using different strategies
-            By healedLocator = tryHealingStrategies(doc, attributes, originalXPath);
-            
-            if (healedLocator != null) {
-                // Verify the healed locator works
+            if ("browser".equals(config.getHealingEngine()) && driver instanceof JavascriptExecutor) {
                 try {
-                    driver.findElement(healedLocator);
-                    // Cache the healed XPath
-                    healedXPaths.put(originalXPath, healedLocator.toString().replace("By.xpath: ", ""));
-                    return healedLocator;
-                } catch (Exception e) {
-                    // Healed locator doesn't work
-                    return null;
+                    return healInBrowser(originalXPath);
+                } catch (WebDriverException e) {
+                    // Script could not run (CSP, unsupported browser): heal from a snapshot instead
                 }
             }
+            long start = System.nanoTime();
+            // Get current DOM, including shadow roots and same-origin frames
+            HealResult result = healSnapshot(originalXPath, snapshot != null ? snapshot : DomSnapshot.capture(batcher));
+            HealingMetrics.getInstance().recordEngineAttempt("jvm", result.isHealed(), System.nanoTime() - start);
+            return result;
         } catch (Exception e) {
             // Healing failed
-            return null;
+            return HealResult.none();
         }
+    }
+    
+    /**
+     * Whether heal() would capture a DOM snapshot for this locator: it has no
+     * cached or seeded locator to try first and the snapshot engine heals it
+     */
+    public boolean needsSnapshot(By originalLocator) {
+        if (!isXPathLocator(originalLocator)) {
+            return false;
+        }
+        String originalXPath = originalLocator.toString().replace("By.xpath: ", "");
+        if (healedXPaths.containsKey(originalXPath) || HealCache.getInstance().contains(originalXPath)) {
+            return false;
+        }
+        return !("browser".equals(config.getHealingEngine()) && driver instanceof JavascriptExecutor);
+    }
+    
+    /**
+     * Heal with one script call scoring candidates in the live top document,
+     * and cache the result
+     */
+    private HealResult healInBrowser(String originalXPath) {
+        long start = System.nanoTime();
+        XPathAttributes attributes = extractAttributesFromXPath(originalXPath);
+        int maxScore = maxScore(attributes);
+        List<HealResult.Candidate> ranked = new ArrayList<>();
+        for (BrowserHealer.Candidate candidate : browserHealer.findCandidates(attributes)) {
+            ranked.add(new HealResult.Candidate(By.xpath(candidate.getLocator()), candidate.getScore(),
+                (double) candidate.getScore() / maxScore, String.join("+", candidate.getMatched())));
+        }
+        HealResult result = judge(ranked, "browser");
+        HealingMetrics.getInstance().recordEngineAttempt("browser", result.isHealed(), System.nanoTime() - start);
         
-        return null;
+        if (result.isHealed()) {
+            healedXPaths.put(originalXPath, result.getMatch());
+        }
+        return result;
+    }
+    
+    /**
+     * Heal an XPath against an already captured snapshot, without any browser
+     * command, and cache the result. Safe to call from a background thread as
+     * long as the snapshot is not used by another thread at the same time.
+     */
+    public By healFromSnapshot(String originalXPath, DomSnapshot snapshot) {
+        Match match = healSnapshot(originalXPath, snapshot).getMatch();
+        return match == null ? null : match.getLocator();
+    }
+    
+    HealResult healSnapshot(String originalXPath, DomSnapshot snapshot) {
+        // Extract element attributes from original XPath
+        XPathAttributes attributes = extractAttributesFromXPath(originalXPath);
+        
+        // Try to find element using different strategies
+        HealResult result = tryHealingStrategies(snapshot, attributes);
+        
+        if (result.isHealed()) {
+            // Uniqueness was already checked against the DOM snapshot, no browser round trip needed
+            healedXPaths.put(originalXPath, result.getMatch());
+        }
+        return result;
+    }
+    
+    /**
+     * Accept the best candidate unless it is below the minimum confidence or too close to the runner-up
+     */
+    private HealResult judge(List<HealResult.Candidate> ranked, String engine) {
+        HealResult result = HealResult.judge(ranked, engine, config.getHealMinConfidence(), config.getHealMinMargin());
+        if (result.getStatus() == HealResult.Status.LOW_CONFIDENCE || result.getStatus() == HealResult.Status.AMBIGUOUS) {
+            HealingMetrics.getInstance().recordRefused(result.getStatus());
+        }
+        return result;
+    }
+    
+    /**
+     * Candidates compared per heal: the configured number, and the runner-up for the margin
+     */
+    static int candidateLimit(AutoHealConfig config) {
+        return Math.max(config.getHealingTopCandidates(), 2);
+    }
+    
+    /**
+     * Locator a broken XPath was last healed to, from the cache only, or null
+     */
+    public By getCachedHealedLocator(By originalLocator) {
+        Match match = getCachedMatch(originalLocator);
+        return match == null ? null : match.getLocator();
+    }
+    
+    /**
+     * How a broken XPath was last healed, from the cache only, or null
+     */
+    public Match getCachedMatch(By originalLocator) {
+        if (!isXPathLocator(originalLocator)) {
+            return null;
+        }
+        return healedXPaths.get(originalLocator.toString().replace("By.xpath: ", ""));
+    }
+    
+    /**
+     * Broken XPaths this healer replaced so far, with the locator each is healed to
+     */
+    public Map<String, String> getHealedLocators() {
+        Map<String, String> healed = new TreeMap<>();
+        for (Map.Entry<String, Match> entry : healedXPaths.entrySet()) {
+            healed.put(entry.getKey(), entry.getValue().getLocator().toString());
+        }
+        return healed;
     }
     
     /**
      * Extract attributes from original XPath for matching
      */
-    private XPathAttributes extractAttributesFromXPath(String xPath) {
+    XPathAttributes extractAttributesFromXPath(String xPath) {
         XPathAttributes attributes = new XPathAttributes();
         
+        // Predicates of earlier steps describe ancestors, not the element itself
+        String step = lastStep(xPath);
+        
         // Extract text content
         Pattern textPattern = Pattern.compile("text\\(\\)\\s*=\\s*['\"]([^'\"]+)['\"]", Pattern.CASE_INSENSITIVE);
-        Matcher textMatcher = textPattern.matcher(xPath);
+        Matcher textMatcher = textPattern.matcher(step);
         if (textMatcher.find()) {
             attributes.text = textMatcher.group(1);
         }
         
         // Extract id attribute
         Pattern idPattern = Pattern.compile("@id\\s*=\\s*['\"]([^'\"]+)['\"]", Pattern.CASE_INSENSITIVE);
-        Matcher idMatcher = idPattern.matcher(xPath);
+        Matcher idMatcher = idPattern.matcher(step);
         if (idMatcher.find()) {
             attributes.id = idMatcher.group(1);
         }
         
         // Extract class attribute
         Pattern classPattern = Pattern.compile("@class\\s*=\\s*['\"]([^'\"]+)['\"]", Pattern.CASE_INSENSITIVE);
-        Matcher classMatcher = classPattern.matcher(xPath);
+        Matcher classMatcher = classPattern.matcher(step);
         if (classMatcher.find()) {
             attributes.className = classMatcher.group(1);
         }
         
         // Extract name attribute
         Pattern namePattern = Pattern.compile("@name\\s*=\\s*['\"]([^'\"]+)['\"]", Pattern.CASE_INSENSITIVE);
-        Matcher nameMatcher = namePattern.matcher(xPath);
+        Matcher nameMatcher = namePattern.matcher(step);
         if (nameMatcher.find()) {
             attributes.name = nameMatcher.group(1);
         }
@@ -126,149 +281,358 @@ public class XPathHealer {
         return attributes;
     }
     
+    /**
+     * The last location step of an XPath, splitting on '/' outside predicates and quotes
+     */
+    static String lastStep(String xPath) {
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < xPath.length(); i++) {
+            char c = xPath.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                start = i + 1;
+            }
+        }
+        return xPath.substring(start);
+    }
+    
     /**
      * Try different healing strategies
      */
-    private By tryHealingStrategies(Document doc, XPathAttributes attributes, String originalXPath) {
-        List<Element> candidates = new ArrayList<>();
+    private HealResult tryHealingStrategies(DomSnapshot snapshot, XPathAttributes attributes) {
+        // Only candidates and their ancestors are kept while scanning, so cost follows the matches
+        CompactDom.Filter filter = new CompactDom.Filter()
+            .id(attributes.id)
+            .text(attributes.text)
+            .className(attributes.className)
+            .name(attributes.name)
+            .tagName(attributes.tagName);
+        
+        int limit = candidateLimit(config);
+        List<ScopedCandidate> found = new ArrayList<>();
+        for (DomSnapshot.Scope scope : snapshot.getScopes()) {
+            CompactDom dom = scope.scan(filter);
+            for (int element : rankCandidates(dom, collectCandidates(dom, attributes), attributes, limit)) {
+                found.add(new ScopedCandidate(scope, dom, element, score(dom, element, attributes)));
+            }
+        }
+        // Stable, so on equal scores the earlier scope comes first
+        found.sort((a, b) -> b.score - a.score);
+        
+        // Generate a unique locator for each of the best candidates
+        int maxScore = maxScore(attributes);
+        List<HealResult.Candidate> ranked = new ArrayList<>();
+        for (ScopedCandidate candidate : found.subList(0, Math.min(limit, found.size()))) {
+            By locator = toLocator(snapshot, candidate.scope, candidate.dom, candidate.element);
+            ranked.add(new HealResult.Candidate(locator, candidate.score, (double) candidate.score / maxScore,
+                strategy(matchedAttributes(candidate.dom, candidate.element, attributes))));
+        }
+        return judge(ranked, "jvm");
+    }
+    
+    /**
+     * An element of one scope of a snapshot, with its score
+     */
+    private static class ScopedCandidate {
+        private final DomSnapshot.Scope scope;
+        private final CompactDom dom;
+        private final int element;
+        private final int score;
+        
+        ScopedCandidate(DomSnapshot.Scope scope, CompactDom dom, int element, int score) {
+            this.scope = scope;
+            this.dom = dom;
+            this.element = element;
+            this.score = score;
+        }
+    }
+    
+    /**
+     * Build the locator for an element, qualified with the frames and shadow
+     * hosts leading to it when it is not in the top document
+     */
+    private By toLocator(DomSnapshot snapshot, DomSnapshot.Scope scope, CompactDom dom, int element) {
+        String xPath = new XPathGenerator(new DomIndex(dom)).generate(element);
+        if (xPath == null && dom.isPruned()) {
+            // No single-step locator is unique: paths need the complete scope
+            xPath = new XPathGenerator(scope.getIndex()).generate(dom.documentOrder(element));
+        }
+        if (xPath == null) {
+            return null;
+        }
+        if (scope.getParent() == null) {
+            return By.xpath(xPath);
+        }
+        
+        LinkedList<ByScopedXPath.Hop> hops = new LinkedList<>();
+        for (DomSnapshot.Scope current = scope; current.getParent() != null; current = current.getParent()) {
+            String hostXPath = current.getHost() < 0 ? null
+                : new XPathGenerator(current.getParent().getIndex()).generate(current.getHost());
+            if (hostXPath == null) {
+                return null;
+            }
+            hops.addFirst(new ByScopedXPath.Hop(current.getKind(), hostXPath));
+        }
+        return new ByScopedXPath(hops, xPath);
+    }
+    
+    /**
+     * Check a cached locator still finds something, leaving the driver's context as it was
+     */
+    private boolean isPresent(By locator) {
+        try {
+            List<WebElement> elements = finder.apply(locator);
+            if (!elements.isEmpty() && locator instanceof ByScopedXPath) {
+                ((ByScopedXPath) locator).restoreContext(driver);
+            }
+            return !elements.isEmpty();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Collect candidate elements for every attribute extracted from the original XPath
+     */
+    int[] collectCandidates(CompactDom dom, XPathAttributes attributes) {
+        List<int[]> found = new ArrayList<>();
         
         // Strategy 1: Find by ID
         if (attributes.id != null && !attributes.id.isEmpty()) {
-            Element element = doc.getElementById(attributes.id);
-            if (element != null) {
-                candidates.add(element);
+            int element = dom.elementById(attributes.id);
+            if (element >= 0) {
+                found.add(new int[] {element});
             }
         }
         
         // Strategy 2: Find by text content
         if (attributes.text != null && !attributes.text.isEmpty()) {
-            Elements elements = doc.getElementsContainingText(attributes.text);
-            candidates.addAll(elements);
+            found.add(dom.elementsContainingText(attributes.text));
         }
         
         // Strategy 3: Find by class name
         if (attributes.className != null && !attributes.className.isEmpty()) {
-            Elements elements = doc.getElementsByClass(attributes.className);
-            candidates.addAll(elements);
+            found.add(dom.elementsByClass(attributes.className));
         }
         
         // Strategy 4: Find by name attribute
         if (attributes.name != null && !attributes.name.isEmpty()) {
-            Elements elements = doc.getElementsByAttributeValue("name", attributes.name);
-            candidates.addAll(elements);
+            found.add(dom.elementsByAttributeValue("name", attributes.name));
         }
         
         // Strategy 5: Find by tag name
         if (attributes.tagName != null && !attributes.tagName.isEmpty()) {
-            Elements elements = doc.getElementsByTag(attributes.tagName);
-            candidates.addAll(elements);
+            found.add(dom.elementsByTag(CompactDom.ROOT, attributes.tagName));
         }
         
-        // If we found candidates, generate XPath for the first unique one
-        if (!candidates.isEmpty()) {
-            Element bestMatch = findBestMatch(candidates, attributes);
-            if (bestMatch != null) {
-                String newXPath = generateXPath(bestMatch);
-                return By.xpath(newXPath);
-            }
+        // Elements are node numbers, so the candidates of all strategies fit in one int array
+        int count = 0;
+        for (int[] elements : found) {
+            count += elements.length;
         }
-        
-        return null;
+        int[] candidates = new int[count];
+        int position = 0;
+        for (int[] elements : found) {
+            System.arraycopy(elements, 0, candidates, position, elements.length);
+            position += elements.length;
+        }
+        return candidates;
     }
     
     /**
      * Find the best matching element from candidates
      */
-    private Element findBestMatch(List<Element> candidates, XPathAttributes attributes) {
-        if (candidates.isEmpty()) {
-            return null;
+    int findBestMatch(CompactDom dom, int[] candidates, XPathAttributes attributes) {
+        int[] ranked = rankCandidates(dom, candidates, attributes, 1);
+        return ranked.length == 0 ? -1 : ranked[0];
+    }
+    
+    /**
+     * Distinct matching candidates, best first, at most limit; equal scores keep
+     * strategy order. An element is left out when a candidate inside it matches
+     * every attribute it matches: text is matched through descendants, so each
+     * ancestor of the element holding the text would tie with it.
+     */
+    int[] rankCandidates(CompactDom dom, int[] candidates, XPathAttributes attributes, int limit) {
+        int[] distinct = new int[candidates.length];
+        int[] masks = new int[dom.size()];
+        int count = 0;
+        for (int candidate : candidates) {
+            if (masks[candidate] == 0) {
+                int matched = matchedAttributes(dom, candidate, attributes);
+                if (matched != 0) {
+                    masks[candidate] = matched;
+                    distinct[count++] = candidate;
+                }
+            }
         }
         
-        // Score each candidate based on attribute matches
-        Element bestMatch = null;
-        int bestScore = 0;
-        
-        for (Element candidate : candidates) {
-            int score = 0;
-            
-            if (attributes.id != null && attributes.id.equals(candidate.id())) {
-                score += 10;
-            }
-            if (attributes.name != null && attributes.name.equals(candidate.attr("name"))) {
-                score += 8;
-            }
-            if (attributes.className != null && candidate.hasClass(attributes.className)) {
-                score += 6;
+        // In document order the candidates inside an element directly follow it
+        int[] inOrder = Arrays.copyOf(distinct, count);
+        Arrays.sort(inOrder);
+        for (int i = 0; i < count; i++) {
+            int element = inOrder[i];
+            for (int j = i + 1; j < count && inOrder[j] < dom.end(element); j++) {
+                if ((masks[inOrder[j]] & masks[element]) == masks[element]) {
+                    masks[element] = -1; // Contains a candidate at least as good
+                    break;
+                }
             }
-            if (attributes.text != null && candidate.text().contains(attributes.text)) {
-                score += 5;
+        }
+        
+        Integer[] kept = new Integer[count];
+        int keptCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (masks[distinct[i]] != -1) {
+                kept[keptCount++] = distinct[i];
             }
-            if (attributes.tagName != null && attributes.tagName.equals(candidate.tagName())) {
-                score += 3;
+        }
+        Arrays.sort(kept, 0, keptCount, (a, b) -> weight(masks[b]) - weight(masks[a]));
+        int[] ranked = new int[Math.min(limit, keptCount)];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = kept[i];
+        }
+        return ranked;
+    }
+    
+    /**
+     * How well an element matches the attributes of the original XPath
+     */
+    private int score(CompactDom dom, int candidate, XPathAttributes attributes) {
+        return weight(matchedAttributes(dom, candidate, attributes));
+    }
+    
+    /**
+     * Sum of the weights of the attributes set in a matchedAttributes mask
+     */
+    private static int weight(int matched) {
+        int score = 0;
+        for (int i = 0; i < ATTRIBUTE_WEIGHTS.length; i++) {
+            if ((matched & (1 << i)) != 0) {
+                score += ATTRIBUTE_WEIGHTS[i];
             }
-            
-            if (score > bestScore) {
-                bestScore = score;
-                bestMatch = candidate;
+        }
+        return score;
+    }
+    
+    /**
+     * Score of an element matching every attribute of the original XPath
+     */
+    private static int maxScore(XPathAttributes attributes) {
+        String[] values = {attributes.id, attributes.name, attributes.className, attributes.text, attributes.tagName};
+        int matched = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                matched |= 1 << i;
             }
         }
+        return Math.max(weight(matched), 1);
+    }
+    
+    /**
+     * Attributes of the original XPath an element matches, one bit per entry of ATTRIBUTE_NAMES
+     */
+    private int matchedAttributes(CompactDom dom, int candidate, XPathAttributes attributes) {
+        int matched = 0;
         
-        return bestMatch;
+        if (attributes.id != null && attributes.id.equals(dom.id(candidate))) {
+            matched |= 1;
+        }
+        if (attributes.name != null && attributes.name.equals(dom.attr(candidate, "name"))) {
+            matched |= 1 << 1;
+        }
+        if (attributes.className != null && dom.hasClass(candidate, attributes.className)) {
+            matched |= 1 << 2;
+        }
+        if (attributes.text != null && dom.text(candidate).contains(attributes.text)) {
+            matched |= 1 << 3;
+        }
+        if (attributes.tagName != null && attributes.tagName.equals(dom.tagName(candidate))) {
+            matched |= 1 << 4;
+        }
+        return matched;
     }
     
     /**
-     * Generate XPath for an element
+     * Matched attributes joined with '+', like "id+tagName", as the browser engine reports them
      */
-    private String generateXPath(Element element) {
-        List<String> path = new ArrayList<>();
-        Element current = element;
-        
-        while (current != null && !current.tagName().equals("html")) {
-            String tagName = current.tagName();
-            String id = current.id();
-            String className = current.className();
-            String name = current.attr("name");
-            
-            // Build XPath segment
-            StringBuilder segment = new StringBuilder(tagName);
-            
-            // Prefer ID if available
-            if (id != null && !id.isEmpty()) {
-                segment.append("[@id='").append(id).append("']");
-            } else if (name != null && !name.isEmpty()) {
-                segment.append("[@name='").append(name).append("']");
-            } else if (className != null && !className.isEmpty()) {
-                String firstClass = className.split("\\s+")[0];
-                segment.append("[contains(@class,'").append(firstClass).append("')]");
-            } else {
-                // Add index if needed
-                Element parent = current.parent();
-                if (parent != null) {
-                    Elements siblings = parent.children();
-                    int index = 1;
-                    for (int i = 0; i < siblings.size(); i++) {
-                        if (siblings.get(i).equals(current)) {
-                            index = i + 1;
-                            break;
-                        }
-                    }
-                    if (siblings.size() > 1) {
-                        segment.append("[").append(index).append("]");
-                    }
-                }
+    private static String strategy(int matched) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < ATTRIBUTE_NAMES.length; i++) {
+            if ((matched & (1 << i)) != 0) {
+                names.add(ATTRIBUTE_NAMES[i]);
             }
-            
-            path.add(0, segment.toString());
-            current = current.parent();
         }
+        return String.join("+", names);
+    }
+    
+    /**
+     * Generate the shortest unique XPath for an element
+     */
+    String generateXPath(CompactDom dom, int element) {
+        return new XPathGenerator(new DomIndex(dom)).generate(element);
+    }
+    
+    /**
+     * A healed locator and how it was chosen
+     */
+    public static class Match {
         
-        return "/" + String.join("/", path);
+        private final By locator;
+        private final int score;
+        private final String strategy;
+        private final String engine;
+        
+        Match(By locator, int score, String strategy, String engine) {
+            this.locator = locator;
+            this.score = score;
+            this.strategy = strategy;
+            this.engine = engine;
+        }
+        
+        public By getLocator() {
+            return locator;
+        }
+        
+        public int getScore() {
+            return score;
+        }
+        
+        /**
+         * Attributes of the original XPath the element matched, like "id+tagName"
+         */
+        public String getStrategy() {
+            return strategy;
+        }
+        
+        /**
+         * What found the replacement: jvm, browser, seed for a heal from an
+         * earlier run, or cache for an earlier heal of this run reused
+         */
+        public String getEngine() {
+            return engine;
+        }
+        
+        Match fromCache() {
+            return new Match(locator, score, strategy, "cache");
+        }
     }
     
     /**
      * Inner class to hold XPath attributes
      */
-    private static class XPathAttributes {
+    static class XPathAttributes {
         String id;
         String name;
         String className;
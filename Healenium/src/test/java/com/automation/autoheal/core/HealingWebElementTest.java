@@ -0,0 +1,36 @@
+package com.automation.autoheal.core;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Fingerprint checks a re-located stale element has to pass
+ */
+public class HealingWebElementTest {
+
+    private static HealingWebElement.Fingerprint fingerprint(String tagName, String id, String name) {
+        return new HealingWebElement.Fingerprint(tagName, id, name);
+    }
+
+    @Test(description = "The same tag, id and name is the same element, whatever the tag's case")
+    public void testMatches() {
+        Assert.assertTrue(fingerprint("INPUT", "email", "email").matches(fingerprint("input", "email", "email")));
+    }
+
+    @Test(description = "A different tag, id or name is something else rendered in its place")
+    public void testMismatches() {
+        HealingWebElement.Fingerprint original = fingerprint("input", "email", "email");
+        Assert.assertFalse(original.matches(fingerprint("div", "email", "email")));
+        Assert.assertFalse(original.matches(fingerprint("input", "phone", "email")));
+        Assert.assertFalse(original.matches(fingerprint("input", "email", "phone")));
+        Assert.assertFalse(original.matches(fingerprint("input", "", "email")));
+    }
+
+    @Test(description = "Only values the original had are compared, and generated ids never are")
+    public void testOptionalValues() {
+        Assert.assertTrue(fingerprint("button", "", "").matches(fingerprint("button", "save", "action")));
+        Assert.assertTrue(fingerprint("button", null, null).matches(fingerprint("button", "save", "")));
+        Assert.assertTrue(fingerprint("input", ":r1:", "email").matches(fingerprint("input", ":r7:", "email")));
+        Assert.assertTrue(fingerprint("li", "item-1700000000", "").matches(fingerprint("li", "item-1700000042", "")));
+    }
+}
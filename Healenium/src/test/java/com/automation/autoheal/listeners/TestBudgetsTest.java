@@ -0,0 +1,111 @@
+package com.automation.autoheal.listeners;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import com.automation.autoheal.utils.TestUsage;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Budget lookup, most specific first, and checking usage against it
+ */
+public class TestBudgetsTest {
+
+    @TestBudget(heals = 4, commands = 100)
+    static class CheckoutTest {
+
+        @TestBudget(heals = 2)
+        public void testPay() {
+        }
+
+        public void testBrowse() {
+        }
+    }
+
+    static class SearchTest {
+
+        public void testSearch() {
+        }
+    }
+
+    private static final String[] PROPERTIES = {
+        "budget.default.heals", "budget.default.waitMs", "budget.CheckoutTest.heals",
+        "budget.CheckoutTest.testPay.heals"
+    };
+
+    private final TestBudgets budgets = TestBudgets.getInstance();
+
+    @AfterMethod(alwaysRun = true)
+    public void clearProperties() {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+        AutoHealConfig.getInstance().reload();
+    }
+
+    private static void configure(String key, String value) {
+        System.setProperty(key, value);
+        AutoHealConfig.getInstance().reload();
+    }
+
+    private static Method method(Class<?> testClass, String name) throws NoSuchMethodException {
+        return testClass.getMethod(name);
+    }
+
+    @Test(description = "Annotations apply method first, then class, with no limit elsewhere")
+    public void testAnnotations() throws NoSuchMethodException {
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, method(CheckoutTest.class, "testPay"), TestBudgets.Limit.HEALS), 2);
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, method(CheckoutTest.class, "testPay"), TestBudgets.Limit.COMMANDS), 100);
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, method(CheckoutTest.class, "testBrowse"), TestBudgets.Limit.HEALS), 4);
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, method(CheckoutTest.class, "testBrowse"), TestBudgets.Limit.WAIT), -1);
+        Assert.assertEquals(budgets.limit(SearchTest.class, method(SearchTest.class, "testSearch"), TestBudgets.Limit.HEALS), -1);
+    }
+
+    @Test(description = "Properties win over the annotation at the same level")
+    public void testPropertiesOverAnnotations() throws NoSuchMethodException {
+        configure("budget.CheckoutTest.heals", "6");
+        Method pay = method(CheckoutTest.class, "testPay");
+        Method browse = method(CheckoutTest.class, "testBrowse");
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, pay, TestBudgets.Limit.HEALS), 2,
+            "A method annotation is more specific than a class property");
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, browse, TestBudgets.Limit.HEALS), 6);
+
+        configure("budget.CheckoutTest.testPay.heals", "0");
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, pay, TestBudgets.Limit.HEALS), 0);
+    }
+
+    @Test(description = "The default applies only where nothing more specific is set")
+    public void testDefault() throws NoSuchMethodException {
+        configure("budget.default.heals", "1");
+        configure("budget.default.waitMs", "5000");
+        Assert.assertEquals(budgets.limit(SearchTest.class, method(SearchTest.class, "testSearch"), TestBudgets.Limit.HEALS), 1);
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, method(CheckoutTest.class, "testBrowse"), TestBudgets.Limit.HEALS), 4);
+        Assert.assertEquals(budgets.limit(CheckoutTest.class, method(CheckoutTest.class, "testBrowse"), TestBudgets.Limit.WAIT), 5000);
+    }
+
+    @Test(description = "An invalid number names its property", expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*budget.default.heals.*")
+    public void testInvalidProperty() throws NoSuchMethodException {
+        configure("budget.default.heals", "two");
+        budgets.limit(SearchTest.class, method(SearchTest.class, "testSearch"), TestBudgets.Limit.HEALS);
+    }
+
+    @Test(description = "Usage over a limit is reported as used > allowed")
+    public void testCheck() throws NoSuchMethodException {
+        TestUsage.start();
+        for (int i = 0; i < 3; i++) {
+            TestUsage.recordHeal(1000000, true);
+        }
+        TestUsage.recordHeal(1000000, false);
+        TestUsage usage = TestUsage.finish();
+
+        Assert.assertEquals(usage.getHeals(), 3);
+        Assert.assertEquals(budgets.check(CheckoutTest.class, method(CheckoutTest.class, "testPay"), usage),
+            Arrays.asList("heals 3 > 2"));
+        Assert.assertEquals(budgets.check(CheckoutTest.class, method(CheckoutTest.class, "testBrowse"), usage),
+            Collections.emptyList());
+    }
+}
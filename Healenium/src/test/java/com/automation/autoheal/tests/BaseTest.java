@@ -1,42 +1,67 @@
 package com.automation.autoheal.tests;
 
+import com.automation.autoheal.config.AutoHealConfig;
 import com.automation.autoheal.core.AutoHealWebDriver;
-import com.automation.autoheal.factory.WebDriverFactory;
+import com.automation.autoheal.factory.DriverRegistry;
 import com.automation.autoheal.reporting.ExtentReportManager;
+import com.automation.autoheal.utils.HealingMetrics;
+import org.testng.ITestContext;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Parameters;
 
 /**
- * Base test class for all test classes
+ * Base test class for all test classes.
+ *
+ * Drivers come from the {@link DriverRegistry}, one per worker thread, and
+ * live for the configured driver.scope, so test methods must use
+ * {@link #getDriver()} rather than keeping the driver in a field.
  */
 public class BaseTest {
     
-    protected AutoHealWebDriver driver;
     protected ExtentReportManager reportManager;
     
-    @BeforeMethod
+    @BeforeMethod(alwaysRun = true)
     @Parameters("browser")
-    public void setUp(String browser) {
+    public void setUp(String browser, ITestContext context) {
         if (browser == null || browser.isEmpty()) {
             browser = "chrome"; // Default browser
         }
-        driver = WebDriverFactory.createDriver(browser);
+        // No context when run outside TestNG, e.g. by the VirtualThreadTestRunner
+        DriverRegistry.acquire(browser, getClass(), context == null ? null : context.getName());
         reportManager = ExtentReportManager.getInstance();
-        reportManager.logInfo("Browser initialized: " + browser);
+        reportManager.logInfo("Browser initialized: " + browser + " (driver scope: "
+            + DriverRegistry.getScope().name().toLowerCase() + ")");
     }
     
-    @AfterMethod
+    /**
+     * Driver of the current test thread
+     */
+    protected AutoHealWebDriver getDriver() {
+        return DriverRegistry.current();
+    }
+    
+    @AfterMethod(alwaysRun = true)
     public void tearDown() {
+        AutoHealWebDriver driver = getDriver();
         if (driver != null) {
-            // Log page load statistics before closing
+            // Log page load statistics before the driver is released or reused
             if (driver.getPageLoadTracker() != null) {
                 reportManager.logInfo("Page load statistics: " + 
                     driver.getPageLoadTracker().getStatistics().toString());
             }
-            driver.quit();
-            reportManager.logInfo("Browser closed");
+            reportManager.logInfo("Healing metrics: " + HealingMetrics.getInstance().getStatistics());
+            if (AutoHealConfig.getInstance().isHealAheadEnabled()) {
+                reportManager.logInfo("Heal-ahead statistics: " + driver.getHealAhead().getStatistics());
+            }
+            DriverRegistry.afterMethod();
         }
     }
+    
+    @AfterClass(alwaysRun = true)
+    public void tearDownClass() {
+        DriverRegistry.afterClass(getClass());
+    }
 }
 
@@ -0,0 +1,118 @@
+package com.automation.autoheal.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Coalescing read-only queries into one script, with per-query fallbacks
+ */
+public class CommandBatcherTest {
+
+    /**
+     * Driver answering scripts with the given function and recording every command
+     */
+    private static WebDriver driver(List<String> commands, Function<String, Object> scripts) {
+        return (WebDriver) Proxy.newProxyInstance(CommandBatcherTest.class.getClassLoader(),
+            new Class<?>[] {WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "executeScript":
+                        commands.add("executeScript");
+                        return scripts.apply((String) args[0]);
+                    case "getCurrentUrl":
+                        commands.add("getCurrentUrl");
+                        return "https://shop.example/cart";
+                    case "getPageSource":
+                        commands.add("getPageSource");
+                        return "<html></html>";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    @Test(description = "Independent queries are answered by one script when batching is on")
+    public void testBatched() {
+        List<String> commands = new ArrayList<>();
+        CommandBatcher batcher = new CommandBatcher(driver(commands,
+            script -> Arrays.asList("complete", "https://shop.example/cart")), true);
+        CommandBatcher.Result result = batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL);
+        Assert.assertEquals(commands, Arrays.asList("executeScript"));
+        Assert.assertEquals(result.get(CommandBatcher.READY_STATE), "complete");
+        Assert.assertEquals(result.get(CommandBatcher.CURRENT_URL), "https://shop.example/cart");
+    }
+
+    @Test(description = "With batching off each query is its own command")
+    public void testUnbatched() {
+        List<String> commands = new ArrayList<>();
+        CommandBatcher batcher = new CommandBatcher(driver(commands, script -> "complete"), false);
+        Assert.assertFalse(batcher.isEnabled());
+        CommandBatcher.Result result = batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL);
+        Assert.assertEquals(commands, Arrays.asList("executeScript", "getCurrentUrl"));
+        Assert.assertEquals(result.get(CommandBatcher.READY_STATE), "complete");
+        Assert.assertEquals(result.get(CommandBatcher.CURRENT_URL), "https://shop.example/cart");
+    }
+
+    @Test(description = "A failing batch falls back to one command per query")
+    public void testFallbackWhenBatchFails() {
+        List<String> commands = new ArrayList<>();
+        CommandBatcher batcher = new CommandBatcher(driver(commands, script -> {
+            if (script.startsWith("return [")) {
+                throw new WebDriverException("Content Security Policy");
+            }
+            return "interactive";
+        }), true);
+        CommandBatcher.Result result = batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.PAGE_SOURCE);
+        Assert.assertEquals(commands, Arrays.asList("executeScript", "executeScript", "getPageSource"));
+        Assert.assertEquals(result.get(CommandBatcher.READY_STATE), "interactive");
+        Assert.assertEquals(result.get(CommandBatcher.PAGE_SOURCE), "<html></html>");
+    }
+
+    @Test(description = "A batch answering the wrong number of values is not trusted")
+    public void testFallbackOnShortAnswer() {
+        List<String> commands = new ArrayList<>();
+        CommandBatcher batcher = new CommandBatcher(driver(commands,
+            script -> script.startsWith("return [") ? Arrays.asList("complete") : "complete"), true);
+        CommandBatcher.Result result = batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL);
+        Assert.assertEquals(result.get(CommandBatcher.CURRENT_URL), "https://shop.example/cart");
+        Assert.assertEquals(commands.size(), 3);
+    }
+
+    @Test(description = "A snapshot read in the URL's batch falls back to the page source on its own")
+    public void testSnapshotSharesBatch() {
+        List<String> commands = new ArrayList<>();
+        CommandBatcher batcher = new CommandBatcher(driver(commands,
+            script -> Arrays.asList("https://shop.example/cart", null)), true);
+        CommandBatcher.Result reads = batcher.execute(CommandBatcher.CURRENT_URL, DomSnapshot.SCOPES);
+        DomSnapshot snapshot = DomSnapshot.capture(batcher, reads);
+        Assert.assertEquals(commands, Arrays.asList("executeScript", "getPageSource"));
+        Assert.assertEquals(reads.get(CommandBatcher.CURRENT_URL), "https://shop.example/cart");
+        Assert.assertEquals(snapshot.getScopes().size(), 1);
+        Assert.assertEquals(snapshot.getScopes().get(0).getHtml(), "<html></html>");
+    }
+
+    @Test(description = "Each expression is isolated so one failure does not fail the batch")
+    public void testBatchScript() {
+        String script = CommandBatcher.batchScript(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL);
+        Assert.assertEquals(script, "return [(function() { try { return document.readyState; } catch (e) { return null; } })(), "
+            + "(function() { try { return window.location.href; } catch (e) { return null; } })()];");
+    }
+
+    @Test(description = "Drivers that cannot run scripts never batch")
+    public void testDriverWithoutScripts() {
+        WebDriver driver = (WebDriver) Proxy.newProxyInstance(CommandBatcherTest.class.getClassLoader(),
+            new Class<?>[] {WebDriver.class}, (proxy, method, args) -> "https://shop.example/");
+        CommandBatcher batcher = new CommandBatcher(driver, true);
+        Assert.assertFalse(batcher.isEnabled());
+        CommandBatcher.Result result = batcher.execute(CommandBatcher.READY_STATE, CommandBatcher.CURRENT_URL);
+        Assert.assertNull(result.get(CommandBatcher.READY_STATE));
+        Assert.assertEquals(result.get(CommandBatcher.CURRENT_URL), "https://shop.example/");
+    }
+}
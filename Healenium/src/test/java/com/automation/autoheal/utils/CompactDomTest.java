@@ -0,0 +1,105 @@
+package com.automation.autoheal.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Parsing and streaming scans of the columnar healing DOM
+ */
+public class CompactDomTest {
+
+    private static final String PAGE =
+        "<html><body>" +
+        "<header><nav><a id='home' href='/'>Home</a></nav></header>" +
+        "<main>" +
+        "<section><h1>Checkout</h1><p>Review your <b>order</b></p></section>" +
+        "<form><input name='q' class='Search-Box wide'/><button class='btn primary'>Place order</button></form>" +
+        "</main>" +
+        "<footer><p>Imprint</p></footer>" +
+        "</body></html>";
+
+    @Test(description = "Elements are numbered in document order with subtree ends")
+    public void testParse() {
+        CompactDom dom = CompactDom.parse(PAGE);
+        Assert.assertFalse(dom.isPruned());
+        int main = dom.elementsByTag(CompactDom.ROOT, "main")[0];
+        int button = dom.elementsByTag(CompactDom.ROOT, "button")[0];
+        Assert.assertTrue(button > main && button < dom.end(main), "The button is inside main's subtree");
+        Assert.assertEquals(dom.tagName(dom.parent(button)), "form");
+        Assert.assertEquals(dom.text(main), "Checkout Review your order Place order");
+        Assert.assertEquals(dom.elementById("home"), dom.elementsByTag(CompactDom.ROOT, "a")[0]);
+        Assert.assertEquals(dom.attr(dom.elementById("home"), "href"), "/");
+    }
+
+    @Test(description = "Lookups by class and attribute return elements in document order")
+    public void testLookups() {
+        CompactDom dom = CompactDom.parse(PAGE);
+        int button = dom.elementsByTag(CompactDom.ROOT, "button")[0];
+        Assert.assertEquals(dom.elementsByClass("primary"), new int[] {button});
+        Assert.assertTrue(dom.hasClass(button, "btn"));
+        Assert.assertFalse(dom.hasClass(button, "btn-primary"));
+        Assert.assertEquals(dom.elementsByAttributeValue("name", "q").length, 1);
+        Assert.assertEquals(dom.elementsWithAttribute("href").length, 1);
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "p").length, 2);
+        Assert.assertEquals(dom.elementById("missing"), -1);
+    }
+
+    @Test(description = "A scan keeps the matches and their ancestors, nothing else")
+    public void testScanKeepsMatchesAndAncestors() {
+        CompactDom dom = CompactDom.scan(PAGE, new CompactDom.Filter().className("search-box"));
+        Assert.assertTrue(dom.isPruned());
+        Assert.assertEquals(dom.elementCount(), 5, "html, body, main, form and the input");
+        int input = dom.elementsByTag(CompactDom.ROOT, "input")[0];
+        Assert.assertEquals(dom.attr(input, "name"), "q");
+        Assert.assertEquals(dom.tagName(dom.parent(input)), "form");
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "footer").length, 0);
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "button").length, 0);
+    }
+
+    @Test(description = "Scan constraints are alternatives: id, name, tag and text")
+    public void testScanFilters() {
+        CompactDom dom = CompactDom.scan(PAGE, new CompactDom.Filter().id("home").name("q").text("place ORDER"));
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "a").length, 1);
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "input").length, 1);
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "button").length, 1, "Text matches ignore case");
+        Assert.assertEquals(dom.elementsByTag(CompactDom.ROOT, "section").length, 0);
+
+        CompactDom paragraphs = CompactDom.scan(PAGE, new CompactDom.Filter().tagName("P"));
+        Assert.assertEquals(paragraphs.elementsByTag(CompactDom.ROOT, "p").length, 2);
+    }
+
+    @Test(description = "A scan matching nothing keeps only the root")
+    public void testScanWithoutMatches() {
+        CompactDom dom = CompactDom.scan(PAGE, new CompactDom.Filter().id("missing"));
+        Assert.assertEquals(dom.elementCount(), 0);
+    }
+
+    @Test(description = "Named, legacy and numeric character references are decoded")
+    public void testCharacterReferences() {
+        CompactDom dom = CompactDom.parse("<p title='a&amp;b&copy=2'>caf&eacute; &lt;3 &#233;&#x41; &copy 2024 &bogus;</p>");
+        int p = dom.elementsByTag(CompactDom.ROOT, "p")[0];
+        Assert.assertEquals(dom.text(p), "café <3 éA © 2024 &bogus;");
+        Assert.assertEquals(dom.attr(p, "title"), "a&b&copy=2", "Legacy names before '=' stay literal in attributes");
+    }
+
+    @Test(description = "Rows placed directly in a table get the tbody a browser inserts")
+    public void testImpliedTbody() {
+        CompactDom dom = CompactDom.parse("<table><tr><td>a<td>b<tr><td>c</table>");
+        int[] rows = dom.elementsByTag(CompactDom.ROOT, "tr");
+        Assert.assertEquals(rows.length, 2);
+        Assert.assertEquals(dom.tagName(dom.parent(rows[0])), "tbody");
+        Assert.assertEquals(dom.parent(rows[1]), dom.parent(rows[0]));
+        Assert.assertEquals(dom.elementsByTag(rows[0], "td").length, 2);
+    }
+
+    @Test(description = "Block elements close an open paragraph, list items close their siblings")
+    public void testImpliedEndTags() {
+        CompactDom dom = CompactDom.parse("<p>one<div>two</div><ul><li>a<p>b<li>c</ul>");
+        int div = dom.elementsByTag(CompactDom.ROOT, "div")[0];
+        Assert.assertEquals(dom.parent(div), CompactDom.ROOT, "The div is a sibling of the paragraph, not its child");
+        int[] items = dom.elementsByTag(CompactDom.ROOT, "li");
+        Assert.assertEquals(items.length, 2);
+        Assert.assertEquals(dom.parent(items[0]), dom.parent(items[1]));
+        Assert.assertEquals(dom.text(items[0]), "a b");
+    }
+}
@@ -0,0 +1,147 @@
+package com.automation.autoheal.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Heal cache snapshot files: round trip, checksum and merging of shard deltas
+ */
+public class HealCacheSnapshotTest {
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("heal-cache-snapshot").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        try (Stream<java.nio.file.Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static HealCacheSnapshot.Entry entry(String original, String xPath, int score, long updatedAt) {
+        return new HealCacheSnapshot.Entry(original, xPath,
+            Collections.singletonList(new ByScopedXPath.Hop(DomSnapshot.Kind.FRAME, "//iframe[@id='pay']")),
+            score, "id+tagName", updatedAt);
+    }
+
+    private static Map<String, HealCacheSnapshot.Entry> byOriginal(HealCacheSnapshot snapshot) {
+        Map<String, HealCacheSnapshot.Entry> entries = new HashMap<>();
+        for (HealCacheSnapshot.Entry entry : snapshot.getEntries()) {
+            entries.put(entry.getOriginal(), entry);
+        }
+        return entries;
+    }
+
+    @Test(description = "A written snapshot reads back with every field")
+    public void testRoundTrip() throws IOException {
+        File file = new File(directory, "base.snapshot");
+        new HealCacheSnapshot(3, 2, 1000, Arrays.asList(
+            entry("//a[@id='old']", "//a[@id='new']", 10, 500),
+            HealCacheSnapshot.Entry.tombstone("//b[@id='gone']", 600))).write(file);
+
+        HealCacheSnapshot read = HealCacheSnapshot.read(file);
+        Assert.assertEquals(read.getGeneration(), 3);
+        Assert.assertEquals(read.getBaseGeneration(), 2);
+        Assert.assertEquals(read.getCreatedAt(), 1000);
+        HealCacheSnapshot.Entry live = byOriginal(read).get("//a[@id='old']");
+        Assert.assertEquals(live.getXPath(), "//a[@id='new']");
+        Assert.assertEquals(live.getScore(), 10);
+        Assert.assertEquals(live.getStrategy(), "id+tagName");
+        Assert.assertEquals(live.getUpdatedAt(), 500);
+        Assert.assertEquals(live.getHops().get(0).getKind(), DomSnapshot.Kind.FRAME);
+        Assert.assertEquals(live.getHops().get(0).getHostXPath(), "//iframe[@id='pay']");
+        Assert.assertTrue(byOriginal(read).get("//b[@id='gone']").isTombstone());
+        Assert.assertFalse(new File(directory, "base.snapshot.tmp").exists());
+    }
+
+    @Test(description = "The index finds live entries and leaves tombstones out")
+    public void testIndex() throws IOException {
+        File file = new File(directory, "index.snapshot");
+        new HealCacheSnapshot(1, 0, 1000, Arrays.asList(
+            entry("//a[@id='old']", "//a[@id='new']", 10, 500),
+            HealCacheSnapshot.Entry.tombstone("//b[@id='gone']", 600))).write(file);
+
+        HealCacheSnapshot.Index index = HealCacheSnapshot.open(file);
+        Assert.assertEquals(index.getGeneration(), 1);
+        Assert.assertEquals(index.size(), 1);
+        Assert.assertEquals(index.get("//a[@id='old']").getXPath(), "//a[@id='new']");
+        Assert.assertNull(index.get("//b[@id='gone']"));
+        Assert.assertNull(index.get("//c"));
+    }
+
+    @Test(description = "A corrupted byte fails the checksum", expectedExceptions = IOException.class,
+          expectedExceptionsMessageRegExp = ".*checksum.*")
+    public void testChecksum() throws IOException {
+        File file = new File(directory, "corrupt.snapshot");
+        new HealCacheSnapshot(1, 0, 1000, Collections.singletonList(entry("//a", "//b", 1, 1))).write(file);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(40);
+            int value = raw.read();
+            raw.seek(40);
+            raw.write(value ^ 0xFF);
+        }
+        HealCacheSnapshot.read(file);
+    }
+
+    @Test(description = "A truncated file is rejected", expectedExceptions = IOException.class)
+    public void testTruncated() throws IOException {
+        File file = new File(directory, "truncated.snapshot");
+        new HealCacheSnapshot(1, 0, 1000, Collections.singletonList(entry("//a", "//b", 1, 1))).write(file);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 10);
+        }
+        HealCacheSnapshot.open(file);
+    }
+
+    @Test(description = "Merging keeps the newest entry per locator, then the higher score")
+    public void testMerge() {
+        HealCacheSnapshot base = new HealCacheSnapshot(4, 3, 0, Arrays.asList(
+            entry("//a", "//a-base", 10, 100),
+            entry("//b", "//b-base", 10, 100),
+            entry("//c", "//c-base", 5, 100)));
+        HealCacheSnapshot shard1 = new HealCacheSnapshot(4, 4, 0, Arrays.asList(
+            entry("//a", "//a-shard", 3, 200),
+            HealCacheSnapshot.Entry.tombstone("//b", 200)));
+        HealCacheSnapshot shard2 = new HealCacheSnapshot(4, 4, 0, Arrays.asList(
+            entry("//b", "//b-older", 20, 150),
+            entry("//c", "//c-better", 8, 100)));
+
+        HealCacheSnapshot merged = HealCacheSnapshot.merge(Arrays.asList(base, shard1, shard2));
+        Assert.assertEquals(merged.getGeneration(), 5);
+        Assert.assertEquals(merged.getBaseGeneration(), 4);
+        Map<String, HealCacheSnapshot.Entry> entries = byOriginal(merged);
+        Assert.assertEquals(entries.get("//a").getXPath(), "//a-shard", "The most recent heal wins over a higher score");
+        Assert.assertTrue(entries.get("//b").isTombstone(), "An older heal merged later must not come back");
+        Assert.assertEquals(entries.get("//c").getXPath(), "//c-better");
+    }
+
+    @Test(description = "Merging is independent of the input order")
+    public void testMergeOrder() {
+        List<HealCacheSnapshot> inputs = Arrays.asList(
+            new HealCacheSnapshot(1, 0, 0, Collections.singletonList(entry("//a", "//first", 1, 100))),
+            new HealCacheSnapshot(2, 1, 0, Collections.singletonList(entry("//a", "//second", 1, 200))));
+        HealCacheSnapshot forward = HealCacheSnapshot.merge(inputs);
+        Collections.reverse(inputs);
+        HealCacheSnapshot backward = HealCacheSnapshot.merge(inputs);
+        Assert.assertEquals(byOriginal(forward).get("//a").getXPath(), "//second");
+        Assert.assertEquals(byOriginal(backward).get("//a").getXPath(), "//second");
+        Assert.assertEquals(forward.getGeneration(), 3);
+    }
+}
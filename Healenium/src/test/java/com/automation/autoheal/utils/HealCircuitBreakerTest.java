@@ -0,0 +1,117 @@
+package com.automation.autoheal.utils;
+
+import com.automation.autoheal.config.AutoHealConfig;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Circuit breaker states: closed, open for the cooldown, one half-open probe
+ */
+public class HealCircuitBreakerTest {
+
+    private static final String PAGE = "https://shop.example/product/{id}";
+    private static final String LOCATOR = "By.xpath: //button[@id='buy']";
+    private static final long COOLDOWN = 100;
+
+    private final HealCircuitBreaker breaker = HealCircuitBreaker.getInstance();
+
+    @BeforeClass
+    public void configure() {
+        System.setProperty("autoheal.circuitBreaker.enabled", "true");
+        System.setProperty("autoheal.circuitBreaker.failureThreshold", "2");
+        System.setProperty("autoheal.circuitBreaker.cooldown", String.valueOf(COOLDOWN));
+        System.setProperty("autoheal.circuitBreaker.maxCooldown", String.valueOf(COOLDOWN * 2));
+        AutoHealConfig.getInstance().reload();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restore() {
+        System.clearProperty("autoheal.circuitBreaker.enabled");
+        System.clearProperty("autoheal.circuitBreaker.failureThreshold");
+        System.clearProperty("autoheal.circuitBreaker.cooldown");
+        System.clearProperty("autoheal.circuitBreaker.maxCooldown");
+        AutoHealConfig.getInstance().reload();
+        breaker.reset();
+    }
+
+    @BeforeMethod
+    public void resetCircuits() {
+        breaker.reset();
+    }
+
+    private void open() {
+        breaker.recordFailure(PAGE, LOCATOR);
+        breaker.recordFailure(PAGE, LOCATOR);
+    }
+
+    private void waitForCooldown(long cooldown) throws InterruptedException {
+        Thread.sleep(cooldown + 50);
+    }
+
+    @Test(description = "Failures below the threshold keep the circuit closed")
+    public void testClosedBelowThreshold() {
+        breaker.recordFailure(PAGE, LOCATOR);
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.CLOSED);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+    }
+
+    @Test(description = "Reaching the threshold opens the circuit for that locator and page only")
+    public void testOpensAtThreshold() {
+        open();
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.OPEN);
+        Assert.assertFalse(breaker.allowAttempt(PAGE, LOCATOR));
+        Assert.assertTrue(breaker.allowAttempt("https://shop.example/cart", LOCATOR));
+        Assert.assertEquals(breaker.getStatistics().get("timesOpened"), 1L);
+        Assert.assertTrue(breaker.isTripped(LOCATOR), "Tripped on some page");
+        Assert.assertFalse(breaker.isTripped("By.xpath: //button[@id='other']"));
+    }
+
+    @Test(description = "After the cooldown exactly one attempt is let through")
+    public void testHalfOpenAllowsOneProbe() throws InterruptedException {
+        open();
+        waitForCooldown(COOLDOWN);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.HALF_OPEN);
+        Assert.assertFalse(breaker.allowAttempt(PAGE, LOCATOR), "A second caller must wait for the probe's result");
+    }
+
+    @Test(description = "A successful probe closes the circuit")
+    public void testHalfOpenSuccessCloses() throws InterruptedException {
+        open();
+        waitForCooldown(COOLDOWN);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+        breaker.recordSuccess(PAGE, LOCATOR);
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.CLOSED);
+        Assert.assertFalse(breaker.isTripped(LOCATOR));
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+        breaker.recordFailure(PAGE, LOCATOR);
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.CLOSED,
+            "Success resets the consecutive failure count");
+    }
+
+    @Test(description = "A failed probe reopens the circuit with the cooldown doubled")
+    public void testHalfOpenFailureReopens() throws InterruptedException {
+        open();
+        waitForCooldown(COOLDOWN);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+        breaker.recordFailure(PAGE, LOCATOR);
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.OPEN);
+        Assert.assertFalse(breaker.allowAttempt(PAGE, LOCATOR));
+        waitForCooldown(COOLDOWN * 2);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+        Assert.assertEquals(breaker.getStatistics().get("timesOpened"), 2L);
+    }
+
+    @Test(description = "Releasing a probe without a result lets the next attempt through")
+    public void testReleaseEndsProbe() throws InterruptedException {
+        open();
+        waitForCooldown(COOLDOWN);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+        breaker.release(PAGE, LOCATOR);
+        Assert.assertEquals(breaker.getState(PAGE, LOCATOR), HealCircuitBreaker.State.HALF_OPEN);
+        Assert.assertTrue(breaker.allowAttempt(PAGE, LOCATOR));
+    }
+}
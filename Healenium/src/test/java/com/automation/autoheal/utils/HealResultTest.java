@@ -0,0 +1,89 @@
+package com.automation.autoheal.utils;
+
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Accepting or refusing the best healing candidate
+ */
+public class HealResultTest {
+
+    private static final double MIN_CONFIDENCE = 0.3;
+    private static final double MIN_MARGIN = 0.05;
+
+    private static HealResult.Candidate candidate(String xPath, int score, double confidence) {
+        return new HealResult.Candidate(xPath == null ? null : By.xpath(xPath), score, confidence, "id+tagName");
+    }
+
+    private static HealResult judge(HealResult.Candidate... ranked) {
+        return HealResult.judge(Arrays.asList(ranked), "jvm", MIN_CONFIDENCE, MIN_MARGIN);
+    }
+
+    @Test(description = "No candidates means no heal")
+    public void testNoCandidates() {
+        HealResult result = HealResult.judge(Collections.<HealResult.Candidate>emptyList(), "jvm", MIN_CONFIDENCE, MIN_MARGIN);
+        Assert.assertEquals(result.getStatus(), HealResult.Status.NO_CANDIDATE);
+        Assert.assertFalse(result.isHealed());
+        Assert.assertNull(result.getMatch());
+    }
+
+    @Test(description = "The best candidate is accepted when confident and clearly ahead")
+    public void testHealed() {
+        HealResult result = judge(candidate("//input[@id='email']", 13, 0.8), candidate("//input[@name='mail']", 8, 0.5));
+        Assert.assertEquals(result.getStatus(), HealResult.Status.HEALED);
+        Assert.assertTrue(result.isHealed());
+        Assert.assertEquals(result.getMatch().getLocator(), By.xpath("//input[@id='email']"));
+        Assert.assertEquals(result.getMatch().getScore(), 13);
+        Assert.assertEquals(result.getMatch().getStrategy(), "id+tagName");
+        Assert.assertEquals(result.getMatch().getEngine(), "jvm");
+        Assert.assertEquals(result.getCandidates().size(), 2);
+    }
+
+    @Test(description = "A single candidate needs no margin")
+    public void testSingleCandidate() {
+        Assert.assertEquals(judge(candidate("//a", 3, 0.31)).getStatus(), HealResult.Status.HEALED);
+    }
+
+    @Test(description = "A best candidate below the minimum confidence is refused")
+    public void testLowConfidence() {
+        HealResult result = judge(candidate("//a", 3, 0.29), candidate("//b", 1, 0.1));
+        Assert.assertEquals(result.getStatus(), HealResult.Status.LOW_CONFIDENCE);
+        Assert.assertNull(result.getMatch());
+        Assert.assertEquals(result.getCandidates().size(), 2, "Refused results keep the candidates for the report");
+    }
+
+    @Test(description = "Two candidates closer than the minimum margin are ambiguous")
+    public void testAmbiguous() {
+        HealResult result = judge(candidate("//a", 13, 0.8), candidate("//b", 12, 0.78));
+        Assert.assertEquals(result.getStatus(), HealResult.Status.AMBIGUOUS);
+        Assert.assertFalse(result.isHealed());
+    }
+
+    @Test(description = "Confidence is checked before the margin")
+    public void testLowConfidenceWinsOverAmbiguous() {
+        Assert.assertEquals(judge(candidate("//a", 2, 0.2), candidate("//b", 2, 0.2)).getStatus(),
+            HealResult.Status.LOW_CONFIDENCE);
+    }
+
+    @Test(description = "A winner without a unique locator cannot be used")
+    public void testNoUniqueLocator() {
+        HealResult result = judge(candidate(null, 13, 0.8), candidate("//b", 5, 0.3));
+        Assert.assertEquals(result.getStatus(), HealResult.Status.NO_UNIQUE_LOCATOR);
+        Assert.assertNull(result.getMatch());
+    }
+
+    @Test(description = "A reused replacement is healed without candidates")
+    public void testReused() {
+        List<HealResult.Candidate> ranked = Collections.singletonList(candidate("//a", 10, 0.9));
+        XPathHealer.Match match = HealResult.judge(ranked, "jvm", MIN_CONFIDENCE, MIN_MARGIN).getMatch();
+        HealResult reused = HealResult.reused(match);
+        Assert.assertTrue(reused.isHealed());
+        Assert.assertSame(reused.getMatch(), match);
+        Assert.assertTrue(reused.getCandidates().isEmpty());
+        Assert.assertEquals(HealResult.reused(null).getStatus(), HealResult.Status.NO_CANDIDATE);
+    }
+}
@@ -0,0 +1,107 @@
+package com.automation.autoheal.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comparing page load percentiles of a run with the baseline
+ */
+public class PageLoadRegressionTest {
+
+    private static final String PAGE = "https://shop.example/product/{id}";
+
+    /**
+     * Samples from start on, one millisecond apart
+     */
+    private static List<Long> samples(long start, int count) {
+        return samples(start, count, 1);
+    }
+
+    private static List<Long> samples(long start, int count, long step) {
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(start + i * step);
+        }
+        Collections.shuffle(values);
+        return values;
+    }
+
+    private static PageLoadRegression.Page compare(List<Long> baseline, List<Long> run) {
+        Map<String, List<Long>> before = new HashMap<>();
+        if (baseline != null) {
+            before.put(PAGE, baseline);
+        }
+        List<PageLoadRegression.Page> pages = PageLoadRegression.compare(before,
+            Collections.singletonMap(PAGE, run), 20, 0.2, 100);
+        Assert.assertEquals(pages.size(), 1);
+        return pages.get(0);
+    }
+
+    @Test(description = "Percentiles are nearest-rank with confidence bounds around them")
+    public void testPercentiles() {
+        List<Long> sorted = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            sorted.add(i);
+        }
+        Assert.assertEquals(PageLoadRegression.percentile(sorted, 0.5), 50);
+        Assert.assertEquals(PageLoadRegression.percentile(sorted, 0.9), 90);
+        Assert.assertEquals(PageLoadRegression.lowerBound(sorted, 0.5), 40);
+        Assert.assertEquals(PageLoadRegression.upperBound(sorted, 0.5), 60);
+        Assert.assertEquals(PageLoadRegression.percentile(Arrays.asList(7L), 0.9), 7);
+        Assert.assertEquals(PageLoadRegression.lowerBound(Arrays.asList(7L), 0.9), 7);
+        Assert.assertEquals(PageLoadRegression.upperBound(Arrays.asList(7L), 0.9), 7);
+    }
+
+    @Test(description = "A template missing from the baseline is new")
+    public void testNew() {
+        PageLoadRegression.Page page = compare(null, samples(1000, 30));
+        Assert.assertEquals(page.getStatus(), PageLoadRegression.Status.NEW);
+        Assert.assertEquals(page.getSamples(), 30);
+        Assert.assertTrue(page.getPercentiles().isEmpty());
+    }
+
+    @Test(description = "Too few samples on either side are not compared")
+    public void testTooFewSamples() {
+        Assert.assertEquals(compare(samples(1000, 30), samples(5000, 10)).getStatus(),
+            PageLoadRegression.Status.TOO_FEW_SAMPLES);
+        Assert.assertEquals(compare(samples(1000, 10), samples(5000, 30)).getStatus(),
+            PageLoadRegression.Status.TOO_FEW_SAMPLES);
+    }
+
+    @Test(description = "A clearly slower run is a regression")
+    public void testRegressed() {
+        PageLoadRegression.Page page = compare(samples(1000, 50), samples(1500, 50));
+        Assert.assertEquals(page.getStatus(), PageLoadRegression.Status.REGRESSED);
+        PageLoadRegression.Percentile p50 = page.getPercentiles().get(0);
+        Assert.assertEquals(p50.getName(), "p50");
+        Assert.assertTrue(p50.isRegressed());
+        Assert.assertEquals(p50.getBaseline(), 1024);
+        Assert.assertEquals(p50.getCurrent(), 1524);
+    }
+
+    @Test(description = "A significant change below the relative threshold is not a regression")
+    public void testBelowThreshold() {
+        Assert.assertEquals(compare(samples(1000, 50), samples(1150, 50)).getStatus(),
+            PageLoadRegression.Status.UNCHANGED);
+    }
+
+    @Test(description = "A shift inside the noise of the samples is not a regression")
+    public void testWithinNoise() {
+        Assert.assertEquals(compare(samples(1000, 20, 100), samples(1400, 20, 100)).getStatus(),
+            PageLoadRegression.Status.UNCHANGED, "Overlapping confidence intervals");
+    }
+
+    @Test(description = "A clearly faster run is an improvement")
+    public void testImproved() {
+        PageLoadRegression.Page page = compare(samples(2000, 50), samples(1000, 50));
+        Assert.assertEquals(page.getStatus(), PageLoadRegression.Status.IMPROVED);
+        Assert.assertTrue(page.getPercentiles().get(1).isImproved());
+        Assert.assertEquals(page.getPercentiles().get(1).getChange(), -1000.0 / 2044, 0.0001);
+    }
+}
@@ -0,0 +1,85 @@
+package com.automation.autoheal.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Shortest unique XPaths, checked against the DomIndex of the page
+ */
+public class XPathGeneratorTest {
+
+    private static final String PAGE =
+        "<html><body>" +
+        "<form id='login'>" +
+        "<input id='email' name='email'/>" +
+        "<input id='field-123456' data-testid='password'/>" +
+        "<button>Sign in</button>" +
+        "<button>Cancel</button>" +
+        "</form>" +
+        "<form id='signup'><input name='email'/><button>Sign in</button></form>" +
+        "<div><span>one</span><span>two</span></div>" +
+        "<div><span class='x'>two</span></div>" +
+        "</body></html>";
+
+    private static String generate(String html, String tagName, int occurrence) {
+        CompactDom dom = CompactDom.parse(html);
+        int element = dom.elementsByTag(CompactDom.ROOT, tagName)[occurrence];
+        return new XPathGenerator(new DomIndex(dom)).generate(element);
+    }
+
+    @Test(description = "A unique id is used directly")
+    public void testUniqueId() {
+        Assert.assertEquals(generate(PAGE, "input", 0), "//input[@id='email']");
+    }
+
+    @Test(description = "Generated-looking ids are skipped for a test attribute")
+    public void testGeneratedIdSkipped() {
+        Assert.assertEquals(generate(PAGE, "input", 1), "//input[@data-testid='password']");
+    }
+
+    @Test(description = "A duplicated attribute falls back to a path from a unique ancestor")
+    public void testDuplicateAttributeAnchored() {
+        Assert.assertEquals(generate(PAGE, "input", 2), "//form[@id='signup']//input");
+    }
+
+    @Test(description = "Unique leaf text is used, duplicated text is anchored")
+    public void testText() {
+        Assert.assertEquals(generate(PAGE, "button", 1), "//button[normalize-space()='Cancel']");
+        Assert.assertEquals(generate(PAGE, "button", 0), "//form[@id='login']//button[normalize-space()='Sign in']");
+    }
+
+    @Test(description = "Without a unique ancestor the path is positional from /html")
+    public void testAbsolutePath() {
+        Assert.assertEquals(generate(PAGE, "span", 1), "/html/body/div[1]/span[2]");
+    }
+
+    @Test(description = "A pruned DOM only gives single-step locators")
+    public void testPrunedDom() {
+        CompactDom dom = CompactDom.scan(PAGE, new CompactDom.Filter().tagName("input"));
+        Assert.assertTrue(dom.isPruned());
+        int[] inputs = dom.elementsByTag(CompactDom.ROOT, "input");
+        XPathGenerator generator = new XPathGenerator(new DomIndex(dom));
+        Assert.assertEquals(generator.generate(inputs[0]), "//input[@id='email']");
+        Assert.assertNull(generator.generate(inputs[2]), "A path needs siblings the scan dropped");
+    }
+
+    @Test(description = "A pruned DOM still proves uniqueness page-wide")
+    public void testPrunedCountsMatchFullParse() {
+        DomIndex full = new DomIndex(CompactDom.parse(PAGE));
+        DomIndex pruned = new DomIndex(CompactDom.scan(PAGE, new CompactDom.Filter().id("email")));
+        Assert.assertEquals(full.countAttribute("name", "email"), 2);
+        Assert.assertEquals(pruned.countAttribute("name", "email"), 2);
+        Assert.assertEquals(pruned.countAttribute("input", "name", "email"), 2);
+        Assert.assertEquals(full.countText("button", "Sign in"), 2);
+        Assert.assertEquals(pruned.countText("button", "Sign in"), 2);
+        Assert.assertEquals(pruned.countText("button", "Cancel"), 1);
+        Assert.assertEquals(pruned.countAttribute("id", "missing"), 0);
+    }
+
+    @Test(description = "Values are quoted as XPath literals")
+    public void testLiteral() {
+        Assert.assertEquals(XPathGenerator.literal("plain"), "'plain'");
+        Assert.assertEquals(XPathGenerator.literal("it's"), "\"it's\"");
+        Assert.assertEquals(XPathGenerator.literal("it's \"x\""), "concat('it', \"'\", 's \"x\"')");
+    }
+}